@@ -1,16 +1,11 @@
 package com.thesett.util.client;
 
-import java.io.InputStream;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 
-import javax.ws.rs.WebApplicationException;
-
-import org.apache.commons.io.IOUtils;
-
-import com.thesett.util.entity.EntityValidationException;
+import com.thesett.util.proxies.ProxyInterceptor;
+import com.thesett.util.proxies.ReflectiveInvocation;
 
 /**
  * WebExceptionCodeClientProxy is a client side proxy, that can be used to wrap any javax.ws.rs REST client. javax.ws.rs
@@ -20,6 +15,9 @@ import com.thesett.util.entity.EntityValidationException;
  *
  * <p/>This is effectively the inverse of a javax.ws.rs.ExceptionMapper.
  *
+ * <p/>The translation is done by a {@link WebExceptionCodeInterceptor}, which can also be used on its own as one layer
+ * of a {@link com.thesett.util.proxies.ComposedProxy}.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td>  </td></tr>
@@ -29,6 +27,9 @@ public class WebExceptionCodeClientProxy implements InvocationHandler {
     /** The object being proxied. */
     private final Object obj;
 
+    /** The interceptor that translates exceptions. */
+    private final ProxyInterceptor interceptor = new WebExceptionCodeInterceptor();
+
     /**
      * Creates the web exception proxy.
      *
@@ -54,27 +55,6 @@ public class WebExceptionCodeClientProxy implements InvocationHandler {
 
     /** {@inheritDoc} */
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        try {
-            try {
-                return method.invoke(obj, args);
-            } catch (InvocationTargetException e) {
-                throw e.getCause();
-            }
-        } catch (WebApplicationException we) {
-            int status = we.getResponse().getStatus();
-
-            if (status == 422) {
-                Object entity = we.getResponse().getEntity();
-                String message = "";
-
-                if (entity instanceof InputStream) {
-                    message = IOUtils.toString((InputStream) entity, "UTF-8");
-                }
-
-                throw new EntityValidationException(message);
-            }
-
-            throw we;
-        }
+        return interceptor.intercept(new ReflectiveInvocation(obj, method, args));
     }
 }
@@ -0,0 +1,45 @@
+package com.thesett.util.client;
+
+import java.io.InputStream;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.apache.commons.io.IOUtils;
+
+import com.thesett.util.entity.EntityValidationException;
+import com.thesett.util.proxies.Invocation;
+import com.thesett.util.proxies.ProxyInterceptor;
+
+/**
+ * WebExceptionCodeInterceptor translates the runtime exceptions that javax.ws.rs REST clients raise for certain HTTP
+ * response codes, back into the checked business exceptions that those codes convey.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Translate 422 responses into entity validation exceptions. </td>
+ *     <td> {@link EntityValidationException} </td></tr>
+ * </table></pre>
+ */
+public class WebExceptionCodeInterceptor implements ProxyInterceptor {
+    /** {@inheritDoc} */
+    public Object intercept(Invocation invocation) throws Throwable {
+        try {
+            return invocation.proceed();
+        } catch (WebApplicationException we) {
+            int status = we.getResponse().getStatus();
+
+            if (status == 422) {
+                Object entity = we.getResponse().getEntity();
+                String message = "";
+
+                if (entity instanceof InputStream) {
+                    message = IOUtils.toString((InputStream) entity, "UTF-8");
+                }
+
+                throw new EntityValidationException(message);
+            }
+
+            throw we;
+        }
+    }
+}
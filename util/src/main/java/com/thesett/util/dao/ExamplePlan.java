@@ -0,0 +1,212 @@
+package com.thesett.util.dao;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Example;
+import org.hibernate.criterion.Restrictions;
+
+import com.thesett.aima.attribute.impl.EnumeratedStringAttribute;
+import com.thesett.util.entity.Entity;
+import com.thesett.util.memento.PropertyAccessors;
+
+/**
+ * ExamplePlan describes how to query by example on a class of entity, beyond the simple properties that
+ * {@link Example} already matches on. It is worked out once for each class, from the declared types of its bean
+ * properties, and re-used for every query.
+ *
+ * <p/>Properties that refer to other entities are matched by example in a sub-criteria. Properties that hold
+ * enumerated reference data types, that is types with a public constructor taking an
+ * {@link EnumeratedStringAttribute}, are matched by equality. All other properties are left to {@link Example}, and
+ * are not even read when building a query. A property whose declared type does not settle which of these it is, such
+ * as one declared as an interface, is classified by the class of its value instead; the classification of each value
+ * class is also worked out only once.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Classify the properties of an entity class once. </td><td> {@link PropertyAccessors} </td></tr>
+ * <tr><td> Add criteria for relations and reference data in an example. </td><td> {@link Criteria} </td></tr>
+ * </table></pre>
+ */
+final class ExamplePlan {
+    /** Holds the plans of entity classes. */
+    private static final Map<Class<?>, ExamplePlan> PLANS = new ConcurrentHashMap<>();
+
+    /** Holds the kinds of the classes of property values, for properties classified by value. */
+    private static final Map<Class<?>, Kind> VALUE_KINDS = new ConcurrentHashMap<>();
+
+    /** The property accessors of the entity class. */
+    private final PropertyAccessors accessors;
+
+    /** The names of the properties that may need criteria. */
+    private final String[] names;
+
+    /** The kinds of the properties that may need criteria, in the same order as their names. */
+    private final Kind[] kinds;
+
+    /** Kind enumerates the ways in which a property is matched when querying by example. */
+    enum Kind {
+        /** Matched by {@link Example} itself. */
+        SCALAR,
+
+        /** A relation to another entity, matched by example in a sub-criteria. */
+        RELATION,
+
+        /** An enumerated reference data type, matched by equality. */
+        REF_DATA,
+
+        /** Not known from the declared type, so classified by the class of the value. */
+        BY_VALUE
+    }
+
+    /**
+     * Classifies the properties of an entity class.
+     *
+     * @param entityClass The entity class.
+     */
+    private ExamplePlan(Class<?> entityClass) {
+        accessors = PropertyAccessors.forClass(entityClass);
+
+        List<String> planNames = new ArrayList<>();
+        List<Kind> planKinds = new ArrayList<>();
+
+        for (String property : accessors.getPropertyNames()) {
+            Kind kind;
+
+            try {
+                kind = kindOfType(accessors.getPropertyType(property));
+            } catch (NoSuchFieldException e) {
+                // Cannot happen, as the property names come from the accessors.
+                throw new IllegalStateException(e);
+            }
+
+            if (kind != Kind.SCALAR) {
+                planNames.add(property);
+                planKinds.add(kind);
+            }
+        }
+
+        names = planNames.toArray(new String[planNames.size()]);
+        kinds = planKinds.toArray(new Kind[planKinds.size()]);
+    }
+
+    /**
+     * Provides the plan for an entity class, working it out on first use.
+     *
+     * @param  entityClass The entity class.
+     *
+     * @return The plan for the entity class.
+     */
+    static ExamplePlan forClass(Class<?> entityClass) {
+        ExamplePlan plan = PLANS.get(entityClass);
+
+        if (plan == null) {
+            plan = new ExamplePlan(entityClass);
+
+            ExamplePlan existing = PLANS.putIfAbsent(entityClass, plan);
+            plan = (existing == null) ? plan : existing;
+        }
+
+        return plan;
+    }
+
+    /**
+     * Adds criteria for the relations and reference data set on an example.
+     *
+     * @param criteria The criteria to add to.
+     * @param example  The example, which must be an instance of the entity class.
+     */
+    void addCriteria(Criteria criteria, Object example) {
+        for (int i = 0; i < names.length; i++) {
+            Object value;
+
+            try {
+                value = accessors.get(example, names[i]);
+            } catch (NoSuchFieldException e) {
+                // Cannot happen, as the property names come from the accessors.
+                throw new IllegalStateException(e);
+            }
+
+            if (value == null) {
+                continue;
+            }
+
+            Kind kind = (kinds[i] == Kind.BY_VALUE) ? kindOfValue(value.getClass()) : kinds[i];
+
+            if (kind == Kind.RELATION) {
+                criteria.createCriteria(names[i]).add(Example.create(value));
+            } else if (kind == Kind.REF_DATA) {
+                criteria.add(Restrictions.eq(names[i], value));
+            }
+        }
+    }
+
+    /**
+     * Classifies a property by its declared type.
+     *
+     * @param  type The declared type of the property.
+     *
+     * @return The kind of the property, which is {@link Kind#BY_VALUE} if values of the type could be of more than one
+     *         kind.
+     */
+    private static Kind kindOfType(Class<?> type) {
+        if (Entity.class.isAssignableFrom(type)) {
+            return Kind.RELATION;
+        } else if (isRefDataType(type)) {
+            return Kind.REF_DATA;
+        } else if (type.isPrimitive() || type.isArray() || Modifier.isFinal(type.getModifiers()) ||
+                Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return Kind.SCALAR;
+        }
+
+        return Kind.BY_VALUE;
+    }
+
+    /**
+     * Classifies a property by the class of its value.
+     *
+     * @param  valueClass The class of the value.
+     *
+     * @return The kind of the property.
+     */
+    private static Kind kindOfValue(Class<?> valueClass) {
+        Kind kind = VALUE_KINDS.get(valueClass);
+
+        if (kind == null) {
+            if (Entity.class.isAssignableFrom(valueClass)) {
+                kind = Kind.RELATION;
+            } else if (isRefDataType(valueClass)) {
+                kind = Kind.REF_DATA;
+            } else {
+                kind = Kind.SCALAR;
+            }
+
+            VALUE_KINDS.put(valueClass, kind);
+        }
+
+        return kind;
+    }
+
+    /**
+     * Checks if a type is an enumerated reference data type, by looking for a public constructor that takes an
+     * {@link EnumeratedStringAttribute}.
+     *
+     * @param  type The type to check.
+     *
+     * @return <tt>true</tt> iff the type is an enumerated reference data type.
+     */
+    private static boolean isRefDataType(Class<?> type) {
+        try {
+            type.getConstructor(EnumeratedStringAttribute.class);
+
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -13,15 +13,12 @@ import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Example;
-import org.hibernate.criterion.Restrictions;
 
-import com.thesett.aima.attribute.impl.EnumeratedStringAttribute;
 import com.thesett.util.entity.Entity;
 import com.thesett.util.entity.EntityAlreadyExistsException;
 import com.thesett.util.entity.EntityNotExistsException;
 import com.thesett.util.entity.EntityValidationException;
 import com.thesett.util.generics.Generics;
-import com.thesett.util.memento.BeanMemento;
 
 /**
  * HibernateBaseDAO is an implementation of the {@link BaseDAO} on top of a hibernate session factory.
@@ -142,36 +139,8 @@ public abstract class HibernateBaseDAO<E extends Entity<K>, K extends Serializab
         // Create the basic example criteria.
         Criteria exampleCriteria = currentSession().createCriteria(example.getClass()).add(Example.create(example));
 
-        BeanMemento memento = new BeanMemento(example);
-        memento.captureNonNull();
-
         // Add criteria for all relationships (including relationships to reference data).
-        for (String field : memento.getAllFieldNames(example.getClass())) {
-            try {
-                Object relatedItem = memento.get(example.getClass(), field);
-
-                if (relatedItem != null) {
-                    if (relatedItem instanceof Entity) {
-                        exampleCriteria.createCriteria(field).add(Example.create(relatedItem));
-                    } else {
-                        // TODO: Improve this, it uses exceptions for flow control. Would be better if enum types
-                        // implemented a marker interface, and an instanceof check could be done here.
-                        try {
-                            relatedItem.getClass().getConstructor(EnumeratedStringAttribute.class);
-                        } catch (NoSuchMethodException e) {
-                            e = null;
-
-                            continue;
-                        }
-
-                        exampleCriteria.add(Restrictions.eq(field, relatedItem));
-                    }
-                }
-            } catch (NoSuchFieldException e) {
-                // Ignore unknown fields.
-                e = null;
-            }
-        }
+        ExamplePlan.forClass(example.getClass()).addCriteria(exampleCriteria, example);
 
         return exampleCriteria.list();
     }
@@ -0,0 +1,171 @@
+package com.thesett.util.dao;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.TransactionException;
+import org.hibernate.context.internal.ManagedSessionContext;
+
+import com.thesett.util.hibernate.HibernateDetachUtil;
+import com.thesett.util.proxies.Invocation;
+import com.thesett.util.proxies.ProxyInterceptor;
+
+/**
+ * HibernateSessionAndDetachInterceptor runs each method call in a new transaction in a new Hibernate session, and
+ * detaches its result. If the method throws a runtime exception, the transaction is rolled back, otherwise it is
+ * committed. Calls made whilst a {@link SessionScope} is open for the session factory join the session and transaction
+ * of the scope instead.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Wrap method calls in a new Hibernate session and transaction. </td></tr>
+ * <tr><td> Join the open session scope, if there is one. </td><td> {@link SessionScope} </td></tr>
+ * <tr><td> Detach the results of method calls. </td><td> {@link HibernateDetachUtil} </td></tr>
+ * </table></pre>
+ */
+public class HibernateSessionAndDetachInterceptor implements ProxyInterceptor {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(HibernateSessionAndDetachInterceptor.class.getName());
+
+    /** The Hibernate session factory. */
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Creates the interceptor.
+     *
+     * @param sessionFactory The Hibernate session factory.
+     */
+    public HibernateSessionAndDetachInterceptor(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>If a {@link SessionScope} is open for the session factory on the current thread, the call joins it instead.
+     */
+    public Object intercept(Invocation invocation) throws Throwable {
+        SessionScope scope = SessionScope.current(sessionFactory);
+
+        if (scope != null) {
+            return interceptInScope(invocation, scope);
+        }
+
+        Session session = sessionFactory.openSession();
+        Session oldSession = null;
+
+        boolean applyTx = false;
+
+        try {
+            oldSession = ManagedSessionContext.bind(session);
+
+            Transaction transaction = sessionFactory.getCurrentSession().getTransaction();
+
+            applyTx = !transaction.isActive();
+
+            if (applyTx) {
+                transaction.begin();
+            }
+
+            Object result;
+
+            try {
+                result = invocation.proceed();
+            } catch (Exception e) {
+                if (applyTx) {
+                    if (e instanceof RuntimeException) {
+                        tryRollback();
+                    } else {
+                        tryCommit();
+                    }
+
+                    // The transaction is finished with, so must not be rolled back again below.
+                    applyTx = false;
+                }
+
+                throw e;
+            }
+
+            if (applyTx) {
+                transaction.commit();
+            }
+
+            if (result != null) {
+                HibernateDetachUtil.nullOutUninitializedFields(result, HibernateDetachUtil.FieldAccessType.Field);
+            }
+
+            return result;
+        } catch (Throwable e) {
+            if (applyTx) {
+                tryRollback();
+            }
+
+            throw e;
+        } finally {
+            session.close();
+            ManagedSessionContext.unbind(sessionFactory);
+
+            // Put the previous session back again, iff there was one.
+            if (oldSession != null) {
+                ManagedSessionContext.bind(oldSession);
+            }
+        }
+    }
+
+    /**
+     * Runs a call within the session and transaction of an open scope. Its result is detached when the scope ends.
+     *
+     * @param  invocation The method call.
+     * @param  scope      The open scope.
+     *
+     * @return The result of the call.
+     *
+     * @throws Throwable Any exception from the call.
+     */
+    private Object interceptInScope(Invocation invocation, SessionScope scope) throws Throwable {
+        Object result;
+
+        try {
+            result = invocation.proceed();
+        } catch (RuntimeException | Error e) {
+            scope.setRollbackOnly();
+
+            throw e;
+        }
+
+        if (result != null) {
+            scope.detachOnClose(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Tries to commit the current Hibernate transaction, logging a SEVERE error if it should fail. Logging is used
+     * rather than re-throwing the exception, as this should only be used in a catch or finally block and should not
+     * mask the original exception.
+     */
+    private void tryCommit() {
+        try {
+            sessionFactory.getCurrentSession().getTransaction().commit();
+        } catch (TransactionException e1) {
+            LOG.log(Level.SEVERE, "Failed to commit Hibernate transaction on checked exception.", e1);
+        }
+    }
+
+    /**
+     * Tries to rollback the current Hibernate transaction, logging a SEVERE error if it should fail. Logging is used
+     * rather than re-throwing the exception, as this should only be used in a catch or finally block and should not
+     * mask the original exception.
+     */
+    private void tryRollback() {
+        try {
+            sessionFactory.getCurrentSession().getTransaction().rollback();
+        } catch (TransactionException e1) {
+            LOG.log(Level.SEVERE, "Failed to rollback Hibernate transaction on runtime exception.", e1);
+        }
+    }
+}
@@ -1,19 +1,14 @@
 package com.thesett.util.dao;
 
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.Transaction;
-import org.hibernate.TransactionException;
-import org.hibernate.context.internal.ManagedSessionContext;
 
 import com.thesett.util.hibernate.HibernateDetachUtil;
+import com.thesett.util.proxies.ProxyInterceptor;
+import com.thesett.util.proxies.ReflectiveInvocation;
 
 /**
  * HibernateSessionAndDetachProxy wraps all proxied method calls in a new transaction in a new Hibernate session. If the
@@ -23,21 +18,26 @@ import com.thesett.util.hibernate.HibernateDetachUtil;
  * {@link HibernateDetachUtil} in order to completely detach them from the Hibernate session. Uninitialized values will
  * be nulled out.
  *
+ * <p/>Opening a new session and transaction for every call is costly for callers that make many calls in a row. Such
+ * callers can open a {@link SessionScope} around their calls, in which case the calls all join the session and
+ * transaction of the scope, and their results are detached when the scope ends.
+ *
+ * <p/>Calls are handled by a {@link HibernateSessionAndDetachInterceptor}. To combine this behaviour with others in
+ * a single {@link com.thesett.util.proxies.ComposedProxy}, use that interceptor directly.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Wrap all method calls in a new Hibernate session and transaction. </td></tr>
+ * <tr><td> Join the open session scope, if there is one. </td><td> {@link SessionScope} </td></tr>
  * </table></pre>
  */
 public class HibernateSessionAndDetachProxy implements InvocationHandler {
-    /** Used for debugging purposes. */
-    private static final Logger LOG = Logger.getLogger(HibernateSessionAndDetachProxy.class.getName());
-
-    /** The Hibernate session factory. */
-    private final SessionFactory sessionFactory;
-
     /** The object being proxied. */
     private final Object obj;
 
+    /** The interceptor that runs calls in a session and transaction, and detaches their results. */
+    private final ProxyInterceptor interceptor;
+
     /**
      * Creates an instance of the standalone webservice test proxy.
      *
@@ -45,8 +45,8 @@ public class HibernateSessionAndDetachProxy implements InvocationHandler {
      * @param sessionFactory The Hibernate session factory.
      */
     public HibernateSessionAndDetachProxy(Object obj, SessionFactory sessionFactory) {
-        this.sessionFactory = sessionFactory;
         this.obj = obj;
+        this.interceptor = new HibernateSessionAndDetachInterceptor(sessionFactory);
     }
 
     /**
@@ -66,83 +66,6 @@ public class HibernateSessionAndDetachProxy implements InvocationHandler {
 
     /** {@inheritDoc} */
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        Session session = sessionFactory.openSession();
-        Session oldSession = null;
-
-        boolean applyTx = false;
-
-        try {
-            oldSession = ManagedSessionContext.bind(session);
-
-            Transaction transaction = sessionFactory.getCurrentSession().getTransaction();
-
-            applyTx = !transaction.isActive();
-
-            if (applyTx) {
-                transaction.begin();
-            }
-
-            Object result = method.invoke(obj, args);
-
-            if (applyTx) {
-                transaction.commit();
-            }
-
-            if (result != null) {
-                HibernateDetachUtil.nullOutUninitializedFields(result, HibernateDetachUtil.FieldAccessType.Field);
-            }
-
-            return result;
-        } catch (InvocationTargetException e) {
-            if (applyTx) {
-                if (e.getCause() instanceof RuntimeException) {
-                    tryRollback();
-                } else {
-                    tryCommit();
-                }
-            }
-
-            throw e.getCause();
-        } catch (Throwable e) {
-            if (applyTx) {
-                tryRollback();
-            }
-
-            throw e;
-        } finally {
-            session.close();
-            ManagedSessionContext.unbind(sessionFactory);
-
-            // Put the previous session back again, iff there was one.
-            if (oldSession != null) {
-                ManagedSessionContext.bind(oldSession);
-            }
-        }
-    }
-
-    /**
-     * Tries to commit the current Hibernate transaction, logging a SEVERE error if it should fail. Logging is used
-     * rather than re-throwing the exception, as this should only be used in a catch or finally block and should not
-     * mask the original exception.
-     */
-    private void tryCommit() {
-        try {
-            sessionFactory.getCurrentSession().getTransaction().commit();
-        } catch (TransactionException e1) {
-            LOG.log(Level.SEVERE, "Failed to commit Hibernate transaction on checked exception.", e1);
-        }
-    }
-
-    /**
-     * Tries to rollback the current Hibernate transaction, logging a SEVERE error if it should fail. Logging is used
-     * rather than re-throwing the exception, as this should only be used in a catch or finally block and should not
-     * mask the original exception.
-     */
-    private void tryRollback() {
-        try {
-            sessionFactory.getCurrentSession().getTransaction().rollback();
-        } catch (TransactionException e1) {
-            LOG.log(Level.SEVERE, "Failed to rollback Hibernate transaction on runtime exception.", e1);
-        }
+        return interceptor.intercept(new ReflectiveInvocation(obj, method, args));
     }
 }
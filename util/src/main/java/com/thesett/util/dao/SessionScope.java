@@ -0,0 +1,233 @@
+package com.thesett.util.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+
+import com.thesett.util.hibernate.HibernateDetachUtil;
+
+/**
+ * SessionScope holds one Hibernate session and transaction open across many calls through
+ * {@link HibernateSessionAndDetachProxy}s, on the current thread, so that each call does not open, begin, commit and
+ * close its own. It is intended to be used with try-with-resources, around a loop of service calls:
+ *
+ * <pre>
+ * try (SessionScope scope = SessionScope.open(sessionFactory)) {
+ *     for (...) {
+ *         service.doSomething();
+ *     }
+ * }
+ * </pre>
+ *
+ * <p/>Whilst a scope is open, calls through the proxies join its session and transaction, and share its first level
+ * cache. Their results stay attached to the session until the scope is closed, so lazy fields can still be loaded, and
+ * changes made to them are written when the transaction commits. A call that throws a runtime exception marks the scope
+ * as rollback only. When the scope is closed, the transaction is committed, or rolled back if the scope is rollback
+ * only, and the session is closed. Only then are the results detached, exactly as they would be outside of a scope, so
+ * detaching them never writes to the database.
+ *
+ * <p/>Opening a scope for a session factory that already has one open on the current thread joins it; the scope only
+ * ends when the outermost one is closed. Closing a scope more times than it was opened or joined does nothing.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Hold a session and transaction open across many calls. </td><td> {@link ManagedSessionContext} </td></tr>
+ * <tr><td> Commit or roll back when closed. </td></tr>
+ * <tr><td> Provide the open scope of the current thread. </td></tr>
+ * </table></pre>
+ */
+public class SessionScope implements AutoCloseable {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(SessionScope.class.getName());
+
+    /** Holds the open scopes for the current thread, by session factory. */
+    private static final ThreadLocal<Map<SessionFactory, SessionScope>> SCOPES = new ThreadLocal<>();
+
+    /** The Hibernate session factory. */
+    private final SessionFactory sessionFactory;
+
+    /** The session held open. */
+    private final Session session;
+
+    /** The session that was bound before this scope was opened, if any. */
+    private final Session oldSession;
+
+    /** The transaction held open. */
+    private final Transaction transaction;
+
+    /** The number of times this scope has been joined, and not yet closed. */
+    private int depth = 1;
+
+    /** Whether the transaction must be rolled back when the scope is closed. */
+    private boolean rollbackOnly;
+
+    /** Whether the scope has ended. */
+    private boolean closed;
+
+    /** The results of calls made in the scope, to detach when it ends. */
+    private final List<Object> results = new ArrayList<>();
+
+    /**
+     * Opens a session, binds it and begins a transaction.
+     *
+     * @param sessionFactory The Hibernate session factory.
+     */
+    private SessionScope(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+
+        session = sessionFactory.openSession();
+        oldSession = ManagedSessionContext.bind(session);
+        transaction = session.beginTransaction();
+    }
+
+    /**
+     * Opens a scope for a session factory on the current thread, or joins the one already open.
+     *
+     * @param  sessionFactory The Hibernate session factory.
+     *
+     * @return The scope.
+     */
+    public static SessionScope open(SessionFactory sessionFactory) {
+        SessionScope scope = current(sessionFactory);
+
+        if (scope != null) {
+            scope.depth++;
+
+            return scope;
+        }
+
+        Map<SessionFactory, SessionScope> scopes = SCOPES.get();
+
+        if (scopes == null) {
+            scopes = new HashMap<>();
+            SCOPES.set(scopes);
+        }
+
+        scope = new SessionScope(sessionFactory);
+        scopes.put(sessionFactory, scope);
+
+        return scope;
+    }
+
+    /**
+     * Provides the scope open for a session factory on the current thread.
+     *
+     * @param  sessionFactory The Hibernate session factory.
+     *
+     * @return The open scope, or <tt>null</tt> if there is none.
+     */
+    public static SessionScope current(SessionFactory sessionFactory) {
+        Map<SessionFactory, SessionScope> scopes = SCOPES.get();
+
+        return (scopes == null) ? null : scopes.get(sessionFactory);
+    }
+
+    /** Marks the scope so that its transaction is rolled back when it is closed. */
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    /**
+     * Reports whether the transaction will be rolled back when the scope is closed.
+     *
+     * @return <tt>true</tt> iff the transaction will be rolled back when the scope is closed.
+     */
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * Provides the session held open.
+     *
+     * @return The session held open.
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Ends this use of the scope. When the outermost use ends, the transaction is committed or rolled back, the
+     * session is closed, and the results of the calls made in the scope are detached. Once the scope has ended, this
+     * does nothing.
+     *
+     * @throws HibernateException If the transaction fails to commit, in which case it is rolled back.
+     */
+    public void close() {
+        if (closed || (--depth > 0)) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            if (rollbackOnly) {
+                transaction.rollback();
+            } else {
+                transaction.commit();
+            }
+        } catch (HibernateException e) {
+            tryRollback();
+
+            throw e;
+        } finally {
+            session.close();
+            ManagedSessionContext.unbind(sessionFactory);
+
+            // Put the previous session back again, iff there was one.
+            if (oldSession != null) {
+                ManagedSessionContext.bind(oldSession);
+            }
+
+            Map<SessionFactory, SessionScope> scopes = SCOPES.get();
+            scopes.remove(sessionFactory);
+
+            if (scopes.isEmpty()) {
+                SCOPES.remove();
+            }
+
+            detachResults();
+        }
+    }
+
+    /**
+     * Adds the result of a call made in the scope, to be detached when the scope ends.
+     *
+     * @param result The result of the call.
+     */
+    void detachOnClose(Object result) {
+        results.add(result);
+    }
+
+    /** Detaches the results of the calls made in the scope, now that its session is closed. */
+    private void detachResults() {
+        for (Object result : results) {
+            HibernateDetachUtil.nullOutUninitializedFields(result, HibernateDetachUtil.FieldAccessType.Field);
+        }
+
+        results.clear();
+    }
+
+    /**
+     * Tries to rollback the transaction, logging a SEVERE error if it should fail. Logging is used rather than
+     * re-throwing the exception, as this should only be used in a catch or finally block and should not mask the
+     * original exception.
+     */
+    private void tryRollback() {
+        try {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        } catch (HibernateException e1) {
+            LOG.log(Level.SEVERE, "Failed to rollback Hibernate transaction on failed commit.", e1);
+        }
+    }
+}
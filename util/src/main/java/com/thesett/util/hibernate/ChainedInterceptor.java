@@ -105,6 +105,21 @@ public class ChainedInterceptor extends EmptyInterceptor {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Each interceptor in the chain is given the SQL as returned by the one before it.
+     */
+    public String onPrepareStatement(String sql) {
+        String result = sql;
+
+        for (Interceptor interceptor : chain) {
+            result = interceptor.onPrepareStatement(result);
+        }
+
+        return result;
+    }
+
     /** {@inheritDoc} */
     public void afterTransactionBegin(Transaction tx) {
         for (Interceptor interceptor : chain) {
@@ -0,0 +1,26 @@
+package com.thesett.util.hibernate;
+
+import com.thesett.util.proxies.Invocation;
+import com.thesett.util.proxies.ProxyInterceptor;
+
+/**
+ * HibernateDetachInterceptor runs the results of method calls through the {@link HibernateDetachUtil}, in order to
+ * completely detach them from the Hibernate session. Uninitialized values are nulled out.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Detach the results of method calls. </td><td> {@link HibernateDetachUtil} </td></tr>
+ * </table></pre>
+ */
+public class HibernateDetachInterceptor implements ProxyInterceptor {
+    /** {@inheritDoc} */
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+
+        if (result != null) {
+            HibernateDetachUtil.nullOutUninitializedFields(result, HibernateDetachUtil.FieldAccessType.Field);
+        }
+
+        return result;
+    }
+}
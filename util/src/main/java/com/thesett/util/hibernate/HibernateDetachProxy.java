@@ -1,10 +1,12 @@
 package com.thesett.util.hibernate;
 
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 
+import com.thesett.util.proxies.ProxyInterceptor;
+import com.thesett.util.proxies.ReflectiveInvocation;
+
 /**
  * HibernateTransactionalProxy wraps all proxied method calls in a transaction on the current Hibernate session. If the
  * method throws a runtime exception, the transaction will be rolled back, otherwise it will be committed.
@@ -12,6 +14,9 @@ import java.lang.reflect.Proxy;
  * <p/>This is useful when testing webservice or other service methods that run within transactions, without using a
  * transaction manager from the application container or Spring and so on.
  *
+ * <p/>The detaching is done by a {@link HibernateDetachInterceptor}, which can also be used on its own as one layer of
+ * a {@link com.thesett.util.proxies.ComposedProxy}.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Wrap all method calls in a Hibernate transaction. </td></tr>
@@ -21,6 +26,9 @@ public class HibernateDetachProxy implements InvocationHandler {
     /** The object being proxied. */
     private final Object obj;
 
+    /** The interceptor that detaches results. */
+    private final ProxyInterceptor interceptor = new HibernateDetachInterceptor();
+
     /**
      * Creates an instance of the standalone webservice test proxy.
      *
@@ -46,16 +54,6 @@ public class HibernateDetachProxy implements InvocationHandler {
 
     /** {@inheritDoc} */
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        try {
-            Object result = method.invoke(obj, args);
-
-            if (result != null) {
-                HibernateDetachUtil.nullOutUninitializedFields(result, HibernateDetachUtil.FieldAccessType.Field);
-            }
-
-            return result;
-        } catch (InvocationTargetException e) {
-            throw e.getCause();
-        }
+        return interceptor.intercept(new ReflectiveInvocation(obj, method, args));
     }
 }
@@ -22,6 +22,11 @@ import org.hibernate.dialect.PostgreSQL9Dialect;
 /**
  * Extends the Postgres dialect to allow json columns to be mapped to obejcts.
  *
+ * <p/>Postgres has no JDBC type code of its own for jsonb columns, and reports them as {@link Types#OTHER}, so that is
+ * the {@link #JSONB} type code used by {@link JsonbUserType}. The dialect already maps {@link Types#OTHER} to uuid, and
+ * that mapping is left alone, so jsonb columns should be given an explicit <tt>sql-type</tt> of <tt>jsonb</tt> where
+ * the schema is generated.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities <th> Collaborations
  * <tr><td> Add json types to the postgres dialect.
@@ -31,6 +36,9 @@ import org.hibernate.dialect.PostgreSQL9Dialect;
  */
 public class JsonPostgreSQLDialect extends PostgreSQL9Dialect
 {
+    /** The JDBC type code used to describe jsonb columns. */
+    public static final int JSONB = Types.OTHER;
+
     public JsonPostgreSQLDialect()
     {
         super();
@@ -0,0 +1,266 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.hibernate;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import org.hibernate.HibernateException;
+
+/**
+ * JsonTypeSupport provides the JSON conversions used by the JSON Hibernate user types. A single object mapper is
+ * shared, and readers and writers are cached per class, so that the serializers and deserializers for a class are only
+ * looked up once.
+ *
+ * <p/>Copies of objects are made by writing them to a buffer of JSON tokens and reading them back, which avoids
+ * rendering and parsing JSON text. Objects of classes that implement their own equality are compared by it, and hashed
+ * by their own hash codes. Objects of classes that do not are compared and hashed by their JSON trees, so that they are
+ * still seen as unchanged by Hibernate dirty checking when equal by value. Whether a class implements its own equality
+ * is looked up once, and cached.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Convert objects to and from JSON. </td><td> {@link ObjectMapper} </td></tr>
+ * <tr><td> Cache readers and writers by class. </td></tr>
+ * <tr><td> Deep copy objects by their JSON. </td></tr>
+ * <tr><td> Compare and hash objects by their own equality, or by their JSON. </td></tr>
+ * </table></pre>
+ */
+final class JsonTypeSupport
+{
+    /** The shared object mapper. */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static
+    {
+        MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    /** Holds readers by class. */
+    private static final Map<Class, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    /** Holds writers by class. */
+    private static final Map<Class, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    /** Holds whether classes implement their own equality, by class. */
+    private static final Map<Class, Boolean> OWN_EQUALITY = new ConcurrentHashMap<>();
+
+    /** Prevents instantiation of this static utility class. */
+    private JsonTypeSupport()
+    {
+    }
+
+    /**
+     * Transforms a JSON string into an object.
+     *
+     * @param  content  The JSON string to parse.
+     * @param  theClass The class to deserialize into.
+     *
+     * @return The JSON as an object.
+     */
+    static Object fromJson(String content, Class theClass)
+    {
+        try
+        {
+            return readerFor(theClass).readValue(content);
+        }
+        catch (IOException e)
+        {
+            throw new HibernateException(e);
+        }
+    }
+
+    /**
+     * Transforms an object into JSON.
+     *
+     * @param  object The object to convert to JSON.
+     *
+     * @return The object as a JSON string.
+     */
+    static String toJson(Object object)
+    {
+        try
+        {
+            return writerFor(object.getClass()).writeValueAsString(object);
+        }
+        catch (IOException e)
+        {
+            throw new HibernateException(e);
+        }
+    }
+
+    /**
+     * Makes a deep copy of an object, by writing it to a buffer of JSON tokens and reading the copy back.
+     *
+     * @param  object The object to copy, may be <tt>null</tt>.
+     *
+     * @return A deep copy of the object.
+     */
+    static Object deepCopy(Object object)
+    {
+        if (object == null)
+        {
+            return null;
+        }
+
+        Class theClass = object.getClass();
+
+        try
+        {
+            TokenBuffer buffer = new TokenBuffer(MAPPER, false);
+            writerFor(theClass).writeValue(buffer, object);
+
+            return readerFor(theClass).readValue(buffer.asParser());
+        }
+        catch (IOException e)
+        {
+            throw new HibernateException(e);
+        }
+    }
+
+    /**
+     * Compares two objects for equality. Objects of the same class are compared by their own equality when their class
+     * implements it, and by their JSON trees when it does not, so that this agrees with {@link #jsonHashCode(Object)}.
+     *
+     * @param  x The first object to compare, may be <tt>null</tt>.
+     * @param  y The second object to compare, may be <tt>null</tt>.
+     *
+     * @return <tt>true</tt> iff the objects are equal.
+     */
+    static boolean jsonEquals(Object x, Object y)
+    {
+        if (x == y)
+        {
+            return true;
+        }
+        else if ((x == null) || (y == null))
+        {
+            return false;
+        }
+        else if (x.getClass() != y.getClass())
+        {
+            return false;
+        }
+        else if (x.equals(y))
+        {
+            return true;
+        }
+        else if (hasOwnEquality(x.getClass()))
+        {
+            return false;
+        }
+
+        return MAPPER.valueToTree(x).equals(MAPPER.valueToTree(y));
+    }
+
+    /**
+     * Computes a hash code for an object, so that objects equal by {@link #jsonEquals} have equal hash codes. Objects
+     * of classes that implement their own equality are hashed by their own hash codes, and other objects by their JSON
+     * trees.
+     *
+     * @param  x The object, may be <tt>null</tt>.
+     *
+     * @return The hash code of the object, or 0 for <tt>null</tt>.
+     */
+    static int jsonHashCode(Object x)
+    {
+        if (x == null)
+        {
+            return 0;
+        }
+        else if (hasOwnEquality(x.getClass()))
+        {
+            return x.hashCode();
+        }
+
+        return MAPPER.valueToTree(x).hashCode();
+    }
+
+    /**
+     * Checks whether a class implements its own equality, rather than inheriting identity from {@link Object}.
+     *
+     * @param  theClass The class to check.
+     *
+     * @return <tt>true</tt> iff the class, or a super class other than {@link Object}, overrides <tt>equals</tt>.
+     */
+    private static boolean hasOwnEquality(Class theClass)
+    {
+        Boolean ownEquality = OWN_EQUALITY.get(theClass);
+
+        if (ownEquality == null)
+        {
+            try
+            {
+                ownEquality = theClass.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+            }
+            catch (NoSuchMethodException e)
+            {
+                throw new IllegalStateException("Every class has an equals method.", e);
+            }
+
+            OWN_EQUALITY.put(theClass, ownEquality);
+        }
+
+        return ownEquality;
+    }
+
+    /**
+     * Provides a cached reader for a class.
+     *
+     * @param  theClass The class to read.
+     *
+     * @return A reader for the class.
+     */
+    private static ObjectReader readerFor(Class theClass)
+    {
+        ObjectReader reader = READERS.get(theClass);
+
+        if (reader == null)
+        {
+            reader = MAPPER.readerFor(theClass);
+            READERS.put(theClass, reader);
+        }
+
+        return reader;
+    }
+
+    /**
+     * Provides a cached writer for a class.
+     *
+     * @param  theClass The class to write.
+     *
+     * @return A writer for the class.
+     */
+    private static ObjectWriter writerFor(Class theClass)
+    {
+        ObjectWriter writer = WRITERS.get(theClass);
+
+        if (writer == null)
+        {
+            writer = MAPPER.writerFor(theClass);
+            WRITERS.put(theClass, writer);
+        }
+
+        return writer;
+    }
+}
@@ -15,14 +15,12 @@
  */
 package com.thesett.util.hibernate;
 
-import java.io.IOException;
 import java.io.Serializable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.SimpleType;
@@ -35,6 +33,10 @@ import org.hibernate.usertype.UserType;
 /**
  * JsonUserType is a custom Hibernate type that transforms any object into Json for storage.
  *
+ * <p/>Copies and comparisons made for dirty checking work on JSON tokens and trees, and do not render JSON text.
+ * Objects are compared by their JSON, so a value that has not changed is not written back, even if its class does not
+ * implement equality by value. When held in the second-level cache, values are held as their class name and JSON text.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Store object graphs as JSON in a database column. </td></tr>
@@ -63,14 +65,14 @@ public class JsonUserType implements UserType
         }
         else
         {
-            return x.equals(y);
+            return JsonTypeSupport.jsonEquals(x, y);
         }
     }
 
     /** {@inheritDoc} */
     public int hashCode(Object x) throws HibernateException
     {
-        return (null == x) ? 0 : x.hashCode();
+        return JsonTypeSupport.jsonHashCode(x);
     }
 
     /** {@inheritDoc} */
@@ -91,7 +93,7 @@ public class JsonUserType implements UserType
         else
         {
             st.setString(index, value.getClass().getName());
-            st.setString(index + 1, convertObjectToJson(value));
+            st.setString(index + 1, JsonTypeSupport.toJson(value));
         }
     }
 
@@ -109,20 +111,13 @@ public class JsonUserType implements UserType
 
         Class theClass = ReflectionUtils.getClass(className);
 
-        return convertJsonToObject(content, theClass);
+        return JsonTypeSupport.fromJson(content, theClass);
     }
 
     /** {@inheritDoc} */
     public Object deepCopy(Object value) throws HibernateException
     {
-        if (value == null)
-        {
-            return null;
-        }
-
-        String json = convertObjectToJson(value);
-
-        return convertJsonToObject(json, value.getClass());
+        return JsonTypeSupport.deepCopy(value);
     }
 
     /** {@inheritDoc} */
@@ -134,13 +129,25 @@ public class JsonUserType implements UserType
     /** {@inheritDoc} */
     public Serializable disassemble(Object value) throws HibernateException
     {
-        return (Serializable) deepCopy(value);
+        if (value == null)
+        {
+            return null;
+        }
+
+        return new String[] { value.getClass().getName(), JsonTypeSupport.toJson(value) };
     }
 
     /** {@inheritDoc} */
     public Object assemble(Serializable cached, Object owner) throws HibernateException
     {
-        return deepCopy(cached);
+        if (cached == null)
+        {
+            return null;
+        }
+
+        String[] classAndContent = (String[]) cached;
+
+        return JsonTypeSupport.fromJson(classAndContent[1], ReflectionUtils.getClass(classAndContent[0]));
     }
 
     /**
@@ -160,48 +167,4 @@ public class JsonUserType implements UserType
     {
         return SQL_TYPES;
     }
-
-    /**
-     * Transforms a JSON string into an object.
-     *
-     * @param  content  The JSON string to parse.
-     * @param  theClass The class to deserialize into.
-     *
-     * @return The JSON as an object.
-     */
-    private Object convertJsonToObject(String content, Class theClass)
-    {
-        try
-        {
-            ObjectMapper mapper = new ObjectMapper();
-
-            return mapper.readValue(content, theClass);
-        }
-        catch (IOException e)
-        {
-            throw new IllegalStateException(e);
-        }
-    }
-
-    /**
-     * Transforms an object into JSON.
-     *
-     * @param  object The object to convert to JSON.
-     *
-     * @return The object as a JSON string.
-     */
-    private String convertObjectToJson(Object object)
-    {
-        try
-        {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-
-            return mapper.writeValueAsString(object);
-        }
-        catch (IOException e)
-        {
-            throw new IllegalStateException(e);
-        }
-    }
 }
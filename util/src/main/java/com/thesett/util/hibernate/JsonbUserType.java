@@ -0,0 +1,151 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.hibernate;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Properties;
+
+import com.thesett.util.reflection.ReflectionUtils;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.usertype.ParameterizedType;
+import org.hibernate.usertype.UserType;
+
+/**
+ * JsonbUserType is a custom Hibernate type that transforms objects of a fixed class into Json for storage in a single
+ * Postgres jsonb column. Unlike {@link JsonUserType}, the class name is not stored alongside the JSON, so the class to
+ * map is given as the <tt>class</tt> parameter of the type, and defaults to plain maps and lists when it is not given.
+ * Columns of this type should be created with an explicit <tt>sql-type</tt> of <tt>jsonb</tt>, as the JDBC type code they
+ * use, {@link JsonPostgreSQLDialect#JSONB}, is also that of uuid.
+ *
+ * <p/>The JSON is bound to statements as a Postgres <tt>OTHER</tt> type, which lets the database parse it directly into
+ * its binary jsonb form. Copies and comparisons made for dirty checking work on JSON tokens and trees, and do not render
+ * JSON text. When held in the second-level cache, values are held as their JSON text.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Store object graphs as JSON in a jsonb database column. </td></tr>
+ * </table></pre>
+ */
+public class JsonbUserType implements UserType, ParameterizedType
+{
+    /** The name of the type parameter giving the class to map. */
+    public static final String CLASS_PARAMETER = "class";
+
+    /** Map the JSON as a jsonb type. */
+    private static final int[] SQL_TYPES = { JsonPostgreSQLDialect.JSONB };
+
+    /** The class to map. */
+    private Class theClass = Object.class;
+
+    /** {@inheritDoc} */
+    public void setParameterValues(Properties parameters)
+    {
+        String className = (parameters == null) ? null : parameters.getProperty(CLASS_PARAMETER);
+
+        if (className != null)
+        {
+            theClass = ReflectionUtils.getClass(className);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Class returnedClass()
+    {
+        return theClass;
+    }
+
+    /** {@inheritDoc} */
+    public boolean equals(Object x, Object y) throws HibernateException
+    {
+        return JsonTypeSupport.jsonEquals(x, y);
+    }
+
+    /** {@inheritDoc} */
+    public int hashCode(Object x) throws HibernateException
+    {
+        return JsonTypeSupport.jsonHashCode(x);
+    }
+
+    /** {@inheritDoc} */
+    public boolean isMutable()
+    {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SessionImplementor session)
+        throws HibernateException, SQLException
+    {
+        if (value == null)
+        {
+            st.setNull(index, Types.OTHER);
+        }
+        else
+        {
+            st.setObject(index, JsonTypeSupport.toJson(value), Types.OTHER);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public Object nullSafeGet(ResultSet rs, String[] names, SessionImplementor session, Object owner)
+        throws HibernateException, SQLException
+    {
+        String content = rs.getString(names[0]);
+
+        if (rs.wasNull())
+        {
+            return null;
+        }
+
+        return JsonTypeSupport.fromJson(content, theClass);
+    }
+
+    /** {@inheritDoc} */
+    public Object deepCopy(Object value) throws HibernateException
+    {
+        return JsonTypeSupport.deepCopy(value);
+    }
+
+    /** {@inheritDoc} */
+    public Object replace(Object original, Object target, Object owner) throws HibernateException
+    {
+        return deepCopy(original);
+    }
+
+    /** {@inheritDoc} */
+    public Serializable disassemble(Object value) throws HibernateException
+    {
+        return (value == null) ? null : JsonTypeSupport.toJson(value);
+    }
+
+    /** {@inheritDoc} */
+    public Object assemble(Serializable cached, Object owner) throws HibernateException
+    {
+        return (cached == null) ? null : JsonTypeSupport.fromJson((String) cached, theClass);
+    }
+
+    /** {@inheritDoc} */
+    public int[] sqlTypes()
+    {
+        return SQL_TYPES;
+    }
+}
@@ -35,6 +35,14 @@ public @interface UnitOfWorkWithDetach {
      */
     boolean transactional() default true;
 
+    /**
+     * Iff <tt>true</tt>, the Hibernate session will not be opened, and the transaction not started, until the session
+     * is first used. A method that never uses the session does not take a database connection, and has nothing to
+     * commit. This relies on the session factory using the lazy managed session context, as set up by the Hibernate
+     * XML bundle.
+     */
+    boolean lazy() default false;
+
     /**
      * The {@link org.hibernate.CacheMode} for the session.
      *
@@ -1,9 +1,6 @@
 package com.thesett.util.memento;
 
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,10 +15,13 @@ import java.util.Map;
  * state. This is still a usefull memento class however, because for beans it is often only the properties that
  * constitute the significant state of the bean.
  *
+ * <p/>The getters and setters of each class are looked up once, and shared by all mementos, through
+ * {@link PropertyAccessors}.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities <th> Collaborations
- * <tr><td> Create a memento from an object.
- * <tr><td> Write to an objects fields from a memento.
+ * <tr><td> Create a memento from an object. <td> {@link PropertyAccessors}
+ * <tr><td> Write to an objects fields from a memento. <td> {@link PropertyAccessors}
  * <tr><td> Read field values.
  * <tr><td> Modify field values.
  * <tr><td> Get list of all fields.
@@ -56,73 +56,9 @@ public class BeanMemento implements Memento, Serializable {
      * @throws NoSuchFieldException If a setter method could not be found for a property.
      */
     public static void restoreValues(Object ob, Map<String, Object> values) throws NoSuchFieldException {
-        /*log.fine("public void restore(Object ob): called");*/
-        /*log.fine("Object to restore to has the type: " + ob.getClass());*/
-
-        // Get the class of th object to restore to.
-        Class obClass = ob.getClass();
-
-        // Loop over all the stored properties.
-        for (String propName : values.keySet()) {
-            // Get the cached property from this mementos store.
-            Object nextValue = values.get(propName);
-            /*log.fine("Next property to restore is: " + propName);*/
-            /*log.fine("Next value to restore is: " + nextValue);*/
-
-            // Used to hold the value to set.
-            Object paramValue;
-
-            // Used to hold the type of the value to set.
-            Class paramType;
-
-            // Check if the value store is a null.
-            if (nextValue == null) {
-                paramValue = null;
-                paramType = null;
-            } else {
-                /*log.fine("The value to restore is a simply typed data object.");*/
-
-                // Get the type and value of the plain type to set.
-                paramValue = nextValue;
-                paramType = nextValue.getClass();
-            }
-
-            /*log.fine("paramValue = " + paramValue);*/
-            /*log.fine("paramType = " + paramType);*/
-
-            // Call the setter method with the new property value, checking first that the property has a matching
-            // 'setter' method.
-            Method setterMethod;
-
-            try {
-                // Convert the first letter of the property name to upper case to match against the upper case version
-                // of it that will be in the setter method name. For example the property test will have a setter method
-                // called setTest.
-                String upperPropertyName = Character.toUpperCase(propName.charAt(0)) + propName.substring(1);
-
-                // Try to find an appropriate setter method on the object to call.
-                setterMethod = obClass.getMethod("set" + upperPropertyName, paramType);
-
-                // Call the setter method with the new property value.
-                Object[] params = new Object[] { paramValue };
-                setterMethod.invoke(ob, params);
-            } catch (NoSuchMethodException e) {
-                // Do nothing as properties may have getters but no setter for read only properties.
-                /*log.log(java.util.logging.Level.FINE, "A setter method could not be found for " + propName + ".", e);*/
-
-                /*
-                // The object does not have a matching setter method for the type.
-                NoSuchFieldException nsfe = new NoSuchFieldException("The object does not have a matching setter " +
-                                                                     "method 'set" + propName + "'.");
-                nsfe.initCause(e);
-                throw nsfe;
-                 */
-            } catch (IllegalAccessException e) {
-                /*log.log(java.util.logging.Level.FINE, "IllegalAccessException during call to setter method.", e);*/
-            } catch (InvocationTargetException e) {
-                /*log.log(java.util.logging.Level.FINE, "InvocationTargetException during call to setter method.", e);*/
-            }
-        }
+        // Properties may have getters but no setter for read only properties, so properties that cannot be written
+        // are skipped.
+        PropertyAccessors.forClass(ob.getClass()).restore(ob, values);
     }
 
     /** Captures an objects properties in this memento. */
@@ -206,50 +142,6 @@ public class BeanMemento implements Memento, Serializable {
      *                   captured as nulls.
      */
     private void capture(boolean ignoreNull) {
-        // Get the class of the object to build a memento for.
-        Class cls = ob.getClass();
-
-        // Iterate through all the public methods of the class including all super-interfaces and super-classes.
-        Method[] methods = cls.getMethods();
-
-        for (Method nextMethod : methods) {
-            // Get the next method.
-            /*log.fine("nextMethod = " + nextMethod.getName());*/
-
-            // Check if the method is a 'getter' method, is public and takes no arguments.
-            String methodName = nextMethod.getName();
-
-            if (methodName.startsWith("get") && (methodName.length() >= 4) &&
-                    Character.isUpperCase(methodName.charAt(3)) && Modifier.isPublic(nextMethod.getModifiers()) &&
-                    (nextMethod.getParameterTypes().length == 0)) {
-                String propName = Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
-
-                // Ignore getClass().
-                if ("class".equals(propName)) {
-                    continue;
-                }
-
-                /*log.fine(methodName + " is a valid getter method for the property " + propName + ".");*/
-
-                try {
-                    // Call the 'getter' method to extract the properties value.
-                    Object[] params = new Object[] {};
-                    Object value = nextMethod.invoke(ob, params);
-                    /*log.fine("The result of calling the getter method is: " + value);*/
-
-                    // Store the property value for the object.
-                    if (!ignoreNull || (value != null)) {
-                        values.put(propName, value);
-                    }
-                } catch (IllegalAccessException e) {
-                    /*log.log(java.util.logging.Level.FINE, "IllegalAccessException during call to getter method.", e);*/
-                    throw new IllegalStateException(e);
-                } catch (InvocationTargetException e) {
-                    /*log.log(java.util.logging.Level.FINE, "InvocationTargetException during call to getter method.", e);*/
-                    throw new IllegalStateException(e);
-                }
-            }
-            // Should also check if the method is a 'setter' method, is public and takes exactly one argument.
-        }
+        PropertyAccessors.forClass(ob.getClass()).capture(ob, values, ignoreNull);
     }
 }
@@ -1,7 +1,6 @@
 package com.thesett.util.memento;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
@@ -32,10 +31,13 @@ import java.util.Map;
  * fields of an object ar always stored against the class in the hierarchy to which the field belongs. When objects are
  * captured the entire inheritence chain is scanned and all fields right back to the root Object are captured.
  *
+ * <p/>The fields of each class are looked up and made accessible once, and shared by all mementos, through
+ * {@link FieldAccessors}.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities <th> Collaborations
- * <tr><td> Create a memento from an object. <td> {@link Class}, {@link Field}
- * <tr><td> Write to an objects fields from a memento. <td>< {@link Class}, {@link Field}
+ * <tr><td> Create a memento from an object. <td> {@link FieldAccessors}
+ * <tr><td> Write to an objects fields from a memento. <td> {@link FieldAccessors}
  * <tr><td> Read field values.
  * <tr><td> Modifiy field values.
  * <tr><td> Get list of all fields.
@@ -82,43 +84,15 @@ public class DirectMemento implements Memento, Serializable {
 
     /** Captures an objects state in this memento. */
     public void capture() {
-        // Get the class of the object to build a memento for.
-        Class cls = ob.getClass();
-
         // Iterate through the classes whole inheritence chain.
-        while (!cls.equals(Object.class)) {
-            // Get the classes fields.
-            Field[] attrs = cls.getDeclaredFields();
-
+        for (Class cls = ob.getClass(); !cls.equals(Object.class); cls = cls.getSuperclass()) {
             // Build a new map to put the fields in for the current class.
             HashMap map = new HashMap();
 
             // Cache the field values by the class name.
             values.put(cls, map);
 
-            // Loop over all the fields in the current class.
-            for (Field attr : attrs) {
-                // Make the field accessible (it may be protected or private).
-                attr.setAccessible(true);
-
-                // Check that the field should be captured.
-                if (shouldBeSaved(attr)) {
-                    // Use a try block as access to the field may fail, although this should not happen because
-                    // even private, protected and package fields have been made accessible.
-                    try {
-                        // Cache the field by its name.
-                        map.put(attr.getName(), attr.get(ob));
-                    } catch (IllegalAccessException e) {
-                        // The field could not be accessed but all fields have been made accessible so this should
-                        // not happen.
-                        throw new IllegalStateException("Field '" + attr.getName() +
-                            "' could not be accessed but the 'setAccessible(true)' method was invoked on it.", e);
-                    }
-                }
-            }
-
-            // Get the superclass for the next step of the iteration over the whole inheritence chain.
-            cls = cls.getSuperclass();
+            FieldAccessors.forClass(cls).capture(ob, map);
         }
     }
 
@@ -142,34 +116,14 @@ public class DirectMemento implements Memento, Serializable {
         for (Object key : values.keySet()) {
             // Get the next class from the cache.
             Class cls = (Class) key;
+            FieldAccessors accessors = FieldAccessors.forClass(cls);
 
             // Get the cache of field values for the class.
-            Map vals = (HashMap) values.get(cls);
-
-            // Loop over all fields in the class.
-            for (Object o : vals.keySet()) {
-                // Get the next field name.
-                String attr = (String) o;
-
-                // Get the next field value.
-                Object val = vals.get(attr);
-
-                // Get a reference to the field in the object.
-                Field f = cls.getDeclaredField(attr);
-
-                // Make the field accessible (it may be protected, package or private).
-                f.setAccessible(true);
+            Map<String, Object> vals = (HashMap) values.get(cls);
 
-                // Use a try block as writing to the field may fail.
-                try {
-                    // Write to the field.
-                    f.set(ob, val);
-                } catch (IllegalAccessException e) {
-                    // The field could not be written to but all fields have been made accessible so this should
-                    // not happen.
-                    throw new IllegalStateException("Field '" + f.getName() +
-                        "' could not be accessed but the 'setAccessible(true)' method was invoked on it.", e);
-                }
+            // Loop over all fields in the class, writing them to the object.
+            for (Map.Entry<String, Object> entry : vals.entrySet()) {
+                accessors.set(ob, entry.getKey(), entry.getValue());
             }
         }
     }
@@ -0,0 +1,170 @@
+package com.thesett.util.memento;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FieldAccessors holds method handles onto the fields declared by a single class, bypassing their access modifiers. The
+ * fields of a class are looked up and made accessible only once, and the accessors are shared by all mementos on
+ * objects of that class, so that capturing and restoring fields does not repeatedly scan the fields of a class.
+ *
+ * <p/>Only the fields that {@link DirectMemento#shouldBeSaved} are captured. Any declared instance field can be
+ * written.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Look up the fields of a class once. </td><td> {@link Field}, {@link MethodHandle} </td></tr>
+ * <tr><td> Read the saved fields of an object. </td></tr>
+ * <tr><td> Write fields to an object. </td></tr>
+ * </table></pre>
+ */
+public final class FieldAccessors {
+    /** The type that getter method handles are adapted to. */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** The type that setter method handles are adapted to. */
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** Holds the field accessors of classes. */
+    private static final Map<Class<?>, FieldAccessors> ACCESSORS = new ConcurrentHashMap<>();
+
+    /** The class that declares the fields. */
+    private final Class<?> declaringClass;
+
+    /** The names of the fields to save. */
+    private final String[] names;
+
+    /** The getters of the fields to save, in the same order as their names. */
+    private final MethodHandle[] getters;
+
+    /** The setters of the fields to save, by name. */
+    private final Map<String, MethodHandle> setters = new HashMap<>();
+
+    /** All fields declared by the class, made accessible, by name. */
+    private final Map<String, Field> fields = new HashMap<>();
+
+    /**
+     * Looks up the fields declared by a class.
+     *
+     * @param cls The class.
+     */
+    private FieldAccessors(Class<?> cls) {
+        declaringClass = cls;
+
+        List<String> savedNames = new ArrayList<>();
+        List<MethodHandle> savedGetters = new ArrayList<>();
+
+        for (Field field : cls.getDeclaredFields()) {
+            // Make the field accessible (it may be protected or private).
+            field.setAccessible(true);
+            fields.put(field.getName(), field);
+
+            if (DirectMemento.shouldBeSaved(field)) {
+                try {
+                    savedNames.add(field.getName());
+                    savedGetters.add(MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE));
+                    setters.put(field.getName(), MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE));
+                } catch (IllegalAccessException e) {
+                    // The field could not be accessed but all fields have been made accessible so this should not
+                    // happen.
+                    throw new IllegalStateException("Field '" + field.getName() +
+                        "' could not be accessed but the 'setAccessible(true)' method was invoked on it.", e);
+                }
+            }
+        }
+
+        names = savedNames.toArray(new String[savedNames.size()]);
+        getters = savedGetters.toArray(new MethodHandle[savedGetters.size()]);
+    }
+
+    /**
+     * Provides the field accessors of a class, looking them up on first use.
+     *
+     * @param  cls The class.
+     *
+     * @return The accessors of the fields declared by the class.
+     */
+    public static FieldAccessors forClass(Class<?> cls) {
+        FieldAccessors accessors = ACCESSORS.get(cls);
+
+        if (accessors == null) {
+            accessors = new FieldAccessors(cls);
+
+            FieldAccessors existing = ACCESSORS.putIfAbsent(cls, accessors);
+            accessors = (existing == null) ? accessors : existing;
+        }
+
+        return accessors;
+    }
+
+    /**
+     * Reads the saved fields of an object into a map.
+     *
+     * @param ob     The object to read, which must be an instance of the class.
+     * @param values The map to put the field values in, by field name.
+     */
+    public void capture(Object ob, Map<String, Object> values) {
+        for (int i = 0; i < getters.length; i++) {
+            try {
+                values.put(names[i], (Object) getters[i].invokeExact(ob));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    /**
+     * Writes a field of an object.
+     *
+     * @param  ob    The object to write to, which must be an instance of the class.
+     * @param  name  The name of the field.
+     * @param  value The value to write.
+     *
+     * @throws NoSuchFieldException If the class does not declare the named field.
+     */
+    public void set(Object ob, String name, Object value) throws NoSuchFieldException {
+        MethodHandle setter = setters.get(name);
+
+        if (setter == null) {
+            // Fields that are not saved are written reflectively, as method handles cannot write to final fields.
+            Field field = fields.get(name);
+
+            if (field == null) {
+                throw new NoSuchFieldException(name);
+            }
+
+            try {
+                field.set(ob, value);
+            } catch (IllegalAccessException e) {
+                // The field could not be written to but all fields have been made accessible so this should not
+                // happen.
+                throw new IllegalStateException("Field '" + name +
+                    "' could not be accessed but the 'setAccessible(true)' method was invoked on it.", e);
+            }
+
+            return;
+        }
+
+        if (!declaringClass.isInstance(ob)) {
+            throw new IllegalArgumentException("Cannot set field '" + name + "' of " + declaringClass + " on " +
+                ob.getClass() + ".");
+        }
+
+        try {
+            setter.invokeExact(ob, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.thesett.util.memento;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PropertyAccessors holds method handles onto the bean properties of a class, that is its public 'getter' and 'setter'
+ * methods. The methods of a class are looked up only once, and the accessors are shared by all mementos on objects of
+ * that class, so that capturing and restoring bean properties does not repeatedly scan the methods of a class.
+ *
+ * <p/>A property is captured from every public method named 'getX' that takes no arguments, apart from
+ * <tt>getClass()</tt>. A property value is restored through the public method named 'setX' whose single parameter type
+ * is exactly the class of the value. Properties with no such setter, and null values, are not restored.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Look up the getters and setters of a class once. </td><td> {@link MethodHandle} </td></tr>
+ * <tr><td> Read the properties of an object, and their declared types. </td></tr>
+ * <tr><td> Write properties to an object. </td></tr>
+ * </table></pre>
+ */
+public final class PropertyAccessors {
+    /** The type that getter method handles are adapted to. */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** The type that setter method handles are adapted to. */
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** Holds the property accessors of classes. */
+    private static final Map<Class<?>, PropertyAccessors> ACCESSORS = new ConcurrentHashMap<>();
+
+    /** The names of the readable properties. */
+    private final String[] names;
+
+    /** The types of the readable properties, in the same order as their names. */
+    private final Class<?>[] types;
+
+    /** The getters of the readable properties, in the same order as their names. */
+    private final MethodHandle[] getters;
+
+    /** Holds the positions of the readable properties, by name. */
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    /** Holds the setters of the class by method name, and then by parameter type. */
+    private final Map<String, Map<Class<?>, MethodHandle>> settersByMethod = new HashMap<>();
+
+    /** Caches the setters looked up by property name, and then by parameter type. */
+    private final Map<String, Map<Class<?>, MethodHandle>> settersByProperty = new ConcurrentHashMap<>();
+
+    /**
+     * Looks up the getters and setters of a class.
+     *
+     * @param cls The class.
+     */
+    private PropertyAccessors(Class<?> cls) {
+        List<String> getterNames = new ArrayList<>();
+        List<Class<?>> getterTypes = new ArrayList<>();
+        List<MethodHandle> getterHandles = new ArrayList<>();
+
+        for (Method method : cls.getMethods()) {
+            // Bridge methods are skipped, as they always have a real method of the same name alongside them.
+            if (method.isBridge()) {
+                continue;
+            }
+
+            String methodName = method.getName();
+            int paramCount = method.getParameterTypes().length;
+
+            if (isAccessorName(methodName, "get") && (paramCount == 0)) {
+                String propName = Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+
+                // Ignore getClass().
+                if ("class".equals(propName)) {
+                    continue;
+                }
+
+                indices.put(propName, getterNames.size());
+                getterNames.add(propName);
+                getterTypes.add(method.getReturnType());
+                getterHandles.add(toHandle(method, GETTER_TYPE));
+            } else if (methodName.startsWith("set") && (paramCount == 1)) {
+                MethodHandle handle;
+
+                try {
+                    handle = toHandle(method, SETTER_TYPE);
+                } catch (IllegalStateException e) {
+                    // Setters that cannot be called are treated as missing.
+                    continue;
+                }
+
+                Map<Class<?>, MethodHandle> byType = settersByMethod.get(methodName);
+
+                if (byType == null) {
+                    byType = new HashMap<>();
+                    settersByMethod.put(methodName, byType);
+                }
+
+                byType.put(method.getParameterTypes()[0], handle);
+            }
+        }
+
+        names = getterNames.toArray(new String[getterNames.size()]);
+        types = getterTypes.toArray(new Class<?>[getterTypes.size()]);
+        getters = getterHandles.toArray(new MethodHandle[getterHandles.size()]);
+    }
+
+    /**
+     * Provides the property accessors of a class, looking them up on first use.
+     *
+     * @param  cls The class.
+     *
+     * @return The property accessors of the class.
+     */
+    public static PropertyAccessors forClass(Class<?> cls) {
+        PropertyAccessors accessors = ACCESSORS.get(cls);
+
+        if (accessors == null) {
+            accessors = new PropertyAccessors(cls);
+
+            PropertyAccessors existing = ACCESSORS.putIfAbsent(cls, accessors);
+            accessors = (existing == null) ? accessors : existing;
+        }
+
+        return accessors;
+    }
+
+    /**
+     * Provides the names of the readable properties of the class.
+     *
+     * @return The names of the readable properties of the class.
+     */
+    public Collection<String> getPropertyNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Provides the declared type of a readable property of the class.
+     *
+     * @param  property The name of the property.
+     *
+     * @return The return type of the getter of the property.
+     *
+     * @throws NoSuchFieldException If the class has no getter for the property.
+     */
+    public Class<?> getPropertyType(String property) throws NoSuchFieldException {
+        return types[indexOf(property)];
+    }
+
+    /**
+     * Reads a property of an object.
+     *
+     * @param  ob       The object to read, which must be an instance of the class.
+     * @param  property The name of the property.
+     *
+     * @return The value of the property.
+     *
+     * @throws NoSuchFieldException If the class has no getter for the property.
+     */
+    public Object get(Object ob, String property) throws NoSuchFieldException {
+        return invokeGetter(indexOf(property), ob);
+    }
+
+    /**
+     * Reads all properties of an object into a map.
+     *
+     * @param ob         The object to read, which must be an instance of the class.
+     * @param values     The map to put the property values in, by property name.
+     * @param ignoreNull <tt>true</tt> iff null properties should be ignored, <tt>false</tt> if null properties should
+     *                   be put in the map as nulls.
+     */
+    public void capture(Object ob, Map<String, Object> values, boolean ignoreNull) {
+        for (int i = 0; i < getters.length; i++) {
+            Object value = invokeGetter(i, ob);
+
+            if (!ignoreNull || (value != null)) {
+                values.put(names[i], value);
+            }
+        }
+    }
+
+    /**
+     * Writes a property of an object, through the setter whose parameter type is exactly the class of the value.
+     * Exceptions thrown by the setter are ignored, as a property that cannot be written is treated as read only.
+     *
+     * @param  ob       The object to write to, which must be an instance of the class.
+     * @param  property The name of the property.
+     * @param  value    The value to write.
+     *
+     * @return <tt>true</tt> iff a matching setter was found.
+     */
+    public boolean set(Object ob, String property, Object value) {
+        if (value == null) {
+            return false;
+        }
+
+        MethodHandle setter = settersFor(property).get(value.getClass());
+
+        if (setter == null) {
+            return false;
+        }
+
+        try {
+            setter.invokeExact(ob, value);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // Setter failures are ignored, and the property is treated as read only.
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes properties to an object, from a map of property values by name.
+     *
+     * @param ob     The object to write to, which must be an instance of the class.
+     * @param values The property values, by property name.
+     */
+    public void restore(Object ob, Map<String, Object> values) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            set(ob, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Provides the position of a readable property.
+     *
+     * @param  property The name of the property.
+     *
+     * @return The position of the property.
+     *
+     * @throws NoSuchFieldException If the class has no getter for the property.
+     */
+    private int indexOf(String property) throws NoSuchFieldException {
+        Integer index = indices.get(property);
+
+        if (index == null) {
+            throw new NoSuchFieldException("The property, " + property + ", does not exist on the underlying class.");
+        }
+
+        return index;
+    }
+
+    /**
+     * Calls the getter of a property.
+     *
+     * @param  index The position of the property.
+     * @param  ob    The object to read.
+     *
+     * @return The value of the property.
+     */
+    private Object invokeGetter(int index, Object ob) {
+        try {
+            return (Object) getters[index].invokeExact(ob);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Provides the setters for a property, by parameter type.
+     *
+     * @param  property The name of the property.
+     *
+     * @return The setters for the property, by parameter type, which may be empty.
+     */
+    private Map<Class<?>, MethodHandle> settersFor(String property) {
+        Map<Class<?>, MethodHandle> setters = settersByProperty.get(property);
+
+        if (setters == null) {
+            // Convert the first letter of the property name to upper case to match against the upper case version of
+            // it that will be in the setter method name. For example the property test will have a setter method
+            // called setTest.
+            String methodName = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+
+            setters = settersByMethod.get(methodName);
+            setters = (setters == null) ? Collections.<Class<?>, MethodHandle>emptyMap() : setters;
+            settersByProperty.put(property, setters);
+        }
+
+        return setters;
+    }
+
+    /**
+     * Checks if a method name is that of an accessor with a given prefix, followed by an upper case letter.
+     *
+     * @param  methodName The method name.
+     * @param  prefix     The accessor prefix.
+     *
+     * @return <tt>true</tt> iff the method name is that of an accessor.
+     */
+    private static boolean isAccessorName(String methodName, String prefix) {
+        return methodName.startsWith(prefix) && (methodName.length() > prefix.length()) &&
+            Character.isUpperCase(methodName.charAt(prefix.length()));
+    }
+
+    /**
+     * Looks up a method handle onto a method, adapted to take its receiver as an object. Static methods ignore the
+     * receiver.
+     *
+     * @param  method The method.
+     * @param  type   The type to adapt the handle to, with the receiver as its first parameter.
+     *
+     * @return The method handle.
+     *
+     * @throws IllegalStateException If the method cannot be called by method handle.
+     */
+    private static MethodHandle toHandle(Method method, MethodType type) {
+        MethodHandle handle;
+
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // The declaring class is not public, so the method has to be made accessible to be looked up.
+            try {
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException | SecurityException e1) {
+                throw new IllegalStateException("Method " + method + " cannot be called by method handle.", e1);
+            }
+        }
+
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+
+        return handle.asType(type);
+    }
+}
@@ -0,0 +1,475 @@
+package com.thesett.util.proxies;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AsyncExecutor runs the method calls of {@link AsyncProxy}s, on a fixed number of threads with a bounded queue. One
+ * executor is intended to be shared by many proxies; {@link #getDefault()} provides one for proxies that are not given
+ * their own.
+ *
+ * <p/>When the queue is full, the {@link OverflowPolicy} decides what happens to further calls: the caller can block
+ * until there is space, the call can be dropped, or the caller can run the call itself. A call made from one of the
+ * executor's own threads is never blocked, as that thread may be the one that would free the space; it runs the call
+ * itself instead. The future of a dropped call, or of any call made after shutdown, completes exceptionally with a
+ * {@link RejectedExecutionException}.
+ *
+ * <p/>Counts of submitted, completed, failed and dropped calls, the depth of the queue, and the total time calls spend
+ * queued and running are kept. {@link Listener}s are told of each call as it is submitted, started, finished or
+ * dropped, so that the distribution of latencies can be exposed as metrics.
+ *
+ * <p/>Threads are created by a thread factory, which can be supplied. By default they are daemon threads, named after
+ * the executor.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Run calls asynchronously, giving futures of their results. </td><td> {@link ThreadPoolExecutor} </td></tr>
+ * <tr><td> Apply an overflow policy when the queue is full. </td></tr>
+ * <tr><td> Count calls and measure queue depth and latency. </td></tr>
+ * <tr><td> Notify listeners of the progress of calls. </td><td> {@link Listener} </td></tr>
+ * </table></pre>
+ */
+public class AsyncExecutor implements AutoCloseable {
+    /** The default number of threads of the default executor. */
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** The default queue capacity of the default executor. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /** How long to wait for queued calls to complete on close, in seconds. */
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    /** How long a blocked caller waits for space before checking again whether the executor has shut down. */
+    private static final long BLOCK_RECHECK_MILLIS = 100;
+
+    /** The thread pool. */
+    private final ThreadPoolExecutor executor;
+
+    /** The policy for calls that do not fit in the queue. */
+    private final OverflowPolicy overflowPolicy;
+
+    /** Counts the calls submitted. */
+    private final LongAdder submitted = new LongAdder();
+
+    /** Counts the calls completed normally. */
+    private final LongAdder completed = new LongAdder();
+
+    /** Counts the calls completed by an exception. */
+    private final LongAdder failed = new LongAdder();
+
+    /** Counts the calls dropped or rejected. */
+    private final LongAdder dropped = new LongAdder();
+
+    /** Sums the time calls have spent queued, in nanoseconds. */
+    private final LongAdder queuedNanos = new LongAdder();
+
+    /** Sums the time calls have spent running, in nanoseconds. */
+    private final LongAdder runningNanos = new LongAdder();
+
+    /** The listeners to notify of the progress of calls. */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Marks the threads that belong to this executor. */
+    private final ThreadLocal<Boolean> poolThread = new ThreadLocal<>();
+
+    /**
+     * Creates an asynchronous executor, with daemon threads named after it.
+     *
+     * @param name           The name of the executor.
+     * @param threads        The number of threads.
+     * @param queueCapacity  The maximum number of queued calls.
+     * @param overflowPolicy The policy for calls that do not fit in the queue.
+     */
+    public AsyncExecutor(String name, int threads, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this(threads, queueCapacity, overflowPolicy, new DaemonThreadFactory(name));
+    }
+
+    /**
+     * Creates an asynchronous executor.
+     *
+     * @param threads        The number of threads.
+     * @param queueCapacity  The maximum number of queued calls.
+     * @param overflowPolicy The policy for calls that do not fit in the queue.
+     * @param threadFactory  The factory to create threads with.
+     */
+    public AsyncExecutor(int threads, int queueCapacity, OverflowPolicy overflowPolicy, ThreadFactory threadFactory) {
+        this.overflowPolicy = overflowPolicy;
+
+        ThreadFactory markingFactory =
+            runnable ->
+                threadFactory.newThread(() -> {
+                    poolThread.set(Boolean.TRUE);
+                    runnable.run();
+                });
+
+        executor =
+            new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), markingFactory, new OverflowHandler());
+    }
+
+    /**
+     * Provides the shared default executor, creating it on first use. It has {@link #DEFAULT_THREADS} threads, a
+     * queue of {@link #DEFAULT_QUEUE_CAPACITY}, and blocks callers when the queue is full.
+     *
+     * @return The shared default executor.
+     */
+    public static AsyncExecutor getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Submits a call to be run asynchronously.
+     *
+     * @param  <T>  The type of the result of the call.
+     * @param  call The call.
+     *
+     * @return A future of the result of the call.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        submitted.increment();
+
+        for (Listener listener : listeners) {
+            listener.submitted();
+        }
+
+        Call<T> task = new Call<>(call);
+        executor.execute(task);
+
+        return task.future;
+    }
+
+    /**
+     * Adds a listener to notify of the progress of calls.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener The listener.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Provides the overflow policy.
+     *
+     * @return The policy for calls that do not fit in the queue.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Provides the number of calls waiting in the queue.
+     *
+     * @return The number of calls waiting in the queue.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Provides the number of calls running.
+     *
+     * @return The number of calls running.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Provides the number of calls submitted.
+     *
+     * @return The number of calls submitted.
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Provides the number of calls completed normally.
+     *
+     * @return The number of calls completed normally.
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Provides the number of calls completed by an exception.
+     *
+     * @return The number of calls completed by an exception.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Provides the number of calls dropped, because the queue was full or the executor was shut down.
+     *
+     * @return The number of calls dropped.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Provides the total time that calls have spent queued.
+     *
+     * @return The total time that calls have spent queued, in nanoseconds.
+     */
+    public long getQueuedNanos() {
+        return queuedNanos.sum();
+    }
+
+    /**
+     * Provides the total time that calls have spent running.
+     *
+     * @return The total time that calls have spent running, in nanoseconds.
+     */
+    public long getRunningNanos() {
+        return runningNanos.sum();
+    }
+
+    /**
+     * Stops accepting calls, and waits for the calls already queued to complete.
+     *
+     * @throws InterruptedException If interrupted whilst waiting.
+     */
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** OverflowPolicy decides what happens to calls that do not fit in the queue. */
+    public enum OverflowPolicy {
+        /**
+         * The caller blocks until there is space in the queue, or the executor shuts down. A caller on one of the
+         * executor's own threads runs the call itself.
+         */
+        BLOCK,
+
+        /** The call is dropped, and its future completes exceptionally. */
+        DROP,
+
+        /** The caller runs the call itself. */
+        CALLER_RUNS
+    }
+
+    /**
+     * Listener is notified of the progress of calls. It is called on the thread that submits, runs or drops the call,
+     * so it must be quick and must not block.
+     */
+    public interface Listener {
+        /** Notifies that a call has been submitted. */
+        void submitted();
+
+        /**
+         * Notifies that a call has started to run.
+         *
+         * @param queuedNanos The time the call spent queued, in nanoseconds.
+         */
+        void started(long queuedNanos);
+
+        /**
+         * Notifies that a call has finished running.
+         *
+         * @param runningNanos The time the call spent running, in nanoseconds.
+         * @param failed       <tt>true</tt> if the call completed by an exception.
+         */
+        void finished(long runningNanos, boolean failed);
+
+        /** Notifies that a call has been dropped, because the queue was full or the executor was shut down. */
+        void dropped();
+    }
+
+    /**
+     * Call is a queued call, which completes its future with its result and records how long it spent queued and
+     * running.
+     *
+     * @param <T> The type of the result of the call.
+     */
+    private class Call<T> implements Runnable {
+        /** The call. */
+        private final Callable<T> call;
+
+        /** The future of the result of the call. */
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        /** The time the call was queued, in nanoseconds. */
+        private final long queuedAt = System.nanoTime();
+
+        /**
+         * Creates a queued call.
+         *
+         * @param call The call.
+         */
+        Call(Callable<T> call) {
+            this.call = call;
+        }
+
+        /** {@inheritDoc} */
+        public void run() {
+            long startedAt = System.nanoTime();
+            long queued = startedAt - queuedAt;
+            queuedNanos.add(queued);
+
+            for (Listener listener : listeners) {
+                listener.started(queued);
+            }
+
+            T result = null;
+            Throwable error = null;
+
+            try {
+                result = call.call();
+                completed.increment();
+            } catch (Throwable t) {
+                error = t;
+                failed.increment();
+            }
+
+            long running = System.nanoTime() - startedAt;
+            runningNanos.add(running);
+
+            for (Listener listener : listeners) {
+                listener.finished(running, error != null);
+            }
+
+            if (error == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+
+        /**
+         * Drops the call, completing its future exceptionally.
+         *
+         * @param reason The reason the call was dropped.
+         */
+        void drop(String reason) {
+            dropped.increment();
+
+            for (Listener listener : listeners) {
+                listener.dropped();
+            }
+
+            future.completeExceptionally(new RejectedExecutionException(reason));
+        }
+    }
+
+    /** OverflowHandler applies the overflow policy to calls that the thread pool rejects. */
+    private class OverflowHandler implements RejectedExecutionHandler {
+        /** {@inheritDoc} */
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor pool) {
+            Call<?> call = (Call<?>) runnable;
+
+            if (pool.isShutdown()) {
+                call.drop("The executor has been shut down.");
+
+                return;
+            }
+
+            switch (overflowPolicy) {
+            case BLOCK:
+
+                // A pool thread that blocked here could be the one that would have freed the space.
+                if (Boolean.TRUE.equals(poolThread.get())) {
+                    call.run();
+                } else {
+                    block(call, pool);
+                }
+
+                break;
+
+            case CALLER_RUNS:
+                call.run();
+                break;
+
+            case DROP:
+            default:
+                call.drop("The queue is full.");
+            }
+        }
+
+        /**
+         * Blocks the caller until there is space in the queue for a call, or until the executor shuts down. The pool
+         * may shut down and drain its queue whilst the caller waits, so shutdown is checked again once the call is
+         * queued, and the call taken back out and dropped if the pool may no longer run it.
+         *
+         * @param call The call to queue.
+         * @param pool The thread pool.
+         */
+        private void block(Call<?> call, ThreadPoolExecutor pool) {
+            BlockingQueue<Runnable> queue = pool.getQueue();
+
+            try {
+                while (!pool.isShutdown()) {
+                    if (queue.offer(call, BLOCK_RECHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (pool.isShutdown() && queue.remove(call)) {
+                            break;
+                        }
+
+                        return;
+                    }
+                }
+
+                call.drop("The executor has been shut down.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.drop("Interrupted whilst waiting for space in the queue.");
+            }
+        }
+    }
+
+    /** DaemonThreadFactory creates daemon threads, numbered and named after the executor. */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        /** The name of the executor. */
+        private final String name;
+
+        /** Counts the threads created. */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Creates a daemon thread factory.
+         *
+         * @param name The name of the executor.
+         */
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        /** {@inheritDoc} */
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+
+    /** Holds the shared default executor, creating it lazily on first use. */
+    private static class DefaultHolder {
+        /** The shared default executor. */
+        private static final AsyncExecutor INSTANCE =
+            new AsyncExecutor("async-proxy", DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+    }
+}
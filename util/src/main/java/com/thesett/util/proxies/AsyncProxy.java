@@ -3,60 +3,138 @@ package com.thesett.util.proxies;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * AsyncProxy is a proxy that makes any method call asynchronous.
  *
- * <p/>Return values and exceptions are awkward, because they cannot be returned to the caller in the normal way. A
- * mechanism could be added to allow these to be collected at a later time, but this has not been implemented. Return
- * values and exceptions are ignored.
+ * <p/>Calls are run on an {@link AsyncExecutor}, which is shared between proxies, and which bounds the number of calls
+ * that can be queued. Proxies that are not given an executor use the {@link AsyncExecutor#getDefault()} one.
+ *
+ * <p/>Methods declared to return a {@link CompletableFuture}, or any of its super-types such as
+ * {@link CompletionStage}, return a future that completes with the result or exception of the call. If the proxied
+ * method itself returns a future, the future returned completes when that one does. The return values of other methods
+ * cannot be returned to the caller in the normal way, so are ignored, and <tt>null</tt> is returned; any exceptions
+ * they throw are logged. Methods declared by {@link Object} are not made asynchronous.
+ *
+ * <p/>The executor applies its overflow policy when its queue is full, which may block the caller, run the call on the
+ * caller, or drop the call. The future of a dropped call completes exceptionally.
  *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
- * <tr><td> Invoke methods asynchronously. </td></tr>
+ * <tr><td> Invoke methods asynchronously. </td><td> {@link AsyncExecutor} </td></tr>
+ * <tr><td> Return futures of results for methods that declare them. </td></tr>
+ * <tr><td> Log exceptions that cannot be returned. </td></tr>
  * </table></pre>
  */
 public class AsyncProxy implements InvocationHandler {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(AsyncProxy.class.getName());
+
     /** The object being proxied. */
     private final Object obj;
 
-    ExecutorService executor = Executors.newFixedThreadPool(1);
+    /** The executor to run calls on. */
+    private final AsyncExecutor executor;
 
     /**
-     * Creates an instance of the asynchronous proxy.
+     * Creates an instance of the asynchronous proxy, running calls on the default executor.
      *
      * @param obj The object being proxied.
      */
     public AsyncProxy(Object obj) {
+        this(obj, AsyncExecutor.getDefault());
+    }
+
+    /**
+     * Creates an instance of the asynchronous proxy.
+     *
+     * @param obj      The object being proxied.
+     * @param executor The executor to run calls on.
+     */
+    public AsyncProxy(Object obj, AsyncExecutor executor) {
         this.obj = obj;
+        this.executor = executor;
     }
 
     /** {@inheritDoc} */
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        executor.submit(new AsyncMethodCall(method, args, obj));
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeTarget(method, args);
+        }
+
+        CompletableFuture<Object> future = executor.submit(() -> invokeTarget(method, args));
+
+        if (returnsFuture(method)) {
+            return future.thenCompose(AsyncProxy::flatten);
+        }
+
+        future.whenComplete((result, t) -> {
+            if (t != null) {
+                LOG.log(Level.WARNING, "Asynchronous call to " + method + " failed.", t);
+            }
+        });
 
         return null;
     }
 
-    private class AsyncMethodCall implements Runnable {
-        Method method;
-        Object[] args;
-        Object target;
+    /**
+     * Checks if a method is declared to return a future, that a {@link CompletableFuture} can be returned as.
+     *
+     * @param  method The method.
+     *
+     * @return <tt>true</tt> iff the method is declared to return a future.
+     */
+    private static boolean returnsFuture(Method method) {
+        Class<?> returnType = method.getReturnType();
+
+        return (returnType != Object.class) && returnType.isAssignableFrom(CompletableFuture.class);
+    }
+
+    /**
+     * Invokes a method on the proxied object, unwrapping any exception that it throws.
+     *
+     * @param  method The method to invoke.
+     * @param  args   The arguments to invoke it with.
+     *
+     * @return The result of the method.
+     *
+     * @throws Exception Any exception thrown by the method.
+     */
+    private Object invokeTarget(Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(obj, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
 
-        private AsyncMethodCall(Method method, Object[] args, Object target) {
-            this.method = method;
-            this.args = args;
-            this.target = target;
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw e;
         }
+    }
 
-        public void run() {
-            try {
-                method.invoke(target, args);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new IllegalStateException(e);
-            }
+    /**
+     * Flattens the result of a method that itself returns a future, into that future.
+     *
+     * @param  result The result of the method.
+     *
+     * @return A completion stage of the result.
+     */
+    private static CompletionStage<Object> flatten(Object result) {
+        if (result instanceof CompletionStage) {
+            @SuppressWarnings("unchecked")
+            CompletionStage<Object> stage = (CompletionStage<Object>) result;
+
+            return stage;
         }
+
+        return CompletableFuture.completedFuture(result);
     }
 }
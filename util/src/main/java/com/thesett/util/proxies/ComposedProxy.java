@@ -0,0 +1,171 @@
+package com.thesett.util.proxies;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ComposedProxy fuses a stack of {@link ProxyInterceptor}s into a single proxy, in place of a chain of proxies that
+ * each wrap the next. A call passes through every interceptor in turn, and then on to the proxied object, without a
+ * further proxy, reflective call, or wrapping and unwrapping of exceptions for each layer.
+ *
+ * <p/>The proxied object is called through a method handle, which is looked up once for each method of the interface
+ * when the proxy is created. Exceptions thrown by the proxied object reach the interceptors as they are.
+ *
+ * <p/>Interceptors are applied in the order given, so the first is outermost. Methods declared by {@link Object} are
+ * not intercepted; their method handles are looked up on first use, and cached.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Pass method calls through a stack of interceptors. </td><td> {@link ProxyInterceptor} </td></tr>
+ * <tr><td> Call the proxied object directly by method handle. </td><td> {@link MethodHandle} </td></tr>
+ * </table></pre>
+ */
+public class ComposedProxy implements InvocationHandler {
+    /** Used in place of a missing argument array, for methods with no arguments. */
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /** The type that all method handles are adapted to. */
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /** The object being proxied. */
+    private final Object obj;
+
+    /** The interceptors, outermost first. */
+    private final ProxyInterceptor[] interceptors;
+
+    /** Holds the method handles that call the proxied object, by interface method. */
+    private final Map<Method, MethodHandle> handles = new HashMap<>();
+
+    /** Holds the method handles that call the proxied object for methods that are not intercepted, by method. */
+    private final Map<Method, MethodHandle> unintercepted = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a composed proxy.
+     *
+     * @param obj          The object being proxied.
+     * @param clazz        The interface being proxied.
+     * @param interceptors The interceptors, outermost first.
+     */
+    public ComposedProxy(Object obj, Class<?> clazz, ProxyInterceptor... interceptors) {
+        this.obj = obj;
+        this.interceptors = interceptors.clone();
+
+        for (Method method : clazz.getMethods()) {
+            handles.put(method, spreadHandle(method, obj));
+        }
+    }
+
+    /**
+     * Creates an instance of this proxy.
+     *
+     * @param  toProxy      The object to proxy.
+     * @param  clazz        The interface of the object being proxied.
+     * @param  interceptors The interceptors, outermost first.
+     * @param  <T>          The type of the interface being proxied.
+     *
+     * @return The object proxied through the interceptors.
+     */
+    public static <T> T proxy(T toProxy, Class<T> clazz, ProxyInterceptor... interceptors) {
+        return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz },
+            new ComposedProxy(toProxy, clazz, interceptors));
+    }
+
+    /** {@inheritDoc} */
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodHandle handle = handles.get(method);
+
+        if (handle == null) {
+            // Methods declared by Object are not looked up ahead, and are not intercepted.
+            handle = unintercepted.computeIfAbsent(method, m -> spreadHandle(m, obj));
+
+            return (Object) handle.invokeExact((args == null) ? NO_ARGS : args);
+        }
+
+        return new Chain(method, args, handle).proceed();
+    }
+
+    /**
+     * Looks up a method handle that calls a method on an object, taking its arguments as an array and returning an
+     * object.
+     *
+     * @param  method The method.
+     * @param  target The object to call the method on.
+     *
+     * @return The method handle.
+     */
+    private static MethodHandle spreadHandle(Method method, Object target) {
+        MethodHandle handle;
+
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // The interface is not public, so the method has to be made accessible to be looked up.
+            method.setAccessible(true);
+
+            try {
+                handle = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException e1) {
+                throw new IllegalStateException("Method " + method + " cannot be called by method handle.", e1);
+            }
+        }
+
+        return handle.bindTo(target).asSpreader(Object[].class, method.getParameterCount()).asType(SPREAD_TYPE);
+    }
+
+    /**
+     * Chain is a call passing through the interceptors. Each call to {@link #proceed()} moves it on to the next
+     * interceptor, and finally to the proxied object.
+     */
+    private class Chain implements Invocation {
+        /** The method called. */
+        private final Method method;
+
+        /** The arguments of the call. */
+        private final Object[] args;
+
+        /** The method handle that calls the proxied object. */
+        private final MethodHandle handle;
+
+        /** The index of the next interceptor to proceed to. */
+        private int next;
+
+        /**
+         * Creates a call passing through the interceptors.
+         *
+         * @param method The method called.
+         * @param args   The arguments of the call.
+         * @param handle The method handle that calls the proxied object.
+         */
+        Chain(Method method, Object[] args, MethodHandle handle) {
+            this.method = method;
+            this.args = args;
+            this.handle = handle;
+        }
+
+        /** {@inheritDoc} */
+        public Method getMethod() {
+            return method;
+        }
+
+        /** {@inheritDoc} */
+        public Object[] getArguments() {
+            return args;
+        }
+
+        /** {@inheritDoc} */
+        public Object proceed() throws Throwable {
+            if (next < interceptors.length) {
+                return interceptors[next++].intercept(this);
+            }
+
+            return (Object) handle.invokeExact((args == null) ? NO_ARGS : args);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.thesett.util.proxies;
+
+import java.lang.reflect.Method;
+
+/**
+ * Invocation is a method call on a proxied object, as seen by a {@link ProxyInterceptor}.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Describe a method call. </td></tr>
+ * <tr><td> Proceed with the method call. </td></tr>
+ * </table></pre>
+ */
+public interface Invocation {
+    /**
+     * Provides the method called.
+     *
+     * @return The method called.
+     */
+    Method getMethod();
+
+    /**
+     * Provides the arguments of the call.
+     *
+     * @return The arguments of the call, which may be <tt>null</tt> if there are none.
+     */
+    Object[] getArguments();
+
+    /**
+     * Proceeds with the method call, through the next interceptor or on the proxied object. Exceptions thrown by the
+     * proxied object are thrown as they are, not wrapped.
+     *
+     * @return The result of the method call.
+     *
+     * @throws Throwable Any exception from the method call.
+     */
+    Object proceed() throws Throwable;
+}
@@ -0,0 +1,25 @@
+package com.thesett.util.proxies;
+
+/**
+ * ProxyInterceptor is one layer of behaviour around the method calls of a proxied object, such as running them in a
+ * transaction or translating their exceptions. Interceptors are fused into a single proxy by {@link ComposedProxy},
+ * so that a call passes through all of them without a separate proxy and reflective call for each layer.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Intercept a method call, proceeding with it at most once. </td><td> {@link Invocation} </td></tr>
+ * </table></pre>
+ */
+public interface ProxyInterceptor {
+    /**
+     * Intercepts a method call. The call is passed on to the next interceptor, or to the proxied object, by
+     * {@link Invocation#proceed()}, which should be called at most once.
+     *
+     * @param  invocation The method call.
+     *
+     * @return The result of the method call.
+     *
+     * @throws Throwable Any exception from the method call, or from the interceptor.
+     */
+    Object intercept(Invocation invocation) throws Throwable;
+}
@@ -0,0 +1,56 @@
+package com.thesett.util.proxies;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * ReflectiveInvocation is a method call that proceeds directly on an object by reflection. It is used to apply a single
+ * {@link ProxyInterceptor} from an ordinary {@link java.lang.reflect.InvocationHandler}.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Call a method on an object by reflection, unwrapping its exceptions. </td></tr>
+ * </table></pre>
+ */
+public class ReflectiveInvocation implements Invocation {
+    /** The object to call the method on. */
+    private final Object target;
+
+    /** The method called. */
+    private final Method method;
+
+    /** The arguments of the call. */
+    private final Object[] args;
+
+    /**
+     * Creates a reflective method call.
+     *
+     * @param target The object to call the method on.
+     * @param method The method called.
+     * @param args   The arguments of the call.
+     */
+    public ReflectiveInvocation(Object target, Method method, Object[] args) {
+        this.target = target;
+        this.method = method;
+        this.args = args;
+    }
+
+    /** {@inheritDoc} */
+    public Method getMethod() {
+        return method;
+    }
+
+    /** {@inheritDoc} */
+    public Object[] getArguments() {
+        return args;
+    }
+
+    /** {@inheritDoc} */
+    public Object proceed() throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
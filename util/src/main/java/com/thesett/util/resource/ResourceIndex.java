@@ -0,0 +1,306 @@
+package com.thesett.util.resource;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * ResourceIndex holds the names of all resources on the classpath, sorted, so that the resources within a package can
+ * be found without scanning the classpath.
+ *
+ * <p/>The index is built once, on first use. It holds the resources listed in all {@link #INDEX_RESOURCE} manifests
+ * on the classpath, together with the resources found by scanning every directory and jar file on the classpath that
+ * does not hold a manifest. A manifest can be generated at build time, by running {@link #main(String[])} over the
+ * classpath of the application, and packaging the result into it, so that the jar holding it need not be scanned. A
+ * manifest that is out of date with the classpath will give out of date results.
+ *
+ * <p/>Manifests, directories or jar files that cannot be read are logged and left out of the index. Should building
+ * the index fail altogether, the whole classpath is scanned instead, ignoring the manifests.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Index the resources on the classpath. </td></tr>
+ * <tr><td> Find resources within a package that match a pattern. </td></tr>
+ * <tr><td> Write the index as a manifest. </td></tr>
+ * </table></pre>
+ */
+public class ResourceIndex {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(ResourceIndex.class.getName());
+
+    /** The name of the resource manifest to read the index from, when present. */
+    public static final String INDEX_RESOURCE = "META-INF/resource-index.txt";
+
+    /** Holds the names of all resources, sorted. */
+    private final NavigableSet<String> resourceNames;
+
+    /**
+     * Creates an index over a set of resource names.
+     *
+     * @param resourceNames The names of all resources, sorted.
+     */
+    private ResourceIndex(NavigableSet<String> resourceNames) {
+        this.resourceNames = resourceNames;
+    }
+
+    /**
+     * Provides the index of the classpath, building it on first use.
+     *
+     * @return The index of the classpath.
+     */
+    public static ResourceIndex getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Writes an index of the classpath to a file, as a resource manifest.
+     *
+     * @param  args The name of the file to write.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        File file = new File(args[0]);
+
+        if (file.getParentFile() != null) {
+            Files.createDirectories(file.getParentFile().toPath());
+        }
+
+        NavigableSet<String> resourceNames = new TreeSet<>();
+        scanClassPath(resourceNames, false);
+
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            new ResourceIndex(resourceNames).write(writer);
+        }
+    }
+
+    /**
+     * Finds all resources directly within a package, not within its sub-packages, whose names match a regular
+     * expression.
+     *
+     * @param  pattern     The pattern to match.
+     * @param  packageName The name of the package, which may be empty for the root package.
+     *
+     * @return A list of matching resources, as paths from the root of the classpath.
+     */
+    public List<String> find(String pattern, String packageName) {
+        return find(pattern, packageName, false);
+    }
+
+    /**
+     * Finds all resources within a package or any of its sub-packages, whose names relative to the package match a
+     * regular expression.
+     *
+     * @param  pattern     The pattern to match.
+     * @param  packageName The name of the package, which may be empty for the root package.
+     *
+     * @return A list of matching resources, as paths from the root of the classpath.
+     */
+    public List<String> findAll(String pattern, String packageName) {
+        return find(pattern, packageName, true);
+    }
+
+    /**
+     * Writes the index as a resource manifest, one resource name per line.
+     *
+     * @param  writer The writer to write to.
+     *
+     * @throws IOException If the index cannot be written.
+     */
+    public void write(Writer writer) throws IOException {
+        for (String resourceName : resourceNames) {
+            writer.write(resourceName);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Finds all resources within a package, whose names relative to the package match a regular expression.
+     *
+     * @param  pattern     The pattern to match.
+     * @param  packageName The name of the package, which may be empty for the root package.
+     * @param  subPackages <tt>true</tt> to include resources within sub-packages.
+     *
+     * @return A list of matching resources, as paths from the root of the classpath.
+     */
+    private List<String> find(String pattern, String packageName, boolean subPackages) {
+        Pattern regexPattern = Pattern.compile(pattern);
+        String prefix = "".equals(packageName) ? "" : (packageName.replace('.', '/') + "/");
+
+        List<String> result = new ArrayList<>();
+
+        for (String resourceName : resourceNames.tailSet(prefix, true)) {
+            if (!resourceName.startsWith(prefix)) {
+                break;
+            }
+
+            String name = resourceName.substring(prefix.length());
+
+            if ((subPackages || (name.indexOf('/') < 0)) && regexPattern.matcher(name).matches()) {
+                result.add(resourceName);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Builds the index of the classpath, from the resource manifests, and by scanning the parts of the classpath that
+     * hold no manifest. Should that fail, the whole classpath is scanned instead. This never fails, so that the index
+     * is always usable, though it may be incomplete.
+     *
+     * @return The index of the classpath.
+     */
+    private static ResourceIndex build() {
+        NavigableSet<String> resourceNames = new TreeSet<>();
+
+        try {
+            readManifests(resourceNames);
+            scanClassPath(resourceNames, true);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to index the classpath using its resource manifests, scanning it instead.",
+                e);
+            resourceNames.clear();
+
+            try {
+                scanClassPath(resourceNames, false);
+            } catch (RuntimeException e1) {
+                LOG.log(Level.SEVERE, "Failed to scan the classpath, resources on it will not be found.", e1);
+            }
+        }
+
+        return new ResourceIndex(resourceNames);
+    }
+
+    /**
+     * Adds the resources listed in all resource manifests on the classpath to the index.
+     *
+     * @param resourceNames The resource names to add to.
+     */
+    private static void readManifests(NavigableSet<String> resourceNames) {
+        Enumeration<URL> manifests;
+
+        try {
+            manifests = ResourceIndex.class.getClassLoader().getResources(INDEX_RESOURCE);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to find the resource manifests on the classpath.", e);
+
+            return;
+        }
+
+        for (URL manifest : Collections.list(manifests)) {
+            try (BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(manifest.openStream(), StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.isEmpty()) {
+                        resourceNames.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to read the resource manifest " + manifest + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Scans the directories and jar files on the classpath, to index the resources within them.
+     *
+     * @param resourceNames  The resource names to add to.
+     * @param skipManifested <tt>true</tt> to skip directories and jar files that hold a resource manifest, as their
+     *                       resources are already indexed from it.
+     */
+    private static void scanClassPath(NavigableSet<String> resourceNames, boolean skipManifested) {
+        String classPath = System.getProperty("java.class.path", ".");
+
+        for (String element : classPath.split(File.pathSeparator)) {
+            File file = new File(element);
+
+            if (file.isDirectory()) {
+                if (!skipManifested || !new File(file, INDEX_RESOURCE).isFile()) {
+                    scanDirectory(file, "", resourceNames);
+                }
+            } else if (file.isFile()) {
+                try {
+                    scanJarFile(file, resourceNames, skipManifested);
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to scan " + file + " on the classpath for resources.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the names of all files below a directory to the index.
+     *
+     * @param directory     The directory to scan.
+     * @param path          The path of the directory from the root of the classpath.
+     * @param resourceNames The resource names to add to.
+     */
+    private static void scanDirectory(File directory, String path, NavigableSet<String> resourceNames) {
+        File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = path + file.getName();
+
+            if (file.isDirectory()) {
+                scanDirectory(file, name + "/", resourceNames);
+            } else {
+                resourceNames.add(name);
+            }
+        }
+    }
+
+    /**
+     * Adds the names of all file entries in a jar file to the index.
+     *
+     * @param  file           The jar file to scan.
+     * @param  resourceNames  The resource names to add to.
+     * @param  skipManifested <tt>true</tt> to skip the jar file if it holds a resource manifest.
+     *
+     * @throws IOException If the jar file cannot be read.
+     */
+    private static void scanJarFile(File file, NavigableSet<String> resourceNames, boolean skipManifested)
+        throws IOException {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            if (skipManifested && (zipFile.getEntry(INDEX_RESOURCE) != null)) {
+                return;
+            }
+
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+
+                if (!entry.isDirectory()) {
+                    resourceNames.add(entry.getName());
+                }
+            }
+        }
+    }
+
+    /** Holds the index of the classpath, building it lazily on first use. */
+    private static class Holder {
+        /** The index of the classpath. */
+        private static final ResourceIndex INSTANCE = build();
+    }
+}
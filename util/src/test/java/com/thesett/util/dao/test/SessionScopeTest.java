@@ -0,0 +1,219 @@
+package com.thesett.util.dao.test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import com.thesett.util.dao.HibernateSessionAndDetachProxy;
+import com.thesett.util.dao.SessionScope;
+
+/**
+ * Unit tests the {@link com.thesett.util.dao.SessionScope} class, over recording stand-ins for the Hibernate session
+ * factory, session and transaction.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that closing a scope commits its transaction and closes its session.
+ * <tr><td>Check that closing a scope more than once only ends it once.
+ * <tr><td>Check that a joined scope only ends when the outermost use is closed.
+ * <tr><td>Check that a rollback only scope is rolled back.
+ * <tr><td>Check that calls in a scope share its session, without flushing or clearing it.
+ * <tr><td>Check that a call in a scope that fails marks it as rollback only.
+ * </table></pre>
+ */
+public class SessionScopeTest {
+    /** The calls made on the stand-ins. */
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+    /** Whether the stand-in transaction is active. */
+    private boolean active;
+
+    /** The stand-in transaction. */
+    private final Transaction transaction = standIn(Transaction.class);
+
+    /** The stand-in session factory. */
+    private final SessionFactory sessionFactory = standIn(SessionFactory.class);
+
+    /** The stand-in session. */
+    private final Session session = standIn(Session.class);
+
+    /** Check that closing a scope commits its transaction and closes its session. */
+    @Test
+    public void testCloseCommits() {
+        SessionScope scope = SessionScope.open(sessionFactory);
+        assertSame(scope, SessionScope.current(sessionFactory));
+
+        scope.close();
+
+        assertEquals(Arrays.asList("openSession", "beginTransaction", "commit", "close"), calls);
+        assertNull(SessionScope.current(sessionFactory));
+    }
+
+    /** Check that closing a scope more than once only ends it once. */
+    @Test
+    public void testCloseIsIdempotent() {
+        SessionScope scope = SessionScope.open(sessionFactory);
+        scope.close();
+        scope.close();
+
+        assertEquals(1, count("commit"));
+        assertEquals(1, count("close"));
+    }
+
+    /** Check that a joined scope only ends when the outermost use is closed. */
+    @Test
+    public void testJoinedScopeEndsOnOutermostClose() {
+        SessionScope outer = SessionScope.open(sessionFactory);
+        SessionScope inner = SessionScope.open(sessionFactory);
+        assertSame(outer, inner);
+
+        inner.close();
+        assertEquals(0, count("commit"));
+        assertSame(outer, SessionScope.current(sessionFactory));
+
+        outer.close();
+        assertEquals(1, count("commit"));
+        assertEquals(1, count("openSession"));
+    }
+
+    /** Check that a rollback only scope is rolled back. */
+    @Test
+    public void testRollbackOnly() {
+        SessionScope scope = SessionScope.open(sessionFactory);
+        scope.setRollbackOnly();
+        scope.close();
+
+        assertEquals(1, count("rollback"));
+        assertEquals(0, count("commit"));
+    }
+
+    /** Check that calls in a scope share its session, without flushing or clearing it. */
+    @Test
+    public void testCallsInScopeKeepSession() {
+        Result result = new Result();
+        Service service = HibernateSessionAndDetachProxy.proxy(() -> result, Service.class, sessionFactory);
+
+        try (SessionScope scope = SessionScope.open(sessionFactory)) {
+            for (int i = 0; i < 3; i++) {
+                assertSame(result, service.call());
+            }
+
+            assertFalse(scope.isRollbackOnly());
+        }
+
+        assertEquals(1, count("openSession"));
+        assertEquals(0, count("flush"));
+        assertEquals(0, count("clear"));
+        assertEquals(1, count("commit"));
+    }
+
+    /** Check that a call in a scope that fails marks it as rollback only. */
+    @Test
+    public void testFailedCallMarksRollbackOnly() {
+        Service service =
+            HibernateSessionAndDetachProxy.proxy(() -> { throw new IllegalStateException(); }, Service.class,
+                sessionFactory);
+
+        try (SessionScope scope = SessionScope.open(sessionFactory)) {
+            try {
+                service.call();
+            } catch (IllegalStateException e) {
+                // Expected.
+            }
+
+            assertTrue(scope.isRollbackOnly());
+        }
+
+        assertEquals(1, count("rollback"));
+    }
+
+    /**
+     * Counts the calls made to a method of the stand-ins.
+     *
+     * @param  method The name of the method.
+     *
+     * @return The number of calls made to it.
+     */
+    private int count(String method) {
+        return Collections.frequency(calls, method);
+    }
+
+    /**
+     * Creates a stand-in for a Hibernate interface, that records the calls made on it.
+     *
+     * @param  theInterface The interface.
+     * @param  <T>          The type of the interface.
+     *
+     * @return The stand-in.
+     */
+    private <T> T standIn(Class<T> theInterface) {
+        return theInterface.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { theInterface },
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+
+                        switch (name) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return theInterface.getSimpleName();
+                        case "getSessionFactory":
+                            return sessionFactory;
+                        case "getTransaction":
+                            return transaction;
+                        case "isActive":
+                            return active;
+                        default:
+                            break;
+                        }
+
+                        calls.add(name);
+
+                        switch (name) {
+                        case "openSession":
+                            return session;
+                        case "beginTransaction":
+                            active = true;
+
+                            return transaction;
+                        case "commit":
+                        case "rollback":
+                            active = false;
+
+                            return null;
+                        default:
+                            return method.getReturnType().isPrimitive() ? Boolean.FALSE : null;
+                        }
+                    }));
+    }
+
+    /** Service is a proxied service for testing. */
+    public interface Service {
+        /**
+         * Makes a service call.
+         *
+         * @return The result of the call.
+         */
+        Result call();
+    }
+
+    /** Result is the result of a service call. */
+    public static class Result {
+        /** A reference to another result. */
+        Result next;
+    }
+}
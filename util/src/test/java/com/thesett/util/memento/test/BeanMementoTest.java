@@ -0,0 +1,198 @@
+package com.thesett.util.memento.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+import com.thesett.util.memento.BeanMemento;
+
+/**
+ * Unit tests the {@link com.thesett.util.memento.BeanMemento} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that capture reads all getter properties, including inherited ones, but not the class.
+ * <tr><td>Check that capture non null skips null properties.
+ * <tr><td>Check that restore writes properties through setters taking exactly the class of the value.
+ * <tr><td>Check that restore skips properties that are read only, null, or whose setter takes a primitive.
+ * <tr><td>Check that restore ignores setters that fail.
+ * <tr><td>Check that capture fails when a getter fails.
+ * <tr><td>Check that getting an uncaptured property fails.
+ * <tr><td>Check that put values are restored.
+ * </table></pre>
+ */
+public class BeanMementoTest {
+    /** Check that capture reads all getter properties, including inherited ones, but not the class. */
+    @Test
+    public void testCaptureReadsAllGetterProperties() throws Exception {
+        TestBean bean = new TestBean("test", 3);
+
+        BeanMemento memento = new BeanMemento(bean);
+        memento.capture();
+
+        assertEquals(new HashSet<>(Arrays.asList("parent", "name", "count", "primitive", "derived", "failingSetter")),
+            new HashSet<>(memento.getAllFieldNames(TestBean.class)));
+        assertEquals("parent", memento.get(TestBean.class, "parent"));
+        assertEquals("test", memento.get(TestBean.class, "name"));
+        assertEquals(3, memento.get(TestBean.class, "count"));
+        assertEquals(7, memento.get(TestBean.class, "primitive"));
+        assertEquals("test3", memento.get(TestBean.class, "derived"));
+        assertNull(memento.get(TestBean.class, "failingSetter"));
+    }
+
+    /** Check that capture non null skips null properties. */
+    @Test
+    public void testCaptureNonNullSkipsNullProperties() throws Exception {
+        TestBean bean = new TestBean(null, 3);
+
+        BeanMemento memento = new BeanMemento(bean);
+        memento.captureNonNull();
+
+        assertFalse(memento.getAllFieldNames(TestBean.class).contains("name"));
+        assertFalse(memento.getAllFieldNames(TestBean.class).contains("failingSetter"));
+        assertEquals(3, memento.get(TestBean.class, "count"));
+    }
+
+    /** Check that restore writes properties through setters taking exactly the class of the value. */
+    @Test
+    public void testRestoreWritesPropertiesThroughExactSetters() throws Exception {
+        BeanMemento memento = new BeanMemento(new TestBean("test", 3));
+        memento.capture();
+
+        TestBean target = new TestBean("other", 5);
+        target.setParent("other parent");
+        memento.restore(target);
+
+        assertEquals("parent", target.getParent());
+        assertEquals("test", target.getName());
+        assertEquals(Integer.valueOf(3), target.getCount());
+    }
+
+    /** Check that restore skips properties that are read only, null, or whose setter takes a primitive. */
+    @Test
+    public void testRestoreSkipsUnwritableProperties() throws Exception {
+        BeanMemento memento = new BeanMemento(new TestBean(null, 3));
+        memento.capture();
+        memento.put(TestBean.class, "primitive", 11);
+
+        TestBean target = new TestBean("other", 5);
+        memento.restore(target);
+
+        assertEquals("other", target.getName());
+        assertEquals(7, target.getPrimitive());
+        assertEquals("other3", target.getDerived());
+    }
+
+    /** Check that restore ignores setters that fail. */
+    @Test
+    public void testRestoreIgnoresFailingSetters() throws Exception {
+        BeanMemento memento = new BeanMemento(new TestBean("test", 3));
+        memento.capture();
+        memento.put(TestBean.class, "failingSetter", "value");
+
+        TestBean target = new TestBean("other", 5);
+        memento.restore(target);
+
+        assertEquals("test", target.getName());
+    }
+
+    /** Check that capture fails when a getter fails. */
+    @Test(expected = IllegalStateException.class)
+    public void testCaptureFailsOnFailingGetter() throws Exception {
+        new BeanMemento(new FailingGetterBean()).capture();
+    }
+
+    /** Check that getting an uncaptured property fails. */
+    @Test(expected = NoSuchFieldException.class)
+    public void testGetUncapturedPropertyFails() throws Exception {
+        BeanMemento memento = new BeanMemento(new TestBean("test", 3));
+        memento.capture();
+
+        memento.get(TestBean.class, "missing");
+    }
+
+    /** Check that put values are restored. */
+    @Test
+    public void testPutValuesAreRestored() throws Exception {
+        BeanMemento memento = new BeanMemento(new TestBean("test", 3));
+        memento.put(TestBean.class, "name", "put");
+
+        TestBean target = new TestBean("other", 5);
+        memento.restore(target);
+
+        assertEquals("put", target.getName());
+        assertEquals(Integer.valueOf(5), target.getCount());
+    }
+
+    /** ParentBean provides an inherited property. */
+    public static class ParentBean {
+        private String parent = "parent";
+
+        public String getParent() {
+            return parent;
+        }
+
+        public void setParent(String parent) {
+            this.parent = parent;
+        }
+    }
+
+    /** TestBean provides read-write, read only, primitive and failing properties. */
+    public static class TestBean extends ParentBean {
+        private String name;
+        private Integer count;
+        private int primitive = 7;
+
+        public TestBean(String name, Integer count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getCount() {
+            return count;
+        }
+
+        public void setCount(Integer count) {
+            this.count = count;
+        }
+
+        public int getPrimitive() {
+            return primitive;
+        }
+
+        public void setPrimitive(int primitive) {
+            this.primitive = primitive;
+        }
+
+        public String getDerived() {
+            return name + count;
+        }
+
+        public String getFailingSetter() {
+            return null;
+        }
+
+        public void setFailingSetter(String value) {
+            throw new IllegalArgumentException(value);
+        }
+    }
+
+    /** FailingGetterBean has a getter that fails. */
+    public static class FailingGetterBean {
+        public String getFailing() {
+            throw new IllegalArgumentException("failing");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.thesett.util.memento.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+import com.thesett.util.memento.DirectMemento;
+
+/**
+ * Unit tests the {@link com.thesett.util.memento.DirectMemento} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that capture reads the saved fields of every class in the hierarchy, by class.
+ * <tr><td>Check that capture skips final, static and transient fields.
+ * <tr><td>Check that restore writes the fields of every class in the hierarchy, including shadowed ones.
+ * <tr><td>Check that put values are restored, including to fields that are not saved.
+ * <tr><td>Check that restoring a field the class does not declare fails.
+ * <tr><td>Check that classes outside the hierarchy have no fields.
+ * <tr><td>Check that capture non null is not implemented.
+ * </table></pre>
+ */
+public class DirectMementoTest {
+    /** Check that capture reads the saved fields of every class in the hierarchy, by class. */
+    @Test
+    public void testCaptureReadsFieldsByClass() {
+        DirectMemento memento = new DirectMemento(new TestObject("parent", "child", 3));
+        memento.capture();
+
+        assertEquals(new HashSet<>(Arrays.asList("name", "count")),
+            new HashSet<>(memento.getAllFieldNames(ParentObject.class)));
+        assertEquals("parent", memento.get(ParentObject.class, "name"));
+        assertEquals(3, memento.get(ParentObject.class, "count"));
+        assertEquals("child", memento.get(TestObject.class, "name"));
+    }
+
+    /** Check that capture skips final, static and transient fields. */
+    @Test
+    public void testCaptureSkipsUnsavedFields() {
+        DirectMemento memento = new DirectMemento(new TestObject("parent", "child", 3));
+        memento.capture();
+
+        assertEquals(new HashSet<>(Arrays.asList("name")), new HashSet<>(memento.getAllFieldNames(TestObject.class)));
+    }
+
+    /** Check that restore writes the fields of every class in the hierarchy, including shadowed ones. */
+    @Test
+    public void testRestoreWritesFieldsByClass() throws Exception {
+        DirectMemento memento = new DirectMemento(new TestObject("parent", "child", 3));
+        memento.capture();
+
+        TestObject target = new TestObject("other parent", "other child", 5);
+        target.cache = "cache";
+        memento.restore(target);
+
+        assertEquals("parent", target.getParentName());
+        assertEquals("child", target.getChildName());
+        assertEquals(3, target.getCount());
+        assertEquals("cache", target.cache);
+    }
+
+    /** Check that put values are restored, including to fields that are not saved. */
+    @Test
+    public void testPutValuesAreRestored() throws Exception {
+        DirectMemento memento = new DirectMemento(new TestObject("parent", "child", 3));
+        memento.put(TestObject.class, "name", "put");
+        memento.put(TestObject.class, "cache", "put cache");
+
+        TestObject target = new TestObject("other parent", "other child", 5);
+        memento.restore(target);
+
+        assertEquals("other parent", target.getParentName());
+        assertEquals("put", target.getChildName());
+        assertEquals("put cache", target.cache);
+    }
+
+    /** Check that restoring a field the class does not declare fails. */
+    @Test(expected = NoSuchFieldException.class)
+    public void testRestoreUndeclaredFieldFails() throws Exception {
+        DirectMemento memento = new DirectMemento(new TestObject("parent", "child", 3));
+        memento.put(TestObject.class, "missing", "value");
+
+        memento.restore(new TestObject("other parent", "other child", 5));
+    }
+
+    /** Check that classes outside the hierarchy have no fields. */
+    @Test
+    public void testClassOutsideHierarchyHasNoFields() {
+        DirectMemento memento = new DirectMemento(new TestObject("parent", "child", 3));
+        memento.capture();
+
+        assertNull(memento.getAllFieldNames(String.class));
+        assertNull(memento.get(String.class, "name"));
+    }
+
+    /** Check that capture non null is not implemented. */
+    @Test(expected = IllegalStateException.class)
+    public void testCaptureNonNullNotImplemented() {
+        new DirectMemento(new TestObject("parent", "child", 3)).captureNonNull();
+    }
+
+    /** ParentObject provides private fields to be shadowed. */
+    public static class ParentObject {
+        private String name;
+        private int count;
+
+        public ParentObject(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public String getParentName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /** TestObject shadows a field of its parent, and has fields that are not saved. */
+    public static class TestObject extends ParentObject {
+        private static String shared = "shared";
+        private final String id = "id";
+        private String name;
+        transient String cache;
+
+        public TestObject(String parentName, String name, int count) {
+            super(parentName, count);
+            this.name = name;
+        }
+
+        public String getChildName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.thesett.util.memento.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.thesett.util.memento.BeanMemento;
+import com.thesett.util.memento.DirectMemento;
+
+/**
+ * Benchmarks capturing an object into a memento and restoring it onto another, for the
+ * {@link com.thesett.util.memento.BeanMemento} and {@link com.thesett.util.memento.DirectMemento} classes. The objects
+ * are small beans with a superclass, so that inherited properties and fields are included.
+ *
+ * <p/>This is not run as part of the unit tests; run it through its main method, from the test classpath.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Measure capture and restore through bean properties.
+ * <tr><td>Measure capture and restore through fields.
+ * </table></pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MementoBenchmark {
+    /** The bean to capture. */
+    private final BeanMementoTest.TestBean bean = new BeanMementoTest.TestBean("test", 3);
+
+    /** The bean to restore onto. */
+    private final BeanMementoTest.TestBean beanTarget = new BeanMementoTest.TestBean("other", 5);
+
+    /** The object to capture. */
+    private final DirectMementoTest.TestObject object = new DirectMementoTest.TestObject("parent", "child", 3);
+
+    /** The object to restore onto. */
+    private final DirectMementoTest.TestObject objectTarget =
+        new DirectMementoTest.TestObject("other parent", "other child", 5);
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param  args Ignored.
+     *
+     * @throws RunnerException If the benchmarks fail to run.
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MementoBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Captures a bean through its properties, and restores it onto another.
+     *
+     * @return The bean restored onto.
+     *
+     * @throws NoSuchFieldException Not thrown, as the beans are of the same class.
+     */
+    @Benchmark
+    public Object beanCaptureRestore() throws NoSuchFieldException {
+        BeanMemento memento = new BeanMemento(bean);
+        memento.capture();
+        memento.restore(beanTarget);
+
+        return beanTarget;
+    }
+
+    /**
+     * Captures an object through its fields, and restores it onto another.
+     *
+     * @return The object restored onto.
+     *
+     * @throws NoSuchFieldException Not thrown, as the objects are of the same class.
+     */
+    @Benchmark
+    public Object directCaptureRestore() throws NoSuchFieldException {
+        DirectMemento memento = new DirectMemento(object);
+        memento.capture();
+        memento.restore(objectTarget);
+
+        return objectTarget;
+    }
+}
@@ -0,0 +1,255 @@
+package com.thesett.util.proxies.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Test;
+
+import com.thesett.util.proxies.AsyncExecutor;
+import com.thesett.util.proxies.AsyncExecutor.OverflowPolicy;
+
+/**
+ * Unit tests the {@link com.thesett.util.proxies.AsyncExecutor} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that calls complete their futures and are counted.
+ * <tr><td>Check that failed calls complete their futures exceptionally and are counted.
+ * <tr><td>Check that calls that do not fit in the queue are dropped under the DROP policy.
+ * <tr><td>Check that the caller runs calls that do not fit in the queue under the CALLER_RUNS policy.
+ * <tr><td>Check that a caller blocks until there is space in the queue under the BLOCK policy.
+ * <tr><td>Check that a blocked caller is released when the executor shuts down.
+ * <tr><td>Check that a pool thread runs a call itself rather than blocking under the BLOCK policy.
+ * <tr><td>Check that calls made after close are dropped.
+ * <tr><td>Check that listeners are told of the progress of calls.
+ * </table></pre>
+ */
+public class AsyncExecutorTest {
+    /** How long to wait for anything to happen, in seconds. */
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /** Holds the single thread of the executor under test busy until released. */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /** The executor under test. */
+    private AsyncExecutor executor;
+
+    /** Releases and closes the executor under test. */
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    /** Check that calls complete their futures and are counted. */
+    @Test
+    public void testCallsComplete() throws Exception {
+        executor = new AsyncExecutor("test", 2, 4, OverflowPolicy.DROP);
+
+        assertEquals("value", executor.submit(() -> "value").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, executor.getSubmittedCount());
+        assertEquals(1, executor.getCompletedCount());
+        assertEquals(0, executor.getFailedCount());
+    }
+
+    /** Check that failed calls complete their futures exceptionally and are counted. */
+    @Test
+    public void testFailedCallsComplete() throws Exception {
+        executor = new AsyncExecutor("test", 2, 4, OverflowPolicy.DROP);
+
+        CompletableFuture<Object> future =
+            executor.submit(() -> {
+                throw new IllegalStateException("failed");
+            });
+
+        try {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("The call should have failed.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals(1, executor.getFailedCount());
+    }
+
+    /** Check that calls that do not fit in the queue are dropped under the DROP policy. */
+    @Test
+    public void testDropWhenFull() throws Exception {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.DROP);
+        occupy();
+        executor.submit(() -> "queued");
+
+        CompletableFuture<String> dropped = executor.submit(() -> "dropped");
+
+        assertRejected(dropped);
+        assertEquals(1, executor.getDroppedCount());
+    }
+
+    /** Check that the caller runs calls that do not fit in the queue under the CALLER_RUNS policy. */
+    @Test
+    public void testCallerRunsWhenFull() throws Exception {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.CALLER_RUNS);
+        occupy();
+        executor.submit(() -> "queued");
+
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Boolean> ranByCaller = executor.submit(() -> Thread.currentThread() == caller);
+
+        assertTrue(ranByCaller.isDone());
+        assertTrue(ranByCaller.get());
+    }
+
+    /** Check that a caller blocks until there is space in the queue under the BLOCK policy. */
+    @Test
+    public void testBlockUntilSpace() throws Exception {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.BLOCK);
+        occupy();
+        executor.submit(() -> "queued");
+
+        CompletableFuture<CompletableFuture<String>> blocked =
+            CompletableFuture.supplyAsync(() -> executor.submit(() -> "blocked"));
+
+        Thread.sleep(200);
+        assertFalse(blocked.isDone());
+
+        release.countDown();
+        assertEquals("blocked", blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, executor.getDroppedCount());
+    }
+
+    /** Check that a blocked caller is released when the executor shuts down. */
+    @Test
+    public void testBlockedCallerReleasedOnShutdown() throws Exception {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.BLOCK);
+        occupy();
+        executor.submit(() -> "queued");
+
+        CompletableFuture<CompletableFuture<String>> blocked =
+            CompletableFuture.supplyAsync(() -> executor.submit(() -> "blocked"));
+
+        Thread.sleep(200);
+
+        AsyncExecutor closing = executor;
+        CompletableFuture<Void> closed =
+            CompletableFuture.runAsync(() -> {
+                try {
+                    closing.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+        assertRejected(blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        release.countDown();
+        closed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Check that a pool thread runs a call itself rather than blocking under the BLOCK policy. */
+    @Test
+    public void testPoolThreadDoesNotBlock() throws Exception {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.BLOCK);
+
+        CompletableFuture<String> outer =
+            executor.submit(() -> {
+                executor.submit(() -> "queued");
+
+                Thread worker = Thread.currentThread();
+                CompletableFuture<Boolean> nested = executor.submit(() -> Thread.currentThread() == worker);
+
+                return nested.isDone() && nested.get() ? "ran inline" : "not inline";
+            });
+
+        assertEquals("ran inline", outer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /** Check that calls made after close are dropped. */
+    @Test
+    public void testSubmitAfterClose() throws Exception {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.BLOCK);
+        executor.close();
+
+        assertRejected(executor.submit(() -> "late"));
+        assertEquals(1, executor.getDroppedCount());
+    }
+
+    /** Check that listeners are told of the progress of calls. */
+    @Test
+    public void testListenersNotified() throws Exception {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.DROP);
+
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+
+        executor.addListener(new AsyncExecutor.Listener() {
+                public void submitted() {
+                    submitted.incrementAndGet();
+                }
+
+                public void started(long queuedNanos) {
+                    started.incrementAndGet();
+                }
+
+                public void finished(long runningNanos, boolean callFailed) {
+                    (callFailed ? failed : completed).incrementAndGet();
+                }
+
+                public void dropped() {
+                    dropped.incrementAndGet();
+                }
+            });
+
+        executor.submit(() -> "value").get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        occupy();
+        executor.submit(() -> "queued");
+        assertRejected(executor.submit(() -> "dropped"));
+
+        assertEquals(4, submitted.get());
+        assertEquals(2, started.get());
+        assertEquals(1, completed.get());
+        assertEquals(0, failed.get());
+        assertEquals(1, dropped.get());
+    }
+
+    /** Occupies the single thread of the executor under test until released, and waits for it to start. */
+    private void occupy() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+
+        executor.submit(() -> {
+            running.countDown();
+
+            return release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        });
+
+        assertTrue(running.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Asserts that the future of a call completes exceptionally as rejected.
+     *
+     * @param future The future of the call.
+     */
+    private void assertRejected(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("The call should have been rejected.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
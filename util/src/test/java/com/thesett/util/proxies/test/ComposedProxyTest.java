@@ -0,0 +1,165 @@
+package com.thesett.util.proxies.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import com.thesett.util.proxies.ComposedProxy;
+import com.thesett.util.proxies.Invocation;
+import com.thesett.util.proxies.ProxyInterceptor;
+
+/**
+ * Unit tests the {@link com.thesett.util.proxies.ComposedProxy} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that interceptors are applied in the order given, the first outermost.
+ * <tr><td>Check that an interceptor that does not proceed stops the call before inner layers.
+ * <tr><td>Check that exceptions from the proxied object reach the interceptors unwrapped.
+ * <tr><td>Check that interceptors see the method and arguments of the call.
+ * <tr><td>Check that methods declared by Object are not intercepted.
+ * </table></pre>
+ */
+public class ComposedProxyTest {
+    /** The events of a call, in the order they happen. */
+    private final List<String> events = new ArrayList<>();
+
+    /** The proxied object. */
+    private final Service target =
+        new Service() {
+            public String call(String argument) throws IOException {
+                events.add("target");
+
+                if ("fail".equals(argument)) {
+                    throw new IOException(argument);
+                }
+
+                return argument;
+            }
+
+            public String toString() {
+                return "target";
+            }
+        };
+
+    /** Check that interceptors are applied in the order given, the first outermost. */
+    @Test
+    public void testInterceptorsAppliedInOrder() throws Exception {
+        Service service = ComposedProxy.proxy(target, Service.class, recording("outer"), recording("inner"));
+
+        assertEquals("value", service.call("value"));
+        assertEquals(Arrays.asList("outer before", "inner before", "target", "inner after", "outer after"), events);
+    }
+
+    /** Check that an interceptor that does not proceed stops the call before inner layers. */
+    @Test
+    public void testShortCircuitSkipsInnerLayers() throws Exception {
+        ProxyInterceptor shortCircuit =
+            invocation -> {
+                events.add("short circuit");
+
+                return "short";
+            };
+
+        Service service = ComposedProxy.proxy(target, Service.class, recording("outer"), shortCircuit,
+                recording("inner"));
+
+        assertEquals("short", service.call("value"));
+        assertEquals(Arrays.asList("outer before", "short circuit", "outer after"), events);
+    }
+
+    /** Check that exceptions from the proxied object reach the interceptors unwrapped. */
+    @Test
+    public void testExceptionsUnwrapped() throws Exception {
+        List<Throwable> seen = new ArrayList<>();
+        ProxyInterceptor catching =
+            invocation -> {
+                try {
+                    return invocation.proceed();
+                } catch (Throwable t) {
+                    seen.add(t);
+                    throw t;
+                }
+            };
+
+        Service service = ComposedProxy.proxy(target, Service.class, catching, recording("inner"));
+
+        try {
+            service.call("fail");
+            fail("Expected an IOException.");
+        } catch (IOException e) {
+            assertEquals("fail", e.getMessage());
+            assertSame(e, seen.get(0));
+        }
+
+        assertEquals(Arrays.asList("inner before", "target"), events);
+    }
+
+    /** Check that interceptors see the method and arguments of the call. */
+    @Test
+    public void testInterceptorsSeeCall() throws Exception {
+        List<Invocation> seen = new ArrayList<>();
+        ProxyInterceptor capturing =
+            invocation -> {
+                seen.add(invocation);
+
+                return invocation.proceed();
+            };
+
+        Service service = ComposedProxy.proxy(target, Service.class, capturing);
+        service.call("value");
+
+        assertEquals("call", seen.get(0).getMethod().getName());
+        assertEquals(Arrays.asList("value"), Arrays.asList(seen.get(0).getArguments()));
+    }
+
+    /** Check that methods declared by Object are not intercepted. */
+    @Test
+    public void testObjectMethodsNotIntercepted() {
+        Service service = ComposedProxy.proxy(target, Service.class, recording("outer"));
+
+        assertEquals("target", service.toString());
+        assertEquals("target", service.toString());
+        assertEquals(target.hashCode(), service.hashCode());
+        assertTrue(events.isEmpty());
+    }
+
+    /**
+     * Creates an interceptor that records when calls pass into it, and when they return from it.
+     *
+     * @param  name The name to record the interceptor by.
+     *
+     * @return The interceptor.
+     */
+    private ProxyInterceptor recording(String name) {
+        return invocation -> {
+            events.add(name + " before");
+
+            Object result = invocation.proceed();
+            events.add(name + " after");
+
+            return result;
+        };
+    }
+
+    /** Service is a proxied service for testing. */
+    public interface Service {
+        /**
+         * Makes a service call.
+         *
+         * @param  argument The argument to the call, which fails if it is "fail".
+         *
+         * @return The argument.
+         *
+         * @throws IOException If the argument is "fail".
+         */
+        String call(String argument) throws IOException;
+    }
+}
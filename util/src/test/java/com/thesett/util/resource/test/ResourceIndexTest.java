@@ -0,0 +1,97 @@
+package com.thesett.util.resource.test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.thesett.util.resource.ResourceIndex;
+
+/**
+ * Unit tests the {@link com.thesett.util.resource.ResourceIndex} class, over the classpath the tests run with.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that the index is built once, and shared.
+ * <tr><td>Check that resources directly within a package are found by pattern.
+ * <tr><td>Check that resources within sub-packages are only found when asked for.
+ * <tr><td>Check that resources with a package name as a prefix, but in another package, are not found.
+ * <tr><td>Check that the index is written as a sorted manifest, one resource name per line.
+ * </table></pre>
+ */
+public class ResourceIndexTest {
+    /** The path of this test class, as a resource. */
+    private static final String THIS_CLASS = "com/thesett/util/resource/test/ResourceIndexTest.class";
+
+    /** Check that the index is built once, and shared. */
+    @Test
+    public void testSingleInstance() {
+        assertSame(ResourceIndex.getInstance(), ResourceIndex.getInstance());
+    }
+
+    /** Check that resources directly within a package are found by pattern. */
+    @Test
+    public void testFindInPackage() {
+        List<String> found =
+            ResourceIndex.getInstance().find("ResourceIndex.*\\.class", "com.thesett.util.resource.test");
+
+        assertTrue(found.contains(THIS_CLASS));
+
+        for (String name : found) {
+            assertTrue(name.startsWith("com/thesett/util/resource/test/ResourceIndex"));
+        }
+
+        assertTrue(ResourceIndex.getInstance().find("NoSuchResource\\.txt", "com.thesett.util.resource.test")
+            .isEmpty());
+    }
+
+    /** Check that resources within sub-packages are only found when asked for. */
+    @Test
+    public void testFindAllInSubPackages() {
+        String pattern = ".*ResourceIndexTest\\.class";
+
+        assertFalse(ResourceIndex.getInstance().find(pattern, "com.thesett.util.resource").contains(THIS_CLASS));
+        assertTrue(ResourceIndex.getInstance().findAll(pattern, "com.thesett.util.resource").contains(THIS_CLASS));
+        assertTrue(ResourceIndex.getInstance().findAll(pattern, "").contains(THIS_CLASS));
+    }
+
+    /** Check that resources with a package name as a prefix, but in another package, are not found. */
+    @Test
+    public void testPackageBoundary() {
+        assertTrue(ResourceIndex.getInstance().findAll(".*ResourceIndexTest\\.class", "com.thesett.util.resource.te")
+            .isEmpty());
+    }
+
+    /** Check that the index is written as a sorted manifest, one resource name per line. */
+    @Test
+    public void testWriteManifest() throws Exception {
+        StringWriter writer = new StringWriter();
+        ResourceIndex.getInstance().write(writer);
+
+        List<String> lines = Arrays.asList(writer.toString().split("\n"));
+        List<String> sorted = new ArrayList<>(lines);
+        sorted.sort(null);
+
+        assertTrue(lines.contains(THIS_CLASS));
+        assertEquals(sorted, lines);
+
+        File file = File.createTempFile("resource-index", ".txt");
+
+        try {
+            ResourceIndex.main(new String[] { file.getPath() });
+
+            assertTrue(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).contains(THIS_CLASS));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}
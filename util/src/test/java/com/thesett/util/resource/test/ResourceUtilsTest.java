@@ -0,0 +1,72 @@
+package com.thesett.util.resource.test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import com.thesett.util.resource.ResourceUtils;
+
+/**
+ * Unit tests the {@link com.thesett.util.resource.ResourceUtils} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that resources within a package are found through the resource index.
+ * <tr><td>Check that resources are opened as UTF-8.
+ * <tr><td>Check that opening a missing resource fails.
+ * <tr><td>Check that multi-byte characters split across buffer boundaries are decoded intact.
+ * </table></pre>
+ */
+public class ResourceUtilsTest {
+    /** The path of the UTF-8 test resource. */
+    private static final String UTF8_CSV = "com/thesett/util/resource/test/utf8.csv";
+
+    /** Check that resources within a package are found through the resource index. */
+    @Test
+    public void testGetResources() {
+        assertEquals(Collections.singletonList(UTF8_CSV),
+            ResourceUtils.getResources("utf8\\.csv", "com.thesett.util.resource.test"));
+    }
+
+    /** Check that resources are opened as UTF-8. */
+    @Test
+    public void testOpenUtf8Reader() throws Exception {
+        try (BufferedReader reader = ResourceUtils.openUtf8Reader(UTF8_CSV)) {
+            assertEquals("name,city", reader.readLine());
+            assertEquals("Zo\u00eb,Z\u00fcrich", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    /** Check that opening a missing resource fails. */
+    @Test
+    public void testOpenMissingResource() {
+        try {
+            ResourceUtils.openUtf8Reader("com/thesett/util/resource/test/missing.csv");
+            fail("Opening a missing resource should fail.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    /** Check that multi-byte characters split across buffer boundaries are decoded intact. */
+    @Test
+    public void testReadStreamAcrossBuffers() {
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 5000; i++) {
+            text.append('\u00e9');
+        }
+
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(text.toString(),
+            ResourceUtils.readStreamAsString(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+    }
+}
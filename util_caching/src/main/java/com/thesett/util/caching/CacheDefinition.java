@@ -0,0 +1,104 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.caching;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Optional;
+
+import io.dropwizard.util.Duration;
+
+import org.infinispan.configuration.cache.CacheMode;
+
+/**
+ * CacheDefinition defines the configuration settings for a named infinispan cache; its clustering mode, how many
+ * copies of each entry to keep, how large it may grow and when its entries expire.
+ *
+ * <p/>A cache must keep at least one owner of each entry, if owners are given. A cache may be bounded by number of
+ * entries or by memory, but not both. Bounding by memory requires entries to be stored in binary form, so that their
+ * size can be measured, and setting a memory bound implies {@link #binary}. Any setting that is not given falls back to
+ * the infinispan default, except for the mode which falls back to <tt>LOCAL</tt> for a standalone cache, or
+ * <tt>REPL_SYNC</tt> for a clustered cache.
+ */
+public class CacheDefinition
+{
+    /** The clustering mode. */
+    @JsonProperty
+    private Optional<CacheMode> mode = Optional.absent();
+
+    /** The number of copies of each entry to keep across the cluster, for distributed caches. */
+    @JsonProperty
+    private Optional<Integer> owners = Optional.absent();
+
+    /** The maximum number of entries to hold on each node. */
+    @JsonProperty
+    private Optional<Long> maxEntries = Optional.absent();
+
+    /** The maximum memory to use for entries on each node. */
+    @JsonProperty
+    private Optional<Long> maxMemoryBytes = Optional.absent();
+
+    /** The time after creation at which entries expire. */
+    @JsonProperty
+    private Optional<Duration> lifespan = Optional.absent();
+
+    /** The time after last access at which entries expire. */
+    @JsonProperty
+    private Optional<Duration> maxIdle = Optional.absent();
+
+    /** <tt>true</tt> to store entries in serialized binary form. */
+    @JsonProperty
+    private boolean binary;
+
+    public Optional<CacheMode> getMode()
+    {
+        return mode;
+    }
+
+    public Optional<Integer> getOwners()
+    {
+        return owners;
+    }
+
+    public Optional<Long> getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    public Optional<Long> getMaxMemoryBytes()
+    {
+        return maxMemoryBytes;
+    }
+
+    public Optional<Duration> getLifespan()
+    {
+        return lifespan;
+    }
+
+    public Optional<Duration> getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    public boolean isBinary()
+    {
+        return binary || maxMemoryBytes.isPresent();
+    }
+
+    public boolean isValid()
+    {
+        return !(maxEntries.isPresent() && maxMemoryBytes.isPresent()) && (!owners.isPresent() || (owners.get() > 0));
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.caching;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.transaction.Synchronization;
+
+import com.google.common.cache.CacheBuilder;
+import com.thesett.util.dao.BaseDAO;
+import com.thesett.util.entity.Entity;
+import com.thesett.util.entity.EntityException;
+
+import io.dropwizard.util.Duration;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.infinispan.Cache;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryInvalidated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryEvent;
+
+/**
+ * CachingDAO is a cache-aside decorator for a {@link BaseDAO}, that serves {@link #retrieve} by id from a named
+ * infinispan cache, and only goes to the underlying DAO on a cache miss. Updates and deletes through this DAO
+ * invalidate the cached entity.
+ *
+ * <p/>Optionally, a local near-cache with its own size bound and expiry can be placed in front of the infinispan
+ * cache. The near-cache holds entities on this JVM only, and saves the cost of going to a clustered cache for entities
+ * that are read often. Near-caches on all JVMs are kept consistent by listening for changes to the infinispan cache,
+ * so an update or delete on one JVM invalidates the near-caches on all of them. A clustered listener is used for this,
+ * except on invalidation mode caches, which do not support them; on those each JVM listens to its own copy of the
+ * cache, which sees the invalidations sent by the others. One listener is added to each infinispan cache, however many
+ * caching DAOs are created over it.
+ *
+ * <p/>A read that misses the caches races with invalidations of the entity it is loading; it may load the old value
+ * just before an invalidation, and cache it just after. To prevent this, every invalidation advances a generation for
+ * its key, and a loaded entity is only cached if the generation of its key has not moved on whilst it was loading.
+ * Generations are kept in a fixed number of stripes, so an invalidation may needlessly skip caching other keys that
+ * share its stripe.
+ *
+ * <p/>Entities placed in the cache are detached from the current session first. This means that, unlike the usual
+ * DAO behaviour, {@link #retrieve} returns detached entities. Each caller is given its own copy of the cached entity,
+ * made by the marshaller of the infinispan cache, so entities must be marshallable by it even when the cache is local.
+ *
+ * <p/>Invalidation happens when the update or delete is made, so that this JVM does not serve the old value whilst its
+ * transaction is in progress. When given a session factory, invalidation happens again once the current transaction
+ * completes, so that a value read by another JVM before the commit is not left cached. Without one, an expiry should be
+ * set on the infinispan cache to bound how long such a value can stay cached.
+ *
+ * <p/>All other operations are passed straight through to the underlying DAO.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Serve copies of entities by id from a cache. </td><td> {@link Cache} </td></tr>
+ * <tr><td> Serve frequently read entities from a local near-cache. </td></tr>
+ * <tr><td> Invalidate cached entities on update or delete, and again on commit. </td><td> {@link SessionFactory}
+ * </td></tr>
+ * <tr><td> Pass other operations through. </td><td> {@link BaseDAO} </td></tr>
+ * </table></pre>
+ *
+ * @param <E> The type of entities that this DAO manages.
+ * @param <K> The type of database K that the entity uses.
+ */
+public class CachingDAO<E extends Entity<K>, K extends Serializable> implements BaseDAO<E, K>
+{
+    /** The default time after being cached at which near-cache entries expire. */
+    public static final Duration DEFAULT_NEAR_CACHE_EXPIRY = Duration.minutes(1);
+
+    /** The number of stripes that invalidation generations are kept in. */
+    private static final int GENERATION_STRIPES = 64;
+
+    /** The near-cache listeners, one per infinispan cache. */
+    private static final Map<Cache<?, ?>, NearCacheListener> LISTENERS = new WeakHashMap<>();
+
+    /** The DAO to pass operations through to. */
+    private final BaseDAO<E, K> delegate;
+
+    /** The infinispan cache holding entities by id. */
+    private final Cache<K, E> cache;
+
+    /** The marshaller of the infinispan cache, used to copy entities. */
+    private final StreamingMarshaller marshaller;
+
+    /** The session factory whose transactions to invalidate again on completion of, <tt>null</tt> if not used. */
+    private final SessionFactory sessionFactory;
+
+    /** The optional local near-cache, <tt>null</tt> if not used. */
+    private final com.google.common.cache.Cache<K, E> nearCache;
+
+    /** The invalidation generations, by stripe of key. */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * Creates a caching DAO with no near-cache.
+     *
+     * @param delegate The DAO to pass operations through to.
+     * @param cache    The infinispan cache to hold entities by id in.
+     */
+    public CachingDAO(BaseDAO<E, K> delegate, Cache<K, E> cache)
+    {
+        this(delegate, cache, 0);
+    }
+
+    /**
+     * Creates a caching DAO with a near-cache, whose entries expire after {@link #DEFAULT_NEAR_CACHE_EXPIRY}.
+     *
+     * @param delegate            The DAO to pass operations through to.
+     * @param cache               The infinispan cache to hold entities by id in.
+     * @param nearCacheMaxEntries The maximum number of entities to hold in the local near-cache, or zero for no
+     *                            near-cache.
+     */
+    public CachingDAO(BaseDAO<E, K> delegate, Cache<K, E> cache, int nearCacheMaxEntries)
+    {
+        this(delegate, cache, nearCacheMaxEntries, DEFAULT_NEAR_CACHE_EXPIRY, null);
+    }
+
+    /**
+     * Creates a caching DAO with a near-cache, that invalidates again when the transactions of a session factory
+     * complete.
+     *
+     * @param delegate            The DAO to pass operations through to.
+     * @param cache               The infinispan cache to hold entities by id in.
+     * @param nearCacheMaxEntries The maximum number of entities to hold in the local near-cache, or zero for no
+     *                            near-cache.
+     * @param nearCacheExpiry     The time after being cached at which near-cache entries expire.
+     * @param sessionFactory      The session factory whose current transaction updates and deletes are made in, or
+     *                            <tt>null</tt> to only invalidate when they are made.
+     */
+    public CachingDAO(BaseDAO<E, K> delegate, Cache<K, E> cache, int nearCacheMaxEntries, Duration nearCacheExpiry,
+        SessionFactory sessionFactory)
+    {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.sessionFactory = sessionFactory;
+
+        marshaller = cache.getAdvancedCache().getComponentRegistry().getCacheMarshaller();
+
+        if (nearCacheMaxEntries > 0)
+        {
+            nearCache =
+                CacheBuilder.newBuilder().maximumSize(nearCacheMaxEntries)
+                    .expireAfterWrite(nearCacheExpiry.getQuantity(), nearCacheExpiry.getUnit()).build();
+
+            listenerFor(cache).add(this);
+        }
+        else
+        {
+            nearCache = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    public E create(E entity) throws EntityException
+    {
+        return delegate.create(entity);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Looks in the near-cache, then in the infinispan cache, and finally in the underlying DAO. Entities found in
+     * the underlying DAO are detached and cached, unless invalidated whilst loading. A copy of the entity is returned.
+     */
+    public E retrieve(K id)
+    {
+        E entity = (nearCache == null) ? null : nearCache.getIfPresent(id);
+
+        if (entity != null)
+        {
+            return copy(entity);
+        }
+
+        long generation = generation(id);
+
+        entity = cache.get(id);
+
+        if (entity == null)
+        {
+            entity = delegate.retrieve(id);
+
+            if (entity == null)
+            {
+                return null;
+            }
+
+            entity = delegate.detach(entity);
+
+            if (generation(id) == generation)
+            {
+                cache.putForExternalRead(id, entity);
+            }
+        }
+
+        if ((nearCache != null) && (generation(id) == generation))
+        {
+            nearCache.put(id, entity);
+        }
+
+        return copy(entity);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Invalidates any cached copy of the entity.
+     */
+    public E update(K id, E entity) throws EntityException
+    {
+        E result = delegate.update(id, entity);
+        invalidate(id);
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Invalidates any cached copy of the entity.
+     */
+    public void delete(K id) throws EntityException
+    {
+        delegate.delete(id);
+        invalidate(id);
+    }
+
+    /** {@inheritDoc} */
+    public List<E> browse()
+    {
+        return delegate.browse();
+    }
+
+    /** {@inheritDoc} */
+    public List<E> findByExample(E example)
+    {
+        return delegate.findByExample(example);
+    }
+
+    /** {@inheritDoc} */
+    public <T> T detach(T e)
+    {
+        return delegate.detach(e);
+    }
+
+    /**
+     * Removes an entity from the caches, now and, when there is a session factory with a transaction in progress,
+     * again once that transaction completes. Entities changed other than through this DAO, should be invalidated
+     * through this method.
+     *
+     * @param id The id of the entity to invalidate.
+     */
+    public void invalidate(K id)
+    {
+        evict(id);
+
+        Transaction transaction = currentTransaction();
+
+        if ((transaction != null) && transaction.isActive())
+        {
+            transaction.registerSynchronization(new Synchronization()
+                {
+                    /** {@inheritDoc} */
+                    public void beforeCompletion()
+                    {
+                        // Nothing to do until the transaction completes.
+                    }
+
+                    /** {@inheritDoc} */
+                    public void afterCompletion(int status)
+                    {
+                        evict(id);
+                    }
+                });
+        }
+    }
+
+    /**
+     * Removes an entity from the near-cache and the infinispan cache.
+     *
+     * @param id The id of the entity to remove.
+     */
+    private void evict(K id)
+    {
+        evictNear(id);
+        cache.remove(id);
+    }
+
+    /**
+     * Removes an entity from the near-cache, and advances the generation of its key so that a load in progress does
+     * not cache it again.
+     *
+     * @param id The id of the entity to remove.
+     */
+    private void evictNear(Object id)
+    {
+        generations.incrementAndGet(stripe(id));
+
+        if (nearCache != null)
+        {
+            nearCache.invalidate(id);
+        }
+    }
+
+    /**
+     * Provides the invalidation generation of a key.
+     *
+     * @param  id The key.
+     *
+     * @return The invalidation generation of the key.
+     */
+    private long generation(K id)
+    {
+        return generations.get(stripe(id));
+    }
+
+    /**
+     * Provides the stripe that the invalidation generation of a key is kept in.
+     *
+     * @param  id The key.
+     *
+     * @return The stripe of the key.
+     */
+    private static int stripe(Object id)
+    {
+        int hash = id.hashCode();
+
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * Provides the transaction of the current session of the session factory, if there is one.
+     *
+     * @return The current transaction, or <tt>null</tt> if there is no session factory or no current session.
+     */
+    private Transaction currentTransaction()
+    {
+        if (sessionFactory == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return sessionFactory.getCurrentSession().getTransaction();
+        }
+        catch (HibernateException e)
+        {
+            // There is no current session, so no transaction to wait for.
+            return null;
+        }
+    }
+
+    /**
+     * Copies an entity through the marshaller of the infinispan cache, so that the cached instance is not shared.
+     *
+     * @param  entity The entity to copy.
+     *
+     * @return A copy of the entity.
+     */
+    @SuppressWarnings("unchecked")
+    private E copy(E entity)
+    {
+        try
+        {
+            return (E) marshaller.objectFromByteBuffer(marshaller.objectToByteBuffer(entity));
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Failed to copy a cached entity.", e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst copying a cached entity.", e);
+        }
+    }
+
+    /**
+     * Provides the near-cache listener on an infinispan cache, adding one to it if it does not already have one.
+     *
+     * @param  cache The infinispan cache.
+     *
+     * @return The near-cache listener on the cache.
+     */
+    private static NearCacheListener listenerFor(Cache<?, ?> cache)
+    {
+        synchronized (LISTENERS)
+        {
+            NearCacheListener listener = LISTENERS.get(cache);
+
+            if (listener == null)
+            {
+                listener =
+                    cache.getCacheConfiguration().clustering().cacheMode().isInvalidation()
+                    ? new LocalNearCacheInvalidator() : new NearCacheInvalidator();
+                cache.addListener(listener);
+                LISTENERS.put(cache, listener);
+            }
+
+            return listener;
+        }
+    }
+
+    /**
+     * NearCacheListener removes changed entries from the near-caches of all the caching DAOs over one infinispan
+     * cache. The DAOs are held weakly, so that they can be garbage collected whilst the cache lives on.
+     */
+    abstract static class NearCacheListener
+    {
+        /** The caching DAOs with near-caches over the infinispan cache. */
+        private final Set<CachingDAO<?, ?>> daos = Collections.newSetFromMap(new WeakHashMap<>());
+
+        /**
+         * Adds a caching DAO to remove changed entries from the near-cache of.
+         *
+         * @param dao The caching DAO.
+         */
+        synchronized void add(CachingDAO<?, ?> dao)
+        {
+            daos.add(dao);
+        }
+
+        /**
+         * Removes a changed entry from the near-caches of all the caching DAOs.
+         *
+         * @param event The cache entry event.
+         */
+        void evict(CacheEntryEvent<?, ?> event)
+        {
+            List<CachingDAO<?, ?>> current;
+
+            synchronized (this)
+            {
+                current = new ArrayList<>(daos);
+            }
+
+            for (CachingDAO<?, ?> dao : current)
+            {
+                dao.evictNear(event.getKey());
+            }
+        }
+    }
+
+    /**
+     * NearCacheInvalidator listens for changes to the infinispan cache across the cluster, and removes the changed
+     * entries from the near-caches.
+     */
+    @Listener(clustered = true)
+    public static class NearCacheInvalidator extends NearCacheListener
+    {
+        /**
+         * Removes a modified, removed or expired entry from the near-caches.
+         *
+         * @param event The cache entry event.
+         */
+        @CacheEntryModified
+        @CacheEntryRemoved
+        @CacheEntryExpired
+        public void onChange(CacheEntryEvent<?, ?> event)
+        {
+            evict(event);
+        }
+    }
+
+    /**
+     * LocalNearCacheInvalidator listens for changes to the local copy of an invalidation mode infinispan cache,
+     * including invalidations sent from across the cluster, and removes the changed entries from the near-caches.
+     */
+    @Listener
+    public static class LocalNearCacheInvalidator extends NearCacheListener
+    {
+        /**
+         * Removes a modified, removed, expired or invalidated entry from the near-caches.
+         *
+         * @param event The cache entry event.
+         */
+        @CacheEntryModified
+        @CacheEntryRemoved
+        @CacheEntryExpired
+        @CacheEntryInvalidated
+        public void onChange(CacheEntryEvent<?, ?> event)
+        {
+            evict(event);
+        }
+    }
+}
@@ -15,24 +15,41 @@
  */
 package com.thesett.util.caching;
 
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.thesett.util.dao.BaseDAO;
+import com.thesett.util.entity.Entity;
+
 import io.dropwizard.Configuration;
 import io.dropwizard.ConfiguredBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 
+import org.hibernate.SessionFactory;
 import org.infinispan.configuration.cache.CacheMode;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.EvictionType;
 import org.infinispan.manager.DefaultCacheManager;
 import org.infinispan.manager.EmbeddedCacheManager;
 
 /**
  * InfinispanBundle defines a DropWizard bundle for using an infinispan cache.
  *
+ * <p/>The default cache configuration and any named caches are set up from the {@link CacheDefinition}s in the
+ * {@link InfinispanConfiguration}. When no default cache definition is given, standalone caches default to
+ * <tt>LOCAL</tt> mode and clustered caches to <tt>REPL_SYNC</tt> mode, with no bounds or expiry.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Create single JVM caches. </td></tr>
  * <tr><td> Create clustered caches. </td></tr>
+ * <tr><td> Apply named cache definitions. </td><td> {@link CacheDefinition} </td></tr>
+ * <tr><td> Put caching in front of DAOs. </td><td> {@link CachingDAO} </td></tr>
  * </table></pre>
  */
 public abstract class InfinispanBundle<T extends Configuration> implements ConfiguredBundle<T>
@@ -60,12 +77,21 @@ public abstract class InfinispanBundle<T extends Configuration> implements Confi
 
         if (infinispanConfiguration.getType() == InfinispanConfiguration.CacheType.Clustered)
         {
-            configureClusteredCache(environment, infinispanConfiguration);
+            configureClusteredCache(infinispanConfiguration);
         }
         else
         {
-            configureStandaloneCache();
+            configureStandaloneCache(infinispanConfiguration);
         }
+
+        for (Map.Entry<String, CacheDefinition> entry : infinispanConfiguration.getCaches().entrySet())
+        {
+            cacheManager.defineConfiguration(entry.getKey(),
+                buildCacheConfiguration(entry.getValue(), getDefaultCacheMode(infinispanConfiguration)));
+        }
+
+        InfinispanManager managed = new InfinispanManager(cacheManager);
+        environment.lifecycle().manage(managed);
     }
 
     /**
@@ -78,6 +104,48 @@ public abstract class InfinispanBundle<T extends Configuration> implements Confi
         return cacheManager;
     }
 
+    /**
+     * Wraps a DAO in a {@link CachingDAO}, that serves entities by id from a named cache. The bundle must have been
+     * run before this is used.
+     *
+     * @param  dao                 The DAO to put caching in front of.
+     * @param  cacheName           The name of the cache to hold entities in.
+     * @param  nearCacheMaxEntries The maximum number of entities to hold in a local near-cache, or zero for no
+     *                             near-cache.
+     * @param  <E>                 The type of entities that the DAO manages.
+     * @param  <K>                 The type of database key that the entity uses.
+     *
+     * @return A caching DAO in front of the DAO.
+     */
+    public <E extends Entity<K>, K extends Serializable> CachingDAO<E, K> cachingDAO(BaseDAO<E, K> dao,
+        String cacheName, int nearCacheMaxEntries)
+    {
+        return new CachingDAO<>(dao, cacheManager.<K, E>getCache(cacheName), nearCacheMaxEntries);
+    }
+
+    /**
+     * Wraps a DAO in a {@link CachingDAO}, that serves entities by id from a named cache, and invalidates them again
+     * when the transactions they are updated or deleted in complete. The bundle must have been run before this is
+     * used.
+     *
+     * @param  dao                 The DAO to put caching in front of.
+     * @param  cacheName           The name of the cache to hold entities in.
+     * @param  nearCacheMaxEntries The maximum number of entities to hold in a local near-cache, or zero for no
+     *                             near-cache.
+     * @param  nearCacheExpiry     The time after being cached at which near-cache entries expire.
+     * @param  sessionFactory      The session factory whose current transaction updates and deletes are made in.
+     * @param  <E>                 The type of entities that the DAO manages.
+     * @param  <K>                 The type of database key that the entity uses.
+     *
+     * @return A caching DAO in front of the DAO.
+     */
+    public <E extends Entity<K>, K extends Serializable> CachingDAO<E, K> cachingDAO(BaseDAO<E, K> dao,
+        String cacheName, int nearCacheMaxEntries, Duration nearCacheExpiry, SessionFactory sessionFactory)
+    {
+        return new CachingDAO<>(dao, cacheManager.<K, E>getCache(cacheName), nearCacheMaxEntries, nearCacheExpiry,
+            sessionFactory);
+    }
+
     /**
      * Should be implemented to extract the infinispan config from whatever configuration the application using this
      * bundle is using.
@@ -88,19 +156,24 @@ public abstract class InfinispanBundle<T extends Configuration> implements Confi
      */
     protected abstract InfinispanConfiguration getInfinispanConfiguration(T config);
 
-    /** Sets up a standalone cache for one JVM only. */
-    private void configureStandaloneCache()
+    /**
+     * Sets up a standalone cache for one JVM only.
+     *
+     * @param infinispanConfiguration The infinispan configuration.
+     */
+    private void configureStandaloneCache(InfinispanConfiguration infinispanConfiguration)
     {
-        cacheManager = new DefaultCacheManager();
+        cacheManager =
+            new DefaultCacheManager(buildCacheConfiguration(infinispanConfiguration.getDefaultCache().orNull(),
+                    CacheMode.LOCAL));
     }
 
     /**
      * Sets up a clustered cache to span multiple JVMs.
      *
-     * @param environment             The DropWizard environment.
      * @param infinispanConfiguration The infinispan configuration.
      */
-    private void configureClusteredCache(Environment environment, InfinispanConfiguration infinispanConfiguration)
+    private void configureClusteredCache(InfinispanConfiguration infinispanConfiguration)
     {
         System.setProperty("jgroups.tcp.bind_addr", infinispanConfiguration.getBindAddress());
         System.setProperty("jgroups.tcp.port", String.valueOf(infinispanConfiguration.getPort()));
@@ -109,9 +182,86 @@ public abstract class InfinispanBundle<T extends Configuration> implements Confi
         cacheManager =
             new DefaultCacheManager(GlobalConfigurationBuilder.defaultClusteredBuilder().transport().defaultTransport()
                 .clusterName(infinispanConfiguration.getClusterName()).addProperty("configurationFile", "jgroups.xml")
-                .build(), new ConfigurationBuilder().clustering().cacheMode(CacheMode.REPL_SYNC).build());
+                .build(),
+                buildCacheConfiguration(infinispanConfiguration.getDefaultCache().orNull(), CacheMode.REPL_SYNC));
+    }
 
-        InfinispanManager managed = new InfinispanManager(cacheManager);
-        environment.lifecycle().manage(managed);
+    /**
+     * Works out the cache mode to use for caches that do not specify one. This is the mode of the default cache
+     * definition if it has one, otherwise it depends on whether the cache is clustered.
+     *
+     * @param  infinispanConfiguration The infinispan configuration.
+     *
+     * @return The cache mode to use for caches that do not specify one.
+     */
+    private CacheMode getDefaultCacheMode(InfinispanConfiguration infinispanConfiguration)
+    {
+        CacheMode fallback =
+            (infinispanConfiguration.getType() == InfinispanConfiguration.CacheType.Clustered) ? CacheMode.REPL_SYNC
+                                                                                                : CacheMode.LOCAL;
+
+        if (infinispanConfiguration.getDefaultCache().isPresent())
+        {
+            return infinispanConfiguration.getDefaultCache().get().getMode().or(fallback);
+        }
+
+        return fallback;
+    }
+
+    /**
+     * Builds an infinispan cache configuration from a cache definition.
+     *
+     * @param  cacheDefinition The cache definition, may be <tt>null</tt> to use the defaults.
+     * @param  defaultMode     The cache mode to use if the definition does not specify one.
+     *
+     * @return An infinispan cache configuration.
+     */
+    private org.infinispan.configuration.cache.Configuration buildCacheConfiguration(CacheDefinition cacheDefinition,
+        CacheMode defaultMode)
+    {
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+
+        if (cacheDefinition == null)
+        {
+            builder.clustering().cacheMode(defaultMode);
+
+            return builder.build();
+        }
+
+        CacheMode mode = cacheDefinition.getMode().or(defaultMode);
+        builder.clustering().cacheMode(mode);
+
+        if (mode.isDistributed() && cacheDefinition.getOwners().isPresent())
+        {
+            builder.clustering().hash().numOwners(cacheDefinition.getOwners().get());
+        }
+
+        if (cacheDefinition.getMaxEntries().isPresent())
+        {
+            builder.eviction().strategy(EvictionStrategy.LRU).type(EvictionType.COUNT)
+                .size(cacheDefinition.getMaxEntries().get());
+        }
+        else if (cacheDefinition.getMaxMemoryBytes().isPresent())
+        {
+            builder.eviction().strategy(EvictionStrategy.LRU).type(EvictionType.MEMORY)
+                .size(cacheDefinition.getMaxMemoryBytes().get());
+        }
+
+        if (cacheDefinition.getLifespan().isPresent())
+        {
+            builder.expiration().lifespan(cacheDefinition.getLifespan().get().toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+
+        if (cacheDefinition.getMaxIdle().isPresent())
+        {
+            builder.expiration().maxIdle(cacheDefinition.getMaxIdle().get().toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+
+        if (cacheDefinition.isBinary())
+        {
+            builder.storeAsBinary().enable();
+        }
+
+        return builder.build();
     }
 }
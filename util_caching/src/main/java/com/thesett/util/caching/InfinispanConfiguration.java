@@ -15,6 +15,9 @@
  */
 package com.thesett.util.caching;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
@@ -23,6 +26,9 @@ import com.google.common.base.Optional;
 
 /**
  * InfinispanConfiguration defines the configuration setting for an infinispan cache.
+ *
+ * <p/>Named caches may be defined with their own clustering mode, size bounds and expiry, as {@link CacheDefinition}s.
+ * Caches that are not defined by name take their settings from the default cache definition, if one is given.
  */
 public class InfinispanConfiguration
 {
@@ -54,6 +60,14 @@ public class InfinispanConfiguration
     @NotNull
     private CacheType type;
 
+    @JsonProperty
+    @Valid
+    private Optional<CacheDefinition> defaultCache = Optional.absent();
+
+    @JsonProperty
+    @Valid
+    private Map<String, CacheDefinition> caches = new HashMap<>();
+
     public String getBindAddress()
     {
         return bindAddress.get();
@@ -79,8 +93,31 @@ public class InfinispanConfiguration
         return type;
     }
 
+    public Optional<CacheDefinition> getDefaultCache()
+    {
+        return defaultCache;
+    }
+
+    public Map<String, CacheDefinition> getCaches()
+    {
+        return caches;
+    }
+
     public boolean isValid()
     {
+        if (defaultCache.isPresent() && !isValid(defaultCache.get()))
+        {
+            return false;
+        }
+
+        for (CacheDefinition cacheDefinition : caches.values())
+        {
+            if (!isValid(cacheDefinition))
+            {
+                return false;
+            }
+        }
+
         switch (getType())
         {
         case Clustered:
@@ -92,4 +129,22 @@ public class InfinispanConfiguration
 
         return false;
     }
+
+    /**
+     * Checks that a cache definition is valid for this type of cache. A standalone cache may only use local caches.
+     *
+     * @param  cacheDefinition The cache definition to check.
+     *
+     * @return <tt>true</tt> iff the cache definition is valid.
+     */
+    private boolean isValid(CacheDefinition cacheDefinition)
+    {
+        if (!cacheDefinition.isValid())
+        {
+            return false;
+        }
+
+        return (getType() == CacheType.Clustered) || !cacheDefinition.getMode().isPresent() ||
+            !cacheDefinition.getMode().get().isClustered();
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.caching.hibernate;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.RegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+
+/**
+ * CacheAccessStrategy implements the <tt>read-only</tt> and <tt>nonstrict-read-write</tt> Hibernate cache access
+ * strategies over a {@link CacheRegion}.
+ *
+ * <p/>Data loaded from the database is put into the region only if it is not already there. Under the non-strict
+ * strategy, any write to an item removes it from the region, both when the write is made and again once its
+ * transaction has completed, so that the next read loads it afresh. No locks are taken, so there is a small window in
+ * which a stale item may be read. Under the read-only strategy, updates are refused.
+ *
+ * <p/>The <tt>read-write</tt> and <tt>transactional</tt> strategies are not supported.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Read items from a region. </td><td> {@link CacheRegion} </td></tr>
+ * <tr><td> Put items loaded from the database into a region. </td><td> {@link CacheRegion} </td></tr>
+ * <tr><td> Invalidate written items. </td><td> {@link CacheRegion} </td></tr>
+ * </table></pre>
+ */
+public abstract class CacheAccessStrategy implements RegionAccessStrategy
+{
+    /** The region to access. */
+    protected final CacheRegion region;
+
+    /** The access strategy to apply. */
+    protected final AccessType accessType;
+
+    /**
+     * Creates an access strategy on a region.
+     *
+     * @param  region     The region to access.
+     * @param  accessType The access strategy to apply.
+     *
+     * @throws CacheException If the access strategy is not supported.
+     */
+    protected CacheAccessStrategy(CacheRegion region, AccessType accessType) throws CacheException
+    {
+        if ((accessType != AccessType.READ_ONLY) && (accessType != AccessType.NONSTRICT_READ_WRITE))
+        {
+            throw new CacheException("Access type " + accessType.getExternalName() + " is not supported on region " +
+                region.getName() + ", use read-only or nonstrict-read-write.");
+        }
+
+        this.region = region;
+        this.accessType = accessType;
+    }
+
+    /** {@inheritDoc} */
+    public Object get(Object key, long txTimestamp) throws CacheException
+    {
+        return region.get(key);
+    }
+
+    /** {@inheritDoc} */
+    public boolean putFromLoad(Object key, Object value, long txTimestamp, Object version) throws CacheException
+    {
+        return putFromLoad(key, value, txTimestamp, version, false);
+    }
+
+    /** {@inheritDoc} */
+    public boolean putFromLoad(Object key, Object value, long txTimestamp, Object version, boolean minimalPutOverride)
+        throws CacheException
+    {
+        if (minimalPutOverride && region.contains(key))
+        {
+            return false;
+        }
+
+        region.putFromLoad(key, value);
+
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public SoftLock lockItem(Object key, Object version) throws CacheException
+    {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    public SoftLock lockRegion() throws CacheException
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Removes the item, as its transaction has now completed.
+     */
+    public void unlockItem(Object key, SoftLock lock) throws CacheException
+    {
+        region.evict(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Clears the region, as its transaction has now completed.
+     */
+    public void unlockRegion(SoftLock lock) throws CacheException
+    {
+        region.evictAll();
+    }
+
+    /** {@inheritDoc} */
+    public void remove(Object key) throws CacheException
+    {
+        region.evict(key);
+    }
+
+    /** {@inheritDoc} */
+    public void removeAll() throws CacheException
+    {
+        region.evictAll();
+    }
+
+    /** {@inheritDoc} */
+    public void evict(Object key) throws CacheException
+    {
+        region.evict(key);
+    }
+
+    /** {@inheritDoc} */
+    public void evictAll() throws CacheException
+    {
+        region.evictAll();
+    }
+
+    /**
+     * Handles an update to an item. The item is removed under the non-strict strategy, and the update is refused under
+     * the read-only strategy.
+     *
+     * @param  key The key of the item being updated.
+     *
+     * @return Always <tt>false</tt>, as the update is never put into the region.
+     *
+     * @throws UnsupportedOperationException If the access strategy is read-only.
+     */
+    protected boolean onUpdate(Object key)
+    {
+        if (accessType == AccessType.READ_ONLY)
+        {
+            throw new UnsupportedOperationException("Can't update read-only item in region " + region.getName());
+        }
+
+        region.evict(key);
+
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.caching.hibernate;
+
+import java.util.Properties;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cfg.Settings;
+import org.infinispan.AdvancedCache;
+import org.infinispan.manager.EmbeddedCacheManager;
+
+/**
+ * CacheManagerRegionFactory is a Hibernate second-level cache region factory, that holds each region in the infinispan
+ * cache with the same name as the region, taken from an existing infinispan cache manager such as the one set up by
+ * the {@link com.thesett.util.caching.InfinispanBundle}. This means that regions can be configured individually, by
+ * defining named caches for them in the infinispan configuration; regions without a named cache use the default cache
+ * configuration.
+ *
+ * <p/>The query cache regions are held locally on each node only, as is usual for infinispan backed query caches. The
+ * update timestamps region must be visible to all nodes, so it should use a replicated cache configuration, and must
+ * not be bounded or expire.
+ *
+ * <p/>This region factory is registered with Hibernate as a service, rather than by class name, as it needs to be
+ * given the cache manager. The cache manager is owned by the application, so the region factory does not start or
+ * stop it.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Build cache regions in named infinispan caches. </td><td> {@link EmbeddedCacheManager} </td></tr>
+ * <tr><td> Supply cache timestamps. </td></tr>
+ * </table></pre>
+ */
+public class CacheManagerRegionFactory implements RegionFactory
+{
+    /** The size of a unit of cache timestamp in milliseconds. */
+    static final int TIMESTAMP_UNIT_MILLIS = 100;
+
+    /** The infinispan cache manager to hold regions in. */
+    private final EmbeddedCacheManager cacheManager;
+
+    /**
+     * Creates a region factory over an infinispan cache manager.
+     *
+     * @param cacheManager The infinispan cache manager to hold regions in.
+     */
+    public CacheManagerRegionFactory(EmbeddedCacheManager cacheManager)
+    {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Does nothing, the cache manager is started by its owner.
+     */
+    public void start(Settings settings, Properties properties) throws CacheException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Does nothing, the cache manager is stopped by its owner.
+     */
+    public void stop()
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Minimal puts avoid replicating data loaded from the database, that is already in a clustered cache.
+     */
+    public boolean isMinimalPutsEnabledByDefault()
+    {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public AccessType getDefaultAccessType()
+    {
+        return AccessType.NONSTRICT_READ_WRITE;
+    }
+
+    /** {@inheritDoc} */
+    public long nextTimestamp()
+    {
+        return System.currentTimeMillis() / TIMESTAMP_UNIT_MILLIS;
+    }
+
+    /** {@inheritDoc} */
+    public EntityRegion buildEntityRegion(String regionName, Properties properties, CacheDataDescription metadata)
+        throws CacheException
+    {
+        return new EntityCacheRegion(regionName, getCache(regionName), metadata, this);
+    }
+
+    /** {@inheritDoc} */
+    public NaturalIdRegion buildNaturalIdRegion(String regionName, Properties properties,
+        CacheDataDescription metadata) throws CacheException
+    {
+        return new NaturalIdCacheRegion(regionName, getCache(regionName), metadata, this);
+    }
+
+    /** {@inheritDoc} */
+    public CollectionRegion buildCollectionRegion(String regionName, Properties properties,
+        CacheDataDescription metadata) throws CacheException
+    {
+        return new CollectionCacheRegion(regionName, getCache(regionName), metadata, this);
+    }
+
+    /** {@inheritDoc} */
+    public QueryResultsRegion buildQueryResultsRegion(String regionName, Properties properties) throws CacheException
+    {
+        return new CacheRegion(regionName, getCache(regionName), null, true, this);
+    }
+
+    /** {@inheritDoc} */
+    public TimestampsRegion buildTimestampsRegion(String regionName, Properties properties) throws CacheException
+    {
+        return new CacheRegion(regionName, getCache(regionName), null, false, this);
+    }
+
+    /**
+     * Provides the named infinispan cache for a region.
+     *
+     * @param  regionName The name of the region.
+     *
+     * @return The infinispan cache for the region.
+     */
+    private AdvancedCache<Object, Object> getCache(String regionName)
+    {
+        return cacheManager.<Object, Object>getCache(regionName).getAdvancedCache();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.caching.hibernate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.TransactionalDataRegion;
+import org.infinispan.AdvancedCache;
+import org.infinispan.context.Flag;
+
+/**
+ * CacheRegion is a Hibernate second-level cache region held in an infinispan cache. It serves directly as a query
+ * results or timestamps region, and is extended to provide entity, collection and natural id regions.
+ *
+ * <p/>Infinispan caches are shared and clustered, and the cache manager that they come from is owned by the
+ * application and not by Hibernate, so destroying a region does not stop its cache.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Hold cached data for a region. </td><td> {@link AdvancedCache} </td></tr>
+ * <tr><td> Supply region timestamps. </td><td> {@link CacheManagerRegionFactory} </td></tr>
+ * </table></pre>
+ */
+public class CacheRegion implements QueryResultsRegion, TimestampsRegion, TransactionalDataRegion
+{
+    /** The region timeout, 60 seconds in timestamp units. */
+    private static final int TIMEOUT = 60 * 1000 / CacheManagerRegionFactory.TIMESTAMP_UNIT_MILLIS;
+
+    /** The name of the region. */
+    private final String name;
+
+    /** The cache holding the region data. */
+    protected final AdvancedCache<Object, Object> cache;
+
+    /** The cache to read and write the region data through, which only acts on this node for local regions. */
+    protected final AdvancedCache<Object, Object> regionCache;
+
+    /** Describes the data held in the region, may be <tt>null</tt> for query results or timestamps. */
+    private final CacheDataDescription description;
+
+    /** The region factory that created this region. */
+    private final CacheManagerRegionFactory regionFactory;
+
+    /**
+     * Creates a cache region.
+     *
+     * @param name          The name of the region.
+     * @param cache         The cache holding the region data.
+     * @param description   Describes the data held in the region, may be <tt>null</tt>.
+     * @param local         <tt>true</tt> if the region data should only be read and written on this node.
+     * @param regionFactory The region factory that created this region.
+     */
+    public CacheRegion(String name, AdvancedCache<Object, Object> cache, CacheDataDescription description,
+        boolean local, CacheManagerRegionFactory regionFactory)
+    {
+        this.name = name;
+        this.cache = cache;
+        this.regionCache = local ? cache.withFlags(Flag.CACHE_MODE_LOCAL) : cache;
+        this.description = description;
+        this.regionFactory = regionFactory;
+    }
+
+    /** {@inheritDoc} */
+    public String getName()
+    {
+        return name;
+    }
+
+    /** {@inheritDoc} */
+    public void destroy() throws CacheException
+    {
+    }
+
+    /** {@inheritDoc} */
+    public boolean contains(Object key)
+    {
+        return regionCache.containsKey(key);
+    }
+
+    /** {@inheritDoc} */
+    public long getSizeInMemory()
+    {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Only counts the elements held on this node.
+     */
+    public long getElementCountInMemory()
+    {
+        return cache.withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_LOAD).size();
+    }
+
+    /** {@inheritDoc} */
+    public long getElementCountOnDisk()
+    {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Only includes the elements held on this node.
+     */
+    public Map toMap()
+    {
+        return new HashMap<>(cache.withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_LOAD));
+    }
+
+    /** {@inheritDoc} */
+    public long nextTimestamp()
+    {
+        return regionFactory.nextTimestamp();
+    }
+
+    /** {@inheritDoc} */
+    public int getTimeout()
+    {
+        return TIMEOUT;
+    }
+
+    /** {@inheritDoc} */
+    public Object get(Object key) throws CacheException
+    {
+        return regionCache.get(key);
+    }
+
+    /** {@inheritDoc} */
+    public void put(Object key, Object value) throws CacheException
+    {
+        regionCache.withFlags(Flag.IGNORE_RETURN_VALUES).put(key, value);
+    }
+
+    /** {@inheritDoc} */
+    public void evict(Object key) throws CacheException
+    {
+        regionCache.withFlags(Flag.IGNORE_RETURN_VALUES).remove(key);
+    }
+
+    /** {@inheritDoc} */
+    public void evictAll() throws CacheException
+    {
+        regionCache.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Infinispan caches used as regions are not transactional.
+     */
+    public boolean isTransactionAware()
+    {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    public CacheDataDescription getCacheDataDescription()
+    {
+        return description;
+    }
+
+    /**
+     * Puts a value loaded from the database into the region, unless the region already holds a value for the key.
+     *
+     * @param key   The key to put the value against.
+     * @param value The value to put.
+     */
+    void putFromLoad(Object key, Object value)
+    {
+        regionCache.putForExternalRead(key, value);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.caching.hibernate;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.infinispan.AdvancedCache;
+
+/**
+ * EntityCacheRegion is a Hibernate second-level cache region for entities, held in an infinispan cache.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Hold cached entities. </td><td> {@link CacheRegion} </td></tr>
+ * <tr><td> Supply access strategies for entities. </td><td> {@link CacheAccessStrategy} </td></tr>
+ * </table></pre>
+ */
+public class EntityCacheRegion extends CacheRegion implements EntityRegion
+{
+    /**
+     * Creates an entity cache region.
+     *
+     * @param name          The name of the region.
+     * @param cache         The cache holding the region data.
+     * @param description   Describes the data held in the region.
+     * @param regionFactory The region factory that created this region.
+     */
+    public EntityCacheRegion(String name, AdvancedCache<Object, Object> cache, CacheDataDescription description,
+        CacheManagerRegionFactory regionFactory)
+    {
+        super(name, cache, description, false, regionFactory);
+    }
+
+    /** {@inheritDoc} */
+    public EntityRegionAccessStrategy buildAccessStrategy(AccessType accessType) throws CacheException
+    {
+        return new AccessStrategy(this, accessType);
+    }
+
+    /** AccessStrategy is the access strategy for entity regions. */
+    private static class AccessStrategy extends CacheAccessStrategy implements EntityRegionAccessStrategy
+    {
+        AccessStrategy(EntityCacheRegion region, AccessType accessType)
+        {
+            super(region, accessType);
+        }
+
+        /** {@inheritDoc} */
+        public EntityRegion getRegion()
+        {
+            return (EntityRegion) region;
+        }
+
+        /** {@inheritDoc} */
+        public boolean insert(Object key, Object value, Object version) throws CacheException
+        {
+            return false;
+        }
+
+        /** {@inheritDoc} */
+        public boolean afterInsert(Object key, Object value, Object version) throws CacheException
+        {
+            return false;
+        }
+
+        /** {@inheritDoc} */
+        public boolean update(Object key, Object value, Object currentVersion, Object previousVersion)
+            throws CacheException
+        {
+            return onUpdate(key);
+        }
+
+        /** {@inheritDoc} */
+        public boolean afterUpdate(Object key, Object value, Object currentVersion, Object previousVersion,
+            SoftLock lock) throws CacheException
+        {
+            unlockItem(key, lock);
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.thesett.util.audited;
+
+import com.codahale.metrics.MetricRegistry;
+import com.thesett.util.metrics.AuditLogMetrics;
+
+import io.dropwizard.Bundle;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+
+/**
+ * AuditBundle sets up the auditing of resource methods annotated as {@link com.thesett.util.jersey.Audited}. It
+ * registers an {@link AuditedMethodApplicationListener} to record accesses to them, and manages its {@link AuditLog}
+ * in the Dropwizard lifecycle, so that the records still waiting to be written are written out when the application is
+ * shut down. Gauges over the log are added to the application metrics.
+ *
+ * <p/>Audit listeners registered without this bundle should have their log managed in the same way.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Register the audit listener. </td><td> {@link AuditedMethodApplicationListener} </td></tr>
+ * <tr><td> Manage the audit log. </td><td> {@link AuditLog} </td></tr>
+ * <tr><td> Expose metrics over the audit log. </td><td> {@link AuditLogMetrics} </td></tr>
+ * </table></pre>
+ */
+public class AuditBundle implements Bundle {
+    /** The log to record audited accesses to. */
+    private final AuditLog auditLog;
+
+    /** Creates the bundle, recording audited accesses to its own audit log, written to a {@link LogAuditSink}. */
+    public AuditBundle() {
+        this(new AuditLog("audit", AuditLog.DEFAULT_CAPACITY, new LogAuditSink()));
+    }
+
+    /**
+     * Creates the bundle.
+     *
+     * @param auditLog The log to record audited accesses to.
+     */
+    public AuditBundle(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Does nothing as no bootstrapping required.
+     */
+    public void initialize(Bootstrap<?> bootstrap) {
+        // No bootstrapping required.
+    }
+
+    /** {@inheritDoc} */
+    public void run(Environment environment) {
+        environment.lifecycle().manage(auditLog);
+        environment.jersey().register(new AuditedMethodApplicationListener(auditLog));
+        AuditLogMetrics.register(environment.metrics(), MetricRegistry.name(AuditLog.class), auditLog);
+    }
+
+    /**
+     * Provides the log that audited accesses are recorded to.
+     *
+     * @return The log that audited accesses are recorded to.
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+}
@@ -0,0 +1,322 @@
+package com.thesett.util.audited;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * AuditLog takes audit records from request threads, and writes them to an {@link AuditSink} on a single background
+ * writer thread. Records are held in between in a bounded ring buffer, so that recording one never blocks the request
+ * thread: when the buffer is full the record is dropped, and counted as dropped.
+ *
+ * <p/>The writer takes records from the buffer in batches, and writes them one at a time to the sink. A record that
+ * the sink fails to write is logged and counted as failed; it does not stop the writer. Should the writer die anyway,
+ * its death is logged and a new writer is started in its place; the records of the batch it was writing are lost.
+ *
+ * <p/>The writer thread is a daemon, and starts when the log is started. Records arriving whilst the log is not started
+ * are dropped. Stopping the log writes out any records still in the buffer, and ends the writer; the log may be
+ * started again after that. As the writer is a daemon, records still in the buffer when the JVM exits are lost unless
+ * the log has been stopped, so the log should be managed by the Dropwizard lifecycle; {@link AuditBundle} does this.
+ * {@link #getDefault()} provides a log, started when it is first used and never stopped, shared by all audit listeners
+ * that are not given their own.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Buffer audit records without blocking. </td><td> {@link ArrayBlockingQueue} </td></tr>
+ * <tr><td> Write audit records in the background. </td><td> {@link AuditSink} </td></tr>
+ * <tr><td> Count recorded, written, dropped and failed records. </td></tr>
+ * </table></pre>
+ */
+public class AuditLog implements Managed {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(AuditLog.class.getName());
+
+    /** The default buffer capacity of the default log. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** The most records written in one batch. */
+    private static final int BATCH_SIZE = 256;
+
+    /** How long the writer waits for a record before checking whether it has been stopped, in milliseconds. */
+    private static final long POLL_MILLIS = 100;
+
+    /** How long to wait for the buffer to be written out on stop, in seconds. */
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+
+    /** The ring buffer of records waiting to be written. */
+    private final BlockingQueue<AuditRecord> buffer;
+
+    /** The sink to write records to. */
+    private final AuditSink sink;
+
+    /** The name of the log, used to name its writer thread. */
+    private final String name;
+
+    /** The current writer thread. */
+    private volatile Thread writer;
+
+    /** Counts the records accepted into the buffer. */
+    private final LongAdder recorded = new LongAdder();
+
+    /** Counts the records written to the sink. */
+    private final LongAdder written = new LongAdder();
+
+    /** Counts the records dropped because the buffer was full, or the log was stopped. */
+    private final LongAdder dropped = new LongAdder();
+
+    /** Counts the records that the sink failed to write. */
+    private final LongAdder failed = new LongAdder();
+
+    /** Counts the calls to {@link #record} in progress, so that stopping can wait for them to reach the buffer. */
+    private final AtomicInteger recording = new AtomicInteger();
+
+    /** Whether the log is stopped; it is until started. */
+    private volatile boolean stopped = true;
+
+    /**
+     * Creates an audit log. It drops records until it is started.
+     *
+     * @param name     The name of the log, used to name its writer thread.
+     * @param capacity The maximum number of records held waiting to be written.
+     * @param sink     The sink to write records to.
+     */
+    public AuditLog(String name, int capacity, AuditSink sink) {
+        this.name = name;
+        this.sink = sink;
+
+        buffer = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Provides the shared default log, creating and starting it on first use. It has a buffer of {@link #DEFAULT_CAPACITY} records,
+     * and writes them to a {@link LogAuditSink}.
+     *
+     * @return The shared default log.
+     */
+    public static AuditLog getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Hands an audit record to the log, to be written in the background. This never blocks.
+     *
+     * @param  record The audit record.
+     *
+     * @return <tt>true</tt> iff the record was accepted, <tt>false</tt> if it was dropped.
+     */
+    public boolean record(AuditRecord record) {
+        recording.incrementAndGet();
+
+        try {
+            if (stopped || !buffer.offer(record)) {
+                dropped.increment();
+
+                return false;
+            }
+
+            recorded.increment();
+
+            return true;
+        } finally {
+            recording.decrementAndGet();
+        }
+    }
+
+    /** Starts the log, and its writer thread if it is not already running. */
+    public synchronized void start() {
+        stopped = false;
+
+        Thread current = writer;
+
+        if ((current == null) || !current.isAlive()) {
+            startWriter();
+        }
+    }
+
+    /**
+     * Stops the log, waiting for the records in the buffer to be written out. Records that reach the buffer after the
+     * writer has ended are written out by the stopping thread.
+     *
+     * @throws InterruptedException If interrupted whilst waiting for the records to be written out.
+     */
+    public synchronized void stop() throws InterruptedException {
+        stopped = true;
+
+        // A writer that dies whilst stopping is replaced before it ends, so wait for any replacement too.
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(STOP_TIMEOUT_SECONDS);
+
+        for (Thread current = writer; current != null; current = writer) {
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (remaining <= 0) {
+                return;
+            }
+
+            current.join(remaining);
+
+            if (current == writer) {
+                break;
+            }
+        }
+
+        // Records that passed the stopped check before it was set may reach the buffer after the writer has ended.
+        while (recording.get() > 0) {
+            Thread.yield();
+        }
+
+        List<AuditRecord> batch = new ArrayList<>(BATCH_SIZE);
+
+        while (buffer.drainTo(batch, BATCH_SIZE) > 0) {
+            try {
+                writeBatch(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Provides the number of records waiting to be written.
+     *
+     * @return The number of records waiting to be written.
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * Provides the number of records accepted into the buffer.
+     *
+     * @return The number of records accepted into the buffer.
+     */
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    /**
+     * Provides the number of records written to the sink.
+     *
+     * @return The number of records written to the sink.
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Provides the number of records dropped, because the buffer was full or the log was stopped.
+     *
+     * @return The number of records dropped.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Provides the number of records that the sink failed to write.
+     *
+     * @return The number of records that the sink failed to write.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /** Starts a new writer thread. */
+    private void startWriter() {
+        Thread thread = new Thread(this::writeRecords, name + "-writer");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler(this::writerDied);
+
+        writer = thread;
+        thread.start();
+    }
+
+    /**
+     * Logs the death of the writer thread, and starts a new one in its place. A new writer is started even when the log
+     * has been stopped, so that it writes out the records still in the buffer.
+     *
+     * @param thread The writer thread that died.
+     * @param t      The cause of its death.
+     */
+    private void writerDied(Thread thread, Throwable t) {
+        LOG.log(Level.SEVERE, "Audit log writer " + thread.getName() + " died, starting a new one.", t);
+        startWriter();
+    }
+
+    /** Takes records from the buffer in batches and writes them to the sink, until stopped and the buffer is empty. */
+    private void writeRecords() {
+        List<AuditRecord> batch = new ArrayList<>(BATCH_SIZE);
+
+        while (!stopped || !buffer.isEmpty()) {
+            AuditRecord first;
+
+            try {
+                first = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Only stopping the log ends the writer, so keep going.
+                continue;
+            }
+
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            buffer.drainTo(batch, BATCH_SIZE - 1);
+
+            try {
+                writeBatch(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of records to the sink.
+     *
+     * @param batch The records to write.
+     */
+    private void writeBatch(List<AuditRecord> batch) {
+        for (AuditRecord record : batch) {
+            try {
+                sink.write(record);
+                written.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                LOG.log(Level.WARNING, "Failed to write audit record: " + record, e);
+            }
+        }
+
+        try {
+            sink.flush();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to flush audit records.", e);
+        }
+    }
+
+    /** DefaultHolder lazily creates the default log. */
+    private static class DefaultHolder {
+        /** The default log. */
+        private static final AuditLog INSTANCE = createDefault();
+
+        /**
+         * Creates and starts the default log.
+         *
+         * @return The default log.
+         */
+        private static AuditLog createDefault() {
+            AuditLog log = new AuditLog("audit", DEFAULT_CAPACITY, new LogAuditSink());
+            log.start();
+
+            return log;
+        }
+    }
+}
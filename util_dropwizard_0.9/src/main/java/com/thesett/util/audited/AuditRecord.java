@@ -0,0 +1,138 @@
+package com.thesett.util.audited;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.glassfish.jersey.uri.UriComponent;
+
+/**
+ * AuditRecord is a compact record of an access to an audited resource method. It holds only what was captured on the
+ * request thread, and leaves all formatting until it is written, so that capturing one is cheap. Query parameters are
+ * not captured separately, but are decoded from the request URI when needed.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Hold the details of an audited request. </td></tr>
+ * <tr><td> Decode the query parameters of the request. </td><td> {@link UriComponent} </td></tr>
+ * <tr><td> Format the details as text. </td></tr>
+ * </table></pre>
+ */
+public final class AuditRecord {
+    /** The time of the request, in milliseconds since the epoch. */
+    private final long timestamp;
+
+    /** The resource method accessed. */
+    private final Method resourceMethod;
+
+    /** The HTTP method of the request. */
+    private final String httpMethod;
+
+    /** The request URI. */
+    private final URI requestUri;
+
+    /** The request headers, excluding any redacted ones. */
+    private final Map<String, List<String>> headers;
+
+    /**
+     * Creates an audit record.
+     *
+     * @param timestamp      The time of the request, in milliseconds since the epoch.
+     * @param resourceMethod The resource method accessed.
+     * @param httpMethod     The HTTP method of the request.
+     * @param requestUri     The request URI.
+     * @param headers        The request headers, excluding any redacted ones.
+     */
+    public AuditRecord(long timestamp, Method resourceMethod, String httpMethod, URI requestUri,
+        Map<String, List<String>> headers) {
+        this.timestamp = timestamp;
+        this.resourceMethod = resourceMethod;
+        this.httpMethod = httpMethod;
+        this.requestUri = requestUri;
+        this.headers = headers;
+    }
+
+    /**
+     * Provides the time of the request.
+     *
+     * @return The time of the request, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Provides the resource method accessed.
+     *
+     * @return The resource method accessed.
+     */
+    public Method getResourceMethod() {
+        return resourceMethod;
+    }
+
+    /**
+     * Provides the HTTP method of the request.
+     *
+     * @return The HTTP method of the request.
+     */
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * Provides the request URI.
+     *
+     * @return The request URI.
+     */
+    public URI getRequestUri() {
+        return requestUri;
+    }
+
+    /**
+     * Provides the request headers, excluding any redacted ones.
+     *
+     * @return The request headers, excluding any redacted ones.
+     */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Decodes the query parameters of the request.
+     *
+     * @return The decoded query parameters of the request.
+     */
+    public MultivaluedMap<String, String> getQueryParameters() {
+        return UriComponent.decodeQuery(requestUri, true);
+    }
+
+    /**
+     * Formats the record as text, across several lines.
+     *
+     * @return The record as text.
+     */
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("\n Audited Resource Access \n");
+        builder.append("  Resource : ").append(resourceMethod.getDeclaringClass().getName()).append('.')
+            .append(resourceMethod.getName()).append('\n');
+
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            builder.append("  Header   : ").append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+        }
+
+        builder.append("  Method   : ").append(httpMethod).append('\n');
+        builder.append("  URI      : ").append(requestUri).append('\n');
+
+        for (Map.Entry<String, List<String>> entry : getQueryParameters().entrySet()) {
+            builder.append("  Param    : ").append(entry.getKey()).append(" = ").append(entry.getValue())
+                .append(" \n");
+        }
+
+        return builder.toString();
+    }
+}
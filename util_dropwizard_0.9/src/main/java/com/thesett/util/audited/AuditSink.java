@@ -0,0 +1,24 @@
+package com.thesett.util.audited;
+
+/**
+ * An AuditSink persists audit records, to a log, a file, a database table or wherever they need to be kept. Sinks are
+ * only ever called from the single writer thread of an {@link AuditLog}, so need not be thread safe. Records are
+ * written in batches; {@link #flush()} is called at the end of each batch.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities
+ * <tr><td> Persist audit records.
+ * </table></pre>
+ */
+public interface AuditSink {
+    /**
+     * Writes an audit record.
+     *
+     * @param record The audit record.
+     */
+    void write(AuditRecord record);
+
+    /** Completes the writing of a batch of audit records. */
+    default void flush() {
+    }
+}
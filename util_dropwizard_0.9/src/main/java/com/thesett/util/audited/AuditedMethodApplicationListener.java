@@ -2,14 +2,15 @@ package com.thesett.util.audited;
 
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.logging.Logger;
 
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.Provider;
 
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.net.HttpHeaders;
 
 import org.glassfish.jersey.server.ContainerRequest;
@@ -22,16 +23,44 @@ import org.glassfish.jersey.server.monitoring.RequestEventListener;
 
 import com.thesett.util.jersey.Audited;
 
+/**
+ * AuditedMethodApplicationListener records accesses to resource methods annotated as {@link Audited}. The resource
+ * methods are found once, when the application is initialized.
+ *
+ * <p/>Only a compact {@link AuditRecord} is captured on the request thread, and handed to an {@link AuditLog}, which
+ * formats and writes it in the background. Listeners that are not given a log use the {@link AuditLog#getDefault()}
+ * one. The log should be managed, so that it is written out on shut down; {@link AuditBundle} registers this listener
+ * with a managed log. A single request event listener is shared by all requests.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Find the audited resource methods. </td><td> {@link Audited} </td></tr>
+ * <tr><td> Record accesses to audited resource methods. </td><td> {@link AuditLog}, {@link AuditRecord} </td></tr>
+ * </table></pre>
+ */
 @Provider
 public class AuditedMethodApplicationListener implements ApplicationEventListener {
-    /** Used for debugging purposes. */
-    private static final Logger LOG = Logger.getLogger(AuditedMethodApplicationListener.class.getName());
-
-    private static final Set<String> REDACTED_HEADERS = ImmutableSet.of(HttpHeaders.AUTHORIZATION);
+    /** The headers left out of audit records, matched ignoring case as header names are case insensitive. */
+    private static final Set<String> REDACTED_HEADERS =
+        ImmutableSortedSet.orderedBy(String.CASE_INSENSITIVE_ORDER).add(HttpHeaders.AUTHORIZATION).build();
 
     private final Map<Method, Audited> methodMap = new HashMap<>();
 
+    /** The request event listener shared by all requests. */
+    private final RequestEventListener requestListener;
+
+    /** Creates the listener, recording audited accesses to the default audit log. */
     public AuditedMethodApplicationListener() {
+        this(AuditLog.getDefault());
+    }
+
+    /**
+     * Creates the listener.
+     *
+     * @param auditLog The log to record audited accesses to.
+     */
+    public AuditedMethodApplicationListener(AuditLog auditLog) {
+        requestListener = new AuditedEventListener(methodMap, auditLog);
     }
 
     public void onEvent(ApplicationEvent event) {
@@ -51,7 +80,7 @@ public class AuditedMethodApplicationListener implements ApplicationEventListene
     }
 
     public RequestEventListener onRequest(RequestEvent event) {
-        return new AuditedEventListener(methodMap);
+        return requestListener;
     }
 
     private void registerAuditedMethodAnnotations(ResourceMethod method) {
@@ -66,70 +95,60 @@ public class AuditedMethodApplicationListener implements ApplicationEventListene
         }
     }
 
+    /**
+     * AuditedEventListener records accesses to audited resource methods. It holds no per-request state, so is shared
+     * by all requests.
+     */
     private static class AuditedEventListener implements RequestEventListener {
         private final Map<Method, Audited> methodMap;
 
-        private Audited Audited;
+        /** The log to record audited accesses to. */
+        private final AuditLog auditLog;
 
         private final boolean requireRemoteIPAddressInformation = false;
 
-        public AuditedEventListener(Map<Method, Audited> methodMap) {
+        public AuditedEventListener(Map<Method, Audited> methodMap, AuditLog auditLog) {
             this.methodMap = methodMap;
+            this.auditLog = auditLog;
         }
 
         public void onEvent(RequestEvent event) {
             if (event.getType() == RequestEvent.Type.RESOURCE_METHOD_START) {
-                this.Audited =
-                    this.methodMap.get(event.getUriInfo()
-                        .getMatchedResourceMethod()
-                        .getInvocable()
-                        .getDefinitionMethod());
-
-                if (Audited != null) {
-                    logRequest(event);
+                Method method =
+                    event.getUriInfo().getMatchedResourceMethod().getInvocable().getDefinitionMethod();
+
+                if (methodMap.containsKey(method)) {
+                    recordRequest(event, method);
                 }
-            } else if (event.getType() == RequestEvent.Type.RESP_FILTERS_START) {
-            } else if (event.getType() == RequestEvent.Type.ON_EXCEPTION) {
             }
         }
 
         /**
-         * Logs a request method in extra detail.
+         * Records an access to an audited resource method. Only the details of the request are captured here; they
+         * are formatted when the record is written.
          *
-         * @param event The Jersey request event.
+         * @param event  The Jersey request event.
+         * @param method The audited resource method.
          */
-        private void logRequest(RequestEvent event) {
-            StringBuilder builder = new StringBuilder();
-
+        private void recordRequest(RequestEvent event, Method method) {
             ContainerRequest request = event.getContainerRequest();
+            MultivaluedMap<String, String> requestHeaders = request.getRequestHeaders();
 
-            Resource resource = event.getUriInfo().getMatchedResourceMethod().getParent();
-
-            builder.append("\n Audited Resource Access \n");
-            builder.append("  Resource : " + resource.getClass() + "\n");
-
-            if (requireRemoteIPAddressInformation &&
-                    !request.getRequestHeaders().keySet().contains(HttpHeaders.X_FORWARDED_FOR)) {
+            if (requireRemoteIPAddressInformation && !requestHeaders.containsKey(HttpHeaders.X_FORWARDED_FOR)) {
                 throw new IllegalStateException("Header " + HttpHeaders.X_FORWARDED_FOR +
                     " is required but was not found in the request");
             }
 
-            for (Map.Entry<String, List<String>> entry : request.getRequestHeaders().entrySet()) {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+
+            for (Map.Entry<String, List<String>> entry : requestHeaders.entrySet()) {
                 if (!REDACTED_HEADERS.contains(entry.getKey())) {
-                    builder.append("  Header   : " + entry.getKey() + " = " + entry.getValue() + "\n");
+                    headers.put(entry.getKey(), entry.getValue());
                 }
             }
 
-            builder.append("  Method   : " + request.getMethod() + "\n");
-            builder.append("  URI      : " + request.getRequestUri() + "\n");
-
-            for (Map.Entry<String, List<String>> entry : request.getUriInfo().getQueryParameters(true).entrySet()) {
-                String name = entry.getKey();
-                List<String> value = entry.getValue();
-                builder.append("  Param    : " + name + " = " + value + " \n");
-            }
-
-            LOG.info(builder.toString());
+            auditLog.record(new AuditRecord(System.currentTimeMillis(), method, request.getMethod(),
+                    request.getRequestUri(), headers));
         }
     }
 }
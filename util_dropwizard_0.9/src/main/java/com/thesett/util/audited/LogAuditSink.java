@@ -0,0 +1,39 @@
+package com.thesett.util.audited;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LogAuditSink writes audit records to a logger, at INFO level. Where the records end up can then be set in the logging
+ * configuration.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Log audit records. </td><td> {@link Logger} </td></tr>
+ * </table></pre>
+ */
+public class LogAuditSink implements AuditSink {
+    /** The logger to write to. */
+    private final Logger log;
+
+    /** Creates a sink that writes to the logger of the {@link AuditedMethodApplicationListener}. */
+    public LogAuditSink() {
+        this(Logger.getLogger(AuditedMethodApplicationListener.class.getName()));
+    }
+
+    /**
+     * Creates a sink that writes to a logger.
+     *
+     * @param log The logger to write to.
+     */
+    public LogAuditSink(Logger log) {
+        this.log = log;
+    }
+
+    /** {@inheritDoc} */
+    public void write(AuditRecord record) {
+        if (log.isLoggable(Level.INFO)) {
+            log.info(record.toString());
+        }
+    }
+}
@@ -4,9 +4,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,6 +39,9 @@ public abstract class RefDataLoadCommand<T extends Configuration> extends Config
     /** Used for debugging purposes. */
     private static final Logger LOG = Logger.getLogger(RefDataLoadCommand.class.getName());
 
+    /** The number of rows to insert in each batch. */
+    private static final int BATCH_SIZE = 500;
+
     /** Creates the reference data command. */
     public RefDataLoadCommand() {
         super("refdata", "Load reference data.");
@@ -49,7 +55,7 @@ public abstract class RefDataLoadCommand<T extends Configuration> extends Config
      */
     public void loadReferenceData(T configuration) throws RefDataLoadException {
         String refdataPackage = getRefdataPackage(configuration);
-        Set<RefDataBundle> refDataBundles = RefDataUtils.getRefDataBundles(refdataPackage);
+        List<RefDataBundle> refDataBundles = new ArrayList<>(RefDataUtils.getRefDataBundles(refdataPackage));
 
         // Open a connection to the database.
         Connection connection = getConnection(configuration);
@@ -107,73 +113,179 @@ public abstract class RefDataLoadCommand<T extends Configuration> extends Config
     /**
      * Updates or inserts a set of reference data bundles into the database.
      *
-     * <p/>On on empty database, reference data values will have no FK references to them, so their tables can simply be
-     * dropped and re-built. On an existing database with data in it, this will likely not work, and in that case the
-     * existing values in the table will be verified against the reference data bundle, and any new values inserted.
+     * <p/>All of the reference data is loaded in a single transaction. The existing contents of all of the tables are
+     * read in a single query first, and compared with the bundles. Items that are missing are inserted in batches. An
+     * existing item whose value differs from the bundle is replaced, if it is not referenced by other data; if it is
+     * referenced, the whole load is rolled back. Existing items that are not in the bundles are removed if they are not
+     * referenced, otherwise they are left in place and a warning is logged.
+     *
+     * <p/>Whether an item is referenced is found out by trying to delete it, within a savepoint that is rolled back
+     * should the delete fail.
      *
      * @param  refDataBundles The reference data bundles to insert.
      * @param  connection     The database connection.
      *
      * @throws RefDataLoadException If there is a failure during the database insertion.
      */
-    private void upsertReferenceData(Iterable<RefDataBundle> refDataBundles, Connection connection)
+    private void upsertReferenceData(List<RefDataBundle> refDataBundles, Connection connection)
         throws RefDataLoadException {
         // Insert all of the reference data.
         LOG.fine("Inserting the reference data.");
 
+        try {
+            List<Map<Long, String>> existingItems = readReferenceDataItems(connection, refDataBundles);
+
+            for (int i = 0; i < refDataBundles.size(); i++) {
+                RefDataBundle bundle = refDataBundles.get(i);
+
+                updateReferenceDataItems(connection, bundle, existingItems.get(i));
+
+                LOG.fine("Inserted to: " + bundle.getTableName());
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(connection);
+            throw new RefDataLoadException("There was a problem committing the reference data.", "RDL", 6, e);
+        } catch (RefDataLoadException e) {
+            rollback(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the existing reference data items in the tables of the bundles, all in a single query.
+     *
+     * @param  connection     The database connection.
+     * @param  refDataBundles The reference data bundles to read the tables of.
+     *
+     * @return The existing items of each table, by id, in the same order as the bundles.
+     *
+     * @throws RefDataLoadException If the tables cannot be read.
+     */
+    private List<Map<Long, String>> readReferenceDataItems(Connection connection, List<RefDataBundle> refDataBundles)
+        throws RefDataLoadException {
+        List<Map<Long, String>> existingItems = new ArrayList<>();
+        List<String> tableNames = new ArrayList<>();
+        List<String> valueColumns = new ArrayList<>();
+
         for (RefDataBundle bundle : refDataBundles) {
-            PreparedStatement sql = null;
-            boolean insertMode = true;
-
-            try {
-                sql = connection.prepareStatement("DELETE FROM " + bundle.getTableName());
-                sql.execute();
-            } catch (SQLException e) {
-                LOG.log(Level.FINE,
-                    "Unable to clear the reference data table " + bundle.getTableName() +
-                    ", will check existing values and add any missing ones instead.", e);
-
-                // The exception is deliberately set to null, to indicate that it is being ignored, since compensating
-                // action is being taken. The compensating action is to use update mode, to verify existing reference
-                // data and insert any new values required.
-                e = null;
-                insertMode = false;
-
-                try {
-                    connection.rollback();
-                } catch (SQLException e1) {
-                    throw new IllegalStateException(e1);
-                }
+            existingItems.add(new HashMap<>());
+            tableNames.add(bundle.getTableName());
+            valueColumns.add(bundle.getTypeName());
+        }
+
+        if (refDataBundles.isEmpty()) {
+            return existingItems;
+        }
+
+        try (PreparedStatement sql =
+                connection.prepareStatement(RefDataUtils.unionAllTablesQuery(tableNames, valueColumns));
+                ResultSet resultSet = sql.executeQuery()) {
+            while (resultSet.next()) {
+                existingItems.get(resultSet.getInt(1)).put(resultSet.getLong(2), resultSet.getString(3));
             }
+        } catch (SQLException e) {
+            throw new RefDataLoadException("Unable to read existing items from the reference data tables.", "RDL", 9,
+                e);
+        }
 
-            if (insertMode) {
-                insertReferenceDataItems(connection, bundle.getTableName(), bundle.getDataMap());
+        return existingItems;
+    }
 
-                LOG.fine("Inserted to: " + bundle.getTableName());
+    /**
+     * Brings the reference data items in the table of a bundle into line with the bundle. The id and the value of
+     * existing items should be the same in both, otherwise the existing item is replaced, or an exception is raised if
+     * it is referenced by other data.
+     *
+     * <p/><b>Note:</b>This means that this reference data update command does not handle renames of ref data values
+     * that are in use. Renames are slightly dangerous, if an id change is actually the intention, because an id change
+     * would involve propagating the id into all FK references to it. For this reason an exact match check has been
+     * implemented for referenced values. This could be altered if renames are wanted.
+     *
+     * @param  connection    The database connection.
+     * @param  bundle        The reference data bundle.
+     * @param  existingItems The items already in the table of the bundle, by id.
+     *
+     * @throws RefDataLoadException If an existing, referenced value does not match, or an insert fails.
+     * @throws SQLException         If a delete cannot be rolled back.
+     */
+    private void updateReferenceDataItems(Connection connection, RefDataBundle bundle, Map<Long, String> existingItems)
+        throws RefDataLoadException, SQLException {
+        String tableName = bundle.getTableName();
+        Map<Long, String> itemsToInsert = new LinkedHashMap<>();
+
+        for (Map.Entry<Long, String> entry : bundle.getDataMap().entrySet()) {
+            Long id = entry.getKey();
+            String value = entry.getValue();
+
+            if (!existingItems.containsKey(id)) {
+                itemsToInsert.put(id, value);
             } else {
-                // Keep track of values not in the bundle, as those need to be inserted. A copy of the values is taken,
-                // so that it can be trimmed down as existing values are seen.
-                Map<Long, String> itemsToCheck = new HashMap<>(bundle.getDataMap());
+                String existingValue = existingItems.get(id);
 
-                // Check that existing items exactly match the bundle.
-                checkReferenceDataItems(connection, bundle.getTableName(), bundle.getTypeName(), itemsToCheck);
+                if (value.equals(existingValue)) {
+                    continue;
+                }
+
+                if (!deleteIfUnreferenced(connection, tableName, id)) {
+                    throw new RefDataLoadException("Found existing reference data value (" + id + ", " +
+                        existingValue + ") in table " + tableName +
+                        " that does not match what is required in the reference data bundle, and is in use. The value" +
+                        " in the bundle is " + value + ".", "RDL", 10, null);
+                }
 
-                // Insert any new values not already in the database.
-                insertReferenceDataItems(connection, bundle.getTableName(), itemsToCheck);
+                itemsToInsert.put(id, value);
             }
+        }
 
-            try {
-                connection.commit();
-            } catch (SQLException e) {
-                throw new RefDataLoadException("There was a problem committing the reference data to table " +
-                    bundle.getTableName() + ".", "RDL", 6, e);
+        // Remove any existing items not in the bundle, unless they are in use.
+        for (Map.Entry<Long, String> entry : existingItems.entrySet()) {
+            if (!bundle.getDataMap().containsKey(entry.getKey()) &&
+                    !deleteIfUnreferenced(connection, tableName, entry.getKey())) {
+                LOG.warning("Found existing reference data value (" + entry.getKey() + ", " + entry.getValue() +
+                    ") in table " + tableName + " that is not in the reference data bundle, and is in use.");
             }
+        }
+
+        insertReferenceDataItems(connection, tableName, itemsToInsert);
+    }
+
+    /**
+     * Deletes a reference data item, unless it is referenced by other data. The delete is made within a savepoint, so
+     * that the transaction can carry on should it fail. The savepoint is released once the delete succeeds, so that
+     * savepoints do not pile up in the transaction over a large bundle.
+     *
+     * @param  connection The database connection.
+     * @param  tableName  The database table name.
+     * @param  id         The id of the item to delete.
+     *
+     * @return <tt>true</tt> if the item was deleted, <tt>false</tt> if it is in use and was left in place.
+     *
+     * @throws SQLException If a failed delete cannot be rolled back, or the savepoint cannot be released.
+     */
+    private boolean deleteIfUnreferenced(Connection connection, String tableName, long id) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+
+        try (PreparedStatement sql = connection.prepareStatement("DELETE FROM " + tableName + " WHERE id = ?")) {
+            sql.setLong(1, id);
+            sql.executeUpdate();
+        } catch (SQLException e) {
+            LOG.log(Level.FINE,
+                "Unable to delete reference data item " + id + " from table " + tableName + ", it is in use.", e);
 
+            connection.rollback(savepoint);
+
+            return false;
         }
+
+        connection.releaseSavepoint(savepoint);
+
+        return true;
     }
 
     /**
-     * Inserts reference data items into the table named by <tt>bundle.getTableName()</tt>.
+     * Inserts reference data items into a table in batches.
      *
      * @param  connection The database connection.
      * @param  tableName  The database table name.
@@ -183,69 +295,43 @@ public abstract class RefDataLoadCommand<T extends Configuration> extends Config
      */
     private void insertReferenceDataItems(Connection connection, String tableName, Map<Long, String> items)
         throws RefDataLoadException {
-        for (Map.Entry<Long, String> entry : items.entrySet()) {
-            Long id = entry.getKey();
-            String value = entry.getValue();
+        if (items.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement sql = connection.prepareStatement("INSERT INTO " + tableName + " VALUES (?, ?)")) {
+            int batched = 0;
+
+            for (Map.Entry<Long, String> entry : items.entrySet()) {
+                sql.setLong(1, entry.getKey());
+                sql.setString(2, entry.getValue());
+                sql.addBatch();
 
-            PreparedStatement sql1;
+                if (++batched == BATCH_SIZE) {
+                    sql.executeBatch();
+                    batched = 0;
+                }
+            }
 
-            try {
-                sql1 = connection.prepareStatement("INSERT INTO " + tableName + " VALUES (?, ?)");
-                sql1.setLong(1, id);
-                sql1.setString(2, value);
-                sql1.execute();
-            } catch (SQLException e) {
-                throw new RefDataLoadException("Unable to insert a row into reference data table " +
-                    tableName + ".", "RDL", 5, e);
+            if (batched > 0) {
+                sql.executeBatch();
             }
+        } catch (SQLException e) {
+            throw new RefDataLoadException("Unable to insert rows into reference data table " + tableName + ".", "RDL",
+                5, e);
         }
     }
 
     /**
-     * Checks that existing reference data items in the table named by <tt>bundle.getTableName()</tt> exactly match
-     * those in the specified map of items. The id and the value should be the same in both, otherwise an exception is
-     * raised.
-     *
-     * <p/><b>Note:</b>This means that this reference data update command does not handle renames of ref data values.
-     * Renames are slightly dangerous, if an id change is actually the intention, because an id change would involve
-     * propagating the id into all FK references to it. For this reason an exact match check has been implemented. This
-     * could be altered if renames are wanted.
-     *
-     * @param  connection   The database connection.
-     * @param  tableName    The database table name.
-     * @param  typeName     The name of the reference data type.
-     * @param  itemsToCheck The items to check the table against. Items are removed from this map as they are checked.
+     * Rolls back the current transaction, after a failure.
      *
-     * @throws RefDataLoadException
+     * @param connection The database connection.
      */
-    private void checkReferenceDataItems(Connection connection, String tableName, String typeName,
-        Map<Long, String> itemsToCheck) throws RefDataLoadException {
-        PreparedStatement sql;
-
+    private void rollback(Connection connection) {
         try {
-            sql = connection.prepareStatement("SELECT id, " + typeName + " FROM " + tableName);
-
-            ResultSet resultSet = sql.executeQuery();
-
-            // Every value in the table should exactly match those in the bundle.
-            while (resultSet.next()) {
-                Long idToCheck = resultSet.getLong(1);
-                String valueToCheck = resultSet.getString(2);
-
-                if (itemsToCheck.containsKey(idToCheck)) {
-                    String value = itemsToCheck.remove(idToCheck);
-
-                    if (!value.equals(valueToCheck)) {
-                        throw new RefDataLoadException("Found existing reference data value (" + idToCheck +
-                            ", " + valueToCheck + ") in table " + tableName +
-                            "that does not match what is required in the reference data bundle. The value in the bundle is " +
-                            value + ".", "RDL", 8, null);
-                    }
-                }
-            }
+            connection.rollback();
         } catch (SQLException e) {
-            throw new RefDataLoadException("Unable to read existing items from reference data table " +
-                tableName + ".", "RDL", 9, e);
+            LOG.log(Level.WARNING, "Failed to roll back the reference data transaction.", e);
         }
     }
 
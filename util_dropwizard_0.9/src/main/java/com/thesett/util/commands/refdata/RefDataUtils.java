@@ -2,13 +2,17 @@ package com.thesett.util.commands.refdata;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import com.thesett.aima.attribute.impl.EnumeratedStringAttribute;
@@ -25,6 +29,19 @@ public class RefDataUtils {
     /** Used for debugging purposes. */
     private static final Logger LOG = Logger.getLogger(RefDataUtils.class.getName());
 
+    /** Counts the loads of reference data into the enumerated attribute types. */
+    private static final AtomicLong LOAD_GENERATION = new AtomicLong();
+
+    /**
+     * Provides a count of the loads of reference data into the enumerated attribute types. This changes every time
+     * reference data is loaded, so can be used to tell when anything derived from reference data is out of date.
+     *
+     * @return The count of the loads of reference data.
+     */
+    public static long getLoadGeneration() {
+        return LOAD_GENERATION.get();
+    }
+
     /**
      * Scans a package on the classpath to find all .csv files that it contains.
      *
@@ -60,9 +77,6 @@ public class RefDataUtils {
         for (String resource : resources) {
             LOG.fine("Loading: " + resource);
 
-            InputStream resourceAsStream = RefDataLoadCommand.class.getClassLoader().getResourceAsStream(resource);
-            String csv = ResourceUtils.readStreamAsString(resourceAsStream);
-
             LOG.fine("Parsing: " + resource);
 
             // Work out the table name from the resource name.
@@ -75,10 +89,15 @@ public class RefDataUtils {
             modelName = modelName.substring(0, modelName.indexOf(".csv"));
             modelName = StringUtils.toCamelCase(modelName);
 
-            BufferedReader csvReader = new BufferedReader(new StringReader(csv));
             Map<Long, String> refDataMap = new LinkedHashMap<>();
 
-            processLines(csvReader, refDataMap, resource);
+            // Stream the CSV straight from the resource, decoding it as UTF-8.
+            try (BufferedReader csvReader = ResourceUtils.openUtf8Reader(resource)) {
+                processLines(csvReader, refDataMap, resource);
+            } catch (IOException e) {
+                throw new RefDataLoadException("There was an IO error whilst closing resource " + resource + ".", "RDL",
+                    8, e);
+            }
 
             refDataBundles.add(new RefDataBundle(tableName, modelName, refDataMap));
 
@@ -133,11 +152,96 @@ public class RefDataUtils {
                     attribute.setId(entry.getKey());
                 }
             }
+
+            LOAD_GENERATION.incrementAndGet();
         } catch (RefDataLoadException e) {
             throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Loads the reference data tables for a list of enumeration types from the database in a single query, and
+     * initializes the corresponding enumerated attribute types with their contents. The table for each type is named
+     * after the type in lower case, with an <tt>_enumeration</tt> suffix.
+     *
+     * <p/>It is possible that prior to this method being called, some reference data items may already have been
+     * created (by constructors and so on). For this reason, the enumerated attribute class is not dropped and re-built
+     * from scratch, or existing items will be invalid. Instead any items not already in the attribute class are added,
+     * and the ids on all items whether already existing or new, are correctly set.
+     *
+     * @param  connection    The database connection.
+     * @param  enumTypeNames The names of the enumeration types to load.
+     *
+     * @throws SQLException If the reference data tables cannot be read.
+     */
+    public static void loadEnumerations(Connection connection, List<String> enumTypeNames) throws SQLException {
+        if (enumTypeNames.isEmpty()) {
+            return;
+        }
+
+        List<String> tableNames = new ArrayList<>();
+        List<EnumeratedStringAttribute.EnumeratedStringAttributeFactory> factories = new ArrayList<>();
+        List<Map<String, EnumeratedStringAttribute>> existingValuesByType = new ArrayList<>();
+
+        for (String enumTypeName : enumTypeNames) {
+            tableNames.add(enumTypeName.toLowerCase() + "_" + "enumeration");
+
+            EnumeratedStringAttribute.EnumeratedStringAttributeFactory factory =
+                EnumeratedStringAttribute.getFactoryForClass(enumTypeName);
+
+            // Get the set of already existing values, so that they will not be created again.
+            factory.getType().getAllPossibleValuesIterator(false);
+            existingValuesByType.add(factory.getType().getAllPossibleValuesMap(false));
+
+            // Ensure the attribute class is being re-built.
+            factories.add(EnumeratedStringAttribute.getFactoryForClass(enumTypeName));
+        }
+
+        try (PreparedStatement sql = connection.prepareStatement(unionAllTablesQuery(tableNames, enumTypeNames));
+                ResultSet resultSet = sql.executeQuery()) {
+            while (resultSet.next()) {
+                int index = resultSet.getInt(1);
+                long id = resultSet.getLong(2);
+                String value = resultSet.getString(3);
+
+                EnumeratedStringAttribute attribute = existingValuesByType.get(index).get(value);
+
+                if (attribute == null) {
+                    attribute = factories.get(index).createStringAttribute(value);
+                }
+
+                attribute.setId(id);
+            }
+        }
+
+        LOAD_GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Builds a query that reads the (id, value) rows of a list of reference data tables all at once. Each row is
+     * prefixed with the index of its table in the list. Only the id and value columns are read, so tables may have
+     * other columns as well.
+     *
+     * @param  tableNames   The names of the reference data tables, must not be empty.
+     * @param  valueColumns The names of the value columns of the tables, in the same order as the tables.
+     *
+     * @return A query returning (table index, id, value) rows.
+     */
+    public static String unionAllTablesQuery(List<String> tableNames, List<String> valueColumns) {
+        StringBuilder query = new StringBuilder();
+
+        for (int i = 0; i < tableNames.size(); i++) {
+            if (i > 0) {
+                query.append(" UNION ALL ");
+            }
+
+            query.append("SELECT ").append(i).append(", id, ").append(valueColumns.get(i)).append(" FROM ")
+            .append(tableNames.get(i));
+        }
+
+        return query.toString();
+    }
+
     public static Set<RefDataBundle> getRefDataBundles(String refdataPackage) throws RefDataLoadException {
         // Find all the reference data.
         List<String> resources = findRefData(refdataPackage);
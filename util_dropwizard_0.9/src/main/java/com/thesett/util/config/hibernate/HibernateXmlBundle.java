@@ -1,39 +1,77 @@
 package com.thesett.util.config.hibernate;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.datatype.hibernate4.Hibernate4Module;
 
 import io.dropwizard.Configuration;
 import io.dropwizard.ConfiguredBundle;
 import io.dropwizard.db.DatabaseConfiguration;
+import io.dropwizard.db.ManagedDataSource;
 import io.dropwizard.db.PooledDataSourceFactory;
 import io.dropwizard.hibernate.SessionFactoryHealthCheck;
+import io.dropwizard.hibernate.SessionFactoryManager;
 import io.dropwizard.hibernate.UnitOfWorkApplicationListener;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
 
 import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
 
+import com.thesett.util.metrics.hibernate.HibernateStatisticsMetrics;
+import com.thesett.util.metrics.hibernate.MetricsInterceptor;
 import com.thesett.util.transaction.UnitOfWorkWithDetachApplicationListener;
 
 /**
  * HibernateXmlBundle is a Hibernate resource bundle that uses a Hibernate XML configuration file to build the Hibernate
  * session factory, and not annotated Java classes.
  *
+ * <p/>A second level cache can be set up by overriding {@link #getCacheRegionFactory()}. Which entities and
+ * collections are cached, and with what concurrency strategy, is set in the Hibernate XML mapping or through
+ * {@link #configure(org.hibernate.cfg.Configuration)}.
+ *
+ * <p/>A read replica can be set up by overriding {@link #getReplicaDataSourceFactory(Configuration)}. A second session
+ * factory is then built against the replica, and units of work marked as read-only are run against it, whenever a
+ * {@link ReplicaLagMonitor} finds that it is not lagging too far behind the primary. Otherwise they fall back to the
+ * primary. The two session factories are built at the same time; should either fail to build, the other one and the
+ * replica data source are closed before the failure is passed on. The replica session factory has no second level
+ * cache, so that data read from a lagging replica is never served to units of work against the primary.
+ *
+ * <p/>Hibernate statistics, per-query execution times, per-entity load and flush rates, and N+1 select detection can
+ * be added to the application metrics by overriding {@link #isInstrumented()}.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Register the Hibernate module on bootstrap. </td></tr>
  * <tr><td> Build a Hibernate session factory from XML configuration. </td></tr>
+ * <tr><td> Build a read replica session factory and monitor its lag. </td><td> {@link ReplicaLagMonitor} </td></tr>
  * </table></pre>
  */
 public abstract class HibernateXmlBundle<T extends Configuration> implements ConfiguredBundle<T>,
     DatabaseConfiguration<T> {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(HibernateXmlBundle.class.getName());
+
     /** The default name of the hibernate bundle. */
     public static final String DEFAULT_NAME = "hibernate";
 
     /** The Hibernate session factory built from the configuration. */
     private SessionFactory sessionFactory;
 
+    /** The Hibernate session factory for the read replica, if there is one. */
+    private SessionFactory replicaSessionFactory;
+
+    /** The interceptor that records metrics, when instrumented. */
+    private MetricsInterceptor metricsInterceptor;
+
     /** The session factory builder that sets up from a Hibernate XML mapping. */
     private final XmlSessionFactoryFactory sessionFactoryFactory = new XmlSessionFactoryFactory();
 
@@ -57,17 +95,87 @@ public abstract class HibernateXmlBundle<T extends Configuration> implements Con
     /** {@inheritDoc} */
     public final void run(T configuration, Environment environment) throws ClassNotFoundException {
         PooledDataSourceFactory dbConfig = getDataSourceFactory(configuration);
-        this.sessionFactory = sessionFactoryFactory.build(this, environment, dbConfig, hibernateXmlResourceName);
+        PooledDataSourceFactory replicaConfig = getReplicaDataSourceFactory(configuration);
+
+        if (isInstrumented()) {
+            metricsInterceptor = new MetricsInterceptor(environment.metrics(), DEFAULT_NAME, getNPlusOneThreshold());
+        }
+
+        // Start building the read replica session factory, if there is one, so that it is built at the same time as
+        // the primary one.
+        ManagedDataSource replicaDataSource = null;
+        Future<SessionFactory> replicaBuild = null;
+
+        if (replicaConfig != null) {
+            ManagedDataSource dataSource = replicaConfig.build(environment.metrics(), DEFAULT_NAME + "-replica");
+            ExecutorService replicaBuilder = Executors.newSingleThreadExecutor();
+
+            replicaDataSource = dataSource;
+            replicaBuild =
+                replicaBuilder.submit(() ->
+                        sessionFactoryFactory.buildUnmanagedReplica(this, replicaConfig, dataSource,
+                            hibernateXmlResourceName));
+            replicaBuilder.shutdown();
+        }
+
+        // Build and register the primary session factory, then wait for the replica one. Until the replica session
+        // factory is added to the lifecycle, nothing else will close it or its data source, so that is done here if
+        // anything fails before then.
+        UnitOfWorkWithDetachApplicationListener detachListener;
 
-        // Register the annotations.
-        registerUnitOfWorkWithDetachListerIfAbsent(environment).registerSessionFactory(DEFAULT_NAME, sessionFactory);
-        registerUnitOfWorkListerIfAbsent(environment).registerSessionFactory(DEFAULT_NAME, sessionFactory);
+        try {
+            this.sessionFactory = sessionFactoryFactory.build(this, environment, dbConfig, hibernateXmlResourceName);
 
-        environment.healthChecks()
-            .register(DEFAULT_NAME,
-                new SessionFactoryHealthCheck(environment.getHealthCheckExecutorService(),
-                    dbConfig.getValidationQueryTimeout().or(Duration.seconds(5)), sessionFactory,
-                    dbConfig.getValidationQuery()));
+            // Register the annotations.
+            detachListener = registerUnitOfWorkWithDetachListerIfAbsent(environment);
+            detachListener.registerSessionFactory(DEFAULT_NAME, sessionFactory);
+
+            if (metricsInterceptor != null) {
+                detachListener.registerObserver(metricsInterceptor);
+            }
+
+            registerUnitOfWorkListerIfAbsent(environment).registerSessionFactory(DEFAULT_NAME, sessionFactory);
+
+            environment.healthChecks()
+                .register(DEFAULT_NAME,
+                    new SessionFactoryHealthCheck(environment.getHealthCheckExecutorService(),
+                        dbConfig.getValidationQueryTimeout().or(Duration.seconds(5)), sessionFactory,
+                        dbConfig.getValidationQuery()));
+
+            if (isInstrumented()) {
+                instrument(environment, sessionFactory, DEFAULT_NAME);
+            }
+
+            if (replicaBuild != null) {
+                this.replicaSessionFactory = awaitReplicaBuild(replicaBuild);
+                environment.lifecycle().manage(new SessionFactoryManager(replicaSessionFactory, replicaDataSource));
+            }
+        } catch (ClassNotFoundException | RuntimeException | Error e) {
+            discardReplicaBuild(replicaBuild, replicaDataSource);
+            throw e;
+        }
+
+        // Complete the set up of the read replica.
+        if (replicaSessionFactory != null) {
+            ReplicaLagMonitor lagMonitor =
+                new ReplicaLagMonitor(replicaDataSource, getReplicaLagQuery(), getReplicaMaxLag(),
+                    getReplicaCheckInterval(),
+                    environment.lifecycle().scheduledExecutorService(DEFAULT_NAME + "-replica-lag-%d").build());
+            environment.lifecycle().manage(lagMonitor);
+            environment.metrics()
+                .register(MetricRegistry.name(DEFAULT_NAME + "-replica", "lag"),
+                    (Gauge<Long>) lagMonitor::getLagMillis);
+            environment.metrics()
+                .register(MetricRegistry.name(DEFAULT_NAME + "-replica", "available"),
+                    (Gauge<Boolean>) lagMonitor::isAvailable);
+
+            detachListener.registerReplicaSessionFactory(sessionFactory, replicaSessionFactory,
+                lagMonitor::isAvailable);
+
+            if (isInstrumented()) {
+                instrument(environment, replicaSessionFactory, DEFAULT_NAME + "-replica");
+            }
+        }
     }
 
     /**
@@ -79,19 +187,180 @@ public abstract class HibernateXmlBundle<T extends Configuration> implements Con
         return sessionFactory;
     }
 
+    /**
+     * Provides the configured Hibernate session factory for the read replica.
+     *
+     * @return The configured Hibernate session factory for the read replica, or <tt>null</tt> if there is none.
+     */
+    public SessionFactory getReplicaSessionFactory() {
+        return replicaSessionFactory;
+    }
+
+    /**
+     * Provides the data source factory for a read replica of the database.
+     *
+     * @param  configuration The application configuration.
+     *
+     * @return The data source factory for a read replica, or <tt>null</tt> to not use one, which is the default.
+     */
+    protected PooledDataSourceFactory getReplicaDataSourceFactory(T configuration) {
+        return null;
+    }
+
+    /**
+     * Provides the query used to measure the lag of the read replica in seconds.
+     *
+     * @return The query used to measure the lag of the read replica, or <tt>null</tt> to choose the Postgres query by
+     *         the version of the server, which is the default.
+     */
+    protected String getReplicaLagQuery() {
+        return null;
+    }
+
+    /**
+     * Provides the maximum lag at which the read replica is still read from.
+     *
+     * @return The maximum lag at which the read replica is still read from, 10 seconds by default.
+     */
+    protected Duration getReplicaMaxLag() {
+        return Duration.seconds(10);
+    }
+
+    /**
+     * Provides the interval between measurements of the read replica lag.
+     *
+     * @return The interval between measurements of the read replica lag, 5 seconds by default.
+     */
+    protected Duration getReplicaCheckInterval() {
+        return Duration.seconds(5);
+    }
+
+    /**
+     * Indicates whether Hibernate statistics and other metrics should be recorded into the application metrics.
+     *
+     * @return <tt>true</tt> to record Hibernate metrics, <tt>false</tt> by default.
+     */
+    protected boolean isInstrumented() {
+        return false;
+    }
+
+    /**
+     * Provides the execution time above which a query is reported as slow, when instrumented.
+     *
+     * @return The execution time above which a query is reported as slow, 1 second by default.
+     */
+    protected Duration getSlowQueryThreshold() {
+        return Duration.seconds(1);
+    }
+
+    /**
+     * Provides the number of loads of one entity class, or executions of one SQL statement, within a unit of work
+     * that is reported as a possible N+1 select, when instrumented.
+     *
+     * @return The N+1 select threshold, 50 by default.
+     */
+    protected int getNPlusOneThreshold() {
+        return 50;
+    }
+
     /**
      * Call-back from the {@link XmlSessionFactoryFactory} to provide an opportunity to adjust the Hibernate
-     * configuration.
+     * configuration. When there is a read replica, this is called for both session factories at the same time, from
+     * different threads.
      *
      * @param configuration The Hibernate configuration.
      */
     protected void configure(org.hibernate.cfg.Configuration configuration) {
     }
 
+    /**
+     * Call-back from the {@link XmlSessionFactoryFactory} to provide a Hibernate second level cache region factory.
+     * When one is provided, the second level and query caches and Hibernate statistics are turned on. For example,
+     * the region factory can be built over the cache manager of an infinispan bundle that has already been run.
+     *
+     * @return A Hibernate cache region factory, or <tt>null</tt> to not use a second level cache, which is the default.
+     */
+    protected RegionFactory getCacheRegionFactory() {
+        return null;
+    }
+
+    /**
+     * Provides the interceptor that records metrics, to the {@link XmlSessionFactoryFactory}.
+     *
+     * @return The interceptor that records metrics, or <tt>null</tt> when not instrumented.
+     */
+    MetricsInterceptor getMetricsInterceptor() {
+        return metricsInterceptor;
+    }
+
+    /**
+     * Registers the statistics of a session factory as metrics.
+     *
+     * @param environment    The Drop Wizard environment.
+     * @param sessionFactory The session factory.
+     * @param prefix         The prefix for metric names.
+     */
+    private void instrument(Environment environment, SessionFactory sessionFactory, String prefix) {
+        HibernateStatisticsMetrics statisticsMetrics =
+            new HibernateStatisticsMetrics(sessionFactory, environment.metrics(), prefix, getSlowQueryThreshold(),
+                Duration.seconds(10),
+                environment.lifecycle().scheduledExecutorService(prefix + "-statistics-%d").build());
+        environment.lifecycle().manage(statisticsMetrics);
+    }
+
+    /**
+     * Waits for the read replica session factory to be built.
+     *
+     * @param  replicaBuild The build of the read replica session factory.
+     *
+     * @return The read replica session factory.
+     */
+    private SessionFactory awaitReplicaBuild(Future<SessionFactory> replicaBuild) {
+        try {
+            return replicaBuild.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst building the replica session factory.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException("Failed to build the replica session factory.", e.getCause());
+        }
+    }
+
+    /**
+     * Closes down a read replica session factory that will not be used, as start up has failed. This waits for the
+     * session factory to finish building, if it is still being built, then closes it and the replica data source.
+     *
+     * @param replicaBuild      The build of the read replica session factory, or <tt>null</tt> if there is none.
+     * @param replicaDataSource The replica data source, or <tt>null</tt> if there is none.
+     */
+    private void discardReplicaBuild(Future<SessionFactory> replicaBuild, ManagedDataSource replicaDataSource) {
+        if (replicaBuild == null) {
+            return;
+        }
+
+        try {
+            replicaBuild.get().close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            LOG.log(Level.FINE, "The replica session factory was not built, or could not be closed.", e);
+        }
+
+        try {
+            replicaDataSource.stop();
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to stop the replica data source.", e);
+        }
+    }
+
     private UnitOfWorkWithDetachApplicationListener registerUnitOfWorkWithDetachListerIfAbsent(
         Environment environment) {
         for (Object singleton : environment.jersey().getResourceConfig().getSingletons()) {
-            if (singleton instanceof UnitOfWorkApplicationListener) {
+            if (singleton instanceof UnitOfWorkWithDetachApplicationListener) {
                 return (UnitOfWorkWithDetachApplicationListener) singleton;
             }
         }
@@ -99,6 +368,17 @@ public abstract class HibernateXmlBundle<T extends Configuration> implements Con
         UnitOfWorkWithDetachApplicationListener listener = new UnitOfWorkWithDetachApplicationListener();
         environment.jersey().register(listener);
 
+        // Report how many units of work actually used a connection, as lazy ones may not.
+        environment.metrics()
+            .register(MetricRegistry.name(UnitOfWorkWithDetachApplicationListener.class, "units-of-work"),
+                listener.getUnitOfWorkMeter());
+        environment.metrics()
+            .register(MetricRegistry.name(UnitOfWorkWithDetachApplicationListener.class, "sessions-opened"),
+                listener.getSessionOpenMeter());
+        environment.metrics()
+            .register(MetricRegistry.name(UnitOfWorkWithDetachApplicationListener.class, "replica-units-of-work"),
+                listener.getReplicaUnitOfWorkMeter());
+
         return listener;
     }
 
@@ -0,0 +1,164 @@
+package com.thesett.util.config.hibernate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * ReplicaLagMonitor periodically measures how far a read replica database lags behind its primary, and marks the
+ * replica as unavailable whenever the lag exceeds a limit or cannot be measured. Read-only units of work are only
+ * routed to the replica whilst it is available, and fall back to the primary otherwise.
+ *
+ * <p/>The lag is measured by a query that returns the lag in seconds as its single result. When no query is given, a
+ * query for a Postgres streaming replica is used, chosen by the version of the server, as the functions it uses were
+ * renamed in Postgres 10. It counts the lag as zero when the replica has replayed all that it has received, so that an
+ * idle replica is not mistaken for a lagging one. The replica starts out unavailable, until its first measurement.
+ *
+ * <p/>A lagging replica does not make the application unhealthy, as read-only units of work fall back to the primary.
+ * The last measured lag, and whether the replica is available, are provided to be exposed as gauges instead.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Periodically measure replica lag. </td><td> {@link DataSource} </td></tr>
+ * <tr><td> Report whether the replica is available to read from. </td></tr>
+ * <tr><td> Report the last measured replica lag. </td></tr>
+ * </table></pre>
+ */
+public class ReplicaLagMonitor implements Managed {
+    /** The query to measure the lag of a Postgres 10 or later replica in seconds. */
+    public static final String POSTGRES_LAG_QUERY =
+        "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+        "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    /** The query to measure the lag of a Postgres replica before version 10 in seconds. */
+    public static final String POSTGRES_9_LAG_QUERY =
+        "SELECT CASE WHEN pg_last_xlog_receive_location() = pg_last_xlog_replay_location() THEN 0 " +
+        "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    /** The lag reported when it has not been measured, or could not be. */
+    public static final long UNKNOWN_LAG = -1;
+
+    /** The replica data source. */
+    private final DataSource dataSource;
+
+    /** The query to measure the lag in seconds, or <tt>null</tt> until chosen by the version of the server. */
+    private volatile String lagQuery;
+
+    /** The maximum lag at which the replica is still available. */
+    private final Duration maxLag;
+
+    /** The interval between measurements. */
+    private final Duration interval;
+
+    /** The executor to run measurements on. */
+    private final ScheduledExecutorService executor;
+
+    /** The scheduled measurements, whilst running. */
+    private ScheduledFuture<?> measurements;
+
+    /** Whether the replica is available to read from. */
+    private volatile boolean available;
+
+    /** The last measured lag in milliseconds, or {@link #UNKNOWN_LAG}. */
+    private volatile long lagMillis = UNKNOWN_LAG;
+
+    /**
+     * Creates a replica lag monitor.
+     *
+     * @param dataSource The replica data source.
+     * @param lagQuery   The query to measure the lag in seconds, or <tt>null</tt> to choose the Postgres query by the
+     *                   version of the server.
+     * @param maxLag     The maximum lag at which the replica is still available.
+     * @param interval   The interval between measurements.
+     * @param executor   The executor to run measurements on.
+     */
+    public ReplicaLagMonitor(DataSource dataSource, String lagQuery, Duration maxLag, Duration interval,
+        ScheduledExecutorService executor) {
+        this.dataSource = dataSource;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.interval = interval;
+        this.executor = executor;
+    }
+
+    /** {@inheritDoc} */
+    public void start() {
+        measurements =
+            executor.scheduleWithFixedDelay(this::measure, 0, interval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    /** {@inheritDoc} */
+    public void stop() {
+        if (measurements != null) {
+            measurements.cancel(false);
+            measurements = null;
+        }
+
+        available = false;
+        lagMillis = UNKNOWN_LAG;
+    }
+
+    /**
+     * Reports whether the replica is available to read from, as of the last measurement.
+     *
+     * @return <tt>true</tt> iff the replica is available to read from.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Provides the replica lag, as of the last measurement.
+     *
+     * @return The last measured replica lag in milliseconds, or {@link #UNKNOWN_LAG} if it could not be measured.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Chooses the query to measure the lag of a Postgres replica, by the major version of the server.
+     *
+     * @param  majorVersion The major version of the Postgres server.
+     *
+     * @return The query to measure the lag of the replica in seconds.
+     */
+    public static String postgresLagQuery(int majorVersion) {
+        return (majorVersion >= 10) ? POSTGRES_LAG_QUERY : POSTGRES_9_LAG_QUERY;
+    }
+
+    /**
+     * Measures the replica lag, and updates the availability of the replica.
+     */
+    public void measure() {
+        try (Connection connection = dataSource.getConnection()) {
+            String query = lagQuery;
+
+            if (query == null) {
+                query = postgresLagQuery(connection.getMetaData().getDatabaseMajorVersion());
+                lagQuery = query;
+            }
+
+            try (Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery(query)) {
+                double lagSeconds = resultSet.next() ? resultSet.getDouble(1) : 0;
+                long lag = (long) (lagSeconds * 1000);
+
+                lagMillis = lag;
+                available = lag <= maxLag.toMilliseconds();
+            }
+        } catch (SQLException | RuntimeException e) {
+            available = false;
+            lagMillis = UNKNOWN_LAG;
+        }
+    }
+}
@@ -10,8 +10,11 @@ import io.dropwizard.hibernate.SessionFactoryManager;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Environment;
 
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Interceptor;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cache.spi.RegionFactory;
 import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.engine.jdbc.connections.internal.DatasourceConnectionProviderImpl;
@@ -19,10 +22,28 @@ import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
 import org.hibernate.service.Service;
 import org.hibernate.service.ServiceRegistry;
 
+import com.thesett.util.hibernate.ChainedInterceptor;
+import com.thesett.util.metrics.hibernate.MetricsInterceptor;
+import com.thesett.util.transaction.LazyManagedSessionContext;
+
 /**
+ * XmlSessionFactoryFactory builds Hibernate session factories from a Hibernate XML mapping, for a
+ * {@link HibernateXmlBundle}.
+ *
+ * <p/>Session factories can be built without being added to the lifecycle of the environment, so that several can be
+ * built at once on different threads.
+ *
+ * <p/>Session factories for read replicas are built without a second level cache. The cache regions of a region factory
+ * are shared by all session factories built with it, and a replica that lags behind the primary would put stale data
+ * into them, which primary sessions would then serve as current.
+ *
+ * <p/>The XML mapping is parsed afresh for every session factory. Hibernate 4.3 binds the mapping only when the session
+ * factory is built, and has no serializable form of the bound metadata, so there is nothing worth caching between
+ * starts.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
- * <tr><td>  </td></tr>
+ * <tr><td> Build a session factory from a Hibernate XML mapping. </td><td> {@link HibernateXmlBundle} </td></tr>
  * </table></pre>
  */
 public class XmlSessionFactoryFactory {
@@ -62,10 +83,7 @@ public class XmlSessionFactoryFactory {
     public SessionFactory build(HibernateXmlBundle<?> bundle, Environment environment,
         PooledDataSourceFactory PooledDataSourceFactory, ManagedDataSource dataSource, String hibernateXmlResourceName)
         throws ClassNotFoundException {
-        ConnectionProvider provider = buildConnectionProvider(dataSource, PooledDataSourceFactory.getProperties());
-        SessionFactory factory =
-            buildSessionFactory(bundle, PooledDataSourceFactory, provider, PooledDataSourceFactory.getProperties(),
-                hibernateXmlResourceName);
+        SessionFactory factory = buildUnmanaged(bundle, PooledDataSourceFactory, dataSource, hibernateXmlResourceName);
         Managed managedFactory = new SessionFactoryManager(factory, dataSource);
 
         environment.lifecycle().manage(managedFactory);
@@ -73,6 +91,47 @@ public class XmlSessionFactoryFactory {
         return factory;
     }
 
+    /**
+     * Builds a Hibernate session factory from a {@link HibernateXmlBundle} configuration bundle, without adding it to
+     * the lifecycle of the environment. This does not touch the environment, so can be run on a separate thread, in
+     * order to build several session factories at once.
+     *
+     * @param  bundle                   The Hibernate XML configuration bundle.
+     * @param  PooledDataSourceFactory  A Drop Wizard data source factory.
+     * @param  dataSource               A managed data source built from the data source factory.
+     * @param  hibernateXmlResourceName The name of the resource on the classpath to load the Hiberate XML config from.
+     *
+     * @return A Hibernate session factory, that is not yet managed.
+     */
+    public SessionFactory buildUnmanaged(HibernateXmlBundle<?> bundle, PooledDataSourceFactory PooledDataSourceFactory,
+        ManagedDataSource dataSource, String hibernateXmlResourceName) {
+        ConnectionProvider provider = buildConnectionProvider(dataSource, PooledDataSourceFactory.getProperties());
+
+        return buildSessionFactory(bundle, PooledDataSourceFactory, provider, PooledDataSourceFactory.getProperties(),
+                hibernateXmlResourceName, false);
+    }
+
+    /**
+     * Builds a Hibernate session factory for a read replica from a {@link HibernateXmlBundle} configuration bundle,
+     * without adding it to the lifecycle of the environment, and without a second level cache. This does not touch the
+     * environment, so can be run on a separate thread, in order to build several session factories at once.
+     *
+     * @param  bundle                   The Hibernate XML configuration bundle.
+     * @param  PooledDataSourceFactory  A Drop Wizard data source factory for the read replica.
+     * @param  dataSource               A managed data source built from the data source factory.
+     * @param  hibernateXmlResourceName The name of the resource on the classpath to load the Hiberate XML config from.
+     *
+     * @return A Hibernate session factory for the read replica, that is not yet managed.
+     */
+    public SessionFactory buildUnmanagedReplica(HibernateXmlBundle<?> bundle,
+        PooledDataSourceFactory PooledDataSourceFactory, ManagedDataSource dataSource,
+        String hibernateXmlResourceName) {
+        ConnectionProvider provider = buildConnectionProvider(dataSource, PooledDataSourceFactory.getProperties());
+
+        return buildSessionFactory(bundle, PooledDataSourceFactory, provider, PooledDataSourceFactory.getProperties(),
+                hibernateXmlResourceName, true);
+    }
+
     /**
      * Creates a {@link ConnectionProvider} from a data source.
      *
@@ -97,27 +156,45 @@ public class XmlSessionFactoryFactory {
      * @param  connectionProvider       A Drop Wizard connection provider.
      * @param  properties               Additional data source configuration properties.
      * @param  hibernateXmlResourceName The name of the resource on the classpath to load the Hiberate XML config from.
+     * @param  replica                  <tt>true</tt> to build a session factory for a read replica, without a second
+     *                                  level cache.
      *
      * @return A Hibernate session factory.
      */
     private SessionFactory buildSessionFactory(HibernateXmlBundle<?> bundle,
         PooledDataSourceFactory PooledDataSourceFactory, Service connectionProvider,
-        Map<String, String> properties, String hibernateXmlResourceName) {
+        Map<String, String> properties, String hibernateXmlResourceName, boolean replica) {
         Configuration configuration = new Configuration();
 
         // Set up some configuration properties for Hibernate.
-        configuration.setProperty(AvailableSettings.CURRENT_SESSION_CONTEXT_CLASS, "managed");
+        configuration.setProperty(AvailableSettings.CURRENT_SESSION_CONTEXT_CLASS,
+            LazyManagedSessionContext.class.getName());
         configuration.setProperty(AvailableSettings.USE_SQL_COMMENTS,
             Boolean.toString(PooledDataSourceFactory.isAutoCommentsEnabled()));
         configuration.setProperty(AvailableSettings.USE_GET_GENERATED_KEYS, "true");
-        configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, "false");
-        configuration.setProperty(AvailableSettings.SHOW_SQL, "true");
         configuration.setProperty(AvailableSettings.USE_REFLECTION_OPTIMIZER, "true");
         configuration.setProperty(AvailableSettings.ORDER_UPDATES, "true");
         configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
         configuration.setProperty(AvailableSettings.USE_NEW_ID_GENERATOR_MAPPINGS, "true");
         configuration.setProperty("jadira.usertype.autoRegisterUserTypes", "true");
 
+        // Turn on the second level and query caches if the bundle supplies a cache region factory, other than for a
+        // replica. Statistics are turned on too, so that cache hit ratios can be seen.
+        RegionFactory regionFactory = replica ? null : bundle.getCacheRegionFactory();
+
+        if (regionFactory != null) {
+            configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+            configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, "true");
+            configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+        }
+
+        // Turn on statistics if the bundle is instrumented, as they are exposed as metrics.
+        MetricsInterceptor metricsInterceptor = bundle.getMetricsInterceptor();
+
+        if (metricsInterceptor != null) {
+            configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+        }
+
         // Apply the configuration properties from the data source to the hibernate configuration, it needs
         // this to know where to get its data source from.
         for (Map.Entry<String, String> property : properties.entrySet()) {
@@ -127,14 +204,39 @@ public class XmlSessionFactoryFactory {
         // Call back onto the HibernateXMLBundle to allow it to adjust the configuration as needed.
         bundle.configure(configuration);
 
+        // Make sure that a replica has no second level or query cache, whatever the bundle configured.
+        if (replica) {
+            configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+            configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, "false");
+        }
+
         configuration.addResource(hibernateXmlResourceName);
 
+        // Chain the metrics interceptor after any interceptor set up by the bundle. A new chain is always built, as the
+        // bundle may share its interceptor between session factories.
+        if (metricsInterceptor != null) {
+            ChainedInterceptor chain = new ChainedInterceptor();
+            Interceptor interceptor = configuration.getInterceptor();
+
+            if (interceptor != EmptyInterceptor.INSTANCE) {
+                chain.addInterceptor(interceptor);
+            }
+
+            chain.addInterceptor(metricsInterceptor);
+            configuration.setInterceptor(chain);
+        }
+
         // Add the connection provider to the Hibernate service registry, so it knows where to find it when it needs
-        // to create connections.
-        ServiceRegistry registry =
+        // to create connections. The cache region factory is added in the same way, when there is one.
+        StandardServiceRegistryBuilder registryBuilder =
             new StandardServiceRegistryBuilder().addService(ConnectionProvider.class, connectionProvider)
-            .applySettings(properties)
-            .build();
+            .applySettings(properties);
+
+        if (regionFactory != null) {
+            registryBuilder.addService(RegionFactory.class, regionFactory);
+        }
+
+        ServiceRegistry registry = registryBuilder.build();
 
         return configuration.buildSessionFactory(registry);
     }
@@ -2,11 +2,9 @@ package com.thesett.util.config.model;
 
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Collection;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -29,8 +27,8 @@ import com.thesett.catalogue.core.CatalogueModelFactory;
 import com.thesett.catalogue.model.Catalogue;
 import com.thesett.catalogue.setup.CatalogueDefinition;
 import com.thesett.common.parsing.SourceCodeException;
+import com.thesett.util.commands.refdata.RefDataUtils;
 import com.thesett.util.config.ConfigurationUtils;
-import com.thesett.util.jdbc.JDBCUtils;
 
 /**
  * ModelSetupBundle performs application start-up time configurations to prepare a catalogue model for use. It loads and
@@ -114,58 +112,24 @@ public abstract class ModelSetupBundle<T extends Configuration> implements Confi
      * <p/>It is possible that prior to this method being called, some reference data items may already have been
      * created (by constructors and so on). For this reason, the enumerated attribute class is not dropped and re-built
      * from scratch, or existing items will be invalid. Instead any items not already in the attribute class are added,
-     * and the ids on all items whether already existing or new, are correctly set.
+     * and the ids on all items whether already existing or new, are correctly set. All of the tables are read in a
+     * single query.
      *
      * @param config The DropWizard configuration, to get the database connection settings from.
      */
     private void initializeReferenceData(T config) {
         BasicDataSource ds = ConfigurationUtils.getBasicDataSource(getDataSourceFactory(config));
 
-        Connection connection = null;
-        PreparedStatement sql = null;
+        List<String> enumTypeNames = new ArrayList<>();
 
-        try {
-            connection = ds.getConnection();
-
-            Collection<EnumeratedStringAttribute.EnumeratedStringType> enumTypes = model.getAllEnumTypes();
-
-            for (EnumeratedStringAttribute.EnumeratedStringType enumType : enumTypes) {
-                String tableName = enumType.getName().toLowerCase() + "_" + "enumeration";
-                EnumeratedStringAttribute.EnumeratedStringAttributeFactory factory =
-                    EnumeratedStringAttribute.getFactoryForClass(enumType.getName());
-
-                // Get the set of already existing values, so that they will not be created again.
-                factory.getType().getAllPossibleValuesIterator(false);
-
-                Map<String, EnumeratedStringAttribute> existingValues =
-                    factory.getType().getAllPossibleValuesMap(false);
-
-                // Ensure the attribute class is being re-built.
-                factory = EnumeratedStringAttribute.getFactoryForClass(enumType.getName());
-
-                sql = connection.prepareStatement("SELECT * FROM " + tableName);
-
-                ResultSet resultSet = sql.executeQuery();
-
-                while (resultSet.next()) {
-                    long id = resultSet.getLong(1);
-                    String value = resultSet.getString(2);
-
-                    EnumeratedStringAttribute attribute = null;
-
-                    if (!existingValues.containsKey(value)) {
-                        attribute = factory.createStringAttribute(value);
-                    } else {
-                        attribute = existingValues.get(value);
-                    }
+        for (EnumeratedStringAttribute.EnumeratedStringType enumType : model.getAllEnumTypes()) {
+            enumTypeNames.add(enumType.getName());
+        }
 
-                    attribute.setId(id);
-                }
-            }
+        try (Connection connection = ds.getConnection()) {
+            RefDataUtils.loadEnumerations(connection, enumTypeNames);
         } catch (SQLException e) {
             throw new IllegalStateException(e);
-        } finally {
-            JDBCUtils.closeConnection(connection, sql);
         }
     }
 }
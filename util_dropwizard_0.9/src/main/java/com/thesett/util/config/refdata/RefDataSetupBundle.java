@@ -1,13 +1,10 @@
 package com.thesett.util.config.refdata;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import io.dropwizard.Configuration;
@@ -17,13 +14,11 @@ import io.dropwizard.setup.Environment;
 
 import org.apache.commons.dbcp2.BasicDataSource;
 
-import com.thesett.aima.attribute.impl.EnumeratedStringAttribute;
 import com.thesett.util.commands.refdata.RefDataBundle;
 import com.thesett.util.commands.refdata.RefDataLoadConfiguration;
 import com.thesett.util.commands.refdata.RefDataLoadException;
 import com.thesett.util.commands.refdata.RefDataUtils;
 import com.thesett.util.config.ConfigurationUtils;
-import com.thesett.util.jdbc.JDBCUtils;
 
 /**
  * RefDataSetupBundle performs checks on the reference data at application start up time.
@@ -92,58 +87,18 @@ public abstract class RefDataSetupBundle<T extends Configuration> implements Con
      * <p/>It is possible that prior to this method being called, some reference data items may already have been
      * created (by constructors and so on). For this reason, the enumerated attribute class is not dropped and re-built
      * from scratch, or existing items will be invalid. Instead any items not already in the attribute class are added,
-     * and the ids on all items whether already existing or new, are correctly set.
+     * and the ids on all items whether already existing or new, are correctly set. All of the tables are read in a
+     * single query.
      *
      * @param config The DropWizard configuration, to get the database connection settings from.
      */
     private void initializeReferenceData(T config) {
         BasicDataSource ds = ConfigurationUtils.getBasicDataSource(getDataSourceFactory(config));
 
-        Connection connection = null;
-        PreparedStatement sql = null;
-
-        try {
-            connection = ds.getConnection();
-
-            // Collection<EnumeratedStringAttribute.EnumeratedStringType> enumTypes = model.getAllEnumTypes();
-
-            for (String enumTypeName : refdataTypes) {
-                String tableName = enumTypeName.toLowerCase() + "_" + "enumeration";
-                EnumeratedStringAttribute.EnumeratedStringAttributeFactory factory =
-                    EnumeratedStringAttribute.getFactoryForClass(enumTypeName);
-
-                // Get the set of already existing values, so that they will not be created again.
-                factory.getType().getAllPossibleValuesIterator(false);
-
-                Map<String, EnumeratedStringAttribute> existingValues =
-                    factory.getType().getAllPossibleValuesMap(false);
-
-                // Ensure the attribute class is being re-built.
-                factory = EnumeratedStringAttribute.getFactoryForClass(enumTypeName);
-
-                sql = connection.prepareStatement("SELECT * FROM " + tableName);
-
-                ResultSet resultSet = sql.executeQuery();
-
-                while (resultSet.next()) {
-                    long id = resultSet.getLong(1);
-                    String value = resultSet.getString(2);
-
-                    EnumeratedStringAttribute attribute = null;
-
-                    if (!existingValues.containsKey(value)) {
-                        attribute = factory.createStringAttribute(value);
-                    } else {
-                        attribute = existingValues.get(value);
-                    }
-
-                    attribute.setId(id);
-                }
-            }
+        try (Connection connection = ds.getConnection()) {
+            RefDataUtils.loadEnumerations(connection, refdataTypes);
         } catch (SQLException e) {
             throw new IllegalStateException(e);
-        } finally {
-            JDBCUtils.closeConnection(connection, sql);
         }
     }
 }
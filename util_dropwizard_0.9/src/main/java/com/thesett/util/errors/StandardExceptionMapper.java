@@ -15,6 +15,10 @@
  */
 package com.thesett.util.errors;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,7 +26,11 @@ import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.thesett.util.entity.EntityValidationException;
+import com.thesett.util.error.StackTraceRateLimiter;
 
 import org.apache.shiro.authz.UnauthorizedException;
 import org.hibernate.ObjectNotFoundException;
@@ -31,10 +39,22 @@ import org.hibernate.exception.ConstraintViolationException;
 /**
  * StarsExceptionMapper maps unhandled runtime exceptions to appropriate HTTP responses.
  *
+ * <p/>Exceptions are mapped through a table of named mappings keyed by exception class. An exception takes the mapping
+ * of the closest of its classes that has one, or the {@link #UNHANDLED} mapping, which gives a server error, if none
+ * do. The mapping found for each exception class is cached. Further mappings can be added with
+ * {@link #addMapping(Class, String, int)}.
+ *
+ * <p/>The number of exceptions mapped by each mapping is counted, by a counter in a metric registry named after the
+ * mapping, which is created as the mapping is added. Exceptions mapped to server errors are logged with their stack
+ * traces, but only as many of each kind as a {@link StackTraceRateLimiter} lets through, so that a storm of failures
+ * does not make logging the bottleneck. The number of stack traces suppressed is a gauge in the same registry.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Map Hibernate constraint violations to validation errors. </td></tr>
  * <tr><td> Map Jersey not found to an HTTP No Content. </td></tr>
+ * <tr><td> Count the exceptions mapped by each mapping. </td><td> {@link MetricRegistry} </td></tr>
+ * <tr><td> Log server errors, limiting the rate. </td><td> {@link StackTraceRateLimiter} </td></tr>
  * </table></pre>
  */
 public class StandardExceptionMapper implements ExceptionMapper<Exception>
@@ -49,55 +69,243 @@ public class StandardExceptionMapper implements ExceptionMapper<Exception>
 
     public static final int FORBIDDEN = 403;
 
+    /** The name of the mapping for exceptions that no other mapping covers. */
+    public static final String UNHANDLED = "unhandled";
+
+    /** The lowest status code that is a server error. */
+    private static final int SERVER_ERROR = 500;
+
+    /** Holds the mappings, by exception class. */
+    private final Map<Class<?>, Mapping> mappings = new ConcurrentHashMap<>();
+
+    /** Holds the mappings, by name. */
+    private final Map<String, Mapping> mappingsByName = new ConcurrentHashMap<>();
+
+    /** Caches the mapping found for each exception class. */
+    private final Map<Class<?>, Mapping> resolved = new ConcurrentHashMap<>();
+
+    /** The metric registry to count the exceptions mapped in. */
+    private final MetricRegistry registry;
+
+    /** The prefix for metric names. */
+    private final String prefix;
+
+    /** The mapping for exceptions that no other mapping covers. */
+    private final Mapping unhandled;
+
+    /** Decides which server errors are logged in full. */
+    private final StackTraceRateLimiter rateLimiter;
+
+    /**
+     * Creates the exception mapper, with the standard mappings and the default logging rate limit. Its counts are
+     * kept in a registry of its own, and are only available through {@link #getErrorCount(String)}.
+     */
+    public StandardExceptionMapper()
+    {
+        this(new StackTraceRateLimiter());
+    }
+
+    /**
+     * Creates the exception mapper, with the standard mappings. Its counts are kept in a registry of its own, and are
+     * only available through {@link #getErrorCount(String)}.
+     *
+     * @param rateLimiter Decides which server errors are logged in full.
+     */
+    public StandardExceptionMapper(StackTraceRateLimiter rateLimiter)
+    {
+        this(rateLimiter, new MetricRegistry(), MetricRegistry.name(StandardExceptionMapper.class));
+    }
+
+    /**
+     * Creates the exception mapper, with the standard mappings and the default logging rate limit, counting the
+     * exceptions mapped in a metric registry.
+     *
+     * @param registry The metric registry to count the exceptions mapped in.
+     * @param prefix   The prefix for metric names.
+     */
+    public StandardExceptionMapper(MetricRegistry registry, String prefix)
+    {
+        this(new StackTraceRateLimiter(), registry, prefix);
+    }
+
+    /**
+     * Creates the exception mapper, with the standard mappings, counting the exceptions mapped in a metric registry.
+     *
+     * @param rateLimiter Decides which server errors are logged in full.
+     * @param registry    The metric registry to count the exceptions mapped in.
+     * @param prefix      The prefix for metric names.
+     */
+    public StandardExceptionMapper(StackTraceRateLimiter rateLimiter, MetricRegistry registry, String prefix)
+    {
+        this.rateLimiter = rateLimiter;
+        this.registry = registry;
+        this.prefix = prefix;
+
+        registry.register(MetricRegistry.name(prefix, "suppressed-traces"),
+            (Gauge<Long>) rateLimiter::getSuppressedCount);
+
+        unhandled = new Mapping(SERVER_ERROR, errorCounter(UNHANDLED));
+        mappingsByName.put(UNHANDLED, unhandled);
+
+        addMapping(ConstraintViolationException.class, "constraint-violation", UNPROCESSABLE_ENTITY);
+        addMapping(ObjectNotFoundException.class, "object-not-found", UNPROCESSABLE_ENTITY);
+        addMapping(NotFoundException.class, "not-found", Response.Status.NOT_FOUND.getStatusCode());
+        addMapping(EntityValidationException.class, "entity-validation", UNPROCESSABLE_ENTITY);
+        addMapping(UnauthorizedException.class, "unauthorized", FORBIDDEN);
+    }
+
+    /**
+     * Adds a mapping from a class of exceptions, and its sub-classes, to an HTTP status code.
+     *
+     * @param exceptionClass The class of exceptions to map.
+     * @param name           The name of the mapping, which its counter is registered under.
+     * @param status         The HTTP status code to map to.
+     */
+    public void addMapping(Class<? extends Exception> exceptionClass, String name, int status)
+    {
+        Mapping mapping = new Mapping(status, errorCounter(name));
+
+        mappings.put(exceptionClass, mapping);
+        mappingsByName.put(name, mapping);
+
+        // The closest mapping to some exception classes may have changed.
+        resolved.clear();
+    }
+
     /** {@inheritDoc} */
     public Response toResponse(Exception runtime)
     {
-        if (runtime instanceof ConstraintViolationException)
-        {
-            return Response.status(UNPROCESSABLE_ENTITY).entity(runtime.getMessage()).type(TEXT_PLAIN).build();
-        }
-        else if (runtime instanceof ObjectNotFoundException)
-        {
-            return Response.status(UNPROCESSABLE_ENTITY).entity(runtime.getMessage()).type(TEXT_PLAIN).build();
-        }
-        else if (runtime instanceof NotFoundException)
-        {
-            return Response.status(Response.Status.NOT_FOUND).entity(runtime.getMessage()).type(TEXT_PLAIN).build();
-        }
-        else if (runtime instanceof EntityValidationException)
-        {
-            return Response.status(UNPROCESSABLE_ENTITY).entity(runtime.getMessage()).type(TEXT_PLAIN).build();
-        }
-        else if (runtime instanceof UnauthorizedException)
+        Mapping mapping = mappingFor(runtime.getClass());
+        mapping.count.inc();
+
+        if (mapping.status >= SERVER_ERROR)
         {
-            return Response.status(FORBIDDEN).entity(runtime.getMessage()).type(TEXT_PLAIN).build();
+            // Ensure all unhandled exceptions are reported.
+            log(runtime);
         }
 
-        return defaultResponse(runtime);
+        return Response.status(mapping.status).entity(runtime.getMessage()).type(TEXT_PLAIN).build();
+    }
+
+    /**
+     * Provides the names of all mappings.
+     *
+     * @return The names of all mappings.
+     */
+    public Collection<String> getMappingNames()
+    {
+        return Collections.unmodifiableSet(mappingsByName.keySet());
+    }
+
+    /**
+     * Provides the number of exceptions mapped by a mapping.
+     *
+     * @param  name The name of the mapping.
+     *
+     * @return The number of exceptions mapped by the mapping, or zero if there is no such mapping.
+     */
+    public long getErrorCount(String name)
+    {
+        Mapping mapping = mappingsByName.get(name);
+
+        return (mapping == null) ? 0 : mapping.count.getCount();
+    }
+
+    /**
+     * Provides the rate limiter for logging server errors, so that the number of them suppressed can be monitored.
+     *
+     * @return The rate limiter for logging server errors.
+     */
+    public StackTraceRateLimiter getRateLimiter()
+    {
+        return rateLimiter;
+    }
+
+    /**
+     * Provides the counter for the exceptions mapped by a mapping, creating it in the metric registry if needed.
+     *
+     * @param  name The name of the mapping.
+     *
+     * @return The counter for the exceptions mapped by the mapping.
+     */
+    private Counter errorCounter(String name)
+    {
+        return registry.counter(MetricRegistry.name(prefix, "errors", name));
     }
 
     /**
-     * Ensures that all unhandled exceptions are reported.
+     * Finds the mapping for a class of exceptions, from the closest of its classes that has one.
      *
-     * @param  runtime An unhandled runtime exception.
+     * @param  exceptionClass The class of exceptions.
      *
-     * @return A server 500 error code.
+     * @return The mapping for the class of exceptions.
      */
-    private Response defaultResponse(Exception runtime)
+    private Mapping mappingFor(Class<?> exceptionClass)
     {
-        // Ensure all unhandled exceptions are logged.
-        log(runtime);
+        Mapping mapping = resolved.get(exceptionClass);
+
+        if (mapping == null)
+        {
+            mapping = unhandled;
+
+            for (Class<?> cls = exceptionClass; cls != null; cls = cls.getSuperclass())
+            {
+                Mapping next = mappings.get(cls);
+
+                if (next != null)
+                {
+                    mapping = next;
+
+                    break;
+                }
+            }
+
+            resolved.put(exceptionClass, mapping);
+        }
 
-        return Response.serverError().entity(runtime.getMessage()).type(TEXT_PLAIN).build();
+        return mapping;
     }
 
     /**
-     * Used to log all unhandled exceptions.
+     * Used to log all unhandled exceptions, unless too many of the same kind have been logged recently.
      *
      * @param runtime An unhanlded exception to log.
      */
     private void log(Exception runtime)
     {
-        LOG.log(Level.SEVERE, runtime.getMessage(), runtime);
+        long suppressed = rateLimiter.acquire(runtime);
+
+        if (suppressed == StackTraceRateLimiter.SUPPRESSED)
+        {
+            return;
+        }
+
+        String message =
+            (suppressed == 0) ? runtime.getMessage()
+                              : (runtime.getMessage() + " (" + suppressed + " similar suppressed)");
+
+        LOG.log(Level.SEVERE, message, runtime);
+    }
+
+    /** Mapping maps a class of exceptions to an HTTP status code, and counts the exceptions mapped. */
+    private static class Mapping
+    {
+        /** The HTTP status code to map to. */
+        private final int status;
+
+        /** Counts the exceptions mapped. */
+        private final Counter count;
+
+        /**
+         * Creates a mapping.
+         *
+         * @param status The HTTP status code to map to.
+         * @param count  Counts the exceptions mapped.
+         */
+        Mapping(int status, Counter count)
+        {
+            this.status = status;
+            this.count = count;
+        }
     }
 }
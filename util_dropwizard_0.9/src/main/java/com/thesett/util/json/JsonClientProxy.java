@@ -1,10 +1,16 @@
 package com.thesett.util.json;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import io.dropwizard.jackson.Jackson;
 
@@ -22,9 +28,17 @@ import io.dropwizard.jackson.Jackson;
  * new Class[] { ManageApplicationsService.class }, new JsonClientProxy(port));
  * </pre>
  *
+ * <p/>How values are copied is chosen by a {@link Mode}. By default, values are written to a buffer of JSON tokens and
+ * read back, which runs the same serializers and deserializers as a webservice call would, but without rendering or
+ * parsing JSON text. Readers and writers are cached by class. Values that are immutable, such as strings, numbers and
+ * enums, are passed through as they are in every mode, as copying them can make no difference. A value that cannot be
+ * copied structurally is copied through JSON tokens instead.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities <th> Collaborations
- * <tr><td> Force serialisation through JSON. </td></tr>
+ * <tr><td> Force serialisation through JSON. </td><td> {@link ObjectMapper} </td></tr>
+ * <tr><td> Cache readers and writers by class. </td></tr>
+ * <tr><td> Copy values structurally, without JSON. </td><td> {@link StructuralCopier} </td></tr>
  * </table></pre>
  *
  * @author Rupert Smith
@@ -33,30 +47,50 @@ public class JsonClientProxy implements InvocationHandler {
     /** Used to convert to JSON and back. */
     private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
 
+    /** Holds readers by class. */
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    /** Holds writers by class. */
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
     /** The object being proxied. */
     private final Object obj;
 
+    /** How values are copied. */
+    private final Mode mode;
+
     /**
-     * Creates an instance of the standalone webservice test proxy.
+     * Creates an instance of the standalone webservice test proxy, that copies values through JSON tokens.
      *
      * @param obj The object being proxied.
      */
     public JsonClientProxy(Object obj) {
+        this(obj, Mode.TOKENS);
+    }
+
+    /**
+     * Creates an instance of the standalone webservice test proxy.
+     *
+     * @param obj  The object being proxied.
+     * @param mode How values are copied.
+     */
+    public JsonClientProxy(Object obj, Mode mode) {
         this.obj = obj;
+        this.mode = mode;
     }
 
     /** {@inheritDoc} */
     public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
-        Object[] serdesArgs = new Object[args.length];
+        Object[] serdesArgs = null;
 
         // Push the arguments through JSON.
-        for (int i = 0; i < args.length; i++) {
-            Object arg = args[i];
+        if (args != null) {
+            serdesArgs = new Object[args.length];
+
+            Class<?>[] parameterTypes = m.getParameterTypes();
 
-            if (arg == null) {
-                serdesArgs[i] = null;
-            } else {
-                serdesArgs[i] = MAPPER.readValue(MAPPER.writeValueAsString(arg), arg.getClass());
+            for (int i = 0; i < args.length; i++) {
+                serdesArgs[i] = serdes(args[i], parameterTypes[i]);
             }
         }
 
@@ -68,15 +102,97 @@ public class JsonClientProxy implements InvocationHandler {
             throw e.getCause();
         }
 
-        Object serdesResult;
-
         // Push the return value through JSON.
-        if (result == null) {
-            serdesResult = null;
-        } else {
-            serdesResult = MAPPER.readValue(MAPPER.writeValueAsString(result), result.getClass());
+        return serdes(result, m.getReturnType());
+    }
+
+    /**
+     * Copies a value, in the way chosen by the mode.
+     *
+     * @param  value        The value to copy, may be <tt>null</tt>.
+     * @param  declaredType The type the copy must be assignable to.
+     *
+     * @return The copy.
+     *
+     * @throws IOException If the value cannot be serialized or deserialized.
+     */
+    private Object serdes(Object value, Class<?> declaredType) throws IOException {
+        if ((value == null) || StructuralCopier.isImmutable(value)) {
+            return value;
+        }
+
+        Class<?> valueClass = value.getClass();
+
+        switch (mode) {
+        case TEXT:
+            return readerFor(valueClass).readValue(writerFor(valueClass).writeValueAsBytes(value));
+
+        case STRUCTURAL_COPY:
+
+            try {
+                return StructuralCopier.copy(value, declaredType);
+            } catch (IllegalStateException e) {
+                // Falls through to JSON tokens, for values that cannot be copied structurally.
+            }
+
+        case TOKENS:
+        default:
+
+            TokenBuffer buffer = new TokenBuffer(MAPPER, false);
+            writerFor(valueClass).writeValue(buffer, value);
+
+            return readerFor(valueClass).readValue(buffer.asParser());
         }
+    }
+
+    /**
+     * Provides a cached reader for a class.
+     *
+     * @param  theClass The class to read.
+     *
+     * @return A reader for the class.
+     */
+    private static ObjectReader readerFor(Class<?> theClass) {
+        ObjectReader reader = READERS.get(theClass);
+
+        if (reader == null) {
+            reader = MAPPER.readerFor(theClass);
+            READERS.put(theClass, reader);
+        }
+
+        return reader;
+    }
+
+    /**
+     * Provides a cached writer for a class.
+     *
+     * @param  theClass The class to write.
+     *
+     * @return A writer for the class.
+     */
+    private static ObjectWriter writerFor(Class<?> theClass) {
+        ObjectWriter writer = WRITERS.get(theClass);
+
+        if (writer == null) {
+            writer = MAPPER.writerFor(theClass);
+            WRITERS.put(theClass, writer);
+        }
+
+        return writer;
+    }
+
+    /** Mode chooses how the proxy copies arguments and return values. */
+    public enum Mode {
+        /** Values are written as JSON text and parsed back, exactly as over the wire. */
+        TEXT,
+
+        /** Values are written as JSON tokens and read back, which avoids rendering and parsing text. */
+        TOKENS,
 
-        return serdesResult;
+        /**
+         * Values are deep copied without JSON, which is fastest, but does not check that values can be serialized and
+         * deserialized.
+         */
+        STRUCTURAL_COPY
     }
 }
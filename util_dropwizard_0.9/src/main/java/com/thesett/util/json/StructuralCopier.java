@@ -0,0 +1,378 @@
+package com.thesett.util.json;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StructuralCopier makes deep copies of object graphs, without going through JSON at all. It is used by the
+ * {@link JsonClientProxy} to isolate callers from callees, where the cost of serialization is not wanted.
+ *
+ * <p/>Values that are immutable are shared rather than copied. Arrays, collections and maps are copied element by
+ * element; lists become {@link ArrayList}s, sets become {@link LinkedHashSet}s or {@link TreeSet}s, and maps become
+ * {@link LinkedHashMap}s or {@link TreeMap}s, much as Jackson would deserialize them. Where that would not fit the
+ * declared type of the field or value being copied, such as a field declared as a {@link java.util.LinkedList} or a
+ * {@link ConcurrentHashMap}, the copy is made of the same class as the original instead, through its public no-arg
+ * constructor; enum sets and maps are copied as such. Dates are copied. Any other object from the JDK is shared. All
+ * other objects are copied field by field, through their no-arg constructors; static fields are left alone, and
+ * transient fields are not copied, as they would not be serialized. Shared references and cycles within a graph are
+ * preserved in the copy.
+ *
+ * <p/>A value that cannot be copied in this way, because it has no suitable constructor, fails with an
+ * {@link IllegalStateException}.
+ *
+ * <p/>The fields and constructor of each class, and the constructors of collection and map classes, are looked up
+ * once, and cached.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Deep copy object graphs. </td></tr>
+ * <tr><td> Cache the copyable fields of classes. </td></tr>
+ * </table></pre>
+ */
+final class StructuralCopier {
+    /** The classes of values that are immutable, and so are shared rather than copied. */
+    private static final Set<Class<?>> IMMUTABLE_TYPES =
+        new HashSet<Class<?>>(Arrays.asList(String.class, Boolean.class, Character.class, Byte.class, Short.class,
+                Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class,
+                Class.class));
+
+    /** Holds the copyable fields and no-arg constructors of classes. */
+    private static final Map<Class<?>, ClassShape> SHAPES = new ConcurrentHashMap<>();
+
+    /** Holds the constructors of collection and map classes, taking a comparator for sorted ones or no-arg. */
+    private static final Map<Class<?>, Constructor<?>> CONTAINER_CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    /** Prevents instantiation of this static utility class. */
+    private StructuralCopier() {
+    }
+
+    /**
+     * Checks if a value is immutable, so does not need to be copied.
+     *
+     * @param  value The value, must not be <tt>null</tt>.
+     *
+     * @return <tt>true</tt> iff the value is immutable.
+     */
+    static boolean isImmutable(Object value) {
+        Class<?> valueClass = value.getClass();
+
+        return IMMUTABLE_TYPES.contains(valueClass) || valueClass.isEnum() || (value instanceof Enum) ||
+            valueClass.getName().startsWith("java.time.");
+    }
+
+    /**
+     * Makes a deep copy of an object graph.
+     *
+     * @param  value The root of the object graph, may be <tt>null</tt>.
+     *
+     * @return The copy.
+     */
+    static Object copy(Object value) {
+        return copy(value, Object.class);
+    }
+
+    /**
+     * Makes a deep copy of an object graph, whose root is assignable to a declared type.
+     *
+     * @param  value        The root of the object graph, may be <tt>null</tt>.
+     * @param  declaredType The type the copy must be assignable to.
+     *
+     * @return The copy.
+     */
+    static Object copy(Object value, Class<?> declaredType) {
+        return copy(value, declaredType, new IdentityHashMap<Object, Object>());
+    }
+
+    /**
+     * Makes a deep copy of an object graph, re-using the copies already made of any objects seen before.
+     *
+     * @param  value        The root of the object graph, may be <tt>null</tt>.
+     * @param  declaredType The type the copy must be assignable to.
+     * @param  copies       The copies already made, by original.
+     *
+     * @return The copy.
+     */
+    private static Object copy(Object value, Class<?> declaredType, Map<Object, Object> copies) {
+        if ((value == null) || isImmutable(value)) {
+            return value;
+        }
+
+        Object copy = copies.get(value);
+
+        if (copy != null) {
+            return copy;
+        }
+
+        Class<?> valueClass = value.getClass();
+
+        if (valueClass.isArray()) {
+            return copyArray(value, copies);
+        } else if (value instanceof Collection) {
+            return copyCollection((Collection<?>) value, declaredType, copies);
+        } else if (value instanceof Map) {
+            return copyMap((Map<?, ?>) value, declaredType, copies);
+        } else if (value instanceof Date) {
+            copy = ((Date) value).clone();
+            copies.put(value, copy);
+
+            return copy;
+        } else if (isJdkClass(valueClass)) {
+            return value;
+        }
+
+        return copyObject(value, copies);
+    }
+
+    /**
+     * Copies an array, element by element.
+     *
+     * @param  array  The array.
+     * @param  copies The copies already made, by original.
+     *
+     * @return The copy.
+     */
+    private static Object copyArray(Object array, Map<Object, Object> copies) {
+        int length = Array.getLength(array);
+        Class<?> componentType = array.getClass().getComponentType();
+        Object copy = Array.newInstance(componentType, length);
+        copies.put(array, copy);
+
+        if (componentType.isPrimitive()) {
+            System.arraycopy(array, 0, copy, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                Array.set(copy, i, copy(Array.get(array, i), componentType, copies));
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Copies a collection, element by element.
+     *
+     * @param  collection   The collection.
+     * @param  declaredType The type the copy must be assignable to.
+     * @param  copies       The copies already made, by original.
+     *
+     * @return The copy.
+     */
+    private static Object copyCollection(Collection<?> collection, Class<?> declaredType, Map<Object, Object> copies) {
+        if (collection instanceof EnumSet) {
+            // Enums are immutable, so the elements need no copying.
+            Object copy = ((EnumSet<?>) collection).clone();
+            copies.put(collection, copy);
+
+            return copy;
+        }
+
+        Collection<Object> copy;
+        Comparator<?> comparator = null;
+
+        if (collection instanceof SortedSet) {
+            comparator = ((SortedSet<?>) collection).comparator();
+            copy = new TreeSet<>((Comparator) comparator);
+        } else if (collection instanceof Set) {
+            copy = new LinkedHashSet<>(collection.size());
+        } else {
+            copy = new ArrayList<>(collection.size());
+        }
+
+        if (!declaredType.isInstance(copy)) {
+            copy = (Collection<Object>) newContainer(collection.getClass(), comparator);
+        }
+
+        copies.put(collection, copy);
+
+        for (Object element : collection) {
+            copy.add(copy(element, Object.class, copies));
+        }
+
+        return copy;
+    }
+
+    /**
+     * Copies a map, entry by entry.
+     *
+     * @param  map          The map.
+     * @param  declaredType The type the copy must be assignable to.
+     * @param  copies       The copies already made, by original.
+     *
+     * @return The copy.
+     */
+    private static Object copyMap(Map<?, ?> map, Class<?> declaredType, Map<Object, Object> copies) {
+        Map<Object, Object> copy;
+        Comparator<?> comparator = null;
+
+        if (map instanceof EnumMap) {
+            copy = new EnumMap((EnumMap) map);
+            copy.clear();
+        } else if (map instanceof SortedMap) {
+            comparator = ((SortedMap<?, ?>) map).comparator();
+            copy = new TreeMap<>((Comparator) comparator);
+        } else {
+            copy = new LinkedHashMap<>(map.size());
+        }
+
+        if (!declaredType.isInstance(copy)) {
+            copy = (Map<Object, Object>) newContainer(map.getClass(), comparator);
+        }
+
+        copies.put(map, copy);
+
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            copy.put(copy(entry.getKey(), Object.class, copies), copy(entry.getValue(), Object.class, copies));
+        }
+
+        return copy;
+    }
+
+    /**
+     * Creates an empty collection or map of the same class as an original one, through its public constructor that
+     * takes a comparator, if the original was sorted by one, or otherwise its public no-arg constructor.
+     *
+     * @param  containerClass The class of the original collection or map.
+     * @param  comparator     The comparator the original was sorted by, or <tt>null</tt> if it was not.
+     *
+     * @return An empty collection or map of the same class.
+     *
+     * @throws IllegalStateException If the class has no suitable public constructor.
+     */
+    private static Object newContainer(Class<?> containerClass, Comparator<?> comparator) {
+        Constructor<?> constructor =
+            CONTAINER_CONSTRUCTORS.computeIfAbsent(containerClass, StructuralCopier::findContainerConstructor);
+
+        try {
+            return (constructor.getParameterCount() == 0) ? constructor.newInstance()
+                                                           : constructor.newInstance(comparator);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot copy an instance of " + containerClass + ".", e);
+        }
+    }
+
+    /**
+     * Looks up the public constructor of a collection or map class that takes a comparator, or failing that its public
+     * no-arg constructor.
+     *
+     * @param  containerClass The class of collection or map.
+     *
+     * @return The constructor.
+     *
+     * @throws IllegalStateException If the class has no suitable public constructor.
+     */
+    private static Constructor<?> findContainerConstructor(Class<?> containerClass) {
+        if (Modifier.isPublic(containerClass.getModifiers())) {
+            if (SortedSet.class.isAssignableFrom(containerClass) || SortedMap.class.isAssignableFrom(containerClass)) {
+                try {
+                    return containerClass.getConstructor(Comparator.class);
+                } catch (NoSuchMethodException e) {
+                    // Fall through to the no-arg constructor.
+                }
+            }
+
+            try {
+                return containerClass.getConstructor();
+            } catch (NoSuchMethodException e) {
+                // Fall through to the failure.
+            }
+        }
+
+        throw new IllegalStateException("Cannot copy " + containerClass +
+            ", as it has no public no-arg constructor.");
+    }
+
+    /**
+     * Copies an object, field by field.
+     *
+     * @param  value  The object.
+     * @param  copies The copies already made, by original.
+     *
+     * @return The copy.
+     */
+    private static Object copyObject(Object value, Map<Object, Object> copies) {
+        ClassShape shape = SHAPES.computeIfAbsent(value.getClass(), ClassShape::new);
+
+        try {
+            Object copy = shape.constructor.newInstance();
+            copies.put(value, copy);
+
+            for (Field field : shape.fields) {
+                field.set(copy, copy(field.get(value), field.getType(), copies));
+            }
+
+            return copy;
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot copy an instance of " + value.getClass() + ".", e);
+        }
+    }
+
+    /**
+     * Checks if a class is part of the JDK.
+     *
+     * @param  theClass The class.
+     *
+     * @return <tt>true</tt> iff the class is part of the JDK.
+     */
+    private static boolean isJdkClass(Class<?> theClass) {
+        String name = theClass.getName();
+
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+    }
+
+    /** ClassShape holds the copyable fields and no-arg constructor of a class. */
+    private static class ClassShape {
+        /** The no-arg constructor. */
+        private final Constructor<?> constructor;
+
+        /** The fields to copy, across the whole class hierarchy. */
+        private final List<Field> fields = new ArrayList<>();
+
+        /**
+         * Looks up the copyable fields and no-arg constructor of a class.
+         *
+         * @param theClass The class.
+         */
+        ClassShape(Class<?> theClass) {
+            try {
+                constructor = theClass.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("Cannot copy " + theClass + ", as it has no no-arg constructor.", e);
+            }
+
+            for (Class<?> cls = theClass; (cls != null) && !cls.equals(Object.class); cls = cls.getSuperclass()) {
+                for (Field field : cls.getDeclaredFields()) {
+                    if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.thesett.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.thesett.util.proxies.AsyncExecutor;
+
+/**
+ * AsyncExecutorMetrics exposes an {@link AsyncExecutor} in a metric registry. The time calls spend queued and running
+ * are recorded by timers, so that their percentiles are available and not just their means. The calls submitted,
+ * completed, failed and dropped are recorded by meters, and the queue depth and active count are gauges.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Register metrics over an asynchronous executor. </td><td> {@link AsyncExecutor}, {@link MetricRegistry}
+ *     </td></tr>
+ * <tr><td> Time and count calls as the executor reports them. </td><td> {@link AsyncExecutor.Listener} </td></tr>
+ * </table></pre>
+ */
+public class AsyncExecutorMetrics implements AsyncExecutor.Listener {
+    /** Times how long calls spend queued. */
+    private final Timer queued;
+
+    /** Times how long calls spend running. */
+    private final Timer running;
+
+    /** Meters the calls submitted. */
+    private final Meter submitted;
+
+    /** Meters the calls completed normally. */
+    private final Meter completed;
+
+    /** Meters the calls completed by an exception. */
+    private final Meter failed;
+
+    /** Meters the calls dropped or rejected. */
+    private final Meter dropped;
+
+    /**
+     * Creates the metrics of an executor in a registry.
+     *
+     * @param registry The metric registry to create the metrics in.
+     * @param prefix   The prefix for metric names.
+     */
+    private AsyncExecutorMetrics(MetricRegistry registry, String prefix) {
+        queued = registry.timer(MetricRegistry.name(prefix, "queued"));
+        running = registry.timer(MetricRegistry.name(prefix, "running"));
+        submitted = registry.meter(MetricRegistry.name(prefix, "submitted"));
+        completed = registry.meter(MetricRegistry.name(prefix, "completed"));
+        failed = registry.meter(MetricRegistry.name(prefix, "failed"));
+        dropped = registry.meter(MetricRegistry.name(prefix, "dropped"));
+    }
+
+    /**
+     * Registers metrics over an asynchronous executor, and adds a listener to the executor to record them.
+     *
+     * @param  registry The metric registry to register the metrics in.
+     * @param  prefix   The prefix for metric names.
+     * @param  executor The asynchronous executor.
+     *
+     * @return The listener recording the metrics, which may be removed from the executor to stop recording.
+     */
+    public static AsyncExecutorMetrics register(MetricRegistry registry, String prefix, AsyncExecutor executor) {
+        registry.register(MetricRegistry.name(prefix, "queue-depth"), (Gauge<Integer>) executor::getQueueDepth);
+        registry.register(MetricRegistry.name(prefix, "active"), (Gauge<Integer>) executor::getActiveCount);
+
+        AsyncExecutorMetrics metrics = new AsyncExecutorMetrics(registry, prefix);
+        executor.addListener(metrics);
+
+        return metrics;
+    }
+
+    /** {@inheritDoc} */
+    public void submitted() {
+        submitted.mark();
+    }
+
+    /** {@inheritDoc} */
+    public void started(long queuedNanos) {
+        queued.update(queuedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** {@inheritDoc} */
+    public void finished(long runningNanos, boolean callFailed) {
+        running.update(runningNanos, TimeUnit.NANOSECONDS);
+
+        if (callFailed) {
+            failed.mark();
+        } else {
+            completed.mark();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void dropped() {
+        dropped.mark();
+    }
+}
@@ -0,0 +1,35 @@
+package com.thesett.util.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.thesett.util.audited.AuditLog;
+
+/**
+ * AuditLogMetrics exposes the buffer depth and record counts of an {@link AuditLog} as gauges in a metric registry. A
+ * rising dropped count means that audit records are arriving faster than they can be written.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Register gauges over an audit log. </td><td> {@link AuditLog}, {@link MetricRegistry} </td></tr>
+ * </table></pre>
+ */
+public class AuditLogMetrics {
+    /** Prevents instantiation of this static utility class. */
+    private AuditLogMetrics() {
+    }
+
+    /**
+     * Registers gauges over an audit log.
+     *
+     * @param registry The metric registry to register the gauges in.
+     * @param prefix   The prefix for metric names.
+     * @param auditLog The audit log.
+     */
+    public static void register(MetricRegistry registry, String prefix, AuditLog auditLog) {
+        registry.register(MetricRegistry.name(prefix, "queue-depth"), (Gauge<Integer>) auditLog::getQueueDepth);
+        registry.register(MetricRegistry.name(prefix, "recorded"), (Gauge<Long>) auditLog::getRecordedCount);
+        registry.register(MetricRegistry.name(prefix, "written"), (Gauge<Long>) auditLog::getWrittenCount);
+        registry.register(MetricRegistry.name(prefix, "dropped"), (Gauge<Long>) auditLog::getDroppedCount);
+        registry.register(MetricRegistry.name(prefix, "failed"), (Gauge<Long>) auditLog::getFailedCount);
+    }
+}
@@ -0,0 +1,217 @@
+package com.thesett.util.metrics.hibernate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * HibernateStatisticsMetrics exposes the statistics of a Hibernate session factory as gauges in a metric registry.
+ * Session factory wide statistics are registered on start up. Queries only appear in the statistics once they have been
+ * run, so the statistics are refreshed periodically, and execution count, row count and average, minimum and maximum
+ * execution time gauges are registered for each query as it appears, up to a limit of {@link #MAX_QUERY_METRICS}
+ * queries. Queries are named by a hash of their query string, so that metric names stay short and free of the
+ * characters queries contain; the query string for each hash is logged when its gauges are registered. Queries beyond
+ * the limit get no gauges, so that applications that build query strings dynamically do not register without bound.
+ *
+ * <p/>On each refresh, any query whose maximum execution time exceeds the slow query threshold, and has grown since it
+ * was last reported, is logged as a warning and marked on the <tt>slow-queries</tt> meter. This applies to all
+ * queries, including those beyond the limit.
+ *
+ * <p/>Hibernate statistics must be enabled on the session factory for these to be non-zero.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Expose session factory statistics as gauges. </td><td> {@link Statistics}, {@link MetricRegistry} </td></tr>
+ * <tr><td> Expose per query statistics as gauges. </td><td> {@link QueryStatistics} </td></tr>
+ * <tr><td> Report slow queries. </td></tr>
+ * </table></pre>
+ */
+public class HibernateStatisticsMetrics implements Managed {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(HibernateStatisticsMetrics.class.getName());
+
+    /** The maximum number of queries to register gauges for. */
+    public static final int MAX_QUERY_METRICS = 200;
+
+    /** The session factory statistics. */
+    private final Statistics statistics;
+
+    /** The metric registry to register gauges in. */
+    private final MetricRegistry registry;
+
+    /** The prefix for metric names. */
+    private final String prefix;
+
+    /** The execution time above which a query is slow. */
+    private final Duration slowQueryThreshold;
+
+    /** The interval between refreshes. */
+    private final Duration interval;
+
+    /** The executor to run refreshes on. */
+    private final ScheduledExecutorService executor;
+
+    /** Meters the reporting of slow queries. */
+    private final Meter slowQueries;
+
+    /** Holds the maximum execution time last reported, by query string, for the queries seen so far. */
+    private final Map<String, Long> queries = new ConcurrentHashMap<>();
+
+    /** The number of queries that gauges have been registered for. */
+    private int queryMetrics;
+
+    /** The scheduled refreshes, whilst running. */
+    private ScheduledFuture<?> refreshes;
+
+    /**
+     * Creates the statistics metrics for a session factory.
+     *
+     * @param sessionFactory     The session factory.
+     * @param registry           The metric registry to register gauges in.
+     * @param prefix             The prefix for metric names.
+     * @param slowQueryThreshold The execution time above which a query is slow.
+     * @param interval           The interval between refreshes.
+     * @param executor           The executor to run refreshes on.
+     */
+    public HibernateStatisticsMetrics(SessionFactory sessionFactory, MetricRegistry registry, String prefix,
+        Duration slowQueryThreshold, Duration interval, ScheduledExecutorService executor) {
+        this.statistics = sessionFactory.getStatistics();
+        this.registry = registry;
+        this.prefix = prefix;
+        this.slowQueryThreshold = slowQueryThreshold;
+        this.interval = interval;
+        this.executor = executor;
+
+        slowQueries = registry.meter(MetricRegistry.name(prefix, "slow-queries"));
+    }
+
+    /** {@inheritDoc} */
+    public void start() {
+        gauge("sessions.opened", Statistics::getSessionOpenCount);
+        gauge("sessions.closed", Statistics::getSessionCloseCount);
+        gauge("connections", Statistics::getConnectCount);
+        gauge("statements.prepared", Statistics::getPrepareStatementCount);
+        gauge("transactions", Statistics::getTransactionCount);
+        gauge("transactions.successful", Statistics::getSuccessfulTransactionCount);
+        gauge("optimistic-failures", Statistics::getOptimisticFailureCount);
+        gauge("flushes", Statistics::getFlushCount);
+        gauge("entities.loaded", Statistics::getEntityLoadCount);
+        gauge("entities.fetched", Statistics::getEntityFetchCount);
+        gauge("entities.inserted", Statistics::getEntityInsertCount);
+        gauge("entities.updated", Statistics::getEntityUpdateCount);
+        gauge("entities.deleted", Statistics::getEntityDeleteCount);
+        gauge("collections.loaded", Statistics::getCollectionLoadCount);
+        gauge("collections.fetched", Statistics::getCollectionFetchCount);
+        gauge("queries.executed", Statistics::getQueryExecutionCount);
+        gauge("queries.max-time", Statistics::getQueryExecutionMaxTime);
+        gauge("query-cache.hits", Statistics::getQueryCacheHitCount);
+        gauge("query-cache.misses", Statistics::getQueryCacheMissCount);
+        gauge("second-level-cache.hits", Statistics::getSecondLevelCacheHitCount);
+        gauge("second-level-cache.misses", Statistics::getSecondLevelCacheMissCount);
+        gauge("second-level-cache.puts", Statistics::getSecondLevelCachePutCount);
+
+        refreshes =
+            executor.scheduleWithFixedDelay(this::refresh, interval.toMilliseconds(), interval.toMilliseconds(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** {@inheritDoc} */
+    public void stop() {
+        if (refreshes != null) {
+            refreshes.cancel(false);
+            refreshes = null;
+        }
+    }
+
+    /**
+     * Registers gauges for any queries that have appeared since the last refresh, up to the limit, and reports slow
+     * queries.
+     */
+    public synchronized void refresh() {
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            Long lastReportedMax = queries.get(query);
+
+            if (lastReportedMax == null) {
+                queries.put(query, 0L);
+                lastReportedMax = 0L;
+
+                if (queryMetrics < MAX_QUERY_METRICS) {
+                    registerQuery(query, queryStatistics);
+                }
+            }
+
+            long maxTime = queryStatistics.getExecutionMaxTime();
+
+            if ((maxTime > slowQueryThreshold.toMilliseconds()) && (maxTime > lastReportedMax)) {
+                queries.put(query, maxTime);
+                slowQueries.mark();
+                LOG.warning("Slow query, max " + maxTime + "ms, avg " + queryStatistics.getExecutionAvgTime() +
+                    "ms over " + queryStatistics.getExecutionCount() + " executions: " + query);
+            }
+        }
+    }
+
+    /**
+     * Registers the gauges for a query.
+     *
+     * @param query           The query string.
+     * @param queryStatistics The statistics for the query.
+     */
+    private void registerQuery(String query, QueryStatistics queryStatistics) {
+        queryMetrics++;
+
+        String normalized = query.replaceAll("\\s+", " ").trim();
+        String name = MetricRegistry.name(prefix, "query", String.format("%08x", normalized.hashCode()));
+
+        LOG.info("Registering gauges " + name + " for query: " + normalized);
+
+        register(MetricRegistry.name(name, "executions"), queryStatistics::getExecutionCount);
+        register(MetricRegistry.name(name, "rows"), queryStatistics::getExecutionRowCount);
+        register(MetricRegistry.name(name, "avg-time"), queryStatistics::getExecutionAvgTime);
+        register(MetricRegistry.name(name, "min-time"), queryStatistics::getExecutionMinTime);
+        register(MetricRegistry.name(name, "max-time"), queryStatistics::getExecutionMaxTime);
+
+        if (queryMetrics == MAX_QUERY_METRICS) {
+            LOG.warning("Gauges have been registered for " + MAX_QUERY_METRICS + " queries, further queries will " +
+                "have none.");
+        }
+    }
+
+    /**
+     * Registers a gauge over a session factory wide statistic.
+     *
+     * @param name      The name of the gauge, under the prefix.
+     * @param statistic Reads the statistic.
+     */
+    private void gauge(String name, ToLongFunction<Statistics> statistic) {
+        register(MetricRegistry.name(prefix, name), () -> statistic.applyAsLong(statistics));
+    }
+
+    /**
+     * Registers a gauge, unless one is already registered under the same name.
+     *
+     * @param name  The name of the gauge.
+     * @param gauge The gauge.
+     */
+    private void register(String name, Gauge<Long> gauge) {
+        if (!registry.getNames().contains(name)) {
+            registry.register(name, gauge);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.thesett.util.metrics.hibernate;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+import com.thesett.util.transaction.UnitOfWorkObserver;
+import com.thesett.util.transaction.UnitOfWorkWithDetachApplicationListener;
+
+/**
+ * MetricsInterceptor is a Hibernate interceptor that records per-entity load and flush rates, and the rate at which
+ * SQL statements are prepared, into a metric registry. It is intended to be added to a
+ * {@link com.thesett.util.hibernate.ChainedInterceptor}, and {@link #onPrepareStatement(String)} sees every SQL
+ * statement that Hibernate prepares, so it serves as a statement inspector too.
+ *
+ * <p/>It also looks for N+1 select problems, by counting the loads of each entity class and the preparations of each
+ * distinct SQL statement within a unit of work. When either reaches the N+1 threshold, a warning is logged and the
+ * <tt>n-plus-one</tt> meter is marked, once per entity class or statement per unit of work. Units of work are those
+ * run by a {@link UnitOfWorkWithDetachApplicationListener} that the interceptor is registered with as an observer,
+ * whether they are transactional or not, and however many transactions they run. Loads and statements outside of
+ * them are metered, but not counted.
+ *
+ * <p/>The interceptor is shared by all sessions of a session factory, so holds the counts for units of work against
+ * the current thread.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Meter entity loads and flushes by entity class. </td><td> {@link MetricRegistry} </td></tr>
+ * <tr><td> Meter SQL statement preparation. </td><td> {@link MetricRegistry} </td></tr>
+ * <tr><td> Detect N+1 selects within a unit of work. </td><td> {@link UnitOfWorkObserver} </td></tr>
+ * </table></pre>
+ */
+public class MetricsInterceptor extends EmptyInterceptor implements UnitOfWorkObserver {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(MetricsInterceptor.class.getName());
+
+    /** The metric registry to record into. */
+    private final transient MetricRegistry registry;
+
+    /** The prefix for metric names. */
+    private final String prefix;
+
+    /** The number of loads of an entity class or preparations of a statement in one unit of work, that is N+1. */
+    private final int nPlusOneThreshold;
+
+    /** Meters the preparation of SQL statements. */
+    private final transient Meter statements;
+
+    /** Meters the detection of N+1 selects. */
+    private final transient Meter nPlusOne;
+
+    /** Holds the entity load meters by entity class name. */
+    private final transient Map<String, Meter> loadMeters = new ConcurrentHashMap<>();
+
+    /** Holds the entity flush meters by entity class name. */
+    private final transient Map<String, Meter> flushMeters = new ConcurrentHashMap<>();
+
+    /** Holds the counts for the unit of work on the current thread, or <tt>null</tt> outside of one. */
+    private final transient ThreadLocal<UnitOfWorkCounts> counts = new ThreadLocal<>();
+
+    /**
+     * Creates a metrics interceptor.
+     *
+     * @param registry          The metric registry to record into.
+     * @param prefix            The prefix for metric names.
+     * @param nPlusOneThreshold The number of loads of an entity class or preparations of a statement in one unit of
+     *                          work, that is N+1.
+     */
+    public MetricsInterceptor(MetricRegistry registry, String prefix, int nPlusOneThreshold) {
+        this.registry = registry;
+        this.prefix = prefix;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+
+        statements = registry.meter(MetricRegistry.name(prefix, "statements"));
+        nPlusOne = registry.meter(MetricRegistry.name(prefix, "n-plus-one"));
+    }
+
+    /** {@inheritDoc} */
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        String entityName = entity.getClass().getName();
+        meter(loadMeters, entityName, "loads").mark();
+
+        UnitOfWorkCounts unitOfWorkCounts = counts.get();
+
+        if ((unitOfWorkCounts != null) && (unitOfWorkCounts.countLoad(entityName) == nPlusOneThreshold)) {
+            nPlusOne.mark();
+            LOG.warning("Possible N+1 select, " + nPlusOneThreshold + " loads of " + entityName +
+                " in one unit of work.");
+        }
+
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+        String[] propertyNames, Type[] types) {
+        meter(flushMeters, entity.getClass().getName(), "flushes").mark();
+
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    public String onPrepareStatement(String sql) {
+        statements.mark();
+
+        UnitOfWorkCounts unitOfWorkCounts = counts.get();
+
+        if ((unitOfWorkCounts != null) && (unitOfWorkCounts.countStatement(sql) == nPlusOneThreshold)) {
+            nPlusOne.mark();
+            LOG.warning("Possible N+1 select, " + nPlusOneThreshold + " executions of \"" + sql +
+                "\" in one unit of work.");
+        }
+
+        return sql;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Starts counting afresh for the unit of work.
+     */
+    public void unitOfWorkBegun() {
+        counts.set(new UnitOfWorkCounts());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Stops counting, and discards the counts for the unit of work.
+     */
+    public void unitOfWorkEnded() {
+        counts.remove();
+    }
+
+    /**
+     * Provides the meter for an entity class, creating it on first use.
+     *
+     * @param  meters     The meters by entity class name.
+     * @param  entityName The entity class name.
+     * @param  event      The name of the event metered.
+     *
+     * @return The meter for the entity class.
+     */
+    private Meter meter(Map<String, Meter> meters, String entityName, String event) {
+        Meter meter = meters.get(entityName);
+
+        if (meter == null) {
+            meter = registry.meter(MetricRegistry.name(prefix, "entity", entityName, event));
+            meters.put(entityName, meter);
+        }
+
+        return meter;
+    }
+
+    /** UnitOfWorkCounts holds the entity load and statement counts for a unit of work. */
+    private static class UnitOfWorkCounts {
+        /** Holds the load counts by entity class name. */
+        private final Map<String, Integer> loads = new HashMap<>();
+
+        /** Holds the preparation counts by SQL statement. */
+        private final Map<String, Integer> statements = new HashMap<>();
+
+        /**
+         * Counts a load of an entity class.
+         *
+         * @param  entityName The entity class name.
+         *
+         * @return The number of loads of the entity class so far.
+         */
+        int countLoad(String entityName) {
+            return loads.merge(entityName, 1, Integer::sum);
+        }
+
+        /**
+         * Counts a preparation of an SQL statement.
+         *
+         * @param  sql The SQL statement.
+         *
+         * @return The number of preparations of the statement so far.
+         */
+        int countStatement(String sql) {
+            return statements.merge(sql, 1, Integer::sum);
+        }
+    }
+}
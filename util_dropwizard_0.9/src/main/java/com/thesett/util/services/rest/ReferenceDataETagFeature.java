@@ -0,0 +1,121 @@
+package com.thesett.util.services.rest;
+
+import java.io.IOException;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * ReferenceDataETagFeature serves the reference data of a {@link ReferenceDataResource} from its cached JSON, with a
+ * strong ETag. It binds a filter to the method that lists the reference data of a type, and to no other. Requests with
+ * an <tt>If-None-Match</tt> header matching the current ETag are answered <tt>304 Not Modified</tt> before the resource
+ * is called; other responses have the list given by the resource replaced by the cached JSON, so it is not serialized
+ * again. All responses ask clients to revalidate their cached copies on every use.
+ *
+ * <p/>The resource serves the same JSON without this feature, only without ETags.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Answer conditional requests for reference data by ETag. </td><td> {@link ReferenceDataResource} </td></tr>
+ * <tr><td> Serve reference data as cached JSON. </td></tr>
+ * </table></pre>
+ */
+public class ReferenceDataETagFeature implements DynamicFeature {
+    /** The name of the path parameter giving the reference data type. */
+    private static final String REF_DATA_NAME = "refDataName";
+
+    /** The name of the request property holding the cached reference data for the response. */
+    private static final String CACHED_JSON = ReferenceDataETagFeature.class.getName() + ".cachedJson";
+
+    /** The reference data resource to serve the cached JSON of. */
+    private final ReferenceDataResource resource;
+
+    /**
+     * Creates the feature, to serve the cached JSON of a reference data resource.
+     *
+     * @param resource The reference data resource.
+     */
+    public ReferenceDataETagFeature(ReferenceDataResource resource) {
+        this.resource = resource;
+    }
+
+    /** {@inheritDoc} */
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        if (ReferenceDataResource.class.isAssignableFrom(resourceInfo.getResourceClass()) &&
+                "findByName".equals(resourceInfo.getResourceMethod().getName())) {
+            context.register(new ETagFilter());
+        }
+    }
+
+    /**
+     * Creates the cache control that asks clients to revalidate their cached copies by ETag on every use.
+     *
+     * @return The cache control.
+     */
+    private static CacheControl revalidate() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+
+        return cacheControl;
+    }
+
+    /**
+     * ETagFilter answers conditional requests for the reference data of a type, and replaces the responses to others
+     * with the cached JSON, as described by {@link ReferenceDataResource#findByName(String)}.
+     */
+    private class ETagFilter implements ContainerRequestFilter, ContainerResponseFilter {
+        /**
+         * {@inheritDoc}
+         *
+         * <p/>Answers <tt>304 Not Modified</tt> when the ETag of the cached JSON matches. Unknown types are left for
+         * the resource to report as not found.
+         */
+        public void filter(ContainerRequestContext requestContext) throws IOException {
+            String refDataName = requestContext.getUriInfo().getPathParameters().getFirst(REF_DATA_NAME);
+            ReferenceDataResource.CachedJson cachedJson = resource.getCachedJson(refDataName);
+
+            if (cachedJson == null) {
+                return;
+            }
+
+            Response.ResponseBuilder notModified = requestContext.getRequest().evaluatePreconditions(cachedJson.etag);
+
+            if (notModified != null) {
+                requestContext.abortWith(notModified.cacheControl(revalidate()).build());
+            } else {
+                requestContext.setProperty(CACHED_JSON, cachedJson);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p/>Replaces successful responses with the cached JSON, and its ETag.
+         */
+        public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+            throws IOException {
+            Object cachedJson = requestContext.getProperty(CACHED_JSON);
+
+            if (!(cachedJson instanceof ReferenceDataResource.CachedJson) ||
+                    (responseContext.getStatus() != Response.Status.OK.getStatusCode())) {
+                return;
+            }
+
+            ReferenceDataResource.CachedJson json = (ReferenceDataResource.CachedJson) cachedJson;
+
+            responseContext.setEntity(json.json, responseContext.getEntityAnnotations(),
+                MediaType.APPLICATION_JSON_TYPE);
+            responseContext.getHeaders().putSingle(HttpHeaders.ETAG, json.etag);
+            responseContext.getHeaders().putSingle(HttpHeaders.CACHE_CONTROL, revalidate());
+        }
+    }
+}
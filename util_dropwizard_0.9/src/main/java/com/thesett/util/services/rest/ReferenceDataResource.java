@@ -1,35 +1,90 @@
 package com.thesett.util.services.rest;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.thesett.aima.attribute.impl.EnumeratedStringAttribute;
+import com.thesett.util.commands.refdata.RefDataUtils;
 import com.thesett.util.model.RefDataItem;
 import com.thesett.util.services.ReferenceDataService;
 
+import io.dropwizard.jackson.Jackson;
+
+/**
+ * ReferenceDataResource serves the reference data over REST, as described by the {@link ReferenceDataService}.
+ *
+ * <p/>Reference data only changes when it is loaded, so the list of items for each reference data type is built once,
+ * and serialized to JSON once, with a strong ETag computed from it. When the reference data is loaded again, as counted
+ * by {@link RefDataUtils#getLoadGeneration()}, these are discarded and built again on demand. Only the reference data
+ * types this resource was created with are served; others are not found, and nothing is cached for them.
+ *
+ * <p/>The cached JSON and its ETag are served by a {@link ReferenceDataETagFeature} created over this resource, when
+ * that is registered too, so that requests with a matching <tt>If-None-Match</tt> header get a <tt>304 Not
+ * Modified</tt> response, and others get the JSON without it being serialized again.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> List the reference data types. </td></tr>
+ * <tr><td> Serve the reference data of a known type. </td><td> {@link EnumeratedStringAttribute} </td></tr>
+ * <tr><td> Cache the reference data of each type, as items and JSON with an ETag. </td></tr>
+ * <tr><td> Discard cached reference data when it is loaded. </td><td> {@link RefDataUtils} </td></tr>
+ * </table></pre>
+ */
 @Path("/api/refdata/")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(value = MediaType.APPLICATION_JSON)
 public class ReferenceDataResource implements ReferenceDataService {
     private final List<String> refDataTypes;
 
+    /** The reference data types that are served. */
+    private final Set<String> knownTypes;
+
+    /** The writer to serialize reference data lists with. */
+    private final ObjectWriter writer;
+
+    /** Holds the cached JSON by reference data type, for the reference data load generation it was built from. */
+    private volatile Snapshot snapshot = new Snapshot(-1);
+
     /**
      * Creates the reference data RESTful service implementation.
      *
      * @param refDataTypes A list of the reference data types.
      */
     public ReferenceDataResource(List<String> refDataTypes) {
+        this(refDataTypes, Jackson.newObjectMapper());
+    }
+
+    /**
+     * Creates the reference data RESTful service implementation.
+     *
+     * @param refDataTypes A list of the reference data types.
+     * @param objectMapper The object mapper to serialize reference data with.
+     */
+    public ReferenceDataResource(List<String> refDataTypes, ObjectMapper objectMapper) {
         this.refDataTypes = refDataTypes;
+        this.knownTypes = new HashSet<>(refDataTypes);
+        this.writer = objectMapper.writerFor(RefDataItem[].class);
     }
 
     /** {@inheritDoc} */
@@ -38,21 +93,130 @@ public class ReferenceDataResource implements ReferenceDataService {
         return Collections.unmodifiableList(refDataTypes);
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>The items are ordered by id.
+     *
+     * @throws NotFoundException If the reference data type is not one of those served.
+     */
     @GET
     @Path("{refDataName}")
     @Timed
     public List<RefDataItem> findByName(@PathParam("refDataName") String refDataName) {
+        CachedJson cachedJson = getCachedJson(refDataName);
+
+        if (cachedJson == null) {
+            throw new NotFoundException("No reference data type " + refDataName + ".");
+        }
+
+        return cachedJson.items;
+    }
+
+    /**
+     * Discards all cached JSON, so that it is built again from the enumerated attribute types when next requested.
+     * This happens automatically when reference data is loaded through {@link RefDataUtils}, so is only needed when
+     * the types are changed some other way.
+     */
+    public void reload() {
+        snapshot = new Snapshot(RefDataUtils.getLoadGeneration());
+    }
+
+    /**
+     * Provides the cached reference data of a type, building it if it is not cached or the reference data has been
+     * loaded since it was built.
+     *
+     * @param  refDataName The name of the reference data type.
+     *
+     * @return The cached reference data, or <tt>null</tt> if the type is not one of those served.
+     */
+    CachedJson getCachedJson(String refDataName) {
+        if (!knownTypes.contains(refDataName)) {
+            return null;
+        }
+
+        long generation = RefDataUtils.getLoadGeneration();
+        Snapshot current = snapshot;
+
+        if (current.generation != generation) {
+            current = new Snapshot(generation);
+            snapshot = current;
+        }
+
+        return current.byType.computeIfAbsent(refDataName, this::buildCachedJson);
+    }
+
+    /**
+     * Lists the reference data of a type, ordered by id, serializes it, and computes its ETag.
+     *
+     * @param  refDataName The name of the reference data type.
+     *
+     * @return The cached reference data.
+     */
+    private CachedJson buildCachedJson(String refDataName) {
         Set<EnumeratedStringAttribute> typeSet =
             EnumeratedStringAttribute.getFactoryForClass(refDataName).getType().getAllPossibleValuesSet(false);
-        List<RefDataItem> result = new LinkedList<>();
+        List<RefDataItem> items = new ArrayList<>(typeSet.size());
 
         for (EnumeratedStringAttribute enumeratedString : typeSet) {
-            result.add(new RefDataItem(enumeratedString.getId(), enumeratedString.getStringValue()));
+            items.add(new RefDataItem(enumeratedString.getId(), enumeratedString.getStringValue()));
         }
 
-        Collections.sort(result);
+        Collections.sort(items);
 
-        return result;
+        try {
+            byte[] json = writer.writeValueAsBytes(items.toArray(new RefDataItem[items.size()]));
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+
+            return new CachedJson(Collections.unmodifiableList(items), json,
+                    new EntityTag(Base64.getUrlEncoder().withoutPadding().encodeToString(digest)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Reference data " + refDataName + " cannot be serialized.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 should always be available.", e);
+        }
+    }
+
+    /** Snapshot holds the cached JSON built from one load generation of the reference data. */
+    private static class Snapshot {
+        /** The reference data load generation the JSON was built from. */
+        private final long generation;
+
+        /** Holds the cached JSON by reference data type. */
+        private final Map<String, CachedJson> byType = new ConcurrentHashMap<>();
+
+        /**
+         * Creates an empty snapshot.
+         *
+         * @param generation The reference data load generation the JSON will be built from.
+         */
+        Snapshot(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    /** CachedJson holds the items of a reference data type, their serialized JSON, and its strong ETag. */
+    static class CachedJson {
+        /** The items, ordered by id. */
+        final List<RefDataItem> items;
+
+        /** The serialized JSON. */
+        final byte[] json;
+
+        /** The strong ETag of the JSON. */
+        final EntityTag etag;
+
+        /**
+         * Creates the cached reference data of a type.
+         *
+         * @param items The items, ordered by id.
+         * @param json  The serialized JSON.
+         * @param etag  The strong ETag of the JSON.
+         */
+        CachedJson(List<RefDataItem> items, byte[] json, EntityTag etag) {
+            this.items = items;
+            this.json = json;
+            this.etag = etag;
+        }
     }
 }
@@ -0,0 +1,159 @@
+package com.thesett.util.transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * LazyManagedSessionContext is a managed Hibernate session context, that also allows the opening of a session to be
+ * deferred until the current session is first asked for. A deferred session is registered against its session factory
+ * on the current thread as a {@link SessionOpener}, which opens the session and binds it to the context. Sessions that
+ * are bound directly are handled exactly as by a {@link ManagedSessionContext}.
+ *
+ * <p/>The current session of a session factory can also be routed to another session factory on the current thread,
+ * which is used to send read-only units of work to a read replica. DAOs hold the primary session factory, and asking
+ * it for the current session then gives the current session of the replica.
+ *
+ * <p/>This is used by the {@link UnitOfWorkWithDetachApplicationListener} to run lazy units of work, so that a
+ * request that never touches the database never takes a connection from the pool. It is set as the current session
+ * context class by the {@link com.thesett.util.config.hibernate.XmlSessionFactoryFactory}.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Provide the bound session for the current thread. </td><td> {@link ManagedSessionContext} </td></tr>
+ * <tr><td> Open deferred sessions on first use. </td><td> {@link SessionOpener} </td></tr>
+ * <tr><td> Route the current session to another session factory. </td></tr>
+ * </table></pre>
+ */
+public class LazyManagedSessionContext extends ManagedSessionContext {
+    /** Holds the deferred session openers for the current thread, by session factory. */
+    private static final ThreadLocal<Map<SessionFactory, SessionOpener>> DEFERRED = new ThreadLocal<>();
+
+    /** Holds the session factories routed to for the current thread, by the session factory routed from. */
+    private static final ThreadLocal<Map<SessionFactory, SessionFactory>> ROUTES = new ThreadLocal<>();
+
+    /**
+     * Creates a lazy managed session context for a session factory.
+     *
+     * @param factory The session factory to provide the current session for.
+     */
+    public LazyManagedSessionContext(SessionFactoryImplementor factory) {
+        super(factory);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>If the session factory is routed to another, the current session of that one is given. If no session is
+     * bound but one has been deferred, it is opened now.
+     */
+    public Session currentSession() {
+        Map<SessionFactory, SessionFactory> routes = ROUTES.get();
+        SessionFactory routedTo = (routes == null) ? null : routes.get(factory());
+
+        if (routedTo != null) {
+            return routedTo.getCurrentSession();
+        }
+
+        if (!hasBind(factory())) {
+            SessionOpener opener = undefer(factory());
+
+            if (opener != null) {
+                opener.open();
+            }
+        }
+
+        return super.currentSession();
+    }
+
+    /**
+     * Defers the opening of a session against a session factory on the current thread, until the current session is
+     * first asked for.
+     *
+     * @param sessionFactory The session factory to defer a session against.
+     * @param opener         Opens the session and binds it to the context.
+     */
+    public static void defer(SessionFactory sessionFactory, SessionOpener opener) {
+        Map<SessionFactory, SessionOpener> deferred = DEFERRED.get();
+
+        if (deferred == null) {
+            deferred = new HashMap<>();
+            DEFERRED.set(deferred);
+        }
+
+        deferred.put(sessionFactory, opener);
+    }
+
+    /**
+     * Removes any deferred session against a session factory on the current thread, that has not yet been opened.
+     *
+     * @param  sessionFactory The session factory to remove the deferred session for.
+     *
+     * @return The deferred session opener, or <tt>null</tt> if there was none.
+     */
+    public static SessionOpener undefer(SessionFactory sessionFactory) {
+        Map<SessionFactory, SessionOpener> deferred = DEFERRED.get();
+
+        if (deferred == null) {
+            return null;
+        }
+
+        SessionOpener opener = deferred.remove(sessionFactory);
+
+        if (deferred.isEmpty()) {
+            DEFERRED.remove();
+        }
+
+        return opener;
+    }
+
+    /**
+     * Routes the current session of a session factory to the current session of another, on the current thread.
+     *
+     * @param from The session factory to route from.
+     * @param to   The session factory to route to.
+     */
+    public static void route(SessionFactory from, SessionFactory to) {
+        Map<SessionFactory, SessionFactory> routes = ROUTES.get();
+
+        if (routes == null) {
+            routes = new HashMap<>();
+            ROUTES.set(routes);
+        }
+
+        routes.put(from, to);
+    }
+
+    /**
+     * Removes any routing of the current session of a session factory, on the current thread.
+     *
+     * @param from The session factory to stop routing from.
+     */
+    public static void unroute(SessionFactory from) {
+        Map<SessionFactory, SessionFactory> routes = ROUTES.get();
+
+        if (routes == null) {
+            return;
+        }
+
+        routes.remove(from);
+
+        if (routes.isEmpty()) {
+            ROUTES.remove();
+        }
+    }
+
+    /** SessionOpener opens a deferred session, and binds it to the managed session context. */
+    public interface SessionOpener {
+        /**
+         * Opens the session and binds it to the managed session context.
+         *
+         * @return The opened session.
+         */
+        Session open();
+    }
+}
@@ -0,0 +1,19 @@
+package com.thesett.util.transaction;
+
+/**
+ * UnitOfWorkObserver is told when units of work begin and end on the current thread, by the
+ * {@link UnitOfWorkWithDetachApplicationListener} that runs them. A unit of work runs from the start of its resource
+ * method to the end of its response, whether or not it is transactional, and whether or not it ever opens a session.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities
+ * <tr><td> Observe the start and end of units of work on the current thread.
+ * </table></pre>
+ */
+public interface UnitOfWorkObserver {
+    /** Notified when a unit of work begins on the current thread. */
+    void unitOfWorkBegun();
+
+    /** Notified when the unit of work on the current thread ends, whether it succeeded or failed. */
+    void unitOfWorkEnded();
+}
@@ -1,11 +1,16 @@
 package com.thesett.util.transaction;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 import javax.ws.rs.ext.Provider;
 
+import com.codahale.metrics.Meter;
+
 import org.glassfish.jersey.server.internal.process.MappableException;
 import org.glassfish.jersey.server.model.Resource;
 import org.glassfish.jersey.server.model.ResourceMethod;
@@ -24,9 +29,33 @@ import com.thesett.util.jersey.UnitOfWorkWithDetach;
 
 @Provider
 public class UnitOfWorkWithDetachApplicationListener implements ApplicationEventListener {
+    /** The name of the request property holding the unit of work of the request. */
+    private static final String UNIT_OF_WORK = UnitOfWorkWithDetachApplicationListener.class.getName() + ".unitOfWork";
+
     private final Map<Method, UnitOfWorkWithDetach> methodMap = new HashMap<>();
     private final Map<String, SessionFactory> sessionFactories = new HashMap<>();
 
+    /** Holds the read replica session factories, by the session factory of their primary. */
+    private final Map<SessionFactory, SessionFactory> replicaFactories = new HashMap<>();
+
+    /** Holds the availability of the read replicas, by the session factory of their primary. */
+    private final Map<SessionFactory, BooleanSupplier> replicaAvailability = new HashMap<>();
+
+    /** Holds the observers told when units of work begin and end. */
+    private final List<UnitOfWorkObserver> observers = new ArrayList<>();
+
+    /** The request event listener shared by all requests. */
+    private final RequestEventListener requestListener = new UnitOfWorkWithDetachEventListener(this);
+
+    /** Meters the units of work run. */
+    private final Meter unitsOfWork = new Meter();
+
+    /** Meters the units of work that opened a session, and so used a connection. */
+    private final Meter sessionsOpened = new Meter();
+
+    /** Meters the units of work routed to a read replica. */
+    private final Meter replicaUnitsOfWork = new Meter();
+
     public UnitOfWorkWithDetachApplicationListener() {
     }
 
@@ -38,6 +67,29 @@ public class UnitOfWorkWithDetachApplicationListener implements ApplicationEvent
         sessionFactories.put(name, sessionFactory);
     }
 
+    /**
+     * Registers a read replica for a session factory. Read-only units of work against the primary session factory are
+     * run against the replica instead, whenever it is available.
+     *
+     * @param primary   The primary session factory.
+     * @param replica   The read replica session factory.
+     * @param available Tells whether the replica is currently available to read from.
+     */
+    public void registerReplicaSessionFactory(SessionFactory primary, SessionFactory replica,
+        BooleanSupplier available) {
+        replicaFactories.put(primary, replica);
+        replicaAvailability.put(primary, available);
+    }
+
+    /**
+     * Registers an observer, to be told when units of work begin and end on the current thread.
+     *
+     * @param observer The observer to register.
+     */
+    public void registerObserver(UnitOfWorkObserver observer) {
+        observers.add(observer);
+    }
+
     public void onEvent(ApplicationEvent event) {
         if (event.getType() == ApplicationEvent.Type.INITIALIZATION_APP_FINISHED) {
             for (Resource resource : event.getResourceModel().getResources()) {
@@ -55,7 +107,67 @@ public class UnitOfWorkWithDetachApplicationListener implements ApplicationEvent
     }
 
     public RequestEventListener onRequest(RequestEvent event) {
-        return new UnitOfWorkWithDetachEventListener(methodMap, sessionFactories);
+        // No request can need a unit of work if no methods are annotated.
+        if (methodMap.isEmpty()) {
+            return null;
+        }
+
+        return requestListener;
+    }
+
+    /**
+     * Provides the number of units of work run.
+     *
+     * @return The number of units of work run.
+     */
+    public long getUnitOfWorkCount() {
+        return unitsOfWork.getCount();
+    }
+
+    /**
+     * Provides the number of units of work that opened a session, and so used a connection. Lazy units of work that
+     * never touched the database are not counted.
+     *
+     * @return The number of units of work that opened a session.
+     */
+    public long getSessionOpenCount() {
+        return sessionsOpened.getCount();
+    }
+
+    /**
+     * Provides the number of units of work routed to a read replica.
+     *
+     * @return The number of units of work routed to a read replica.
+     */
+    public long getReplicaUnitOfWorkCount() {
+        return replicaUnitsOfWork.getCount();
+    }
+
+    /**
+     * Provides the meter of units of work run.
+     *
+     * @return The meter of units of work run.
+     */
+    public Meter getUnitOfWorkMeter() {
+        return unitsOfWork;
+    }
+
+    /**
+     * Provides the meter of units of work that opened a session, and so used a connection.
+     *
+     * @return The meter of units of work that opened a session.
+     */
+    public Meter getSessionOpenMeter() {
+        return sessionsOpened;
+    }
+
+    /**
+     * Provides the meter of units of work routed to a read replica.
+     *
+     * @return The meter of units of work routed to a read replica.
+     */
+    public Meter getReplicaUnitOfWorkMeter() {
+        return replicaUnitsOfWork;
     }
 
     private void registerUnitOfWorkWithDetachAnnotations(ResourceMethod method) {
@@ -71,84 +183,208 @@ public class UnitOfWorkWithDetachApplicationListener implements ApplicationEvent
         }
     }
 
+    /**
+     * UnitOfWorkWithDetachEventListener runs units of work around annotated resource methods. It holds no per-request
+     * state, so is shared by all requests; the state of each unit of work is held in a request property.
+     */
     private static class UnitOfWorkWithDetachEventListener implements RequestEventListener {
-        private final Map<Method, UnitOfWorkWithDetach> methodMap;
-        private final Map<String, SessionFactory> sessionFactories;
-
-        private UnitOfWorkWithDetach UnitOfWorkWithDetach;
-        private Session session;
-        private SessionFactory sessionFactory;
+        private final UnitOfWorkWithDetachApplicationListener parent;
 
-        public UnitOfWorkWithDetachEventListener(Map<Method, UnitOfWorkWithDetach> methodMap,
-            Map<String, SessionFactory> sessionFactories) {
-            this.methodMap = methodMap;
-            this.sessionFactories = sessionFactories;
+        public UnitOfWorkWithDetachEventListener(UnitOfWorkWithDetachApplicationListener parent) {
+            this.parent = parent;
         }
 
         public void onEvent(RequestEvent event) {
             if (event.getType() == RequestEvent.Type.RESOURCE_METHOD_START) {
-                this.UnitOfWorkWithDetach =
-                    this.methodMap.get(event.getUriInfo()
+                UnitOfWorkWithDetach annotation =
+                    parent.methodMap.get(event.getUriInfo()
                         .getMatchedResourceMethod()
                         .getInvocable()
                         .getDefinitionMethod());
 
-                if (UnitOfWorkWithDetach != null) {
-                    sessionFactory = sessionFactories.get(UnitOfWorkWithDetach.value());
-
-                    if (sessionFactory == null) {
-                        if (UnitOfWorkWithDetach.value().equals(HibernateXmlBundle.DEFAULT_NAME) &&
-                                sessionFactories.size() == 1) {
-                            sessionFactory = sessionFactories.values().iterator().next();
-                        } else {
-                            throw new IllegalArgumentException("Unregistered Hibernate bundle: '" +
-                                UnitOfWorkWithDetach.value() + "'");
-                        }
-                    }
-
-                    this.session = this.sessionFactory.openSession();
-
-                    try {
-                        configureSession();
-                        ManagedSessionContext.bind(this.session);
-                        beginTransaction();
-                    } catch (Throwable th) {
-                        this.session.close();
-                        this.session = null;
-                        ManagedSessionContext.unbind(this.sessionFactory);
-                        throw th;
-                    }
+                if (annotation != null) {
+                    UnitOfWork unitOfWork = new UnitOfWork(parent, annotation);
+                    event.getContainerRequest().setProperty(UNIT_OF_WORK, unitOfWork);
+                    unitOfWork.begin();
                 }
             } else if (event.getType() == RequestEvent.Type.RESP_FILTERS_START) {
-                if (this.session != null) {
-                    try {
-                        commitTransaction();
-                    } catch (Exception e) {
-                        rollbackTransaction();
-                        throw new MappableException(e);
-                    } finally {
-                        this.session.close();
-                        this.session = null;
-                        ManagedSessionContext.unbind(this.sessionFactory);
-
-                        Object result = event.getContainerResponse().getEntity();
-
-                        if (result != null) {
-                            HibernateDetachUtil.nullOutUninitializedFields(result,
-                                HibernateDetachUtil.FieldAccessType.Field);
-                        }
-                    }
+                UnitOfWork unitOfWork = (UnitOfWork) event.getContainerRequest().getProperty(UNIT_OF_WORK);
+
+                if (unitOfWork != null) {
+                    unitOfWork.commit(event.getContainerResponse().getEntity());
                 }
             } else if (event.getType() == RequestEvent.Type.ON_EXCEPTION) {
-                if (this.session != null) {
-                    try {
-                        rollbackTransaction();
-                    } finally {
-                        this.session.close();
-                        this.session = null;
-                        ManagedSessionContext.unbind(this.sessionFactory);
+                UnitOfWork unitOfWork = (UnitOfWork) event.getContainerRequest().getProperty(UNIT_OF_WORK);
+
+                if (unitOfWork != null) {
+                    unitOfWork.rollback();
+                }
+            }
+        }
+    }
+
+    /**
+     * UnitOfWork holds the state of the unit of work for one request. A unit of work ends only once; a request that
+     * fails and is then responded to is rolled back on the exception, and not also committed on the response.
+     */
+    private static class UnitOfWork {
+        private final UnitOfWorkWithDetachApplicationListener parent;
+        private final UnitOfWorkWithDetach UnitOfWorkWithDetach;
+
+        private Session session;
+        private SessionFactory sessionFactory;
+        private SessionFactory routedFrom;
+
+        /** Whether the unit of work has been committed or rolled back. */
+        private boolean finished;
+
+        public UnitOfWork(UnitOfWorkWithDetachApplicationListener parent, UnitOfWorkWithDetach UnitOfWorkWithDetach) {
+            this.parent = parent;
+            this.UnitOfWorkWithDetach = UnitOfWorkWithDetach;
+        }
+
+        public void begin() {
+            sessionFactory = parent.sessionFactories.get(UnitOfWorkWithDetach.value());
+
+            if (sessionFactory == null) {
+                if (UnitOfWorkWithDetach.value().equals(HibernateXmlBundle.DEFAULT_NAME) &&
+                        parent.sessionFactories.size() == 1) {
+                    sessionFactory = parent.sessionFactories.values().iterator().next();
+                } else {
+                    throw new IllegalArgumentException("Unregistered Hibernate bundle: '" +
+                        UnitOfWorkWithDetach.value() + "'");
+                }
+            }
+
+            parent.unitsOfWork.mark();
+            parent.observers.forEach(UnitOfWorkObserver::unitOfWorkBegun);
+
+            // Read-only units of work go to the read replica when there is one and it is available. The current
+            // session of the primary is routed to the replica, as that is what the DAOs hold.
+            if (UnitOfWorkWithDetach.readOnly()) {
+                routeToReplica();
+            }
+
+            // A lazy unit of work only opens its session, and begins its transaction, when the current session is
+            // first asked for.
+            if (UnitOfWorkWithDetach.lazy()) {
+                LazyManagedSessionContext.defer(this.sessionFactory, this::openSession);
+            } else {
+                openSession();
+            }
+        }
+
+        public void commit(Object result) {
+            if (!finish()) {
+                return;
+            }
+
+            cancelDeferredSession();
+            cancelRoute();
+
+            if (this.session != null) {
+                try {
+                    commitTransaction();
+                } catch (Exception e) {
+                    rollbackTransaction();
+                    throw new MappableException(e);
+                } finally {
+                    this.session.close();
+                    this.session = null;
+                    ManagedSessionContext.unbind(this.sessionFactory);
+                    end();
+
+                    if (result != null) {
+                        HibernateDetachUtil.nullOutUninitializedFields(result,
+                            HibernateDetachUtil.FieldAccessType.Field);
                     }
                 }
+            } else {
+                end();
+            }
+        }
+
+        public void rollback() {
+            if (!finish()) {
+                return;
+            }
+
+            cancelDeferredSession();
+            cancelRoute();
+
+            if (this.session != null) {
+                try {
+                    rollbackTransaction();
+                } finally {
+                    this.session.close();
+                    this.session = null;
+                    ManagedSessionContext.unbind(this.sessionFactory);
+                    end();
+                }
+            } else {
+                end();
+            }
+        }
+
+        /**
+         * Marks the unit of work as finished, if it has been begun and is not already finished.
+         *
+         * @return <tt>true</tt> iff the unit of work is to be ended now.
+         */
+        private boolean finish() {
+            // Nothing was begun if the session factory could not be found.
+            if (this.finished || (this.sessionFactory == null)) {
+                return false;
+            }
+
+            this.finished = true;
+
+            return true;
+        }
+
+        private Session openSession() {
+            this.session = this.sessionFactory.openSession();
+            parent.sessionsOpened.mark();
+
+            try {
+                configureSession();
+                ManagedSessionContext.bind(this.session);
+                beginTransaction();
+            } catch (Throwable th) {
+                this.session.close();
+                this.session = null;
+                ManagedSessionContext.unbind(this.sessionFactory);
+                throw th;
+            }
+
+            return this.session;
+        }
+
+        private void cancelDeferredSession() {
+            if (this.UnitOfWorkWithDetach.lazy()) {
+                LazyManagedSessionContext.undefer(this.sessionFactory);
+            }
+        }
+
+        private void end() {
+            parent.observers.forEach(UnitOfWorkObserver::unitOfWorkEnded);
+        }
+
+        private void routeToReplica() {
+            SessionFactory replica = parent.replicaFactories.get(this.sessionFactory);
+
+            if ((replica != null) && parent.replicaAvailability.get(this.sessionFactory).getAsBoolean()) {
+                LazyManagedSessionContext.route(this.sessionFactory, replica);
+                this.routedFrom = this.sessionFactory;
+                this.sessionFactory = replica;
+                parent.replicaUnitsOfWork.mark();
+            }
+        }
+
+        private void cancelRoute() {
+            if (this.routedFrom != null) {
+                LazyManagedSessionContext.unroute(this.routedFrom);
+                this.routedFrom = null;
             }
         }
 
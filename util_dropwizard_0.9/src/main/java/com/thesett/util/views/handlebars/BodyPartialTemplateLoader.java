@@ -0,0 +1,126 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.views.handlebars;
+
+import java.io.IOException;
+
+import com.github.jknack.handlebars.io.TemplateLoader;
+import com.github.jknack.handlebars.io.TemplateSource;
+
+/**
+ * BodyPartialTemplateLoader wraps a template loader, so that the {@link Layout#BODY_PARTIAL} partial resolves to the
+ * view template of the layout being rendered on the current thread. Partials are looked up as they are rendered, so a
+ * layout template including the body partial streams the view template straight into the output, with the same
+ * context as the layout. All other locations are loaded by the wrapped loader.
+ *
+ * <p/>The template sources given for the body partial are those of the view templates, so compiled view templates are
+ * cached by source and shared, whether they are rendered as a body or directly.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Resolve the body partial to the view template of the current layout. </td></tr>
+ * <tr><td> Load all other templates. </td><td> {@link TemplateLoader} </td></tr>
+ * </table></pre>
+ */
+class BodyPartialTemplateLoader implements TemplateLoader
+{
+    /** Holds the location of the view template of the layout being rendered on the current thread. */
+    private static final ThreadLocal<String> BODY = new ThreadLocal<>();
+
+    /** The template loader to load all other templates with. */
+    private final TemplateLoader delegate;
+
+    /**
+     * Creates a body partial template loader, over another template loader.
+     *
+     * @param delegate The template loader to load all other templates with.
+     */
+    BodyPartialTemplateLoader(TemplateLoader delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sets the location of the view template to render as the body partial on the current thread.
+     *
+     * @param location The location of the view template, or <tt>null</tt> to clear it.
+     */
+    static void setBody(String location)
+    {
+        if (location == null)
+        {
+            BODY.remove();
+        }
+        else
+        {
+            BODY.set(location);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>The body partial is loaded from the location of the view template of the current layout.
+     */
+    public TemplateSource sourceAt(String location) throws IOException
+    {
+        return delegate.sourceAt(isBody(location) ? BODY.get() : location);
+    }
+
+    /** {@inheritDoc} */
+    public String resolve(String location)
+    {
+        return delegate.resolve(isBody(location) ? BODY.get() : location);
+    }
+
+    /** {@inheritDoc} */
+    public String getPrefix()
+    {
+        return delegate.getPrefix();
+    }
+
+    /** {@inheritDoc} */
+    public String getSuffix()
+    {
+        return delegate.getSuffix();
+    }
+
+    /** {@inheritDoc} */
+    public void setPrefix(String prefix)
+    {
+        delegate.setPrefix(prefix);
+    }
+
+    /** {@inheritDoc} */
+    public void setSuffix(String suffix)
+    {
+        delegate.setSuffix(suffix);
+    }
+
+    /**
+     * Checks if a location is the body partial, and a layout is being rendered on the current thread.
+     *
+     * @param  location The location to check.
+     *
+     * @return <tt>true</tt> if the location should be loaded from the view template of the current layout.
+     */
+    private boolean isBody(String location)
+    {
+        String name = location.startsWith("/") ? location.substring(1) : location;
+
+        return Layout.BODY_PARTIAL.equals(name) && (BODY.get() != null);
+    }
+}
@@ -1,5 +1,9 @@
 package com.thesett.util.views.handlebars;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -7,6 +11,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import com.thesett.util.resource.ResourceIndex;
 
 import com.github.jknack.handlebars.Helper;
 import com.github.jknack.handlebars.helper.StringHelpers;
@@ -21,12 +30,27 @@ import io.dropwizard.setup.Environment;
 /**
  * HandlebarsBundle provides a configuration bundle for setting up the handlebars renderer.
  *
+ * <p/>When templates are cached, the templates below the added template paths are compiled on start up. With no
+ * template paths added, templates are compiled as they are first rendered instead, as they could be anywhere on the
+ * classpath.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Configure the handlebars rendered. </td></tr>
+ * <tr><td> Precompile all templates on the template paths, when caching. </td><td> {@link ResourceIndex} </td></tr>
+ * <tr><td> Watch filesystem overrides for changes, when caching. </td><td> {@link TemplateWatcher} </td></tr>
  * </table></pre>
  */
 public abstract class HandlebarsBundle implements ConfiguredBundle<HandlebarsBundleConfig> {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(HandlebarsBundle.class.getName());
+
+    /** The file suffix of templates. */
+    private static final String TEMPLATE_SUFFIX = ".hbs";
+
+    /** Matches the resource names of templates. */
+    private static final String TEMPLATE_PATTERN = ".*\\.hbs";
+
     /** Holds additional template paths. */
     private final Collection<String> templatePaths = new LinkedHashSet<>();
     private final Map<String, String> overrides = new HashMap<>();
@@ -82,11 +106,86 @@ public abstract class HandlebarsBundle implements ConfiguredBundle<HandlebarsBun
             }
 
             TemplateLoader[] templateLoaderArray = loaders.toArray(new TemplateLoader[loaders.size()]);
-            HandlebarsViewRenderer.handlebars = HandlebarsViewRenderer.handlebars.with(templateLoaderArray);
+            HandlebarsViewRenderer.setTemplateLoaders(templateLoaderArray);
         }
 
         HandlebarsViewRenderer.useCache = handlebarsConfig.isCacheTemplates();
         StringHelpers.register(HandlebarsViewRenderer.handlebars);
+
+        if (handlebarsConfig.isCacheTemplates()) {
+            HandlebarsViewRenderer.precompile(findTemplateNames());
+
+            // Watch the filesystem overrides for changes, so that templates can be edited whilst cached.
+            List<Path> overrideDirectories = new LinkedList<>();
+
+            for (String path : templatePaths) {
+                if (overrides.containsKey(path)) {
+                    overrideDirectories.add(Paths.get(overrides.get(path)));
+                }
+            }
+
+            if (handlebarsConfig.isWatchOverrides() && !overrideDirectories.isEmpty()) {
+                environment.lifecycle().manage(new TemplateWatcher(overrideDirectories,
+                        handlebarsConfig.getWatchInterval(),
+                        environment.lifecycle().scheduledExecutorService("handlebars-template-watcher-%d").build()));
+            }
+        }
+    }
+
+    /**
+     * Finds the names of all templates on the template paths, as they would be named by views.
+     *
+     * @return The names of all templates on the template paths, none if there are no template paths.
+     */
+    private Set<String> findTemplateNames() {
+        Set<String> templateNames = new LinkedHashSet<>();
+
+        for (String path : templatePaths) {
+            if (overrides.containsKey(path)) {
+                findFileTemplateNames(overrides.get(path), templateNames);
+            } else {
+                findClassPathTemplateNames(path, templateNames);
+            }
+        }
+
+        return templateNames;
+    }
+
+    /**
+     * Finds the names of all templates below a path on the classpath.
+     *
+     * @param path          The path on the classpath.
+     * @param templateNames The template names to add to.
+     */
+    private void findClassPathTemplateNames(String path, Set<String> templateNames) {
+        String packagePath = path.replaceAll("^/+|/+$", "");
+        int prefixLength = packagePath.isEmpty() ? 0 : (packagePath.length() + 1);
+
+        for (String resourceName : ResourceIndex.getInstance().findAll(TEMPLATE_PATTERN, packagePath)) {
+            templateNames.add("/" + resourceName.substring(prefixLength));
+        }
+    }
+
+    /**
+     * Finds the names of all templates below a directory on the filesystem.
+     *
+     * @param directory     The directory.
+     * @param templateNames The template names to add to.
+     */
+    private void findFileTemplateNames(String directory, Set<String> templateNames) {
+        Path root = Paths.get(directory);
+
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> file.toString().endsWith(TEMPLATE_SUFFIX))
+                .forEach(file -> templateNames.add("/" + root.relativize(file).toString().replace('\\', '/')));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to list the templates in " + directory + ", they will not be precompiled.",
+                e);
+        }
     }
 
     protected abstract void configureHandlebars(HandlebarsBundleConfig configuration);
@@ -3,6 +3,8 @@ package com.thesett.util.views.handlebars;
 import java.util.List;
 import java.util.Map;
 
+import io.dropwizard.util.Duration;
+
 /**
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
@@ -12,6 +14,8 @@ import java.util.Map;
 public class HandlebarsConfig {
     private boolean cacheTemplates = true;
     private List<Map<String, String>> overrides;
+    private boolean watchOverrides;
+    private Duration watchInterval = Duration.seconds(1);
 
     public boolean isCacheTemplates() {
         return cacheTemplates;
@@ -28,4 +32,20 @@ public class HandlebarsConfig {
     public void setOverrides(List<Map<String, String>> overrides) {
         this.overrides = overrides;
     }
+
+    public boolean isWatchOverrides() {
+        return watchOverrides;
+    }
+
+    public void setWatchOverrides(boolean watchOverrides) {
+        this.watchOverrides = watchOverrides;
+    }
+
+    public Duration getWatchInterval() {
+        return watchInterval;
+    }
+
+    public void setWatchInterval(Duration watchInterval) {
+        this.watchInterval = watchInterval;
+    }
 }
@@ -20,10 +20,14 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.util.HashMap;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.WebApplicationException;
@@ -31,12 +35,16 @@ import javax.ws.rs.WebApplicationException;
 import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.Template;
 import com.github.jknack.handlebars.cache.GuavaTemplateCache;
+import com.github.jknack.handlebars.io.ClassPathTemplateLoader;
+import com.github.jknack.handlebars.io.CompositeTemplateLoader;
+import com.github.jknack.handlebars.io.TemplateLoader;
 import com.github.jknack.handlebars.io.TemplateSource;
 import com.google.common.base.Charsets;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import io.dropwizard.views.View;
 import io.dropwizard.views.ViewRenderer;
@@ -44,10 +52,23 @@ import io.dropwizard.views.ViewRenderer;
 /**
  * Renders handlebars templates from data views.
  *
+ * <p/>Compiled templates are cached by template name, unless caching is switched off, and can be precompiled ahead of
+ * rendering. A {@link Layout} is rendered by rendering its layout template, with the view template streamed into the
+ * output as the {@link Layout#BODY_PARTIAL} partial wherever it is included, directly or from another partial, so the
+ * body is never held as a string. Layout templates that use the <tt>body</tt> property of the layout instead have the
+ * view template rendered into it when they first ask for it.
+ *
+ * <p/>Templates that are changed on the filesystem can be evicted individually, by a {@link TemplateWatcher}, so that
+ * caching can stay on whilst templates are edited.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Indicate which templates are renderable with handlebars. </td></tr>
  * <tr><td> Render handlebars templates from views. </td></tr>
+ * <tr><td> Render layouts with the view template as the body partial. </td>
+ *     <td> {@link BodyPartialTemplateLoader} </td></tr>
+ * <tr><td> Precompile templates. </td></tr>
+ * <tr><td> Evict changed templates. </td></tr>
  * </table></pre>
  */
 public class HandlebarsViewRenderer implements ViewRenderer
@@ -68,7 +89,9 @@ public class HandlebarsViewRenderer implements ViewRenderer
             });
 
     /** The handlebars compiler. */
-    protected static Handlebars handlebars = new Handlebars().with(new GuavaTemplateCache(templateCache));
+    protected static Handlebars handlebars =
+        new Handlebars(new BodyPartialTemplateLoader(new ClassPathTemplateLoader())).with(
+            new GuavaTemplateCache(templateCache));
 
     /** The caching switch. */
     protected static boolean useCache = true;
@@ -95,20 +118,25 @@ public class HandlebarsViewRenderer implements ViewRenderer
         {
             if (view instanceof Layout)
             {
-                Writer buffer = new StringWriter();
-
                 Layout layout = (Layout) view;
-                Template layoutTemplate = loadTemplate(layout.getLayoutTemplateName());
-                Template viewTemplate = loadTemplate(layout.getTemplateName());
+                Template layoutTemplate = getTemplate(layout.getLayoutTemplateName());
 
-                viewTemplate.apply(view, buffer);
+                BodyPartialTemplateLoader.setBody(toLocation(layout.getTemplateName()));
+                layout.setBodyRenderer(this::renderBody);
 
-                layout.setBody(buffer.toString());
-                layoutTemplate.apply(layout, writer);
+                try
+                {
+                    layoutTemplate.apply(layout, writer);
+                }
+                finally
+                {
+                    layout.setBodyRenderer(null);
+                    BodyPartialTemplateLoader.setBody(null);
+                }
             }
             else
             {
-                loadTemplate(view.getTemplateName()).apply(view, writer);
+                getTemplate(view.getTemplateName()).apply(view, writer);
             }
         }
         catch (IOException | WebApplicationException e)
@@ -125,6 +153,105 @@ public class HandlebarsViewRenderer implements ViewRenderer
         return "";
     }
 
+    /**
+     * Sets the template loaders that templates are loaded from, in order of precedence. Any templates already compiled
+     * are discarded.
+     *
+     * @param loaders The template loaders.
+     */
+    static void setTemplateLoaders(TemplateLoader... loaders)
+    {
+        TemplateLoader loader = (loaders.length == 1) ? loaders[0] : new CompositeTemplateLoader(loaders);
+
+        handlebars = handlebars.with(new BodyPartialTemplateLoader(loader));
+
+        invalidateAll();
+    }
+
+    /**
+     * Compiles templates into the compilation cache ahead of rendering, so that no request pays for compiling them. A
+     * template that cannot be loaded or compiled is logged and skipped, and will fail again when it is rendered.
+     *
+     * @param templateNames The names of the templates, as given by views.
+     */
+    static void precompile(Collection<String> templateNames)
+    {
+        int compiled = 0;
+
+        for (String templateName : templateNames)
+        {
+            try
+            {
+                compilationCache.get(templateName);
+                compiled++;
+            }
+            catch (ExecutionException | UncheckedExecutionException e)
+            {
+                LOG.log(Level.WARNING, "Failed to precompile template " + templateName + ".", e.getCause());
+            }
+        }
+
+        LOG.fine("Precompiled " + compiled + " of " + templateNames.size() + " templates.");
+    }
+
+    /**
+     * Evicts a template that has changed from the caches, so that it is compiled again when next rendered.
+     *
+     * @param file         The template file.
+     * @param templateName The name of the template, as given by views.
+     */
+    static void invalidate(Path file, String templateName)
+    {
+        compilationCache.invalidate(templateName);
+        templateCache.asMap().keySet().removeIf(source -> isSourceOf(source, file));
+    }
+
+    /** Evicts all templates from the caches, so that they are compiled again when next rendered. */
+    static void invalidateAll()
+    {
+        templateCache.invalidateAll();
+        compilationCache.invalidateAll();
+    }
+
+    /**
+     * Checks if a template source was loaded from a file.
+     *
+     * @param  source The template source.
+     * @param  file   The absolute, normalized path of the file.
+     *
+     * @return <tt>true</tt> iff the template source was loaded from the file.
+     */
+    private static boolean isSourceOf(TemplateSource source, Path file)
+    {
+        try
+        {
+            return Paths.get(source.filename()).toAbsolutePath().normalize().equals(file);
+        }
+        catch (InvalidPathException e)
+        {
+            // Not a filesystem template.
+            return false;
+        }
+    }
+
+    /**
+     * Renders the view template of a layout into a string, for layout templates that refer to it as
+     * <tt>{{{body}}}</tt>.
+     *
+     * @param  layout The layout being rendered.
+     *
+     * @return The rendered view template.
+     *
+     * @throws IOException If some IO error occurs whilst rendering.
+     */
+    private String renderBody(Layout layout) throws IOException
+    {
+        Writer buffer = new StringWriter();
+        getTemplate(layout.getTemplateName()).apply(layout, buffer);
+
+        return buffer.toString();
+    }
+
     /**
      * Loads a handlebars template and compiles it. This is used by the cache, or can be used directly to force
      * re-compilation of templates each time.
@@ -137,9 +264,30 @@ public class HandlebarsViewRenderer implements ViewRenderer
      */
     private static Template loadTemplate(String srcUrl) throws IOException
     {
-        return handlebars.compile(srcUrl.replaceAll(".hbs$", ""));
+        return handlebars.compile(toLocation(srcUrl));
+    }
+
+    /**
+     * Converts a template name, as given by a view, to a location for the template loader, by removing the suffix.
+     *
+     * @param  templateName The template name.
+     *
+     * @return The location of the template.
+     */
+    private static String toLocation(String templateName)
+    {
+        return templateName.replaceAll(".hbs$", "");
     }
 
+    /**
+     * Provides a compiled template, from the compilation cache if caching is on, or by compiling it if not.
+     *
+     * @param  srcUrl The template name.
+     *
+     * @return The compiled template.
+     *
+     * @throws IOException If some IO error occurs whilst loading the template.
+     */
     private Template getTemplate(String srcUrl) throws IOException
     {
         if (useCache)
@@ -15,14 +15,20 @@
  */
 package com.thesett.util.views.handlebars;
 
+import java.io.IOException;
+
 import io.dropwizard.views.View;
 
 /**
  * A Layout extends the concept of a DropWizard View, by combining both a layout template and a view template. The view
  * template will be rendered, and inserted into the layout template.
  *
- * <p/>A Layout has a special field called "body", into which the body will be rendered, prior to rendering the complete
- * layout.
+ * <p/>The layout template includes the view template as the {@link #BODY_PARTIAL} partial, <tt>{{> body}}</tt>. The
+ * view template is rendered straight into the output at that point, with the layout as its context.
+ *
+ * <p/>Layout templates may instead insert the rendered view template as the "body" property, with <tt>{{{body}}}</tt>.
+ * The view template is only rendered into a string for this when the property is asked for. This holds the whole body
+ * as a string, so is deprecated.
  *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
@@ -31,10 +37,16 @@ import io.dropwizard.views.View;
  */
 public class Layout extends View
 {
+    /** The name of the partial that the view template is rendered as, within the layout template. */
+    public static final String BODY_PARTIAL = "body";
+
     protected final String layoutTemplateName;
 
     protected String body;
 
+    /** Renders the view template into the body when it is first asked for, <tt>null</tt> when not rendering. */
+    private BodyRenderer bodyRenderer;
+
     public Layout(String templateName, String layoutTemplateName)
     {
         super(templateName);
@@ -42,11 +54,42 @@ public class Layout extends View
         this.layoutTemplateName = layoutTemplateName;
     }
 
+    /**
+     * Provides a body set on this layout. Whilst the layout is being rendered, the view template is rendered into the
+     * body on first asking, if no body has been set.
+     *
+     * @return     The body.
+     *
+     * @deprecated This holds the whole rendered view template as a string; layout templates should include the body
+     *             with <tt>{{> body}}</tt>.
+     */
+    @Deprecated
     public String getBody()
     {
+        if ((body == null) && (bodyRenderer != null))
+        {
+            try
+            {
+                body = bodyRenderer.render(this);
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
         return body;
     }
 
+    /**
+     * Sets a body on this layout.
+     *
+     * @param      body The body.
+     *
+     * @deprecated This holds the whole rendered view template as a string; layout templates should include the body
+     *             with <tt>{{> body}}</tt>.
+     */
+    @Deprecated
     public void setBody(String body)
     {
         this.body = body;
@@ -56,4 +99,29 @@ public class Layout extends View
     {
         return layoutTemplateName;
     }
+
+    /**
+     * Sets how to render the view template into the body, should it be asked for whilst the layout is being rendered.
+     *
+     * @param bodyRenderer Renders the view template into the body, or <tt>null</tt> once rendering is over.
+     */
+    void setBodyRenderer(BodyRenderer bodyRenderer)
+    {
+        this.bodyRenderer = bodyRenderer;
+    }
+
+    /** BodyRenderer renders the view template of a layout into a string. */
+    interface BodyRenderer
+    {
+        /**
+         * Renders the view template of a layout.
+         *
+         * @param  layout The layout.
+         *
+         * @return The rendered view template.
+         *
+         * @throws IOException If some IO error occurs whilst rendering.
+         */
+        String render(Layout layout) throws IOException;
+    }
 }
@@ -0,0 +1,250 @@
+package com.thesett.util.views.handlebars;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * TemplateWatcher watches the filesystem directories that override templates, and evicts only the templates that
+ * change from the template caches of the {@link HandlebarsViewRenderer}. This allows templates to be cached, whilst
+ * still being edited live.
+ *
+ * <p/>The directories and all their sub-directories are watched with a {@link WatchService}, which is polled
+ * periodically. A checksum of the content of every template is tracked, so that a template is only evicted when its
+ * content actually changes, and not once for every event that an editor causes whilst saving it. The last modified
+ * time is not enough for this, as a template truncated and then written again within the resolution of the file system
+ * clock keeps the same time, and the write would be missed. If events are lost, all templates are evicted.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Watch template directories for changes. </td><td> {@link WatchService} </td></tr>
+ * <tr><td> Evict changed templates from the caches. </td><td> {@link HandlebarsViewRenderer} </td></tr>
+ * </table></pre>
+ */
+public class TemplateWatcher implements Managed {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(TemplateWatcher.class.getName());
+
+    /** The file suffix of templates. */
+    private static final String TEMPLATE_SUFFIX = ".hbs";
+
+    /** The directories to watch. */
+    private final List<Path> directories = new ArrayList<>();
+
+    /** The interval between polls for changes. */
+    private final Duration interval;
+
+    /** The executor to run polls on. */
+    private final ScheduledExecutorService executor;
+
+    /** Holds the watched directories by their watch keys. */
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+
+    /** Holds the checksums of the content of templates. */
+    private final Map<Path, Long> checksums = new HashMap<>();
+
+    /** The watch service, whilst running. */
+    private WatchService watchService;
+
+    /** The scheduled polls, whilst running. */
+    private ScheduledFuture<?> polls;
+
+    /**
+     * Creates a template watcher.
+     *
+     * @param directories The directories to watch.
+     * @param interval    The interval between polls for changes.
+     * @param executor    The executor to run polls on.
+     */
+    public TemplateWatcher(Collection<Path> directories, Duration interval, ScheduledExecutorService executor) {
+        for (Path directory : directories) {
+            this.directories.add(directory.toAbsolutePath().normalize());
+        }
+
+        this.interval = interval;
+        this.executor = executor;
+    }
+
+    /** {@inheritDoc} */
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+
+        for (Path directory : directories) {
+            if (Files.isDirectory(directory)) {
+                watch(directory);
+            }
+        }
+
+        polls =
+            executor.scheduleWithFixedDelay(this::poll, interval.toMilliseconds(), interval.toMilliseconds(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** {@inheritDoc} */
+    public void stop() throws IOException {
+        if (polls != null) {
+            polls.cancel(false);
+            polls = null;
+        }
+
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    /**
+     * Takes all pending changes from the watch service, and evicts the templates that they change.
+     */
+    public void poll() {
+        try {
+            for (WatchKey key = watchService.poll(); key != null; key = watchService.poll()) {
+                Path directory = watched.get(key);
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        LOG.fine("Template watch events lost, evicting all templates.");
+                        HandlebarsViewRenderer.invalidateAll();
+
+                        continue;
+                    }
+
+                    Path file = directory.resolve((Path) event.context());
+
+                    if ((event.kind() == StandardWatchEventKinds.ENTRY_CREATE) && Files.isDirectory(file)) {
+                        watch(file);
+                    } else {
+                        changed(file);
+                    }
+                }
+
+                if (!key.reset()) {
+                    watched.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Stopped whilst polling, so there is nothing more to do.
+        } catch (IOException | RuntimeException e) {
+            // Caught so that polling is not cancelled.
+            LOG.log(Level.WARNING, "Failed to poll for template changes.", e);
+        }
+    }
+
+    /**
+     * Watches a directory and all directories below it, and records the checksums of the templates within them.
+     *
+     * @param  directory The directory.
+     *
+     * @throws IOException If the directory cannot be watched.
+     */
+    private void watch(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isDirectory(file)) {
+                    WatchKey key =
+                        file.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    watched.put(key, file);
+                } else if (isTemplate(file)) {
+                    checksums.put(file, checksum(file));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts a template from the caches, if its content has changed.
+     *
+     * @param  file The template file.
+     *
+     * @throws IOException If the template cannot be read.
+     */
+    private void changed(Path file) throws IOException {
+        if (!isTemplate(file)) {
+            return;
+        }
+
+        long checksum = checksum(file);
+        Long previous = checksums.put(file, checksum);
+
+        if ((previous != null) && (previous == checksum)) {
+            return;
+        }
+
+        for (Path directory : directories) {
+            if (file.startsWith(directory)) {
+                String templateName = "/" + directory.relativize(file).toString().replace('\\', '/');
+
+                LOG.fine("Template " + templateName + " changed, evicting it.");
+                evict(file, templateName);
+            }
+        }
+    }
+
+    /**
+     * Evicts a changed template from the template caches of the {@link HandlebarsViewRenderer}.
+     *
+     * @param file         The template file.
+     * @param templateName The name of the template, as given by views.
+     */
+    protected void evict(Path file, String templateName) {
+        HandlebarsViewRenderer.invalidate(file, templateName);
+    }
+
+    /**
+     * Checks if a file is a template.
+     *
+     * @param  file The file.
+     *
+     * @return <tt>true</tt> iff the file is a template.
+     */
+    private boolean isTemplate(Path file) {
+        return file.toString().endsWith(TEMPLATE_SUFFIX);
+    }
+
+    /**
+     * Computes a checksum of the content of a file.
+     *
+     * @param  file The file.
+     *
+     * @return The CRC-32 of the content of the file, or -1 if it does not exist.
+     *
+     * @throws IOException If the file cannot be read.
+     */
+    private long checksum(Path file) throws IOException {
+        byte[] content;
+
+        try {
+            content = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        return crc.getValue();
+    }
+}
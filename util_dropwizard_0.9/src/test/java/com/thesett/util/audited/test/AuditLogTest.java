@@ -0,0 +1,192 @@
+package com.thesett.util.audited.test;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.thesett.util.audited.AuditBundle;
+import com.thesett.util.audited.AuditLog;
+import com.thesett.util.audited.AuditRecord;
+import com.thesett.util.audited.AuditSink;
+
+/**
+ * Unit tests the {@link com.thesett.util.audited.AuditLog} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that records are dropped until the log is started.
+ * <tr><td>Check that recorded records are written out when the log is stopped.
+ * <tr><td>Check that a log can be started again after it has been stopped.
+ * <tr><td>Check that interrupting the writer does not stop the log.
+ * <tr><td>Check that a writer that dies is replaced.
+ * <tr><td>Check that records are dropped when the buffer is full.
+ * <tr><td>Check that each audit bundle has its own log.
+ * </table></pre>
+ */
+public class AuditLogTest {
+    /** Check that records are dropped until the log is started. */
+    @Test
+    public void testRecordsDroppedUntilStarted() throws Exception {
+        ListSink sink = new ListSink();
+        AuditLog log = new AuditLog("test", 16, sink);
+
+        assertFalse(log.record(newRecord()));
+        assertEquals(1, log.getDroppedCount());
+        assertEquals(0, log.getRecordedCount());
+    }
+
+    /** Check that recorded records are written out when the log is stopped. */
+    @Test
+    public void testRecordsWrittenOnStop() throws Exception {
+        ListSink sink = new ListSink();
+        AuditLog log = new AuditLog("test", 16, sink);
+        log.start();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(log.record(newRecord()));
+        }
+
+        log.stop();
+
+        assertEquals(10, sink.records.size());
+        assertEquals(10, log.getWrittenCount());
+        assertEquals(0, log.getQueueDepth());
+    }
+
+    /** Check that a log can be started again after it has been stopped. */
+    @Test
+    public void testRestartAfterStop() throws Exception {
+        ListSink sink = new ListSink();
+        AuditLog log = new AuditLog("test", 16, sink);
+        log.start();
+        log.stop();
+
+        assertFalse(log.record(newRecord()));
+
+        log.start();
+        assertTrue(log.record(newRecord()));
+        log.stop();
+
+        assertEquals(1, sink.records.size());
+    }
+
+    /** Check that interrupting the writer does not stop the log. */
+    @Test
+    public void testInterruptDoesNotStopLog() throws Exception {
+        ListSink sink = new ListSink();
+        AuditLog log = new AuditLog("interrupted", 16, sink);
+        log.start();
+
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("interrupted-writer".equals(thread.getName())) {
+                thread.interrupt();
+            }
+        }
+
+        Thread.sleep(200);
+
+        assertTrue(log.record(newRecord()));
+        log.stop();
+
+        assertEquals(1, sink.records.size());
+    }
+
+    /** Check that a writer that dies is replaced. */
+    @Test
+    public void testDeadWriterReplaced() throws Exception {
+        ListSink sink =
+            new ListSink() {
+                private boolean died;
+
+                public void write(AuditRecord record) {
+                    if (!died) {
+                        died = true;
+                        throw new StackOverflowError();
+                    }
+
+                    super.write(record);
+                }
+            };
+
+        AuditLog log = new AuditLog("dying", 16, sink);
+        log.start();
+        assertTrue(log.record(newRecord()));
+
+        Thread.sleep(200);
+
+        assertTrue(log.record(newRecord()));
+        log.stop();
+
+        assertEquals(1, sink.records.size());
+    }
+
+    /** Check that records are dropped when the buffer is full. */
+    @Test
+    public void testFullBufferDrops() throws Exception {
+        Object lock = new Object();
+        ListSink sink =
+            new ListSink() {
+                public void write(AuditRecord record) {
+                    synchronized (lock) {
+                        super.write(record);
+                    }
+                }
+            };
+
+        AuditLog log = new AuditLog("full", 2, sink);
+        log.start();
+
+        synchronized (lock) {
+            assertTrue(log.record(newRecord()));
+
+            // Wait for the writer to take the first record and block on the sink.
+            while (log.getQueueDepth() > 0) {
+                Thread.sleep(10);
+            }
+
+            assertTrue(log.record(newRecord()));
+            assertTrue(log.record(newRecord()));
+            assertFalse(log.record(newRecord()));
+        }
+
+        log.stop();
+
+        assertEquals(3, sink.records.size());
+        assertEquals(1, log.getDroppedCount());
+    }
+
+    /** Check that each audit bundle has its own log. */
+    @Test
+    public void testBundlesHaveOwnLogs() {
+        assertNotSame(new AuditBundle().getAuditLog(), new AuditBundle().getAuditLog());
+        assertNotSame(AuditLog.getDefault(), new AuditBundle().getAuditLog());
+    }
+
+    /**
+     * Creates an audit record to test with.
+     *
+     * @return An audit record.
+     */
+    private static AuditRecord newRecord() throws NoSuchMethodException {
+        return new AuditRecord(System.currentTimeMillis(), Object.class.getMethod("toString"), "GET",
+            URI.create("http://localhost/test"), Collections.<String, List<String>>emptyMap());
+    }
+
+    /** ListSink collects the records written to it. */
+    private static class ListSink implements AuditSink {
+        /** The records written. */
+        final List<AuditRecord> records = new CopyOnWriteArrayList<>();
+
+        /** {@inheritDoc} */
+        public void write(AuditRecord record) {
+            records.add(record);
+        }
+    }
+}
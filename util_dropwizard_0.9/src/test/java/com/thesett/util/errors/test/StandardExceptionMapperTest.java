@@ -0,0 +1,90 @@
+package com.thesett.util.errors.test;
+
+import javax.ws.rs.NotFoundException;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.thesett.util.error.StackTraceRateLimiter;
+import com.thesett.util.errors.StandardExceptionMapper;
+
+/**
+ * Unit tests the {@link com.thesett.util.errors.StandardExceptionMapper} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that exceptions take the status of the closest of their classes with a mapping.
+ * <tr><td>Check that exceptions with no mapping give a server error.
+ * <tr><td>Check that each mapping counts the exceptions it maps in the metric registry.
+ * <tr><td>Check that a mapping added later gets a counter in the metric registry.
+ * <tr><td>Check that the number of suppressed stack traces is a gauge in the metric registry.
+ * </table></pre>
+ */
+public class StandardExceptionMapperTest {
+    /** The metric registry. */
+    private final MetricRegistry registry = new MetricRegistry();
+
+    /** The mapper under test. */
+    private final StandardExceptionMapper mapper =
+        new StandardExceptionMapper(new StackTraceRateLimiter(1, 60000), registry, "mapper");
+
+    /** Check that exceptions take the status of the closest of their classes with a mapping. */
+    @Test
+    public void testClosestMappingUsed() {
+        mapper.addMapping(IllegalArgumentException.class, "illegal-argument", 400);
+        mapper.addMapping(NumberFormatException.class, "number-format", 422);
+
+        assertEquals(400, mapper.toResponse(new IllegalArgumentException()).getStatus());
+        assertEquals(422, mapper.toResponse(new NumberFormatException()).getStatus());
+        assertEquals(404, mapper.toResponse(new NotFoundException()).getStatus());
+    }
+
+    /** Check that exceptions with no mapping give a server error. */
+    @Test
+    public void testUnhandledIsServerError() {
+        assertEquals(500, mapper.toResponse(new IllegalStateException("failed")).getStatus());
+        assertEquals(1, mapper.getErrorCount(StandardExceptionMapper.UNHANDLED));
+    }
+
+    /** Check that each mapping counts the exceptions it maps in the metric registry. */
+    @Test
+    public void testMappingsCounted() {
+        mapper.toResponse(new NotFoundException());
+        mapper.toResponse(new NotFoundException());
+        mapper.toResponse(new IllegalStateException());
+
+        assertEquals(2, registry.counter("mapper.errors.not-found").getCount());
+        assertEquals(1, registry.counter("mapper.errors.unhandled").getCount());
+        assertEquals(0, registry.counter("mapper.errors.unauthorized").getCount());
+    }
+
+    /** Check that a mapping added later gets a counter in the metric registry. */
+    @Test
+    public void testLaterMappingCounted() {
+        mapper.addMapping(UnsupportedOperationException.class, "unsupported", 501);
+        mapper.toResponse(new UnsupportedOperationException());
+
+        assertEquals(1, registry.counter("mapper.errors.unsupported").getCount());
+        assertEquals(1, mapper.getErrorCount("unsupported"));
+    }
+
+    /** Check that the number of suppressed stack traces is a gauge in the metric registry. */
+    @Test
+    public void testSuppressedTracesGauge() {
+        for (int i = 0; i < 3; i++) {
+            mapper.toResponse(failure());
+        }
+
+        assertEquals(2L, registry.getGauges().get("mapper.suppressed-traces").getValue());
+    }
+
+    /**
+     * Creates an exception that is always thrown from the same place.
+     *
+     * @return The exception.
+     */
+    private static RuntimeException failure() {
+        return new IllegalStateException("failure");
+    }
+}
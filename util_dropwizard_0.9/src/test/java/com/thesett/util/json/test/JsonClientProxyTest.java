@@ -0,0 +1,245 @@
+package com.thesett.util.json.test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.thesett.util.json.JsonClientProxy;
+import com.thesett.util.json.JsonClientProxy.Mode;
+
+/**
+ * Unit tests the {@link com.thesett.util.json.JsonClientProxy} class, in its structural copy mode.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that fields declared as concrete collection and map classes are copied as those classes.
+ * <tr><td>Check that fields declared as collection and map interfaces are copied as Jackson would read them.
+ * <tr><td>Check that sorted collections keep their comparators.
+ * <tr><td>Check that shared references and cycles are preserved in the copy.
+ * <tr><td>Check that arguments and return values declared as concrete collection classes are copied as those classes.
+ * <tr><td>Check that values that cannot be copied structurally are copied through JSON instead.
+ * </table></pre>
+ */
+public class JsonClientProxyTest {
+    /** The proxied service, copying values structurally. */
+    private final Service service =
+        (Service) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Service.class },
+            new JsonClientProxy(new EchoService(), Mode.STRUCTURAL_COPY));
+
+    /** Check that fields declared as concrete collection and map classes are copied as those classes. */
+    @Test
+    public void testConcreteContainerFieldsCopied() {
+        Holder holder = new Holder();
+        holder.linked.add("a");
+        holder.deque.add("b");
+        holder.vector.add("c");
+        holder.concurrent.put("d", "e");
+        holder.enumMap.put(TimeUnit.SECONDS, "f");
+        holder.enumSet.add(TimeUnit.MINUTES);
+
+        Holder copy = service.echo(holder);
+
+        assertNotSame(holder.linked, copy.linked);
+        assertEquals(holder.linked, copy.linked);
+        assertNotSame(holder.deque, copy.deque);
+        assertEquals(Collections.singletonList("b"), new ArrayList<>(copy.deque));
+        assertNotSame(holder.vector, copy.vector);
+        assertEquals(holder.vector, copy.vector);
+        assertNotSame(holder.concurrent, copy.concurrent);
+        assertEquals(holder.concurrent, copy.concurrent);
+        assertNotSame(holder.enumMap, copy.enumMap);
+        assertEquals(holder.enumMap, copy.enumMap);
+        assertNotSame(holder.enumSet, copy.enumSet);
+        assertEquals(holder.enumSet, copy.enumSet);
+    }
+
+    /** Check that fields declared as collection and map interfaces are copied as Jackson would read them. */
+    @Test
+    public void testInterfaceContainerFieldsCopied() {
+        Holder holder = new Holder();
+        holder.list = new LinkedList<>(Arrays.asList("a", "b"));
+        holder.map = new ConcurrentHashMap<>(Collections.singletonMap("c", "d"));
+
+        Holder copy = service.echo(holder);
+
+        assertEquals(ArrayList.class, copy.list.getClass());
+        assertEquals(holder.list, copy.list);
+        assertEquals(LinkedHashMap.class, copy.map.getClass());
+        assertEquals(holder.map, copy.map);
+    }
+
+    /** Check that sorted collections keep their comparators. */
+    @Test
+    public void testSortedComparatorKept() {
+        Holder holder = new Holder();
+        holder.sorted = new TreeSet<>(Collections.reverseOrder());
+        holder.sorted.addAll(Arrays.asList("a", "b", "c"));
+
+        Holder copy = service.echo(holder);
+
+        assertNotSame(holder.sorted, copy.sorted);
+        assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<>(copy.sorted));
+    }
+
+    /** Check that shared references and cycles are preserved in the copy. */
+    @Test
+    public void testSharedReferencesPreserved() {
+        Holder holder = new Holder();
+        holder.list = holder.linked;
+        holder.self = holder;
+
+        Holder copy = service.echo(holder);
+
+        assertNotSame(holder, copy);
+        assertSame(copy, copy.self);
+        assertSame(copy.linked, copy.list);
+    }
+
+    /** Check that arguments and return values declared as concrete collection classes are copied as those classes. */
+    @Test
+    public void testConcreteContainerValuesCopied() {
+        LinkedList<String> list = new LinkedList<>(Arrays.asList("a", "b"));
+
+        LinkedList<String> copy = service.echoList(list);
+
+        assertNotSame(list, copy);
+        assertEquals(list, copy);
+    }
+
+    /** Check that values that cannot be copied structurally are copied through JSON instead. */
+    @Test
+    public void testFallsBackToJson() {
+        Immutable value = new Immutable("a");
+
+        Immutable copy = service.echoImmutable(value);
+
+        assertNotSame(value, copy);
+        assertEquals("a", copy.getName());
+    }
+
+    /** Service is the interface proxied in these tests. */
+    public interface Service {
+        /**
+         * Echoes a holder.
+         *
+         * @param  holder The holder.
+         *
+         * @return The holder.
+         */
+        Holder echo(Holder holder);
+
+        /**
+         * Echoes a linked list.
+         *
+         * @param  list The list.
+         *
+         * @return The list.
+         */
+        LinkedList<String> echoList(LinkedList<String> list);
+
+        /**
+         * Echoes a value with no no-arg constructor.
+         *
+         * @param  value The value.
+         *
+         * @return The value.
+         */
+        Immutable echoImmutable(Immutable value);
+    }
+
+    /** EchoService returns its arguments as they are. */
+    public static class EchoService implements Service {
+        /** {@inheritDoc} */
+        public Holder echo(Holder holder) {
+            return holder;
+        }
+
+        /** {@inheritDoc} */
+        public LinkedList<String> echoList(LinkedList<String> list) {
+            return list;
+        }
+
+        /** {@inheritDoc} */
+        public Immutable echoImmutable(Immutable value) {
+            return value;
+        }
+    }
+
+    /** Holder holds collections and maps declared in various ways. */
+    public static class Holder {
+        /** A linked list. */
+        public LinkedList<String> linked = new LinkedList<>();
+
+        /** An array deque. */
+        public ArrayDeque<String> deque = new ArrayDeque<>();
+
+        /** A vector. */
+        public Vector<String> vector = new Vector<>();
+
+        /** A concurrent map. */
+        public ConcurrentHashMap<String, String> concurrent = new ConcurrentHashMap<>();
+
+        /** An enum map. */
+        public EnumMap<TimeUnit, String> enumMap = new EnumMap<>(TimeUnit.class);
+
+        /** An enum set. */
+        public EnumSet<TimeUnit> enumSet = EnumSet.noneOf(TimeUnit.class);
+
+        /** A list, declared by its interface. */
+        public List<String> list;
+
+        /** A map, declared by its interface. */
+        public Map<String, String> map;
+
+        /** A sorted set. */
+        public TreeSet<String> sorted;
+
+        /** A reference back to a holder. */
+        public Holder self;
+    }
+
+    /** Immutable is a value with no no-arg constructor, that Jackson creates through its constructor. */
+    public static class Immutable {
+        /** The name. */
+        private final String name;
+
+        /**
+         * Creates a value.
+         *
+         * @param name The name.
+         */
+        @JsonCreator
+        public Immutable(@JsonProperty("name") String name) {
+            this.name = name;
+        }
+
+        /**
+         * Provides the name.
+         *
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
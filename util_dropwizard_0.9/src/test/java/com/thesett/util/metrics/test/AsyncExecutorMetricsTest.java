@@ -0,0 +1,108 @@
+package com.thesett.util.metrics.test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.thesett.util.metrics.AsyncExecutorMetrics;
+import com.thesett.util.proxies.AsyncExecutor;
+import com.thesett.util.proxies.AsyncExecutor.OverflowPolicy;
+
+/**
+ * Unit tests the {@link com.thesett.util.metrics.AsyncExecutorMetrics} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that the queue depth and active count are registered as gauges.
+ * <tr><td>Check that the time calls spend queued and running is recorded by timers.
+ * <tr><td>Check that completed, failed and dropped calls are recorded by meters.
+ * <tr><td>Check that removing the listener stops the recording.
+ * </table></pre>
+ */
+public class AsyncExecutorMetricsTest {
+    /** How long to wait for a call, in seconds. */
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /** The metric registry. */
+    private final MetricRegistry registry = new MetricRegistry();
+
+    /** The executor to record metrics of. */
+    private AsyncExecutor executor;
+
+    /** The metrics under test. */
+    private AsyncExecutorMetrics metrics;
+
+    /** Creates an executor and registers metrics over it. */
+    @Before
+    public void setUp() {
+        executor = new AsyncExecutor("test", 1, 1, OverflowPolicy.DROP);
+        metrics = AsyncExecutorMetrics.register(registry, "async", executor);
+    }
+
+    /** Closes the executor. */
+    @After
+    public void tearDown() throws Exception {
+        executor.close();
+    }
+
+    /** Check that the queue depth and active count are registered as gauges. */
+    @Test
+    public void testGaugesRegistered() {
+        assertEquals(0, registry.getGauges().get("async.queue-depth").getValue());
+        assertEquals(0, registry.getGauges().get("async.active").getValue());
+    }
+
+    /** Check that the time calls spend queued and running is recorded by timers. */
+    @Test
+    public void testTimersRecorded() throws Exception {
+        executor.submit(() -> {
+                Thread.sleep(20);
+
+                return "value";
+            }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(1, registry.timer("async.queued").getCount());
+        assertEquals(1, registry.timer("async.running").getCount());
+        assertTrue(registry.timer("async.running").getSnapshot().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    /** Check that completed, failed and dropped calls are recorded by meters. */
+    @Test
+    public void testMetersRecorded() throws Exception {
+        executor.submit(() -> "value").get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            executor.submit(() -> {
+                    throw new IllegalStateException("failed");
+                }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("The call should have failed.");
+        } catch (ExecutionException e) {
+            // Expected.
+        }
+
+        executor.close();
+        executor.submit(() -> "late");
+
+        assertEquals(3, registry.meter("async.submitted").getCount());
+        assertEquals(1, registry.meter("async.completed").getCount());
+        assertEquals(1, registry.meter("async.failed").getCount());
+        assertEquals(1, registry.meter("async.dropped").getCount());
+    }
+
+    /** Check that removing the listener stops the recording. */
+    @Test
+    public void testRemoveStopsRecording() throws Exception {
+        executor.removeListener(metrics);
+        executor.submit(() -> "value").get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(0, registry.meter("async.submitted").getCount());
+        assertEquals(0, registry.timer("async.running").getCount());
+    }
+}
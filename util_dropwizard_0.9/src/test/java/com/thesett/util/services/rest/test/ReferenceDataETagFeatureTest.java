@@ -0,0 +1,255 @@
+package com.thesett.util.services.rest.test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thesett.util.model.RefDataItem;
+import com.thesett.util.services.rest.ReferenceDataETagFeature;
+import com.thesett.util.services.rest.ReferenceDataResource;
+
+/**
+ * Unit tests the {@link com.thesett.util.services.rest.ReferenceDataETagFeature} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that the filter is only bound to the method that lists the reference data of a type.
+ * <tr><td>Check that responses are replaced by the cached JSON, with a strong ETag and asking to revalidate.
+ * <tr><td>Check that requests with a matching ETag are answered not modified.
+ * <tr><td>Check that requests for types that are not served are left for the resource to report.
+ * </table></pre>
+ */
+public class ReferenceDataETagFeatureTest {
+    /** The reference data type served, unique to this test so as not to share items with others. */
+    private static final String COLOUR = "referenceDataETagFeatureTestColour";
+
+    /** The resource serving the reference data. */
+    private final ReferenceDataResource resource = new ReferenceDataResource(Arrays.asList(COLOUR));
+
+    /** The filter bound by the feature under test. */
+    private final Object filter;
+
+    /** Creates some reference data, and binds the filter of the feature under test. */
+    public ReferenceDataETagFeatureTest() throws Exception {
+        ReferenceDataResourceTest.create(COLOUR, "red", 1L);
+
+        List<Object> registered = configure("findByName");
+        filter = registered.get(0);
+    }
+
+    /** Check that the filter is only bound to the method that lists the reference data of a type. */
+    @Test
+    public void testBoundToFindByNameOnly() throws Exception {
+        assertTrue(filter instanceof ContainerRequestFilter);
+        assertTrue(filter instanceof ContainerResponseFilter);
+        assertTrue(configure("findAllTypes").isEmpty());
+    }
+
+    /** Check that responses are replaced by the cached JSON, with a strong ETag and asking to revalidate. */
+    @Test
+    public void testResponseReplacedByCachedJson() throws Exception {
+        Exchange exchange = new Exchange(COLOUR, null).run();
+
+        assertNull(exchange.aborted);
+        assertTrue(exchange.entity instanceof byte[]);
+        assertEquals(resource.findByName(COLOUR),
+            Arrays.asList(new ObjectMapper().readValue((byte[]) exchange.entity, RefDataItem[].class)));
+
+        EntityTag etag = (EntityTag) exchange.responseHeaders.getFirst(HttpHeaders.ETAG);
+
+        assertNotNull(etag);
+        assertFalse(etag.isWeak());
+        assertNotNull(exchange.responseHeaders.getFirst(HttpHeaders.CACHE_CONTROL));
+    }
+
+    /** Check that requests with a matching ETag are answered not modified. */
+    @Test
+    public void testMatchingETagNotModified() throws Exception {
+        EntityTag etag = (EntityTag) new Exchange(COLOUR, null).run().responseHeaders.getFirst(HttpHeaders.ETAG);
+
+        Exchange exchange = new Exchange(COLOUR, etag).run();
+
+        assertNotNull(exchange.aborted);
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), exchange.aborted.getStatus());
+    }
+
+    /** Check that requests for types that are not served are left for the resource to report. */
+    @Test
+    public void testUnknownTypeLeftAlone() throws Exception {
+        Exchange exchange = new Exchange(COLOUR + "Unknown", null).run();
+
+        assertNull(exchange.aborted);
+        assertEquals("items", exchange.entity);
+        assertNull(exchange.responseHeaders.getFirst(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Configures the feature under test for a method of the reference data resource.
+     *
+     * @param  methodName The name of the resource method.
+     *
+     * @return The filters the feature registered.
+     *
+     * @throws Exception If the method cannot be found.
+     */
+    private List<Object> configure(String methodName) throws Exception {
+        Method method =
+            "findByName".equals(methodName) ? ReferenceDataResource.class.getMethod(methodName, String.class)
+                                            : ReferenceDataResource.class.getMethod(methodName);
+        List<Object> registered = new ArrayList<>();
+
+        ResourceInfo resourceInfo =
+            (ResourceInfo) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResourceInfo.class },
+                (proxy, m, args) -> "getResourceClass".equals(m.getName()) ? ReferenceDataResource.class : method);
+
+        FeatureContext context =
+            (FeatureContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { FeatureContext.class }, (proxy, m, args) -> {
+                    registered.add(args[0]);
+
+                    return proxy;
+                });
+
+        new ReferenceDataETagFeature(resource).configure(resourceInfo, context);
+
+        return registered;
+    }
+
+    /**
+     * Exchange is a request for reference data through the filter and the response it gets, with the JAX-RS objects
+     * stood in for.
+     */
+    private class Exchange {
+        /** The path parameters of the request. */
+        private final MultivaluedMap<String, String> pathParameters = new MultivaluedHashMap<>();
+
+        /** The ETag the request is conditional on, or <tt>null</tt> if it is not conditional. */
+        private final EntityTag ifNoneMatch;
+
+        /** The properties of the request. */
+        private final Map<String, Object> properties = new HashMap<>();
+
+        /** The headers of the response. */
+        private final MultivaluedMap<String, Object> responseHeaders = new MultivaluedHashMap<>();
+
+        /** The response the request was aborted with, or <tt>null</tt> if it was not. */
+        private Response aborted;
+
+        /** The entity of the response. */
+        private Object entity = "items";
+
+        /**
+         * Creates a request.
+         *
+         * @param refDataName The name of the reference data type requested.
+         * @param ifNoneMatch The ETag the request is conditional on, or <tt>null</tt> if it is not conditional.
+         */
+        Exchange(String refDataName, EntityTag ifNoneMatch) {
+            pathParameters.putSingle("refDataName", refDataName);
+            this.ifNoneMatch = ifNoneMatch;
+        }
+
+        /**
+         * Passes the request and, unless it is aborted, a successful response through the filter.
+         *
+         * @return <tt>this</tt>, fluent style.
+         *
+         * @throws Exception If the filter fails.
+         */
+        Exchange run() throws Exception {
+            UriInfo uriInfo =
+                (UriInfo) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { UriInfo.class },
+                    (proxy, m, args) -> pathParameters);
+
+            Request request =
+                (Request) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Request.class },
+                    (proxy, m, args) -> args[0].equals(ifNoneMatch) ? Response.notModified((EntityTag) args[0])
+                                                                    : null);
+
+            ContainerRequestContext requestContext =
+                (ContainerRequestContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { ContainerRequestContext.class }, (proxy, m, args) -> {
+                        switch (m.getName()) {
+                        case "getUriInfo":
+                            return uriInfo;
+
+                        case "getRequest":
+                            return request;
+
+                        case "abortWith":
+                            aborted = (Response) args[0];
+
+                            return null;
+
+                        case "setProperty":
+                            properties.put((String) args[0], args[1]);
+
+                            return null;
+
+                        case "getProperty":
+                            return properties.get(args[0]);
+
+                        default:
+                            throw new UnsupportedOperationException(m.getName());
+                        }
+                    });
+
+            ContainerResponseContext responseContext =
+                (ContainerResponseContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { ContainerResponseContext.class }, (proxy, m, args) -> {
+                        switch (m.getName()) {
+                        case "getStatus":
+                            return Response.Status.OK.getStatusCode();
+
+                        case "getEntityAnnotations":
+                            return null;
+
+                        case "setEntity":
+                            entity = args[0];
+
+                            return null;
+
+                        case "getHeaders":
+                            return responseHeaders;
+
+                        default:
+                            throw new UnsupportedOperationException(m.getName());
+                        }
+                    });
+
+            ((ContainerRequestFilter) filter).filter(requestContext);
+
+            if (aborted == null) {
+                ((ContainerResponseFilter) filter).filter(requestContext, responseContext);
+            }
+
+            return this;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.thesett.util.services.rest.test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.NotFoundException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import com.thesett.aima.attribute.impl.EnumeratedStringAttribute;
+import com.thesett.util.model.RefDataItem;
+import com.thesett.util.services.rest.ReferenceDataResource;
+
+/**
+ * Unit tests the {@link com.thesett.util.services.rest.ReferenceDataResource} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that the reference data types are listed, and cannot be changed through the list.
+ * <tr><td>Check that the reference data of a type is served ordered by id.
+ * <tr><td>Check that reference data types that are not served are not found.
+ * <tr><td>Check that the reference data of a type is built once, and cached.
+ * <tr><td>Check that reloading discards the cached reference data, so that new items are served.
+ * </table></pre>
+ */
+public class ReferenceDataResourceTest {
+    /** The reference data type served, unique to this test so as not to share items with others. */
+    private static final String COLOUR = "referenceDataResourceTestColour";
+
+    /** Check that the reference data types are listed, and cannot be changed through the list. */
+    @Test
+    public void testFindAllTypes() {
+        ReferenceDataResource resource = new ReferenceDataResource(Arrays.asList(COLOUR, "other"));
+
+        assertEquals(Arrays.asList(COLOUR, "other"), resource.findAllTypes());
+
+        try {
+            resource.findAllTypes().add("more");
+            fail("The list of types should not be modifiable.");
+        } catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+    }
+
+    /** Check that the reference data of a type is served ordered by id. */
+    @Test
+    public void testFindByNameOrderedById() {
+        String type = COLOUR + "Ordered";
+        create(type, "green", 3L);
+        create(type, "red", 1L);
+        create(type, "blue", 2L);
+
+        List<RefDataItem> items = new ReferenceDataResource(Arrays.asList(type)).findByName(type);
+
+        assertEquals(Arrays.asList(new RefDataItem(1L, "red"), new RefDataItem(2L, "blue"),
+                new RefDataItem(3L, "green")), items);
+        assertEquals("red", items.get(0).getName());
+        assertEquals("green", items.get(2).getName());
+    }
+
+    /** Check that reference data types that are not served are not found. */
+    @Test
+    public void testUnknownTypeNotFound() {
+        ReferenceDataResource resource = new ReferenceDataResource(Arrays.asList(COLOUR));
+
+        try {
+            resource.findByName(COLOUR + "Unknown");
+            fail("A type that is not served should not be found.");
+        } catch (NotFoundException e) {
+            // Expected.
+        }
+    }
+
+    /** Check that the reference data of a type is built once, and cached. */
+    @Test
+    public void testItemsCached() {
+        String type = COLOUR + "Cached";
+        create(type, "red", 1L);
+
+        ReferenceDataResource resource = new ReferenceDataResource(Arrays.asList(type));
+
+        assertSame(resource.findByName(type), resource.findByName(type));
+    }
+
+    /** Check that reloading discards the cached reference data, so that new items are served. */
+    @Test
+    public void testReloadDiscardsCache() {
+        String type = COLOUR + "Reloaded";
+        create(type, "red", 1L);
+
+        ReferenceDataResource resource = new ReferenceDataResource(Arrays.asList(type));
+        List<RefDataItem> before = resource.findByName(type);
+
+        create(type, "blue", 2L);
+        assertSame(before, resource.findByName(type));
+
+        resource.reload();
+
+        List<RefDataItem> after = resource.findByName(type);
+
+        assertNotSame(before, after);
+        assertEquals(Arrays.asList(new RefDataItem(1L, "red"), new RefDataItem(2L, "blue")), after);
+    }
+
+    /**
+     * Creates a reference data item.
+     *
+     * @param type  The name of the reference data type.
+     * @param value The value of the item.
+     * @param id    The id of the item.
+     */
+    static void create(String type, String value, long id) {
+        EnumeratedStringAttribute.getFactoryForClass(type).createStringAttribute(value).setId(id);
+    }
+}
@@ -0,0 +1,172 @@
+package com.thesett.util.views.handlebars.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thesett.util.views.handlebars.TemplateWatcher;
+
+import io.dropwizard.util.Duration;
+
+/**
+ * Unit tests the {@link com.thesett.util.views.handlebars.TemplateWatcher} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that a template whose content changes is evicted, even when its last modified time does not.
+ * <tr><td>Check that a template written again with the same content is not evicted.
+ * <tr><td>Check that a deleted template is evicted.
+ * <tr><td>Check that files that are not templates are ignored.
+ * </table></pre>
+ */
+public class TemplateWatcherTest {
+    /** How long to wait for watch events, in milliseconds. */
+    private static final long WAIT_MILLIS = 10000;
+
+    /** The directory of templates to watch. */
+    private Path directory;
+
+    /** The executor for the watcher; polls are run by the tests themselves. */
+    private ScheduledExecutorService executor;
+
+    /** The watcher under test. */
+    private RecordingTemplateWatcher watcher;
+
+    /** Creates an empty template directory, and a watcher over it. */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("templates");
+        executor = Executors.newSingleThreadScheduledExecutor();
+        watcher = new RecordingTemplateWatcher(directory, executor);
+    }
+
+    /** Stops the watcher, and deletes the template directory. */
+    @After
+    public void tearDown() throws IOException {
+        watcher.stop();
+        executor.shutdownNow();
+
+        for (Path file : (Iterable<Path>) Files.list(directory)::iterator) {
+            Files.delete(file);
+        }
+
+        Files.delete(directory);
+    }
+
+    /** Check that a template whose content changes is evicted, even when its last modified time does not. */
+    @Test
+    public void testChangedContentWithSameModifiedTimeEvicted() throws Exception {
+        Path template = write("page.hbs", "<p>old</p>");
+        FileTime modified = Files.getLastModifiedTime(template);
+        watcher.start();
+
+        // Truncate and write again, as editors do, within one tick of the file system clock.
+        write("page.hbs", "");
+        write("page.hbs", "<p>new</p>");
+        Files.setLastModifiedTime(template, modified);
+
+        awaitEviction("/page.hbs");
+    }
+
+    /** Check that a template written again with the same content is not evicted. */
+    @Test
+    public void testSameContentNotEvicted() throws Exception {
+        write("same.hbs", "<p>same</p>");
+        write("other.hbs", "<p>other</p>");
+        watcher.start();
+
+        write("same.hbs", "<p>same</p>");
+        write("other.hbs", "<p>changed</p>");
+
+        awaitEviction("/other.hbs");
+        assertFalse(watcher.evicted.contains("/same.hbs"));
+    }
+
+    /** Check that a deleted template is evicted. */
+    @Test
+    public void testDeletedTemplateEvicted() throws Exception {
+        Path template = write("gone.hbs", "<p>gone</p>");
+        watcher.start();
+
+        Files.delete(template);
+
+        awaitEviction("/gone.hbs");
+    }
+
+    /** Check that files that are not templates are ignored. */
+    @Test
+    public void testNonTemplatesIgnored() throws Exception {
+        write("notes.txt", "old");
+        write("page.hbs", "<p>old</p>");
+        watcher.start();
+
+        write("notes.txt", "new");
+        write("page.hbs", "<p>new</p>");
+
+        awaitEviction("/page.hbs");
+        assertEquals(1, watcher.evicted.size());
+    }
+
+    /**
+     * Writes a file in the template directory.
+     *
+     * @param  name    The name of the file.
+     * @param  content The content of the file.
+     *
+     * @return The path of the file.
+     */
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Polls the watcher until a template is evicted, failing if it is not within {@link #WAIT_MILLIS}.
+     *
+     * @param templateName The name of the template.
+     */
+    private void awaitEviction(String templateName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+
+        while (!watcher.evicted.contains(templateName) && (System.currentTimeMillis() < deadline)) {
+            watcher.poll();
+            Thread.sleep(50);
+        }
+
+        assertTrue("Template " + templateName + " was not evicted.", watcher.evicted.contains(templateName));
+    }
+
+    /** RecordingTemplateWatcher records the names of the templates it evicts, rather than evicting them. */
+    private static class RecordingTemplateWatcher extends TemplateWatcher {
+        /** The names of the evicted templates. */
+        final List<String> evicted = new CopyOnWriteArrayList<>();
+
+        /**
+         * Creates a recording template watcher, that only polls when asked to.
+         *
+         * @param directory The directory to watch.
+         * @param executor  The executor to schedule polls on.
+         */
+        RecordingTemplateWatcher(Path directory, ScheduledExecutorService executor) {
+            super(Collections.singletonList(directory), Duration.hours(1), executor);
+        }
+
+        /** {@inheritDoc} */
+        protected void evict(Path file, String templateName) {
+            evicted.add(templateName);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.thesett.util.error;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StackTraceRateLimiter decides which exceptions are worth logging in full, so that a storm of identical failures, such
+ * as during a database outage, does not turn logging into the bottleneck. Exceptions are grouped by signature, which is
+ * their class and the top few frames of their stack trace, followed by the same for each exception in their cause
+ * chain. Only the first few exceptions of each signature in each interval are let through; the rest are suppressed, and
+ * counted.
+ *
+ * <p/>A bounded number of signatures are tracked. When a new signature arrives and the bound has been reached, the
+ * signature seen least recently is forgotten, so that a flood of distinct failures cannot reset the limits on the
+ * frequent ones.
+ *
+ * <p/>When an exception is let through after others of its signature have been suppressed, the number suppressed is
+ * given back, so that it can be logged with it to show how many were missed.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities
+ * <tr><td> Group exceptions by signature.
+ * <tr><td> Let through a limited number of exceptions of each signature per interval.
+ * <tr><td> Count suppressed exceptions.
+ * </table></pre>
+ */
+public class StackTraceRateLimiter {
+    /** Returned by {@link #acquire(Throwable)} when an exception is suppressed. */
+    public static final long SUPPRESSED = -1;
+
+    /** The default number of exceptions let through per signature per interval. */
+    public static final int DEFAULT_LIMIT = 5;
+
+    /** The default interval, in milliseconds. */
+    public static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** The most signatures tracked at once, beyond which the least recently seen is forgotten. */
+    private static final int MAX_SIGNATURES = 1024;
+
+    /** The number of stack frames of each exception in the cause chain that make up a signature. */
+    private static final int SIGNATURE_FRAMES = 3;
+
+    /** The number of exceptions let through per signature per interval. */
+    private final int limit;
+
+    /** The interval, in milliseconds. */
+    private final long intervalMillis;
+
+    /** Holds the current interval of each signature, least recently seen first. */
+    private final Map<String, Window> windows =
+        new LinkedHashMap<String, Window>(16, 0.75f, true) {
+            /** {@inheritDoc} */
+            protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+                return size() > MAX_SIGNATURES;
+            }
+        };
+
+    /** Counts all exceptions suppressed. */
+    private final LongAdder suppressed = new LongAdder();
+
+    /** Creates a rate limiter with the default limit and interval. */
+    public StackTraceRateLimiter() {
+        this(DEFAULT_LIMIT, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param limit          The number of exceptions let through per signature per interval.
+     * @param intervalMillis The interval, in milliseconds.
+     */
+    public StackTraceRateLimiter(int limit, long intervalMillis) {
+        this.limit = limit;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Decides whether an exception should be logged in full.
+     *
+     * @param  t The exception.
+     *
+     * @return {@link #SUPPRESSED} if the exception should not be logged, otherwise the number of exceptions of the same
+     *         signature suppressed since one was last let through.
+     */
+    public long acquire(Throwable t) {
+        String signature = signature(t);
+        Window window;
+
+        synchronized (windows) {
+            window = windows.get(signature);
+
+            if (window == null) {
+                window = new Window();
+                windows.put(signature, window);
+            }
+        }
+
+        long result = window.acquire(System.currentTimeMillis());
+
+        if (result == SUPPRESSED) {
+            suppressed.increment();
+        }
+
+        return result;
+    }
+
+    /**
+     * Provides the number of exceptions suppressed.
+     *
+     * @return The number of exceptions suppressed.
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    /**
+     * Provides the number of signatures currently tracked.
+     *
+     * @return The number of signatures currently tracked.
+     */
+    public int getSignatureCount() {
+        synchronized (windows) {
+            return windows.size();
+        }
+    }
+
+    /**
+     * Works out the signature of an exception, from its class and the top frames of its stack trace, and those of each
+     * exception in its cause chain. Exceptions thrown from the same place for different underlying reasons therefore
+     * get different signatures.
+     *
+     * @param  t The exception.
+     *
+     * @return The signature of the exception.
+     */
+    public static String signature(Throwable t) {
+        StringBuilder signature = new StringBuilder();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+
+        for (Throwable next = t; (next != null) && seen.add(next); next = next.getCause()) {
+            if (next != t) {
+                signature.append(" <- ");
+            }
+
+            signature.append(next.getClass().getName());
+
+            StackTraceElement[] trace = next.getStackTrace();
+
+            for (int i = 0; (i < trace.length) && (i < SIGNATURE_FRAMES); i++) {
+                signature.append(i == 0 ? "@" : ",").append(trace[i]);
+            }
+        }
+
+        return signature.toString();
+    }
+
+    /** Window counts the exceptions of one signature within its current interval. */
+    private class Window {
+        /** The start of the current interval, in milliseconds since the epoch. */
+        private long start;
+
+        /** The number of exceptions let through in the current interval. */
+        private int count;
+
+        /** The number of exceptions suppressed since one was last let through. */
+        private long suppressedSince;
+
+        /**
+         * Decides whether an exception should be let through, starting a new interval if the current one has ended.
+         *
+         * @param  now The current time, in milliseconds since the epoch.
+         *
+         * @return {@link #SUPPRESSED} if the exception should be suppressed, otherwise the number suppressed since one
+         *         was last let through.
+         */
+        synchronized long acquire(long now) {
+            if ((now - start) >= intervalMillis) {
+                start = now;
+                count = 0;
+            }
+
+            if (count >= limit) {
+                suppressedSince++;
+
+                return SUPPRESSED;
+            }
+
+            count++;
+
+            long result = suppressedSince;
+            suppressedSince = 0;
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.thesett.util.error.toplevelhandlers;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.thesett.util.error.StackTraceRateLimiter;
+
+/**
+ * RateLimitedTopLevelErrorHandler passes unhandled exceptions on to another top level error handler, but only as many
+ * of each kind as a {@link StackTraceRateLimiter} lets through. This stops a storm of identical failures from being
+ * logged in full, one by one, on the threads that are failing. Errors are always passed on, as they may need to end
+ * the application.
+ *
+ * <p/>When an exception is passed on after others like it were suppressed, a single line giving the number suppressed
+ * is logged just before it, so that the size of the storm is not lost.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Limit the rate of unhandled exceptions handled. </td><td> {@link StackTraceRateLimiter} </td></tr>
+ * <tr><td> Pass unhandled exceptions on for handling. </td><td> {@link TopLevelErrorHandler} </td></tr>
+ * <tr><td> Log the number of exceptions suppressed. </td></tr>
+ * </table></pre>
+ */
+public class RateLimitedTopLevelErrorHandler implements TopLevelErrorHandler {
+    /** Used for debugging purposes. */
+    private static final Logger LOG = Logger.getLogger(RateLimitedTopLevelErrorHandler.class.getName());
+
+    /** The handler to pass exceptions on to. */
+    private final TopLevelErrorHandler delegate;
+
+    /** Decides which exceptions to pass on. */
+    private final StackTraceRateLimiter rateLimiter;
+
+    /**
+     * Creates a rate limited top level error handler, with the default limit and interval.
+     *
+     * @param delegate The handler to pass exceptions on to.
+     */
+    public RateLimitedTopLevelErrorHandler(TopLevelErrorHandler delegate) {
+        this(delegate, new StackTraceRateLimiter());
+    }
+
+    /**
+     * Creates a rate limited top level error handler.
+     *
+     * @param delegate    The handler to pass exceptions on to.
+     * @param rateLimiter Decides which exceptions to pass on.
+     */
+    public RateLimitedTopLevelErrorHandler(TopLevelErrorHandler delegate, StackTraceRateLimiter rateLimiter) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /** {@inheritDoc} */
+    public void handleThrowable(Throwable t) {
+        if (t instanceof Error) {
+            delegate.handleThrowable(t);
+
+            return;
+        }
+
+        long suppressed = rateLimiter.acquire(t);
+
+        if (suppressed == StackTraceRateLimiter.SUPPRESSED) {
+            return;
+        }
+
+        if (suppressed > 0) {
+            LOG.log(Level.WARNING, suppressed + " exceptions like the following were suppressed: " + t);
+        }
+
+        delegate.handleThrowable(t);
+    }
+
+    /**
+     * Provides the rate limiter, so that the number of exceptions it has suppressed can be monitored.
+     *
+     * @return The rate limiter.
+     */
+    public StackTraceRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,138 @@
+package com.thesett.util.error.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.thesett.util.error.StackTraceRateLimiter;
+
+/**
+ * Unit tests the {@link com.thesett.util.error.StackTraceRateLimiter} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that only the limit of exceptions of a signature is let through per interval.
+ * <tr><td>Check that the number suppressed is given back with the next exception let through.
+ * <tr><td>Check that exceptions thrown from the same place with different causes have different signatures.
+ * <tr><td>Check that exceptions differing below the top frame have different signatures.
+ * <tr><td>Check that a cyclic cause chain does not stop a signature being worked out.
+ * <tr><td>Check that the least recently seen signature is forgotten when too many are tracked.
+ * </table></pre>
+ */
+public class StackTraceRateLimiterTest {
+    /** The number of signatures the rate limiter tracks at once. */
+    private static final int MAX_SIGNATURES = 1024;
+
+    /** Check that only the limit of exceptions of a signature is let through per interval. */
+    @Test
+    public void testLimitPerInterval() {
+        StackTraceRateLimiter limiter = new StackTraceRateLimiter(2, 60000);
+
+        assertEquals(0, limiter.acquire(thrownAt("a")));
+        assertEquals(0, limiter.acquire(thrownAt("a")));
+        assertEquals(StackTraceRateLimiter.SUPPRESSED, limiter.acquire(thrownAt("a")));
+        assertEquals(0, limiter.acquire(thrownAt("b")));
+        assertEquals(1, limiter.getSuppressedCount());
+    }
+
+    /** Check that the number suppressed is given back with the next exception let through. */
+    @Test
+    public void testSuppressedCountGivenBack() throws Exception {
+        StackTraceRateLimiter limiter = new StackTraceRateLimiter(1, 50);
+
+        assertEquals(0, limiter.acquire(thrownAt("a")));
+        assertEquals(StackTraceRateLimiter.SUPPRESSED, limiter.acquire(thrownAt("a")));
+        assertEquals(StackTraceRateLimiter.SUPPRESSED, limiter.acquire(thrownAt("a")));
+
+        Thread.sleep(100);
+
+        assertEquals(2, limiter.acquire(thrownAt("a")));
+        assertEquals(0, limiter.acquire(thrownAt("b")));
+    }
+
+    /** Check that exceptions thrown from the same place with different causes have different signatures. */
+    @Test
+    public void testCauseInSignature() {
+        RuntimeException first = thrownAt("a");
+        first.initCause(thrownAt("database"));
+
+        RuntimeException second = thrownAt("a");
+        second.initCause(thrownAt("network"));
+
+        assertFalse(StackTraceRateLimiter.signature(first).equals(StackTraceRateLimiter.signature(second)));
+        assertTrue(StackTraceRateLimiter.signature(first).contains("database"));
+    }
+
+    /** Check that exceptions differing below the top frame have different signatures. */
+    @Test
+    public void testSeveralFramesInSignature() {
+        RuntimeException first = thrownAt("a", "caller1");
+        RuntimeException second = thrownAt("a", "caller2");
+
+        assertFalse(StackTraceRateLimiter.signature(first).equals(StackTraceRateLimiter.signature(second)));
+    }
+
+    /** Check that a cyclic cause chain does not stop a signature being worked out. */
+    @Test
+    public void testCyclicCauses() {
+        CyclicException first = new CyclicException();
+        CyclicException second = new CyclicException();
+        first.cause = second;
+        second.cause = first;
+
+        assertFalse(StackTraceRateLimiter.signature(first).isEmpty());
+    }
+
+    /** Check that the least recently seen signature is forgotten when too many are tracked. */
+    @Test
+    public void testLeastRecentlySeenForgotten() {
+        StackTraceRateLimiter limiter = new StackTraceRateLimiter(1, 60000);
+
+        limiter.acquire(thrownAt("frequent"));
+        limiter.acquire(thrownAt("old"));
+
+        for (int i = 0; i < (MAX_SIGNATURES - 2); i++) {
+            limiter.acquire(thrownAt("rare" + i));
+        }
+
+        // Seeing the frequent signature again makes the old one the least recently seen.
+        assertEquals(StackTraceRateLimiter.SUPPRESSED, limiter.acquire(thrownAt("frequent")));
+        limiter.acquire(thrownAt("new"));
+
+        assertEquals(MAX_SIGNATURES, limiter.getSignatureCount());
+        assertEquals(StackTraceRateLimiter.SUPPRESSED, limiter.acquire(thrownAt("frequent")));
+        assertEquals(0, limiter.acquire(thrownAt("old")));
+    }
+
+    /**
+     * Creates an exception that appears to have been thrown from the given methods, the first innermost.
+     *
+     * @param  methods The methods on the stack, innermost first.
+     *
+     * @return The exception.
+     */
+    private static RuntimeException thrownAt(String... methods) {
+        RuntimeException e = new RuntimeException();
+        StackTraceElement[] trace = new StackTraceElement[methods.length];
+
+        for (int i = 0; i < methods.length; i++) {
+            trace[i] = new StackTraceElement("Test", methods[i], "Test.java", i + 1);
+        }
+
+        e.setStackTrace(trace);
+
+        return e;
+    }
+
+    /** CyclicException has a cause that may lead back to itself. */
+    private static class CyclicException extends RuntimeException {
+        /** The cause. */
+        private Throwable cause;
+
+        /** {@inheritDoc} */
+        public synchronized Throwable getCause() {
+            return cause;
+        }
+    }
+}
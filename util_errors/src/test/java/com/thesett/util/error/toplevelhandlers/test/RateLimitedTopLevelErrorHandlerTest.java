@@ -0,0 +1,133 @@
+package com.thesett.util.error.toplevelhandlers.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thesett.util.error.StackTraceRateLimiter;
+import com.thesett.util.error.toplevelhandlers.RateLimitedTopLevelErrorHandler;
+
+/**
+ * Unit tests the {@link com.thesett.util.error.toplevelhandlers.RateLimitedTopLevelErrorHandler} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that exceptions beyond the limit are not passed on.
+ * <tr><td>Check that errors are always passed on.
+ * <tr><td>Check that a single line with the number suppressed is logged before the next exception passed on.
+ * </table></pre>
+ */
+public class RateLimitedTopLevelErrorHandlerTest {
+    /** The logger of the handler under test. */
+    private final Logger logger = Logger.getLogger(RateLimitedTopLevelErrorHandler.class.getName());
+
+    /** The records logged by the handler under test. */
+    private final List<LogRecord> logged = new ArrayList<>();
+
+    /** Captures the records logged by the handler under test. */
+    private final Handler capture =
+        new Handler() {
+            public void publish(LogRecord record) {
+                logged.add(record);
+            }
+
+            public void flush() {
+            }
+
+            public void close() {
+            }
+        };
+
+    /** The exceptions passed on by the handler under test. */
+    private final List<Throwable> handled = new ArrayList<>();
+
+    /** Starts capturing the log records of the handler under test. */
+    @Before
+    public void setUp() {
+        logger.addHandler(capture);
+    }
+
+    /** Stops capturing the log records of the handler under test. */
+    @After
+    public void tearDown() {
+        logger.removeHandler(capture);
+    }
+
+    /** Check that exceptions beyond the limit are not passed on. */
+    @Test
+    public void testExceptionsLimited() {
+        RateLimitedTopLevelErrorHandler handler = handler(1, 60000);
+
+        handler.handleThrowable(failure());
+        handler.handleThrowable(failure());
+
+        assertEquals(1, handled.size());
+        assertEquals(1, handler.getRateLimiter().getSuppressedCount());
+    }
+
+    /** Check that errors are always passed on. */
+    @Test
+    public void testErrorsPassedOn() {
+        RateLimitedTopLevelErrorHandler handler = handler(1, 60000);
+
+        handler.handleThrowable(new AssertionError());
+        handler.handleThrowable(new AssertionError());
+
+        assertEquals(2, handled.size());
+        assertEquals(0, handler.getRateLimiter().getSuppressedCount());
+    }
+
+    /** Check that a single line with the number suppressed is logged before the next exception passed on. */
+    @Test
+    public void testSuppressedCountLogged() throws Exception {
+        RateLimitedTopLevelErrorHandler handler = handler(1, 50);
+
+        handler.handleThrowable(failure());
+        handler.handleThrowable(failure());
+        handler.handleThrowable(failure());
+        assertTrue(logged.isEmpty());
+
+        Thread.sleep(100);
+
+        RuntimeException next = failure();
+        handler.handleThrowable(next);
+
+        assertEquals(1, logged.size());
+        assertTrue(logged.get(0).getMessage().startsWith("2 "));
+        assertEquals(null, logged.get(0).getThrown());
+        assertSame(next, handled.get(handled.size() - 1));
+    }
+
+    /**
+     * Creates the handler under test, passing exceptions on to the list of those handled.
+     *
+     * @param  limit          The number of exceptions let through per signature per interval.
+     * @param  intervalMillis The interval, in milliseconds.
+     *
+     * @return The handler under test.
+     */
+    private RateLimitedTopLevelErrorHandler handler(int limit, long intervalMillis) {
+        return new RateLimitedTopLevelErrorHandler(handled::add, new StackTraceRateLimiter(limit, intervalMillis));
+    }
+
+    /**
+     * Creates an exception that always appears to have been thrown from the same place.
+     *
+     * @return The exception.
+     */
+    private static RuntimeException failure() {
+        RuntimeException e = new IllegalStateException("failure");
+        e.setStackTrace(new StackTraceElement[] { new StackTraceElement("Test", "fail", "Test.java", 1) });
+
+        return e;
+    }
+}
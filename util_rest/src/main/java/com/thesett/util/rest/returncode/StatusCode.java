@@ -10,6 +10,10 @@ import javax.ws.rs.NameBinding;
  * feature. This means the normal status code can be supplied in an annotation and the interface does not need to
  * explicitly reference the response, leading to cleaner interfaces.
  *
+ * <p/>The {@link StatusCodeFeature} must be registered for the annotation to take effect. Only annotations on resource
+ * methods are applied. The feature does not rely on name binding; the annotation is only a {@link NameBinding} so
+ * that the deprecated {@link StatusCodeInterceptor} provider, registered directly, is still bound to annotated methods.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Allow default HTTP response codes to be specified in annotations. </td></tr>
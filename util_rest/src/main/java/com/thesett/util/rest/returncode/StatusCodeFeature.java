@@ -0,0 +1,29 @@
+package com.thesett.util.rest.returncode;
+
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * StatusCodeFeature binds a {@link StatusCodeInterceptor} to each resource method that carries a {@link StatusCode}
+ * annotation. The annotation is read once for each resource method, when the application is initialized, and the
+ * status code is held by the filter bound to that method. Methods without the annotation get no filter at all, so
+ * their responses pay nothing for this feature.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Bind status code overrides to annotated resource methods. </td><td> {@link StatusCodeInterceptor} </td></tr>
+ * </table></pre>
+ */
+@Provider
+public class StatusCodeFeature implements DynamicFeature {
+    /** {@inheritDoc} */
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        StatusCode statusCode = resourceInfo.getResourceMethod().getAnnotation(StatusCode.class);
+
+        if (statusCode != null) {
+            context.register(new StatusCodeInterceptor(statusCode.code()));
+        }
+    }
+}
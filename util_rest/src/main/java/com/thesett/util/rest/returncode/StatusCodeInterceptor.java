@@ -1,7 +1,6 @@
 package com.thesett.util.rest.returncode;
 
 import java.io.IOException;
-import java.lang.annotation.Annotation;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
@@ -14,6 +13,14 @@ import javax.ws.rs.ext.Provider;
  * StatusCodeInterceptor is a response filter for the {@link StatusCode} annotation. It will replace a success response
  * code (in the 200 range), with one specified on the annotation.
  *
+ * <p/>An instance is bound to each annotated resource method by the {@link StatusCodeFeature}, which should be
+ * registered in place of this filter. The status code is resolved when the filter is bound, so nothing is looked up
+ * when responses are filtered.
+ *
+ * <p/>For applications that still register this filter itself, or find it by scanning for providers, it remains a
+ * provider name bound to {@link StatusCode}. Created that way, through its deprecated no-arg constructor, it looks the
+ * annotation up on the resource method on every response, as it always did.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Replace the default HTTP successful response code. </td></tr>
@@ -22,10 +29,37 @@ import javax.ws.rs.ext.Provider;
 @StatusCode(code = 0)
 @Provider
 public class StatusCodeInterceptor implements ContainerResponseFilter {
-    /** Used to obtain a reference to the annotation. */
+    /** Marks a filter not bound to a resource method, which looks the status code up on each response. */
+    private static final int UNBOUND = -1;
+
+    /** The status code to replace successful response codes with, or {@link #UNBOUND}. */
+    private final int statusCode;
+
+    /** Used to obtain a reference to the annotation, when not bound to a resource method. */
     @Context
     private ResourceInfo resourceInfo;
 
+    /**
+     * Creates the filter as a provider, name bound to {@link StatusCode}, that looks the status code up on the
+     * resource method on each response.
+     *
+     * @deprecated Register the {@link StatusCodeFeature} instead, which binds a filter with the status code resolved
+     *             to each annotated resource method.
+     */
+    @Deprecated
+    public StatusCodeInterceptor() {
+        this(UNBOUND);
+    }
+
+    /**
+     * Creates the filter for a resource method.
+     *
+     * @param statusCode The status code to replace successful response codes with.
+     */
+    public StatusCodeInterceptor(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -33,23 +67,23 @@ public class StatusCodeInterceptor implements ContainerResponseFilter {
      */
     public void filter(ContainerRequestContext containerRequestContext,
         ContainerResponseContext containerResponseContext) throws IOException {
-        Annotation[] annotations = resourceInfo.getResourceMethod().getAnnotations();
+        int override = statusCode;
 
-        StatusCode statusCodeOverride = null;
+        if (override == UNBOUND) {
+            StatusCode annotation = resourceInfo.getResourceMethod().getAnnotation(StatusCode.class);
 
-        for (Annotation annotation : annotations) {
-            if (annotation instanceof StatusCode) {
-                statusCodeOverride = (StatusCode) annotation;
+            if (annotation == null) {
+                return;
             }
+
+            override = annotation.code();
         }
 
-        if (statusCodeOverride != null) {
-            int statusCode = containerResponseContext.getStatus();
+        int status = containerResponseContext.getStatus();
 
-            // Only override in the 200 range.
-            if (statusCode >= 200 && statusCode <= 299) {
-                containerResponseContext.setStatus(statusCodeOverride.code());
-            }
+        // Only override in the 200 range.
+        if (status >= 200 && status <= 299) {
+            containerResponseContext.setStatus(override);
         }
     }
 }
@@ -8,17 +8,26 @@ import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
  * CORSFilter sets the HTTPS header fields for cross origin resource sharing, to allow access from front-ends that are
- * not served by this instance.
+ * not served by this instance. Which origins, methods and headers are allowed is set by a {@link CORSPolicy}; the
+ * policy can be passed in, or read from the init parameters of the filter. Without either, the
+ * {@link CORSPolicy#ALLOW_ALL} policy is used.
  *
- * <p/><b>Note:</b>This should be for development purposes only, as it enables all access.
+ * <p/><b>Note:</b>The default policy should be for development purposes only, as it enables all access.
+ *
+ * <p/>Preflight requests are answered directly by this filter, and go no further down the filter chain. Other requests
+ * from allowed origins have the 'Access-Control-Allow-Origin' header added and continue down the chain. Requests from
+ * other origins get no CORS headers, so the browser will refuse them; preflights from them are refused outright, as
+ * are preflights that ask for a method or headers that the policy does not allow.
  *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
- * <tr><td> Add the 'Access-Control-Allow-Origin' header. </td></tr>
+ * <tr><td> Answer preflight requests. </td><td> {@link CORSPolicy} </td></tr>
+ * <tr><td> Add the 'Access-Control-Allow-Origin' header. </td><td> {@link CORSPolicy} </td></tr>
  * </table></pre>
  */
 public class CORSFilter implements Filter {
@@ -26,22 +35,95 @@ public class CORSFilter implements Filter {
     private static final String ACAM = "Access-Control-Allow-Methods";
     private static final String ACMA = "Access-Control-Max-Age";
     private static final String ACAH = "Access-Control-Allow-Headers";
+    private static final String ACAC = "Access-Control-Allow-Credentials";
+    private static final String ACEH = "Access-Control-Expose-Headers";
+    private static final String ACRM = "Access-Control-Request-Method";
+    private static final String ACRH = "Access-Control-Request-Headers";
+    private static final String ORIGIN = "Origin";
+    private static final String VARY = "Vary";
+    private static final String OPTIONS = "OPTIONS";
+
+    /** The CORS policy to apply, or <tt>null</tt> if it is to be read from the filter configuration. */
+    private CORSPolicy policy;
+
+    /** Creates the filter, to apply a policy read from its init parameters. */
+    public CORSFilter() {
+    }
+
+    /**
+     * Creates the filter, to apply a given policy.
+     *
+     * @param policy The CORS policy to apply.
+     */
+    public CORSFilter(CORSPolicy policy) {
+        this.policy = policy;
+    }
 
     /**
      * {@inheritDoc}
      *
-     * <p/>Adds headers to the response to allow cross origin use of the API.
+     * <p/>Answers preflight requests, and adds headers to the responses to other requests to allow cross origin use of
+     * the API.
      */
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
         ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
         HttpServletResponse resp = (HttpServletResponse) response;
-        resp.setHeader(ACAO, "*");
-        resp.setHeader(ACAM, "PUT, POST, GET, OPTIONS, DELETE");
-        resp.setHeader(ACMA, "3600");
-        resp.addHeader(ACAH, "x-requested-with");
-        resp.addHeader(ACAH, "Content-Type");
-        resp.addHeader(ACAH, "Authorization");
-        resp.addHeader(ACAH, "Bearer");
+        CORSPolicy corsPolicy = (policy == null) ? CORSPolicy.ALLOW_ALL : policy;
+
+        // Caches must keep responses for different origins apart, including responses to requests with no origin.
+        if (corsPolicy.isVaryByOrigin()) {
+            resp.addHeader(VARY, ORIGIN);
+        }
+
+        String origin = req.getHeader(ORIGIN);
+
+        // Requests without an origin are not cross origin.
+        if (origin == null) {
+            chain.doFilter(request, response);
+
+            return;
+        }
+
+        boolean preflight = OPTIONS.equals(req.getMethod()) && (req.getHeader(ACRM) != null);
+
+        if (!corsPolicy.isAllowedOrigin(origin)) {
+            if (preflight) {
+                resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            } else {
+                chain.doFilter(request, response);
+            }
+
+            return;
+        }
+
+        if (preflight &&
+                !(corsPolicy.isAllowedMethod(req.getHeader(ACRM)) && corsPolicy.isAllowedHeaders(req.getHeader(ACRH)))) {
+            resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+
+            return;
+        }
+
+        resp.setHeader(ACAO, corsPolicy.getAllowOrigin(origin));
+
+        if (corsPolicy.isAllowCredentials()) {
+            resp.setHeader(ACAC, "true");
+        }
+
+        if (preflight) {
+            resp.setHeader(ACAM, corsPolicy.getAllowMethods());
+            resp.setHeader(ACAH, corsPolicy.getAllowHeaders());
+            resp.setHeader(ACMA, corsPolicy.getMaxAge());
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.setContentLength(0);
+
+            return;
+        }
+
+        if (corsPolicy.getExposeHeaders() != null) {
+            resp.setHeader(ACEH, corsPolicy.getExposeHeaders());
+        }
+
         chain.doFilter(request, response);
     }
 
@@ -50,8 +132,18 @@ public class CORSFilter implements Filter {
         // No actions on destroy.
     }
 
-    /** {@inheritDoc} */
-    public void init(FilterConfig arg0) throws ServletException {
-        // No actions on init.
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Reads the policy from the init parameters, unless one was given when the filter was created.
+     */
+    public void init(FilterConfig filterConfig) throws ServletException {
+        if ((policy == null) && (filterConfig != null)) {
+            try {
+                policy = CORSPolicy.fromConfig(filterConfig);
+            } catch (IllegalArgumentException e) {
+                throw new ServletException("Invalid CORS policy for filter " + filterConfig.getFilterName() + ".", e);
+            }
+        }
     }
 }
@@ -0,0 +1,321 @@
+package com.thesett.util.servlet.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.servlet.FilterConfig;
+
+/**
+ * CORSPolicy describes which cross origin requests are allowed, and how. The values of the response headers that it
+ * leads to are rendered once, when the policy is created, so that applying the policy to a request only needs to check
+ * the origin, and for a preflight request the method and headers asked for.
+ *
+ * <p/>Methods are compared ignoring case, as are header names. A method or header of "*" in the allowed lists allows
+ * any method or header.
+ *
+ * <p/>An origin of "*" in the allowed origins allows any origin, and responses then allow "*". Otherwise responses
+ * allow the origin of the request, and vary by origin. Credentials can only be allowed together with an explicit list
+ * of origins, as allowing them from any origin would let every site make credentialed requests.
+ *
+ * <p/>A policy can be read from the init parameters of a filter, see {@link #fromConfig(FilterConfig)}.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Decide which origins are allowed. </td></tr>
+ * <tr><td> Decide which methods and request headers are allowed. </td></tr>
+ * <tr><td> Provide pre-rendered CORS header values. </td></tr>
+ * <tr><td> Read a policy from filter configuration. </td><td> {@link FilterConfig} </td></tr>
+ * </table></pre>
+ */
+public final class CORSPolicy {
+    /** The init parameter listing the allowed origins, comma separated. */
+    public static final String ALLOWED_ORIGINS = "allowedOrigins";
+
+    /** The init parameter listing the allowed methods, comma separated. */
+    public static final String ALLOWED_METHODS = "allowedMethods";
+
+    /** The init parameter listing the allowed request headers, comma separated. */
+    public static final String ALLOWED_HEADERS = "allowedHeaders";
+
+    /** The init parameter listing the response headers exposed to the client, comma separated. */
+    public static final String EXPOSED_HEADERS = "exposedHeaders";
+
+    /** The init parameter giving how long preflight results may be cached, in seconds. */
+    public static final String MAX_AGE = "maxAge";
+
+    /** The init parameter giving whether credentials are allowed, "true" or "false". */
+    public static final String ALLOW_CREDENTIALS = "allowCredentials";
+
+    /** The origin that stands for any origin. */
+    public static final String ANY_ORIGIN = "*";
+
+    /** The method or header name that stands for any method or header. */
+    private static final String ANY = "*";
+
+    /**
+     * The policy that allows any origin, and the common methods and headers. It should be for development purposes
+     * only, as it enables all access.
+     */
+    public static final CORSPolicy ALLOW_ALL =
+        new CORSPolicy(Collections.singletonList(ANY_ORIGIN), Arrays.asList("PUT", "POST", "GET", "OPTIONS", "DELETE"),
+            Arrays.asList("x-requested-with", "Content-Type", "Authorization", "Bearer"),
+            Collections.<String>emptyList(), 3600, false);
+
+    /** The allowed origins. */
+    private final Set<String> allowedOrigins;
+
+    /** Whether any origin is allowed. */
+    private final boolean anyOrigin;
+
+    /** The allowed methods, in upper case, or <tt>null</tt> if any method is allowed. */
+    private final Set<String> allowedMethods;
+
+    /** The allowed request headers, in lower case, or <tt>null</tt> if any header is allowed. */
+    private final Set<String> allowedHeaders;
+
+    /** Whether credentials are allowed. */
+    private final boolean allowCredentials;
+
+    /** The rendered list of allowed methods. */
+    private final String allowMethods;
+
+    /** The rendered list of allowed request headers. */
+    private final String allowHeaders;
+
+    /** The rendered list of exposed response headers, or <tt>null</tt> if there are none. */
+    private final String exposeHeaders;
+
+    /** The rendered maximum age of preflight results. */
+    private final String maxAge;
+
+    /**
+     * Creates a CORS policy.
+     *
+     * @param  allowedOrigins   The allowed origins, which may include "*" to allow any origin.
+     * @param  allowedMethods   The allowed methods.
+     * @param  allowedHeaders   The allowed request headers.
+     * @param  exposedHeaders   The response headers exposed to the client.
+     * @param  maxAgeSeconds    How long preflight results may be cached, in seconds.
+     * @param  allowCredentials Whether credentials are allowed.
+     *
+     * @throws IllegalArgumentException If credentials are allowed together with any origin.
+     */
+    public CORSPolicy(Collection<String> allowedOrigins, Collection<String> allowedMethods,
+        Collection<String> allowedHeaders, Collection<String> exposedHeaders, long maxAgeSeconds,
+        boolean allowCredentials) {
+        this.allowedOrigins = new HashSet<>(allowedOrigins);
+        this.allowCredentials = allowCredentials;
+
+        anyOrigin = this.allowedOrigins.contains(ANY_ORIGIN);
+
+        if (anyOrigin && allowCredentials) {
+            throw new IllegalArgumentException("Credentials can only be allowed for an explicit list of origins, not " +
+                ANY_ORIGIN + ".");
+        }
+
+        this.allowedMethods = normalize(allowedMethods, true);
+        this.allowedHeaders = normalize(allowedHeaders, false);
+
+        allowMethods = String.join(", ", allowedMethods);
+        allowHeaders = String.join(", ", allowedHeaders);
+        exposeHeaders = exposedHeaders.isEmpty() ? null : String.join(", ", exposedHeaders);
+        maxAge = Long.toString(maxAgeSeconds);
+    }
+
+    /**
+     * Reads a CORS policy from the init parameters of a filter. Any parameter not given takes its value from
+     * {@link #ALLOW_ALL}; exposed headers default to none. Allowing credentials needs the allowed origins to be listed.
+     *
+     * @param  config The filter configuration.
+     *
+     * @return The CORS policy.
+     *
+     * @throws IllegalArgumentException If credentials are allowed together with any origin.
+     */
+    public static CORSPolicy fromConfig(FilterConfig config) {
+        String maxAgeParam = config.getInitParameter(MAX_AGE);
+        String allowCredentialsParam = config.getInitParameter(ALLOW_CREDENTIALS);
+
+        return new CORSPolicy(listParam(config, ALLOWED_ORIGINS, ALLOW_ALL.allowedOrigins),
+                listParam(config, ALLOWED_METHODS, split(ALLOW_ALL.allowMethods)),
+                listParam(config, ALLOWED_HEADERS, split(ALLOW_ALL.allowHeaders)),
+                listParam(config, EXPOSED_HEADERS, Collections.<String>emptyList()),
+                (maxAgeParam == null) ? Long.parseLong(ALLOW_ALL.maxAge) : Long.parseLong(maxAgeParam.trim()),
+                (allowCredentialsParam == null) ? ALLOW_ALL.allowCredentials
+                                                : Boolean.parseBoolean(allowCredentialsParam.trim()));
+    }
+
+    /**
+     * Checks if an origin is allowed.
+     *
+     * @param  origin The origin of a request.
+     *
+     * @return <tt>true</tt> iff the origin is allowed.
+     */
+    public boolean isAllowedOrigin(String origin) {
+        return anyOrigin || allowedOrigins.contains(origin);
+    }
+
+    /**
+     * Checks if a method is allowed, as asked for by the 'Access-Control-Request-Method' header of a preflight request.
+     *
+     * @param  method The method asked for.
+     *
+     * @return <tt>true</tt> iff the method is allowed.
+     */
+    public boolean isAllowedMethod(String method) {
+        return (method != null) &&
+            ((allowedMethods == null) || allowedMethods.contains(method.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Checks if all of a list of request headers are allowed, as asked for by the 'Access-Control-Request-Headers'
+     * header of a preflight request.
+     *
+     * @param  headers The comma separated header names asked for, or <tt>null</tt> if none were.
+     *
+     * @return <tt>true</tt> iff all of the headers are allowed.
+     */
+    public boolean isAllowedHeaders(String headers) {
+        if ((headers == null) || (allowedHeaders == null)) {
+            return true;
+        }
+
+        for (String header : split(headers)) {
+            if (!allowedHeaders.contains(header.toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Provides the value of the 'Access-Control-Allow-Origin' header for an allowed origin.
+     *
+     * @param  origin The allowed origin of a request.
+     *
+     * @return The value of the 'Access-Control-Allow-Origin' header.
+     */
+    public String getAllowOrigin(String origin) {
+        return isVaryByOrigin() ? origin : ANY_ORIGIN;
+    }
+
+    /**
+     * Reports whether responses depend on the origin of the request, and so must say that they vary by it.
+     *
+     * @return <tt>true</tt> iff responses vary by origin.
+     */
+    public boolean isVaryByOrigin() {
+        return !anyOrigin;
+    }
+
+    /**
+     * Reports whether credentials are allowed.
+     *
+     * @return <tt>true</tt> iff credentials are allowed.
+     */
+    public boolean isAllowCredentials() {
+        return allowCredentials;
+    }
+
+    /**
+     * Provides the value of the 'Access-Control-Allow-Methods' header.
+     *
+     * @return The value of the 'Access-Control-Allow-Methods' header.
+     */
+    public String getAllowMethods() {
+        return allowMethods;
+    }
+
+    /**
+     * Provides the value of the 'Access-Control-Allow-Headers' header.
+     *
+     * @return The value of the 'Access-Control-Allow-Headers' header.
+     */
+    public String getAllowHeaders() {
+        return allowHeaders;
+    }
+
+    /**
+     * Provides the value of the 'Access-Control-Expose-Headers' header.
+     *
+     * @return The value of the 'Access-Control-Expose-Headers' header, or <tt>null</tt> if no headers are exposed.
+     */
+    public String getExposeHeaders() {
+        return exposeHeaders;
+    }
+
+    /**
+     * Provides the value of the 'Access-Control-Max-Age' header.
+     *
+     * @return The value of the 'Access-Control-Max-Age' header.
+     */
+    public String getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Reads a comma separated list from an init parameter.
+     *
+     * @param  config       The filter configuration.
+     * @param  name         The name of the init parameter.
+     * @param  defaultValue The list to use if the parameter is not given.
+     *
+     * @return The list.
+     */
+    private static Collection<String> listParam(FilterConfig config, String name, Collection<String> defaultValue) {
+        String value = config.getInitParameter(name);
+
+        return (value == null) ? defaultValue : split(value);
+    }
+
+    /**
+     * Puts a list of method or header names into a single case, for comparing them regardless of case.
+     *
+     * @param  names     The names.
+     * @param  upperCase <tt>true</tt> to put the names into upper case, <tt>false</tt> for lower case.
+     *
+     * @return The names in a single case, or <tt>null</tt> if they include "*".
+     */
+    private static Set<String> normalize(Collection<String> names, boolean upperCase) {
+        Set<String> result = new HashSet<>();
+
+        for (String name : names) {
+            if (ANY.equals(name)) {
+                return null;
+            }
+
+            result.add(upperCase ? name.toUpperCase(Locale.ROOT) : name.toLowerCase(Locale.ROOT));
+        }
+
+        return result;
+    }
+
+    /**
+     * Splits a comma separated list, trimming its elements and leaving out empty ones.
+     *
+     * @param  value The comma separated list.
+     *
+     * @return The elements of the list.
+     */
+    private static List<String> split(String value) {
+        List<String> result = new ArrayList<>();
+
+        for (String element : value.split(",")) {
+            String trimmed = element.trim();
+
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+
+        return result;
+    }
+}
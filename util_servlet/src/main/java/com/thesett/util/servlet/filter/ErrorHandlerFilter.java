@@ -9,12 +9,14 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
+import com.thesett.util.error.toplevelhandlers.RateLimitedTopLevelErrorHandler;
 import com.thesett.util.error.toplevelhandlers.SLF4JLenientTopLevelErrorHandler;
 import com.thesett.util.error.toplevelhandlers.TopLevelErrorHandler;
 
 /**
  * ErrorHandlerFilter provides an HTTP filter that is placed first around all web requests. Any unhandled exceptions
- * that fall through to this filter are passed to a lenient top level error handler for logging.
+ * that fall through to this filter are passed to a lenient top level error handler for logging. The number of each
+ * kind of exception logged in full is rate limited, so that a storm of failures does not make logging the bottleneck.
  *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
@@ -23,7 +25,8 @@ import com.thesett.util.error.toplevelhandlers.TopLevelErrorHandler;
  */
 public class ErrorHandlerFilter implements Filter {
     /** For logging all unhandled exceptions. */
-    public static final TopLevelErrorHandler TOP_LEVEL_ERROR_HANDLER = new SLF4JLenientTopLevelErrorHandler();
+    public static final TopLevelErrorHandler TOP_LEVEL_ERROR_HANDLER =
+        new RateLimitedTopLevelErrorHandler(new SLF4JLenientTopLevelErrorHandler());
 
     /** {@inheritDoc} */
     public void init(FilterConfig filterConfig) throws ServletException {
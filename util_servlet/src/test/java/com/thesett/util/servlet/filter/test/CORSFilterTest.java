@@ -0,0 +1,316 @@
+package com.thesett.util.servlet.filter.test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import com.thesett.util.servlet.filter.CORSFilter;
+import com.thesett.util.servlet.filter.CORSPolicy;
+
+/**
+ * Unit tests the {@link com.thesett.util.servlet.filter.CORSFilter} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that requests without an origin pass through with no CORS headers, but vary by origin.
+ * <tr><td>Check that requests from an allowed origin get the origin echoed back, and continue down the chain.
+ * <tr><td>Check that requests from other origins get no CORS headers, and continue down the chain.
+ * <tr><td>Check that allowed preflight requests are answered without going down the chain.
+ * <tr><td>Check that preflight requests from other origins are refused.
+ * <tr><td>Check that preflight requests asking for a method that is not allowed are refused.
+ * <tr><td>Check that preflight requests asking for headers that are not allowed are refused.
+ * <tr><td>Check that OPTIONS requests that are not preflights continue down the chain.
+ * <tr><td>Check that the allow all policy answers "*" and does not vary by origin.
+ * <tr><td>Check that the policy is read from the init parameters, and an invalid one is refused.
+ * </table></pre>
+ */
+public class CORSFilterTest {
+    /** The allowed origin. */
+    private static final String ALLOWED = "https://a.example";
+
+    /** An origin that is not allowed. */
+    private static final String OTHER = "https://evil.example";
+
+    /** The filter under test, with an allow list policy that allows credentials. */
+    private final CORSFilter filter =
+        new CORSFilter(CORSPolicyTest.policy(Collections.singletonList(ALLOWED), true));
+
+    /** Check that requests without an origin pass through with no CORS headers, but vary by origin. */
+    @Test
+    public void testNoOrigin() throws Exception {
+        Exchange exchange = new Exchange("GET").run(filter);
+
+        assertTrue(exchange.chained);
+        assertNull(exchange.header("Access-Control-Allow-Origin"));
+        assertEquals(Collections.singletonList("Origin"), exchange.headers("Vary"));
+    }
+
+    /** Check that requests from an allowed origin get the origin echoed back, and continue down the chain. */
+    @Test
+    public void testAllowedOrigin() throws Exception {
+        Exchange exchange = new Exchange("GET").with("Origin", ALLOWED).run(filter);
+
+        assertTrue(exchange.chained);
+        assertEquals(ALLOWED, exchange.header("Access-Control-Allow-Origin"));
+        assertEquals("true", exchange.header("Access-Control-Allow-Credentials"));
+        assertEquals(Collections.singletonList("Origin"), exchange.headers("Vary"));
+        assertNull(exchange.header("Access-Control-Allow-Methods"));
+    }
+
+    /** Check that requests from other origins get no CORS headers, and continue down the chain. */
+    @Test
+    public void testOtherOrigin() throws Exception {
+        Exchange exchange = new Exchange("GET").with("Origin", OTHER).run(filter);
+
+        assertTrue(exchange.chained);
+        assertNull(exchange.header("Access-Control-Allow-Origin"));
+        assertNull(exchange.header("Access-Control-Allow-Credentials"));
+    }
+
+    /** Check that allowed preflight requests are answered without going down the chain. */
+    @Test
+    public void testPreflightAnswered() throws Exception {
+        Exchange exchange =
+            new Exchange("OPTIONS").with("Origin", ALLOWED).with("Access-Control-Request-Method", "PUT")
+            .with("Access-Control-Request-Headers", "content-type, authorization").run(filter);
+
+        assertFalse(exchange.chained);
+        assertEquals(HttpServletResponse.SC_OK, exchange.status);
+        assertEquals(ALLOWED, exchange.header("Access-Control-Allow-Origin"));
+        assertEquals("GET, PUT", exchange.header("Access-Control-Allow-Methods"));
+        assertEquals("Content-Type, Authorization", exchange.header("Access-Control-Allow-Headers"));
+        assertEquals("60", exchange.header("Access-Control-Max-Age"));
+    }
+
+    /** Check that preflight requests from other origins are refused. */
+    @Test
+    public void testPreflightOtherOriginRefused() throws Exception {
+        Exchange exchange =
+            new Exchange("OPTIONS").with("Origin", OTHER).with("Access-Control-Request-Method", "GET").run(filter);
+
+        assertRefused(exchange);
+    }
+
+    /** Check that preflight requests asking for a method that is not allowed are refused. */
+    @Test
+    public void testPreflightMethodRefused() throws Exception {
+        Exchange exchange =
+            new Exchange("OPTIONS").with("Origin", ALLOWED).with("Access-Control-Request-Method", "DELETE")
+            .run(filter);
+
+        assertRefused(exchange);
+    }
+
+    /** Check that preflight requests asking for headers that are not allowed are refused. */
+    @Test
+    public void testPreflightHeadersRefused() throws Exception {
+        Exchange exchange =
+            new Exchange("OPTIONS").with("Origin", ALLOWED).with("Access-Control-Request-Method", "GET")
+            .with("Access-Control-Request-Headers", "content-type, x-secret").run(filter);
+
+        assertRefused(exchange);
+    }
+
+    /** Check that OPTIONS requests that are not preflights continue down the chain. */
+    @Test
+    public void testPlainOptions() throws Exception {
+        Exchange exchange = new Exchange("OPTIONS").with("Origin", ALLOWED).run(filter);
+
+        assertTrue(exchange.chained);
+        assertEquals(ALLOWED, exchange.header("Access-Control-Allow-Origin"));
+    }
+
+    /** Check that the allow all policy answers "*" and does not vary by origin. */
+    @Test
+    public void testAllowAll() throws Exception {
+        CORSFilter allowAll = new CORSFilter();
+        allowAll.init(null);
+
+        Exchange exchange = new Exchange("GET").with("Origin", OTHER).run(allowAll);
+
+        assertTrue(exchange.chained);
+        assertEquals(CORSPolicy.ANY_ORIGIN, exchange.header("Access-Control-Allow-Origin"));
+        assertNull(exchange.header("Access-Control-Allow-Credentials"));
+        assertTrue(exchange.headers("Vary").isEmpty());
+    }
+
+    /** Check that the policy is read from the init parameters, and an invalid one is refused. */
+    @Test
+    public void testInitFromConfig() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put(CORSPolicy.ALLOWED_ORIGINS, ALLOWED);
+
+        CORSFilter configured = new CORSFilter();
+        configured.init(CORSPolicyTest.config(params));
+
+        assertEquals(ALLOWED,
+            new Exchange("GET").with("Origin", ALLOWED).run(configured).header("Access-Control-Allow-Origin"));
+        assertNull(new Exchange("GET").with("Origin", OTHER).run(configured).header("Access-Control-Allow-Origin"));
+
+        params.put(CORSPolicy.ALLOWED_ORIGINS, CORSPolicy.ANY_ORIGIN);
+        params.put(CORSPolicy.ALLOW_CREDENTIALS, "true");
+
+        try {
+            new CORSFilter().init(CORSPolicyTest.config(params));
+            fail("Credentials should not be allowed from any origin.");
+        } catch (ServletException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    /**
+     * Asserts that a preflight request was refused, without going down the chain and without any allow headers.
+     *
+     * @param exchange The preflight request and its response.
+     */
+    private static void assertRefused(Exchange exchange) {
+        assertFalse(exchange.chained);
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, exchange.status);
+        assertNull(exchange.header("Access-Control-Allow-Origin"));
+        assertNull(exchange.header("Access-Control-Allow-Methods"));
+        assertNull(exchange.header("Access-Control-Allow-Headers"));
+    }
+
+    /** Exchange is a request through the filter and the response it gets, with the servlet objects stood in for. */
+    private static class Exchange {
+        /** The method of the request. */
+        private final String method;
+
+        /** The headers of the request. */
+        private final Map<String, String> requestHeaders = new HashMap<>();
+
+        /** The headers of the response, each with all of its values. */
+        private final Map<String, List<String>> responseHeaders = new HashMap<>();
+
+        /** The status of the response, zero if it was not set. */
+        private int status;
+
+        /** <tt>true</tt> iff the request continued down the filter chain. */
+        private boolean chained;
+
+        /**
+         * Creates a request.
+         *
+         * @param method The method of the request.
+         */
+        Exchange(String method) {
+            this.method = method;
+        }
+
+        /**
+         * Adds a header to the request.
+         *
+         * @param  name  The name of the header.
+         * @param  value The value of the header.
+         *
+         * @return <tt>this</tt>, fluent style.
+         */
+        Exchange with(String name, String value) {
+            requestHeaders.put(name, value);
+
+            return this;
+        }
+
+        /**
+         * Passes the request through a filter.
+         *
+         * @param  filter The filter.
+         *
+         * @return <tt>this</tt>, fluent style.
+         *
+         * @throws Exception If the filter fails.
+         */
+        Exchange run(CORSFilter filter) throws Exception {
+            HttpServletRequest request =
+                (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { HttpServletRequest.class }, (proxy, m, args) -> {
+                        switch (m.getName()) {
+                        case "getMethod":
+                            return method;
+
+                        case "getHeader":
+                            return requestHeaders.get(args[0]);
+
+                        default:
+                            throw new UnsupportedOperationException(m.getName());
+                        }
+                    });
+
+            HttpServletResponse response =
+                (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { HttpServletResponse.class }, (proxy, m, args) -> {
+                        switch (m.getName()) {
+                        case "setHeader":
+                            responseHeaders.put((String) args[0], new ArrayList<>(Arrays.asList((String) args[1])));
+
+                            return null;
+
+                        case "addHeader":
+                            responseHeaders.computeIfAbsent((String) args[0], k -> new ArrayList<>())
+                            .add((String) args[1]);
+
+                            return null;
+
+                        case "setStatus":
+                            status = (Integer) args[0];
+
+                            return null;
+
+                        case "setContentLength":
+                            return null;
+
+                        default:
+                            throw new UnsupportedOperationException(m.getName());
+                        }
+                    });
+
+            FilterChain chain = (req, resp) -> chained = true;
+
+            filter.doFilter(request, response, chain);
+
+            return this;
+        }
+
+        /**
+         * Provides the single value of a response header.
+         *
+         * @param  name The name of the header.
+         *
+         * @return The value of the header, or <tt>null</tt> if it was not set.
+         */
+        String header(String name) {
+            List<String> values = responseHeaders.get(name);
+
+            return (values == null) ? null : values.get(0);
+        }
+
+        /**
+         * Provides all of the values of a response header.
+         *
+         * @param  name The name of the header.
+         *
+         * @return The values of the header, empty if it was not set.
+         */
+        List<String> headers(String name) {
+            List<String> values = responseHeaders.get(name);
+
+            return (values == null) ? Collections.<String>emptyList() : values;
+        }
+    }
+}
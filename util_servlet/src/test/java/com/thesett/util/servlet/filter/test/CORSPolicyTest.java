@@ -0,0 +1,179 @@
+package com.thesett.util.servlet.filter.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import com.thesett.util.servlet.filter.CORSPolicy;
+
+/**
+ * Unit tests the {@link com.thesett.util.servlet.filter.CORSPolicy} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that only listed origins are allowed, and are echoed back, varying by origin.
+ * <tr><td>Check that any origin is allowed by "*", which is given back without varying by origin.
+ * <tr><td>Check that credentials cannot be allowed together with any origin.
+ * <tr><td>Check that only listed methods are allowed, ignoring case.
+ * <tr><td>Check that only listed request headers are allowed, ignoring case.
+ * <tr><td>Check that "*" allows any method or request header.
+ * <tr><td>Check that a policy is read from filter init parameters, with defaults for those not given.
+ * <tr><td>Check that an invalid policy in filter init parameters is refused.
+ * </table></pre>
+ */
+public class CORSPolicyTest {
+    /** Check that only listed origins are allowed, and are echoed back, varying by origin. */
+    @Test
+    public void testListedOrigins() {
+        CORSPolicy policy = policy(Arrays.asList("https://a.example", "https://b.example"), false);
+
+        assertTrue(policy.isAllowedOrigin("https://a.example"));
+        assertTrue(policy.isAllowedOrigin("https://b.example"));
+        assertFalse(policy.isAllowedOrigin("https://c.example"));
+        assertFalse(policy.isAllowedOrigin("https://a.example.evil"));
+        assertEquals("https://a.example", policy.getAllowOrigin("https://a.example"));
+        assertTrue(policy.isVaryByOrigin());
+    }
+
+    /** Check that any origin is allowed by "*", which is given back without varying by origin. */
+    @Test
+    public void testAnyOrigin() {
+        CORSPolicy policy = CORSPolicy.ALLOW_ALL;
+
+        assertTrue(policy.isAllowedOrigin("https://c.example"));
+        assertEquals(CORSPolicy.ANY_ORIGIN, policy.getAllowOrigin("https://c.example"));
+        assertFalse(policy.isVaryByOrigin());
+        assertFalse(policy.isAllowCredentials());
+    }
+
+    /** Check that credentials cannot be allowed together with any origin. */
+    @Test
+    public void testAnyOriginWithCredentialsRejected() {
+        try {
+            policy(Arrays.asList("https://a.example", CORSPolicy.ANY_ORIGIN), true);
+            fail("Credentials should not be allowed from any origin.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        assertTrue(policy(Collections.singletonList("https://a.example"), true).isAllowCredentials());
+    }
+
+    /** Check that only listed methods are allowed, ignoring case. */
+    @Test
+    public void testAllowedMethods() {
+        CORSPolicy policy = policy(Collections.singletonList("https://a.example"), false);
+
+        assertTrue(policy.isAllowedMethod("GET"));
+        assertTrue(policy.isAllowedMethod("put"));
+        assertFalse(policy.isAllowedMethod("DELETE"));
+        assertFalse(policy.isAllowedMethod(null));
+        assertEquals("GET, PUT", policy.getAllowMethods());
+    }
+
+    /** Check that only listed request headers are allowed, ignoring case. */
+    @Test
+    public void testAllowedHeaders() {
+        CORSPolicy policy = policy(Collections.singletonList("https://a.example"), false);
+
+        assertTrue(policy.isAllowedHeaders(null));
+        assertTrue(policy.isAllowedHeaders("content-type"));
+        assertTrue(policy.isAllowedHeaders("Content-Type, AUTHORIZATION"));
+        assertFalse(policy.isAllowedHeaders("content-type, x-secret"));
+        assertEquals("Content-Type, Authorization", policy.getAllowHeaders());
+    }
+
+    /** Check that "*" allows any method or request header. */
+    @Test
+    public void testWildcardMethodsAndHeaders() {
+        CORSPolicy policy =
+            new CORSPolicy(Collections.singletonList("https://a.example"), Collections.singletonList("*"),
+                Collections.singletonList("*"), Collections.<String>emptyList(), 60, false);
+
+        assertTrue(policy.isAllowedMethod("PATCH"));
+        assertTrue(policy.isAllowedHeaders("x-anything, x-else"));
+    }
+
+    /** Check that a policy is read from filter init parameters, with defaults for those not given. */
+    @Test
+    public void testFromConfig() {
+        Map<String, String> params = new HashMap<>();
+        params.put(CORSPolicy.ALLOWED_ORIGINS, " https://a.example , https://b.example ");
+        params.put(CORSPolicy.EXPOSED_HEADERS, "ETag");
+        params.put(CORSPolicy.MAX_AGE, "600");
+        params.put(CORSPolicy.ALLOW_CREDENTIALS, "true");
+
+        CORSPolicy policy = CORSPolicy.fromConfig(config(params));
+
+        assertTrue(policy.isAllowedOrigin("https://b.example"));
+        assertFalse(policy.isAllowedOrigin("https://c.example"));
+        assertEquals(CORSPolicy.ALLOW_ALL.getAllowMethods(), policy.getAllowMethods());
+        assertEquals(CORSPolicy.ALLOW_ALL.getAllowHeaders(), policy.getAllowHeaders());
+        assertEquals("ETag", policy.getExposeHeaders());
+        assertEquals("600", policy.getMaxAge());
+        assertTrue(policy.isAllowCredentials());
+        assertNull(CORSPolicy.fromConfig(config(Collections.<String, String>emptyMap())).getExposeHeaders());
+    }
+
+    /** Check that an invalid policy in filter init parameters is refused. */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromConfigInvalid() {
+        Map<String, String> params = new HashMap<>();
+        params.put(CORSPolicy.ALLOW_CREDENTIALS, "true");
+
+        CORSPolicy.fromConfig(config(params));
+    }
+
+    /**
+     * Creates a policy allowing the GET and PUT methods, and the Content-Type and Authorization headers.
+     *
+     * @param  origins          The allowed origins.
+     * @param  allowCredentials Whether credentials are allowed.
+     *
+     * @return The policy.
+     */
+    static CORSPolicy policy(List<String> origins, boolean allowCredentials) {
+        return new CORSPolicy(origins, Arrays.asList("GET", "PUT"), Arrays.asList("Content-Type", "Authorization"),
+                Collections.<String>emptyList(), 60, allowCredentials);
+    }
+
+    /**
+     * Creates a filter configuration with the given init parameters.
+     *
+     * @param  params The init parameters.
+     *
+     * @return The filter configuration.
+     */
+    static FilterConfig config(Map<String, String> params) {
+        return new FilterConfig() {
+                public String getFilterName() {
+                    return "cors";
+                }
+
+                public ServletContext getServletContext() {
+                    return null;
+                }
+
+                public String getInitParameter(String name) {
+                    return params.get(name);
+                }
+
+                public Enumeration<String> getInitParameterNames() {
+                    return Collections.enumeration(params.keySet());
+                }
+            };
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.security.shiro;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.WildcardPermission;
+
+/**
+ * CompiledPermissionSet holds a set of granted Shiro wildcard permissions, compiled into a trie over the permission
+ * parts, so that a permission string can be checked against all of the granted permissions in a single walk of the
+ * trie, without parsing the granted permissions again or creating any {@link Permission} objects.
+ *
+ * <p/>The implication rules are the same as those of {@link WildcardPermission}; permissions are case insensitive, a
+ * granted permission with fewer parts implies everything below it, and a <tt>*</tt> part matches anything. A granted
+ * part with several comma separated sub-parts is compiled as one branch of the trie per sub-part.
+ *
+ * <p/>Permission strings that are checked against the set and that themselves have several sub-parts in a part, or
+ * permissions supplied as objects rather than strings, are checked against each granted permission in turn in the
+ * usual way.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities <th> Collaborations
+ * <tr><td> Compile a set of permissions into a trie. </td></tr>
+ * <tr><td> Check single or bulk permissions against the set. </td><td> {@link WildcardPermission} </td></tr>
+ * </table></pre>
+ *
+ * @author Rupert Smith
+ */
+public class CompiledPermissionSet
+{
+    /** The wildcard token. */
+    private static final String WILDCARD = "*";
+
+    /** The token dividing the parts of a permission. */
+    private static final String PART_DIVIDER = ":";
+
+    /** The token dividing the sub-parts of a part. */
+    private static final String SUBPART_DIVIDER = ",";
+
+    /** The root of the trie. */
+    private final Node root = new Node();
+
+    /** The granted permissions resolved as Shiro permissions. */
+    private final List<Permission> permissions;
+
+    /**
+     * Compiles a set of permission strings.
+     *
+     * @param permissionStrings The permission strings to compile.
+     */
+    public CompiledPermissionSet(Collection<String> permissionStrings)
+    {
+        List<Permission> resolved = new ArrayList<>(permissionStrings.size());
+
+        for (String permissionString : permissionStrings)
+        {
+            resolved.add(new WildcardPermission(permissionString));
+            add(permissionString);
+        }
+
+        root.computeWildcardTail();
+
+        permissions = Collections.unmodifiableList(resolved);
+    }
+
+    /**
+     * Provides the granted permissions resolved as Shiro permissions. These can be supplied to Shiro as object
+     * permissions, to save it from resolving the permission strings on every check.
+     *
+     * @return The granted permissions resolved as Shiro permissions.
+     */
+    public Collection<Permission> asPermissions()
+    {
+        return permissions;
+    }
+
+    /**
+     * Checks if a permission is implied by this set.
+     *
+     * @param  permission The permission to check.
+     *
+     * @return <tt>true</tt> iff the permission is implied by this set.
+     */
+    public boolean isPermitted(String permission)
+    {
+        if ((permission == null) || permission.contains(SUBPART_DIVIDER))
+        {
+            return (permission != null) && isPermitted(new WildcardPermission(permission));
+        }
+
+        String[] parts = permission.trim().toLowerCase().split(PART_DIVIDER);
+
+        return root.matches(parts, 0);
+    }
+
+    /**
+     * Checks if a permission is implied by this set.
+     *
+     * @param  permission The permission to check.
+     *
+     * @return <tt>true</tt> iff the permission is implied by this set.
+     */
+    public boolean isPermitted(Permission permission)
+    {
+        for (Permission granted : permissions)
+        {
+            if (granted.implies(permission))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks each of several permissions against this set.
+     *
+     * @param  permissions The permissions to check.
+     *
+     * @return An array of results, <tt>true</tt> for each permission that is implied by this set.
+     */
+    public boolean[] isPermitted(String... permissions)
+    {
+        boolean[] result = new boolean[permissions.length];
+
+        for (int i = 0; i < permissions.length; i++)
+        {
+            result[i] = isPermitted(permissions[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks each of several permissions against this set.
+     *
+     * @param  permissions The permissions to check.
+     *
+     * @return An array of results, <tt>true</tt> for each permission that is implied by this set.
+     */
+    public boolean[] isPermitted(List<Permission> permissions)
+    {
+        boolean[] result = new boolean[permissions.size()];
+        int i = 0;
+
+        for (Permission permission : permissions)
+        {
+            result[i++] = isPermitted(permission);
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks if all of several permissions are implied by this set.
+     *
+     * @param  permissions The permissions to check.
+     *
+     * @return <tt>true</tt> iff all of the permissions are implied by this set.
+     */
+    public boolean isPermittedAll(String... permissions)
+    {
+        for (String permission : permissions)
+        {
+            if (!isPermitted(permission))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if all of several permissions are implied by this set.
+     *
+     * @param  permissions The permissions to check.
+     *
+     * @return <tt>true</tt> iff all of the permissions are implied by this set.
+     */
+    public boolean isPermittedAll(Collection<Permission> permissions)
+    {
+        for (Permission permission : permissions)
+        {
+            if (!isPermitted(permission))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds a granted permission to the trie. Parts with several sub-parts fan out into several branches.
+     *
+     * @param permissionString The permission string to add.
+     */
+    private void add(String permissionString)
+    {
+        List<Node> current = Collections.singletonList(root);
+
+        for (String part : permissionString.trim().toLowerCase().split(PART_DIVIDER))
+        {
+            List<Node> next = new ArrayList<>();
+
+            for (String subpart : part.split(SUBPART_DIVIDER))
+            {
+                for (Node node : current)
+                {
+                    next.add(node.child(subpart));
+                }
+            }
+
+            current = next;
+        }
+
+        for (Node node : current)
+        {
+            node.terminal = true;
+        }
+    }
+
+    /** Node is a node of the permission trie, corresponding to one part of one or more granted permissions. */
+    private static class Node
+    {
+        /** The child nodes by part. */
+        private Map<String, Node> children;
+
+        /** <tt>true</tt> iff a granted permission ends at this node. */
+        private boolean terminal;
+
+        /** <tt>true</tt> iff a granted permission ends at this node, or continues from it only with wildcards. */
+        private boolean wildcardTail;
+
+        /**
+         * Finds or creates the child node for a part.
+         *
+         * @param  part The part.
+         *
+         * @return The child node for the part.
+         */
+        Node child(String part)
+        {
+            if (children == null)
+            {
+                children = new HashMap<>();
+            }
+
+            Node child = children.get(part);
+
+            if (child == null)
+            {
+                child = new Node();
+                children.put(part, child);
+            }
+
+            return child;
+        }
+
+        /** Works out the wildcard tail flag, for this node and all nodes below it. */
+        void computeWildcardTail()
+        {
+            Node wildcard = null;
+
+            if (children != null)
+            {
+                for (Node child : children.values())
+                {
+                    child.computeWildcardTail();
+                }
+
+                wildcard = children.get(WILDCARD);
+            }
+
+            wildcardTail = terminal || ((wildcard != null) && wildcard.wildcardTail);
+        }
+
+        /**
+         * Checks if the parts of a permission from the given index on are implied by any granted permission passing
+         * through this node.
+         *
+         * @param  parts The parts of the permission to check.
+         * @param  index The index of the next part to check.
+         *
+         * @return <tt>true</tt> iff the permission is implied.
+         */
+        boolean matches(String[] parts, int index)
+        {
+            if (terminal)
+            {
+                return true;
+            }
+
+            if (index == parts.length)
+            {
+                return wildcardTail;
+            }
+
+            if (children == null)
+            {
+                return false;
+            }
+
+            Node exact = children.get(parts[index]);
+
+            if ((exact != null) && exact.matches(parts, index + 1))
+            {
+                return true;
+            }
+
+            Node wildcard = children.get(WILDCARD);
+
+            return (wildcard != null) && wildcard.matches(parts, index + 1);
+        }
+    }
+}
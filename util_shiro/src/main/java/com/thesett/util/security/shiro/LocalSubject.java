@@ -15,8 +15,8 @@
  */
 package com.thesett.util.security.shiro;
 
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -36,9 +36,13 @@ import org.apache.shiro.subject.Subject;
  * LocalSubject is a shiro security subject that can be configured locally, and then attached to the current thread to
  * provide access rights locally to that thread.
  *
+ * <p/>Permissions are checked as Shiro wildcard permissions. The permissions are compiled into a
+ * {@link CompiledPermissionSet} on first use, and recompiled if more permissions are added.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities <th> Collaborations
  * <tr><td> Capture principals, roles and permissions as a subject. </td></tr>
+ * <tr><td> Check permissions against the subject. </td><td> {@link CompiledPermissionSet} </td></tr>
  * </table></pre>
  *
  * @author Rupert Smith
@@ -49,11 +53,20 @@ public class LocalSubject implements Subject
     SimplePrincipalCollection principalCollection;
 
     /** Holds the permissions of this subject. */
-    Set<String> permissions = new HashSet<>();
+    private final Set<String> grantedPermissions = new HashSet<>();
+
+    /**
+     * Provides a read only view of the permissions of this subject. Permissions must be added through
+     * {@link #withPermission}, so that the compiled permissions are kept up to date.
+     */
+    final Set<String> permissions = Collections.unmodifiableSet(grantedPermissions);
 
     /** Holds the roles of this subject. */
     Set<String> roles = new HashSet<>();
 
+    /** Holds the permissions compiled for checking, or <tt>null</tt> if they need to be compiled. */
+    private CompiledPermissionSet compiledPermissions;
+
     /**
      * Adds a permission to this subject.
      *
@@ -63,7 +76,8 @@ public class LocalSubject implements Subject
      */
     public LocalSubject withPermission(String permission)
     {
-        permissions.add(permission);
+        grantedPermissions.add(permission);
+        compiledPermissions = null;
 
         return this;
     }
@@ -118,37 +132,37 @@ public class LocalSubject implements Subject
     /** {@inheritDoc} */
     public boolean isPermitted(String permission)
     {
-        return permissions.contains(permission);
+        return getCompiledPermissions().isPermitted(permission);
     }
 
     /** {@inheritDoc} */
     public boolean isPermitted(org.apache.shiro.authz.Permission permission)
     {
-        return false;
+        return getCompiledPermissions().isPermitted(permission);
     }
 
     /** {@inheritDoc} */
     public boolean[] isPermitted(String... permissions)
     {
-        return new boolean[permissions.length];
+        return getCompiledPermissions().isPermitted(permissions);
     }
 
     /** {@inheritDoc} */
     public boolean[] isPermitted(List<Permission> permissions)
     {
-        return new boolean[permissions.size()];
+        return getCompiledPermissions().isPermitted(permissions);
     }
 
     /** {@inheritDoc} */
     public boolean isPermittedAll(String... permissions)
     {
-        return this.permissions.containsAll(Arrays.asList(permissions));
+        return getCompiledPermissions().isPermittedAll(permissions);
     }
 
     /** {@inheritDoc} */
     public boolean isPermittedAll(Collection<Permission> permissions)
     {
-        return this.permissions.containsAll(permissions);
+        return getCompiledPermissions().isPermittedAll(permissions);
     }
 
     /** {@inheritDoc} */
@@ -300,4 +314,22 @@ public class LocalSubject implements Subject
     {
         return null;
     }
+
+    /**
+     * Provides the permissions of this subject compiled for checking, compiling them if this has not already been done.
+     *
+     * @return The permissions of this subject compiled for checking.
+     */
+    private CompiledPermissionSet getCompiledPermissions()
+    {
+        CompiledPermissionSet result = compiledPermissions;
+
+        if (result == null)
+        {
+            result = new CompiledPermissionSet(permissions);
+            compiledPermissions = result;
+        }
+
+        return result;
+    }
 }
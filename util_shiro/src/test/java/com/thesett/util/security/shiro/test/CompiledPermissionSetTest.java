@@ -0,0 +1,201 @@
+package com.thesett.util.security.shiro.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.thesett.util.security.shiro.CompiledPermissionSet;
+
+import org.apache.shiro.authz.permission.WildcardPermission;
+
+/**
+ * Unit tests the {@link com.thesett.util.security.shiro.CompiledPermissionSet} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that exact permissions are implied, and others are not.
+ * <tr><td>Check that a granted permission implies everything below it by prefix.
+ * <tr><td>Check that wildcard parts match anything, at the start, middle and end of a permission.
+ * <tr><td>Check that a granted part with several sub-parts implies each of them.
+ * <tr><td>Check that checked permissions with several sub-parts are only implied if all of them are.
+ * <tr><td>Check that permissions are case insensitive.
+ * <tr><td>Check that an empty set implies nothing.
+ * <tr><td>Check that bulk checks give the same results as single checks.
+ * <tr><td>Check that the trie agrees with WildcardPermission over a range of granted and checked permissions.
+ * </table></pre>
+ */
+public class CompiledPermissionSetTest
+{
+    /** Sets of granted permissions to compare against WildcardPermission. */
+    private static final String[][] GRANTS =
+        {
+            { "a:b:c" },
+            { "a" },
+            { "a:*:c" },
+            { "a:b,c:d" },
+            { "*" },
+            { "a:*" },
+            { "a:b:*" },
+            { "x:y:*:*" },
+            { "*:b" },
+            { "a:b:c", "x:*:z" },
+            { "a,x:b,y:c,z" },
+            { "a:b:c:d:e" }
+        };
+
+    /** Permissions to check against each set of granted permissions. */
+    private static final String[] CHECKS =
+        {
+            "a", "a:b", "a:b:c", "a:b:c:d", "a:x:c", "a:c:d", "a:b,c:d", "b", "x:y", "x:y:z", "x", "A:B:C", "a:*",
+            "a:b:d", "y:b", "x:q:z", "x:q:z:w", "a:y:z", "a:b:c:d:e:f", "a:b:c:d", "*", "a:*:c"
+        };
+
+    /** Check that exact permissions are implied, and others are not. */
+    @Test
+    public void testExact()
+    {
+        CompiledPermissionSet set = compile("order:read:42");
+
+        assertTrue(set.isPermitted("order:read:42"));
+        assertFalse(set.isPermitted("order:read:43"));
+        assertFalse(set.isPermitted("order:write:42"));
+        assertFalse(set.isPermitted("invoice:read:42"));
+    }
+
+    /** Check that a granted permission implies everything below it by prefix. */
+    @Test
+    public void testImpliesByPrefix()
+    {
+        CompiledPermissionSet set = compile("order:read");
+
+        assertTrue(set.isPermitted("order:read"));
+        assertTrue(set.isPermitted("order:read:42"));
+        assertTrue(set.isPermitted("order:read:42:lines"));
+        assertFalse(set.isPermitted("order"));
+        assertFalse(set.isPermitted("order:write:42"));
+    }
+
+    /** Check that wildcard parts match anything, at the start, middle and end of a permission. */
+    @Test
+    public void testWildcards()
+    {
+        assertTrue(compile("*").isPermitted("order:read:42"));
+
+        CompiledPermissionSet middle = compile("order:*:42");
+        assertTrue(middle.isPermitted("order:read:42"));
+        assertTrue(middle.isPermitted("order:write:42"));
+        assertFalse(middle.isPermitted("order:write:43"));
+
+        CompiledPermissionSet end = compile("order:read:*");
+        assertTrue(end.isPermitted("order:read"));
+        assertTrue(end.isPermitted("order:read:42"));
+        assertFalse(end.isPermitted("order"));
+
+        CompiledPermissionSet start = compile("*:read");
+        assertTrue(start.isPermitted("invoice:read:42"));
+        assertFalse(start.isPermitted("invoice:write"));
+    }
+
+    /** Check that a granted part with several sub-parts implies each of them. */
+    @Test
+    public void testMultiValueParts()
+    {
+        CompiledPermissionSet set = compile("order,invoice:read,write:42");
+
+        assertTrue(set.isPermitted("order:read:42"));
+        assertTrue(set.isPermitted("order:write:42"));
+        assertTrue(set.isPermitted("invoice:read:42"));
+        assertTrue(set.isPermitted("invoice:write:42"));
+        assertFalse(set.isPermitted("order:delete:42"));
+        assertFalse(set.isPermitted("customer:read:42"));
+    }
+
+    /** Check that checked permissions with several sub-parts are only implied if all of them are. */
+    @Test
+    public void testMultiValueChecks()
+    {
+        CompiledPermissionSet set = compile("order:read,write", "invoice:read");
+
+        assertTrue(set.isPermitted("order:read,write"));
+        assertFalse(set.isPermitted("order:read,delete"));
+        assertFalse(set.isPermitted("order,invoice:write"));
+    }
+
+    /** Check that permissions are case insensitive. */
+    @Test
+    public void testCaseInsensitive()
+    {
+        CompiledPermissionSet set = compile("Order:READ");
+
+        assertTrue(set.isPermitted("order:read:42"));
+        assertTrue(set.isPermitted("ORDER:Read"));
+    }
+
+    /** Check that an empty set implies nothing. */
+    @Test
+    public void testEmptySet()
+    {
+        CompiledPermissionSet set = new CompiledPermissionSet(Collections.<String>emptyList());
+
+        assertFalse(set.isPermitted("order"));
+        assertFalse(set.isPermitted(new WildcardPermission("order")));
+        assertFalse(set.isPermitted((String) null));
+        assertTrue(set.asPermissions().isEmpty());
+    }
+
+    /** Check that bulk checks give the same results as single checks. */
+    @Test
+    public void testBulkChecks()
+    {
+        CompiledPermissionSet set = compile("order:read", "invoice:*");
+
+        assertTrue(Arrays.equals(new boolean[] { true, false, true },
+                set.isPermitted("order:read:1", "order:write:1", "invoice:delete:1")));
+        assertTrue(Arrays.equals(new boolean[] { true, false },
+                set.isPermitted(
+                    Arrays.asList(new WildcardPermission("order:read:1"), new WildcardPermission("order:write:1")))));
+        assertTrue(set.isPermittedAll("order:read:1", "invoice:read:1"));
+        assertFalse(set.isPermittedAll("order:read:1", "order:write:1"));
+        assertTrue(set.isPermittedAll(Collections.singletonList(new WildcardPermission("invoice:read"))));
+    }
+
+    /** Check that the trie agrees with WildcardPermission over a range of granted and checked permissions. */
+    @Test
+    public void testAgreesWithWildcardPermission()
+    {
+        for (String[] grant : GRANTS)
+        {
+            CompiledPermissionSet set = compile(grant);
+
+            for (String check : CHECKS)
+            {
+                boolean expected = false;
+
+                for (String granted : grant)
+                {
+                    expected |= new WildcardPermission(granted).implies(new WildcardPermission(check));
+                }
+
+                assertEquals(Arrays.toString(grant) + " implies " + check, expected, set.isPermitted(check));
+                assertEquals(Arrays.toString(grant) + " implies object " + check, expected,
+                    set.isPermitted(new WildcardPermission(check)));
+            }
+        }
+    }
+
+    /**
+     * Compiles a set of permissions.
+     *
+     * @param  permissions The permissions.
+     *
+     * @return The compiled set of permissions.
+     */
+    private static CompiledPermissionSet compile(String... permissions)
+    {
+        return new CompiledPermissionSet(Arrays.asList(permissions));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.security.realm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.PermissionResolver;
+import org.apache.shiro.authz.permission.WildcardPermissionResolver;
+
+/**
+ * CachingPermissionResolver remembers the permissions that it has resolved from permission strings, so that each
+ * distinct permission string is only parsed into a {@link Permission} once. Shiro resolves the permission string
+ * supplied to every <tt>isPermitted</tt> check, and permission checks made in loops tend to use the same few strings
+ * over and over.
+ *
+ * <p/>The resolved permissions must be immutable for this to be safe, which is the case for Shiros wildcard
+ * permissions. The number of remembered permissions is bounded; once the bound is reached the cache is cleared and
+ * starts to fill again.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Resolve permission strings into permissions, once per string. </td><td> {@link PermissionResolver} </td></tr>
+ * </table></pre>
+ */
+public class CachingPermissionResolver implements PermissionResolver
+{
+    /** The default maximum number of resolved permissions to hold. */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** The resolver to delegate to for permission strings not seen before. */
+    private final PermissionResolver delegate;
+
+    /** The maximum number of resolved permissions to hold. */
+    private final int maxEntries;
+
+    /** Holds the resolved permissions by permission string. */
+    private final Map<String, Permission> resolved = new ConcurrentHashMap<>();
+
+    /** Creates a caching resolver for wildcard permissions. */
+    public CachingPermissionResolver()
+    {
+        this(new WildcardPermissionResolver(), DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a caching resolver over another permission resolver.
+     *
+     * @param delegate   The resolver to delegate to for permission strings not seen before.
+     * @param maxEntries The maximum number of resolved permissions to hold.
+     */
+    public CachingPermissionResolver(PermissionResolver delegate, int maxEntries)
+    {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+    }
+
+    /** {@inheritDoc} */
+    public Permission resolvePermission(String permissionString)
+    {
+        Permission permission = resolved.get(permissionString);
+
+        if (permission == null)
+        {
+            permission = delegate.resolvePermission(permissionString);
+
+            if (resolved.size() >= maxEntries)
+            {
+                resolved.clear();
+            }
+
+            resolved.put(permissionString, permission);
+        }
+
+        return permission;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.security.realm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+
+/**
+ * ExpiringCache is a Shiro {@link Cache} held in memory, where each entry expires a fixed time after it was put into
+ * the cache. The number of entries held is bounded; when the bound is reached, expired entries are purged and if the
+ * cache is still full an arbitrary entry is evicted to make room.
+ *
+ * <p/>Expired entries are removed lazily, on access or when the cache fills up.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Hold values against keys for a limited time. </td></tr>
+ * <tr><td> Bound the number of values held. </td></tr>
+ * </table></pre>
+ *
+ * @param <K> The type of the cache keys.
+ * @param <V> The type of the cache values.
+ */
+public class ExpiringCache<K, V> implements Cache<K, V>
+{
+    /** The name of this cache. */
+    private final String name;
+
+    /** The time to live of cache entries in milliseconds. */
+    private final long timeToLiveMillis;
+
+    /** The maximum number of entries to hold. */
+    private final int maxEntries;
+
+    /** Holds the cache entries. */
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an expiring cache.
+     *
+     * @param name             The name of the cache.
+     * @param timeToLiveMillis The time to live of cache entries in milliseconds.
+     * @param maxEntries       The maximum number of entries to hold.
+     */
+    public ExpiringCache(String name, long timeToLiveMillis, int maxEntries)
+    {
+        this.name = name;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /** {@inheritDoc} */
+    public V get(K key) throws CacheException
+    {
+        if (key == null)
+        {
+            return null;
+        }
+
+        Entry<V> entry = entries.get(key);
+
+        if (entry == null)
+        {
+            return null;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis()))
+        {
+            entries.remove(key, entry);
+
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    /** {@inheritDoc} */
+    public V put(K key, V value) throws CacheException
+    {
+        if (entries.size() >= maxEntries)
+        {
+            makeRoom();
+        }
+
+        Entry<V> previous = entries.put(key, new Entry<>(value, System.currentTimeMillis() + timeToLiveMillis));
+
+        return (previous == null) ? null : previous.value;
+    }
+
+    /** {@inheritDoc} */
+    public V remove(K key) throws CacheException
+    {
+        Entry<V> previous = entries.remove(key);
+
+        return (previous == null) ? null : previous.value;
+    }
+
+    /** {@inheritDoc} */
+    public void clear() throws CacheException
+    {
+        entries.clear();
+    }
+
+    /** {@inheritDoc} */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /** {@inheritDoc} */
+    public Set<K> keys()
+    {
+        return new HashSet<>(entries.keySet());
+    }
+
+    /** {@inheritDoc} */
+    public Collection<V> values()
+    {
+        long now = System.currentTimeMillis();
+        Collection<V> values = new ArrayList<>(entries.size());
+
+        for (Entry<V> entry : entries.values())
+        {
+            if (!entry.isExpired(now))
+            {
+                values.add(entry.value);
+            }
+        }
+
+        return values;
+    }
+
+    /** {@inheritDoc} */
+    public String toString()
+    {
+        return "ExpiringCache [name = " + name + ", size = " + entries.size() + "]";
+    }
+
+    /**
+     * Purges expired entries, and if that does not free up any space, evicts arbitrary entries until there is room for
+     * one more.
+     */
+    private void makeRoom()
+    {
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Entry<V>> i = entries.values().iterator(); i.hasNext();)
+        {
+            if (i.next().isExpired(now))
+            {
+                i.remove();
+            }
+        }
+
+        Iterator<Map.Entry<K, Entry<V>>> i = entries.entrySet().iterator();
+
+        while ((entries.size() >= maxEntries) && i.hasNext())
+        {
+            i.next();
+            i.remove();
+        }
+    }
+
+    /**
+     * Entry holds a cached value along with the time at which it expires.
+     *
+     * @param <V> The type of the cached value.
+     */
+    private static class Entry<V>
+    {
+        /** The cached value. */
+        final V value;
+
+        /** The time at which the value expires, in milliseconds since the epoch. */
+        final long expiresAt;
+
+        Entry(V value, long expiresAt)
+        {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now)
+        {
+            return now >= expiresAt;
+        }
+    }
+}
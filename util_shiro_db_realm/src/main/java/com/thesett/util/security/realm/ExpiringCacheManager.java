@@ -0,0 +1,70 @@
+/*
+ * Copyright The Sett Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thesett.util.security.realm;
+
+import org.apache.shiro.cache.AbstractCacheManager;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+
+/**
+ * ExpiringCacheManager is a Shiro cache manager that creates {@link ExpiringCache}s. The time to live and size bound
+ * are bean properties, so that they may be set from a Shiro ini file.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th> Responsibilities </th><th> Collaborations </th>
+ * <tr><td> Create named expiring caches. </td><td> {@link ExpiringCache} </td></tr>
+ * </table></pre>
+ */
+public class ExpiringCacheManager extends AbstractCacheManager
+{
+    /** The default time to live of cache entries, 5 minutes. */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 5L * 60L * 1000L;
+
+    /** The default maximum number of entries per cache. */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** The time to live of cache entries in milliseconds. */
+    private long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+
+    /** The maximum number of entries per cache. */
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    public long getTimeToLiveMillis()
+    {
+        return timeToLiveMillis;
+    }
+
+    public void setTimeToLiveMillis(long timeToLiveMillis)
+    {
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    /** {@inheritDoc} */
+    protected Cache createCache(String name) throws CacheException
+    {
+        return new ExpiringCache<Object, Object>(name, timeToLiveMillis, maxEntries);
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.thesett.util.security.realm;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -30,7 +32,10 @@ import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.SimpleAuthenticationInfo;
 import org.apache.shiro.authc.UsernamePasswordToken;
 import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.authz.permission.PermissionResolver;
+import org.apache.shiro.cache.Cache;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.SimplePrincipalCollection;
@@ -39,10 +44,24 @@ import org.apache.shiro.subject.SimplePrincipalCollection;
  * ShiroDBRealm implements a Shiro realm that looks up users and their roles in the database using a
  * {@link UserSecurityDAO}.
  *
+ * <p/>Authorization info is cached by default in an {@link ExpiringCacheManager}, so that repeated permission checks
+ * for the same user do not go to the database every time. A different Shiro cache manager may be plugged in through
+ * {@link #setCacheManager}, and authentication info may additionally be cached by enabling
+ * {@link #setAuthenticationCachingEnabled}. When the roles or password of a user change, {@link #invalidateUser}
+ * should be called to drop its cached authorization and authentication info.
+ *
+ * <p/>The user id is the only principal, as it always has been. Cached authentication info is found by the username in
+ * the login token; to drop it by user id, the cached entries are searched for those of that user.
+ *
+ * <p/>Permission strings are resolved into permissions once only, through a {@link CachingPermissionResolver}, and the
+ * cached authorization info holds the resolved permissions rather than the strings.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Look up users by username. </td><td> {@link UserSecurityDAO} </td></tr>
  * <tr><td> Look up roles and permissions by user id. </td><td> {@link UserSecurityDAO} </td></tr>
+ * <tr><td> Cache authorization info, and invalidate it on demand. </td><td> {@link ExpiringCacheManager} </td></tr>
+ * <tr><td> Resolve permission strings once only. </td><td> {@link CachingPermissionResolver} </td></tr>
  * </table></pre>
  */
 public class ShiroDBRealm extends AuthorizingRealm
@@ -56,6 +75,8 @@ public class ShiroDBRealm extends AuthorizingRealm
     /** Creates an uninitialized Shiro DB realm. */
     public ShiroDBRealm()
     {
+        super(new ExpiringCacheManager());
+        setPermissionResolver(new CachingPermissionResolver());
     }
 
     /**  */
@@ -67,6 +88,39 @@ public class ShiroDBRealm extends AuthorizingRealm
     /** Closes and cleans up this DB realm. */
     public void close()
     {
+        invalidateAll();
+    }
+
+    /**
+     * Drops any cached authorization and authentication info for a user. This should be called whenever the roles,
+     * permissions or password of the user are changed.
+     *
+     * @param userId The id of the user to drop cached information for.
+     */
+    public void invalidateUser(Object userId)
+    {
+        PrincipalCollection principals = new SimplePrincipalCollection(userId, getName());
+
+        clearCachedAuthorizationInfo(principals);
+        clearCachedAuthenticationInfo(principals);
+    }
+
+    /** Drops all cached authentication and authorization info held by this realm. */
+    public void invalidateAll()
+    {
+        Cache<Object, AuthorizationInfo> authorizationCache = getAuthorizationCache();
+
+        if (authorizationCache != null)
+        {
+            authorizationCache.clear();
+        }
+
+        Cache<Object, AuthenticationInfo> authenticationCache = getAuthenticationCache();
+
+        if (authenticationCache != null)
+        {
+            authenticationCache.clear();
+        }
     }
 
     /**
@@ -130,6 +184,7 @@ public class ShiroDBRealm extends AuthorizingRealm
         }
 
         SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+        PermissionResolver permissionResolver = getPermissionResolver();
 
         Set<AuthRole> roles = user.getRoles();
 
@@ -138,10 +193,61 @@ public class ShiroDBRealm extends AuthorizingRealm
             for (AuthRole role : roles)
             {
                 info.addRole(role.getName());
-                info.addStringPermissions(role.getPermissions());
+
+                Collection<String> permissionStrings = role.getPermissions();
+
+                if (permissionStrings != null)
+                {
+                    Collection<Permission> permissions = new ArrayList<>(permissionStrings.size());
+
+                    for (String permissionString : permissionStrings)
+                    {
+                        permissions.add(permissionResolver.resolvePermission(permissionString));
+                    }
+
+                    info.addObjectPermissions(permissions);
+                }
             }
         }
 
         return info;
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Cached authorization info is held against the user id, which is the primary principal.
+     */
+    protected Object getAuthorizationCacheKey(PrincipalCollection principals)
+    {
+        return getAvailablePrincipal(principals);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Cached authentication info is held against the username, which the principals do not include, so the cache
+     * is searched for the entries of the user instead.
+     */
+    protected void clearCachedAuthenticationInfo(PrincipalCollection principals)
+    {
+        Cache<Object, AuthenticationInfo> authenticationCache = getAuthenticationCache();
+
+        if ((authenticationCache == null) || (principals == null) || principals.isEmpty())
+        {
+            return;
+        }
+
+        Object userId = principals.getPrimaryPrincipal();
+
+        for (Object key : authenticationCache.keys())
+        {
+            AuthenticationInfo info = authenticationCache.get(key);
+
+            if ((info != null) && userId.equals(info.getPrincipals().getPrimaryPrincipal()))
+            {
+                authenticationCache.remove(key);
+            }
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package com.thesett.util.security.realm.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.thesett.util.security.realm.ExpiringCache;
+import com.thesett.util.security.realm.ExpiringCacheManager;
+
+import org.apache.shiro.cache.Cache;
+
+/**
+ * Unit tests the {@link com.thesett.util.security.realm.ExpiringCache} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that values put are got back until removed.
+ * <tr><td>Check that values expire after their time to live.
+ * <tr><td>Check that expired values are not listed.
+ * <tr><td>Check that no more than the maximum number of entries are held.
+ * <tr><td>Check that the cache manager creates caches with its settings, once for each name.
+ * </table></pre>
+ */
+public class ExpiringCacheTest
+{
+    /** Check that values put are got back until removed. */
+    @Test
+    public void testPutGetRemove()
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test", 60000, 10);
+
+        assertNull(cache.put("a", "1"));
+        assertEquals("1", cache.put("a", "2"));
+        assertEquals("2", cache.get("a"));
+        assertEquals("2", cache.remove("a"));
+        assertNull(cache.get("a"));
+        assertNull(cache.get(null));
+    }
+
+    /** Check that values expire after their time to live. */
+    @Test
+    public void testExpiry() throws Exception
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test", 50, 10);
+        cache.put("a", "1");
+
+        assertEquals("1", cache.get("a"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    /** Check that expired values are not listed. */
+    @Test
+    public void testExpiredNotListed() throws Exception
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test", 50, 10);
+        cache.put("a", "1");
+
+        Thread.sleep(100);
+
+        cache.put("b", "2");
+
+        assertEquals(Arrays.asList("2"), cache.values());
+    }
+
+    /** Check that no more than the maximum number of entries are held. */
+    @Test
+    public void testMaxEntries()
+    {
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test", 60000, 2);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("3", cache.get("c"));
+        assertTrue(new HashSet<>(Arrays.asList("a", "b", "c")).containsAll(cache.keys()));
+    }
+
+    /** Check that the cache manager creates caches with its settings, once for each name. */
+    @Test
+    public void testCacheManager() throws Exception
+    {
+        ExpiringCacheManager manager = new ExpiringCacheManager();
+        manager.setTimeToLiveMillis(50);
+        manager.setMaxEntries(1);
+
+        Cache<String, String> cache = manager.getCache("test");
+
+        assertTrue(cache == manager.<String, String>getCache("test"));
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals(1, cache.size());
+
+        Thread.sleep(100);
+        assertNull(cache.get("b"));
+    }
+}
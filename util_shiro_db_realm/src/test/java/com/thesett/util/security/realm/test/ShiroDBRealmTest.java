@@ -0,0 +1,218 @@
+package com.thesett.util.security.realm.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thesett.util.security.dao.UserSecurityDAO;
+import com.thesett.util.security.model.AuthRole;
+import com.thesett.util.security.model.AuthUser;
+import com.thesett.util.security.realm.ShiroDBRealm;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+
+/**
+ * Unit tests the {@link com.thesett.util.security.realm.ShiroDBRealm} class.
+ *
+ * <pre><p/><table id="crc"><caption>CRC Card</caption>
+ * <tr><th>Responsibilities<th>Collaborations
+ * <tr><td>Check that the user id is the only, and so the primary, principal.
+ * <tr><td>Check that roles and permissions are looked up from the database.
+ * <tr><td>Check that authorization info is cached between checks.
+ * <tr><td>Check that invalidating a user drops its cached authorization info.
+ * <tr><td>Check that authentication info is cached when enabled.
+ * <tr><td>Check that invalidating a user drops its cached authentication info, but not that of other users.
+ * <tr><td>Check that invalidating everything drops all cached info.
+ * </table></pre>
+ */
+public class ShiroDBRealmTest
+{
+    /** The id of the test user. */
+    private static final Long USER_ID = 1L;
+
+    /** The id of another user. */
+    private static final Long OTHER_ID = 2L;
+
+    /** The realm under test. */
+    private final ShiroDBRealm realm = new ShiroDBRealm();
+
+    /** The users, by id. */
+    private final Map<Long, AuthUser> users = new HashMap<>();
+
+    /** The users, by username. */
+    private final Map<String, AuthUser> usersByName = new HashMap<>();
+
+    /** Counts the lookups of users by username. */
+    private int usernameLookups;
+
+    /** Counts the lookups of users by id. */
+    private int idLookups;
+
+    /** Creates two users, and initializes the realm with a DAO over them that counts its lookups. */
+    @Before
+    public void setUp()
+    {
+        addUser(USER_ID, "alice", "admin", "order:read,write");
+        addUser(OTHER_ID, "bob", "clerk", "order:read");
+
+        realm.intialize(new UserSecurityDAO()
+            {
+                public AuthUser findUserByUsername(String username)
+                {
+                    usernameLookups++;
+
+                    return usersByName.get(username);
+                }
+
+                public AuthUser retrieve(Long id)
+                {
+                    idLookups++;
+
+                    return users.get(id);
+                }
+            });
+    }
+
+    /** Check that the user id is the only, and so the primary, principal. */
+    @Test
+    public void testUserIdIsPrimaryPrincipal()
+    {
+        AuthenticationInfo info = realm.getAuthenticationInfo(new UsernamePasswordToken("alice", "pw-alice"));
+
+        assertEquals(USER_ID, info.getPrincipals().getPrimaryPrincipal());
+        assertEquals(Collections.singletonList(USER_ID), info.getPrincipals().asList());
+    }
+
+    /** Check that roles and permissions are looked up from the database. */
+    @Test
+    public void testRolesAndPermissions()
+    {
+        PrincipalCollection alice = principals(USER_ID);
+
+        assertTrue(realm.hasRole(alice, "admin"));
+        assertFalse(realm.hasRole(alice, "clerk"));
+        assertTrue(realm.isPermitted(alice, "order:write:42"));
+        assertFalse(realm.isPermitted(principals(OTHER_ID), "order:write:42"));
+    }
+
+    /** Check that authorization info is cached between checks. */
+    @Test
+    public void testAuthorizationCached()
+    {
+        PrincipalCollection alice = principals(USER_ID);
+
+        realm.hasRole(alice, "admin");
+        realm.isPermitted(alice, "order:read");
+
+        assertEquals(1, idLookups);
+    }
+
+    /** Check that invalidating a user drops its cached authorization info. */
+    @Test
+    public void testInvalidateUserDropsAuthorization()
+    {
+        PrincipalCollection alice = principals(USER_ID);
+
+        assertTrue(realm.hasRole(alice, "admin"));
+
+        users.get(USER_ID).getRoles().iterator().next().setName("guest");
+        assertTrue(realm.hasRole(alice, "admin"));
+
+        realm.invalidateUser(USER_ID);
+
+        assertFalse(realm.hasRole(alice, "admin"));
+        assertTrue(realm.hasRole(alice, "guest"));
+        assertEquals(2, idLookups);
+    }
+
+    /** Check that authentication info is cached when enabled. */
+    @Test
+    public void testAuthenticationCached()
+    {
+        realm.setAuthenticationCachingEnabled(true);
+
+        realm.getAuthenticationInfo(new UsernamePasswordToken("alice", "pw-alice"));
+        realm.getAuthenticationInfo(new UsernamePasswordToken("alice", "pw-alice"));
+
+        assertEquals(1, usernameLookups);
+    }
+
+    /** Check that invalidating a user drops its cached authentication info, but not that of other users. */
+    @Test
+    public void testInvalidateUserDropsAuthentication()
+    {
+        realm.setAuthenticationCachingEnabled(true);
+
+        realm.getAuthenticationInfo(new UsernamePasswordToken("alice", "pw-alice"));
+        realm.getAuthenticationInfo(new UsernamePasswordToken("bob", "pw-bob"));
+        assertEquals(2, realm.getAuthenticationCache().size());
+
+        realm.invalidateUser(USER_ID);
+
+        assertEquals(Collections.singleton("bob"), realm.getAuthenticationCache().keys());
+
+        realm.getAuthenticationInfo(new UsernamePasswordToken("alice", "pw-alice"));
+        realm.getAuthenticationInfo(new UsernamePasswordToken("bob", "pw-bob"));
+        assertEquals(3, usernameLookups);
+    }
+
+    /** Check that invalidating everything drops all cached info. */
+    @Test
+    public void testInvalidateAll()
+    {
+        realm.setAuthenticationCachingEnabled(true);
+
+        realm.getAuthenticationInfo(new UsernamePasswordToken("alice", "pw-alice"));
+        realm.hasRole(principals(USER_ID), "admin");
+
+        realm.invalidateAll();
+
+        assertEquals(0, realm.getAuthenticationCache().size());
+        assertEquals(0, realm.getAuthorizationCache().size());
+    }
+
+    /**
+     * Creates the principals of a user authenticated by the realm under test.
+     *
+     * @param  id The id of the user.
+     *
+     * @return The principals of the user.
+     */
+    private PrincipalCollection principals(Long id)
+    {
+        return new SimplePrincipalCollection(id, realm.getName());
+    }
+
+    /**
+     * Adds a user with a single role. The password of the user is its username prefixed with "pw-".
+     *
+     * @param id          The id of the user.
+     * @param username    The username.
+     * @param roleName    The name of the role.
+     * @param permissions The permissions of the role.
+     */
+    private void addUser(Long id, String username, String roleName, String... permissions)
+    {
+        AuthRole role = new AuthRole();
+        role.setName(roleName);
+        role.setPermissions(Arrays.asList(permissions));
+
+        AuthUser user = new AuthUser();
+        user.setId(id);
+        user.setPassword("pw-" + username);
+        user.setRoles(Collections.singleton(role));
+
+        users.put(id, user);
+        usersByName.put(username, user);
+    }
+}
@@ -18,12 +18,12 @@ package com.thesett.util.security.model;
 import java.security.PublicKey;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import com.thesett.util.security.jwt.JwtUtils;
+import com.thesett.util.security.shiro.CompiledPermissionSet;
 import com.thesett.util.security.shiro.LocalSubject;
 
 import io.jsonwebtoken.Claims;
@@ -51,11 +51,16 @@ import org.apache.shiro.subject.Subject;
  * <p/>For the purpose of caching authentication tokens, the {@link #token} field containing the raw token is used. Once
  * a token has been seen once it can be accepted (up to its expiry time).
  *
+ * <p/>The permissions claimed by the token are compiled into a {@link CompiledPermissionSet} when the claims are
+ * extracted. The authorization info supplied to Shiro holds the resolved permissions, so that Shiro does not need to
+ * parse the permission strings on every check.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities <th> Collaborations
  * <tr><td> Encapsulate a JWT token as a Shiro access token. </td></tr>
  * <tr><td> Assert that a token is valid. </td><td> {@link JwtUtils} </td></tr>
  * <tr><td> Extract subject, roles and permissions claims. </td><td> {@link JwtUtils} </td></tr>
+ * <tr><td> Check permissions against the claimed permissions. </td><td> {@link CompiledPermissionSet} </td></tr>
  * </table></pre>
  *
  * @author Rupert Smith
@@ -71,6 +76,9 @@ public class JWTAuthenticationToken implements AuthenticationToken, Authenticati
     /** The extracted permissions claims. */
     private Set<String> permissions;
 
+    /** The extracted permissions claims compiled for checking. */
+    private CompiledPermissionSet compiledPermissions;
+
     /** The public key for checking access tokens against. */
     private PublicKey publicKey;
 
@@ -141,6 +149,18 @@ public class JWTAuthenticationToken implements AuthenticationToken, Authenticati
         return permissions;
     }
 
+    /**
+     * Provides the permissions of the authenticated user compiled for checking.
+     *
+     * <p/>{@link #extractClaims(String)} needs to have been called before this method can be used.
+     *
+     * @return The permissions of the authenticated user compiled for checking.
+     */
+    public CompiledPermissionSet getCompiledPermissions()
+    {
+        return compiledPermissions;
+    }
+
     /**
      * Provides a {@link LocalSubject} that matches the subject, and permissions on this token.
      *
@@ -242,12 +262,10 @@ public class JWTAuthenticationToken implements AuthenticationToken, Authenticati
 
         subject = claims.get("sub", String.class);
 
-        permissions = new LinkedHashSet<>(claims.get("scopes", List.class));
+        List scopes = claims.get("scopes", List.class);
 
-        if (permissions == null)
-        {
-            permissions = new HashSet<>();
-        }
+        permissions = (scopes == null) ? new LinkedHashSet<>() : new LinkedHashSet<>(scopes);
+        compiledPermissions = new CompiledPermissionSet(permissions);
 
         expiresAt = claims.getExpiration();
         issuedAt = claims.getIssuedAt();
@@ -259,7 +277,7 @@ public class JWTAuthenticationToken implements AuthenticationToken, Authenticati
 
         SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
 
-        getPermissions().forEach(info::addStringPermission);
+        info.addObjectPermissions(compiledPermissions.asPermissions());
 
         authorizationInfo = info;
     }
@@ -23,6 +23,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.thesett.util.security.model.AnonymousToken;
 import com.thesett.util.security.model.JWTAuthenticationToken;
+import com.thesett.util.security.shiro.CompiledPermissionSet;
 
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
@@ -37,6 +38,9 @@ import org.apache.shiro.subject.PrincipalCollection;
  * <p/>The creation of the auth token cache is delayed to happen after the constructor is invoked. This is so that the
  * cache timeout can be set as a configuration parameter. It defaults to {@link #DEFAULT_AUTH_CACHE_TIMEOUT_SECONDS}.
  *
+ * <p/>Permission strings are checked directly against the permissions compiled into the JWT token, rather than being
+ * resolved into Shiro permissions on every check.
+ *
  * <pre><p/><table id="crc"><caption>CRC Card</caption>
  * <tr><th> Responsibilities </th><th> Collaborations </th>
  * <tr><td> Verify a user by JWT token. </td><td> </td></tr>
@@ -130,6 +134,64 @@ public class ShiroJWTRealm extends AuthorizingRealm
         return (AuthorizationInfo) principals.getPrimaryPrincipal();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Checks against the permissions compiled into the JWT token, when there is one.
+     */
+    public boolean isPermitted(PrincipalCollection principals, String permission)
+    {
+        CompiledPermissionSet compiledPermissions = getCompiledPermissions(principals);
+
+        return (compiledPermissions != null) ? compiledPermissions.isPermitted(permission)
+                                             : super.isPermitted(principals, permission);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Checks against the permissions compiled into the JWT token, when there is one.
+     */
+    public boolean[] isPermitted(PrincipalCollection principals, String... permissions)
+    {
+        CompiledPermissionSet compiledPermissions = getCompiledPermissions(principals);
+
+        return (compiledPermissions != null) ? compiledPermissions.isPermitted(permissions)
+                                             : super.isPermitted(principals, permissions);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p/>Checks against the permissions compiled into the JWT token, when there is one.
+     */
+    public boolean isPermittedAll(PrincipalCollection principals, String... permissions)
+    {
+        CompiledPermissionSet compiledPermissions = getCompiledPermissions(principals);
+
+        return (compiledPermissions != null) ? compiledPermissions.isPermittedAll(permissions)
+                                             : super.isPermittedAll(principals, permissions);
+    }
+
+    /**
+     * Provides the compiled permissions of the JWT token that is the primary principal, if there is one.
+     *
+     * @param  principals The principals to get the compiled permissions for.
+     *
+     * @return The compiled permissions, or <tt>null</tt> if the primary principal is not a decoded JWT token.
+     */
+    private CompiledPermissionSet getCompiledPermissions(PrincipalCollection principals)
+    {
+        Object primaryPrincipal = (principals == null) ? null : principals.getPrimaryPrincipal();
+
+        if (primaryPrincipal instanceof JWTAuthenticationToken)
+        {
+            return ((JWTAuthenticationToken) primaryPrincipal).getCompiledPermissions();
+        }
+
+        return null;
+    }
+
     /**
      * Extracts AuthenticationInfo from a JWTAuthenticationToken. The token is decoded or looked up in a cache of
      * recently decoded tokens.